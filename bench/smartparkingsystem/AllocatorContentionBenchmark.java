@@ -0,0 +1,96 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * AllocatorContentionBenchmark - JMH comparison of the lock-free bitmap
+ * allocator with the original lock-based allocator
+ * Each operation is one park (allocate) and leave (release) pair; the
+ * contended runs share one allocator between gate threads. Sweep further
+ * thread counts with JMH's -t option.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dsmartparking.log.level=WARN"})
+public class AllocatorContentionBenchmark {
+    
+    /**
+     * One allocator shared by every benchmark thread
+     */
+    @State(Scope.Benchmark)
+    public static class SharedAllocator {
+        @Param({"locking", "bitmap"})
+        public String allocatorType;
+        
+        @Param({"50"})
+        public int spaces;
+        
+        SpaceAllocator allocator;
+        
+        @Setup(Level.Trial)
+        public void setUp() {
+            allocator = allocatorType.equals("locking")
+                    ? new LockingSpaceAllocator(spaces)
+                    : new BitmapSpaceAllocator(spaces);
+        }
+    }
+    
+    /**
+     * Park then leave, 8 gates contending for the same allocator
+     */
+    @Benchmark
+    @Threads(8)
+    public int allocateAndRelease(SharedAllocator shared) {
+        return parkAndLeave(shared.allocator);
+    }
+    
+    /**
+     * Park then leave, 32 gates contending for the same allocator
+     */
+    @Benchmark
+    @Threads(32)
+    public int allocateAndReleaseHeavy(SharedAllocator shared) {
+        return parkAndLeave(shared.allocator);
+    }
+    
+    /**
+     * Park then leave on a single thread (uncontended baseline)
+     */
+    @Benchmark
+    @Threads(1)
+    public int allocateAndReleaseUncontended(SharedAllocator shared) {
+        return parkAndLeave(shared.allocator);
+    }
+    
+    private static int parkAndLeave(SpaceAllocator allocator) {
+        int space = allocator.allocate();
+        if (space != -1) {
+            allocator.release(space);
+        }
+        return space;
+    }
+}
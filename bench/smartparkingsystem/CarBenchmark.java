@@ -0,0 +1,57 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CarBenchmark - JMH benchmark for fee calculation
+ * Uses a virtual clock advanced past the parking time, so the car has a
+ * real multi-hour stay to price
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dsmartparking.log.level=WARN", "-Dsmartparking.zeroLatency=true"})
+public class CarBenchmark {
+    
+    /**
+     * A parked car that has stayed for 150 minutes
+     */
+    @State(Scope.Thread)
+    public static class ParkedCar {
+        Car car;
+        
+        @Setup(Level.Trial)
+        public void setUp() {
+            VirtualClock clock = new VirtualClock();
+            car = new Car("BENCH0", "BEN0", "Benchmark", clock);
+            car.setParkingNanos(clock.nanoTime());
+            clock.advanceBy(TimeUnit.MINUTES.toNanos(150));
+        }
+    }
+    
+    @Benchmark
+    public double calculatePaymentAmount(ParkedCar parked) {
+        return parked.car.calculatePaymentAmount();
+    }
+}
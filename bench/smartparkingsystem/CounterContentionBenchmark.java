@@ -0,0 +1,176 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CounterContentionBenchmark - JMH comparison of the original shared atomic
+ * statistics counters with the striped LongAdder counters
+ * Each operation records one vehicle: an entry count, a revenue add and a
+ * per-gate processing record, as Statistics does for every car. Sweep
+ * further thread counts with JMH's -t option.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dsmartparking.log.level=WARN"})
+public class CounterContentionBenchmark {
+    
+    /**
+     * One counter layout shared by every benchmark thread
+     */
+    @State(Scope.Benchmark)
+    public static class SharedCounters {
+        @Param({"atomic", "striped"})
+        public String counterType;
+        
+        @Param({"5"})
+        public int gates;
+        
+        Counters counters;
+        final AtomicInteger nextGate = new AtomicInteger();
+        
+        @Setup(Level.Trial)
+        public void setUp() {
+            counters = counterType.equals("atomic") ? new AtomicCounters() : new StripedCounters(gates);
+        }
+        
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            counters.close();
+        }
+    }
+    
+    /**
+     * Per-thread gate and a rolling processing time
+     */
+    @State(Scope.Thread)
+    public static class Gate {
+        int gate;
+        long processed;
+        
+        @Setup(Level.Trial)
+        public void setUp(SharedCounters shared) {
+            gate = shared.nextGate.getAndIncrement() % shared.gates;
+        }
+    }
+    
+    /**
+     * Record vehicles from 8 gate threads
+     */
+    @Benchmark
+    @Threads(8)
+    public void recordVehicle(SharedCounters shared, Gate gate) {
+        shared.counters.record(gate.gate, 1000 + (gate.processed++ & 0xFF));
+    }
+    
+    /**
+     * Record vehicles from 32 gate threads
+     */
+    @Benchmark
+    @Threads(32)
+    public void recordVehicleHeavy(SharedCounters shared, Gate gate) {
+        shared.counters.record(gate.gate, 1000 + (gate.processed++ & 0xFF));
+    }
+    
+    /**
+     * One vehicle's worth of statistics updates
+     */
+    interface Counters {
+        void record(int gate, long processingTimeMs);
+        void close();
+    }
+    
+    /**
+     * The original layout: shared atomics and a check-then-put gate map
+     */
+    static class AtomicCounters implements Counters {
+        private final AtomicInteger vehiclesEntered = new AtomicInteger();
+        private final AtomicLong revenue = new AtomicLong();
+        private final ConcurrentHashMap<String, AtomicInteger> gateCounts = new ConcurrentHashMap<String, AtomicInteger>();
+        private final ConcurrentHashMap<String, AtomicLong> gateTimes = new ConcurrentHashMap<String, AtomicLong>();
+        private final String[] gateNames = new String[64];
+        
+        AtomicCounters() {
+            for (int i = 0; i < gateNames.length; i++) {
+                gateNames[i] = "Gate-" + i;
+            }
+        }
+        
+        @Override
+        public void record(int gate, long processingTimeMs) {
+            vehiclesEntered.incrementAndGet();
+            revenue.addAndGet(200);
+            
+            String gateName = gateNames[gate];
+            if (!gateCounts.containsKey(gateName)) {
+                gateCounts.put(gateName, new AtomicInteger(0));
+            }
+            gateCounts.get(gateName).incrementAndGet();
+            if (!gateTimes.containsKey(gateName)) {
+                gateTimes.put(gateName, new AtomicLong(0));
+            }
+            gateTimes.get(gateName).addAndGet(processingTimeMs);
+        }
+        
+        @Override
+        public void close() {
+        }
+    }
+    
+    /**
+     * The current layout: the real Statistics with gates registered up front
+     */
+    static class StripedCounters implements Counters {
+        private final Statistics statistics = new Statistics(SystemClock.ZERO_LATENCY);
+        private final Statistics.GateCounters[] gates;
+        private final LongAdder vehiclesEntered = new LongAdder();
+        private final LongAdder revenue = new LongAdder();
+        
+        StripedCounters(int gateCount) {
+            gates = new Statistics.GateCounters[gateCount];
+            for (int i = 0; i < gates.length; i++) {
+                gates[i] = statistics.registerGate("Gate-" + i);
+            }
+        }
+        
+        @Override
+        public void record(int gate, long processingTimeMs) {
+            vehiclesEntered.increment();
+            revenue.add(200);
+            statistics.recordGateProcessing(gates[gate], processingTimeMs);
+        }
+        
+        @Override
+        public void close() {
+            statistics.shutdown();
+        }
+    }
+}
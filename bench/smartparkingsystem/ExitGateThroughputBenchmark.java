@@ -0,0 +1,148 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ExitGateThroughputBenchmark - JMH benchmark for one exit gate's throughput
+ * Each operation runs a single ExitGate until a batch of parked, owing cars
+ * has left. Gate and payment latencies are real sleeps compressed 100x, so
+ * the score shows how much of the payment round-trip the gate overlaps with
+ * other cars as the in-flight limit grows (1 = the old one-car-at-a-time gate),
+ * and how many round-trips settlement batching saves (batch size 1 = one
+ * gateway call per car).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dsmartparking.log.level=WARN"})
+public class ExitGateThroughputBenchmark {
+    
+    private static final int BATCH_SIZE = 30;
+    private static final long BATCH_LINGER_MS = 2;     // 200ms default, compressed like the sleeps
+    
+    /**
+     * A lot holding one batch of cars that have stayed two hours
+     */
+    @State(Scope.Thread)
+    public static class ExitBatch {
+        @Param({"1", "3", "6"})
+        int inFlight;
+        
+        @Param({"1", "8"})
+        int settlementBatchSize;
+        
+        final SimulationClock clock = new CompressedClock(100);
+        PaymentProcessor paymentProcessor;
+        Statistics statistics;
+        ParkingLot parkingLot;
+        BlockingQueue<Car> exitQueue;
+        ExitGate gate;
+        Thread gateThread;
+        
+        @Setup(Level.Trial)
+        public void setUpTrial() {
+            paymentProcessor = new PaymentProcessor(0.0, 0.0, clock, new PaymentCircuitBreaker(clock), false,
+                    settlementBatchSize, BATCH_LINGER_MS);
+            statistics = new Statistics(clock);
+        }
+        
+        @Setup(Level.Invocation)
+        public void setUpBatch() {
+            parkingLot = new ParkingLot(BATCH_SIZE, 1, clock);
+            exitQueue = new LinkedBlockingQueue<>();
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                Car car = new Car("BENCH" + i, "BEN" + i, "Benchmark", clock);
+                parkingLot.tryParkCar(car, 0);
+                car.setParkingNanos(clock.nanoTime() - TimeUnit.HOURS.toNanos(2));
+                exitQueue.add(car);
+            }
+            gate = new ExitGate(1, parkingLot, exitQueue, paymentProcessor, statistics, inFlight);
+            gateThread = new Thread(gate, "BenchExitGate");
+        }
+        
+        @TearDown(Level.Invocation)
+        public void stopGate() throws InterruptedException {
+            gate.shutdown();
+            gateThread.join();
+        }
+        
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            paymentProcessor.shutdown();
+            statistics.shutdown();
+        }
+    }
+    
+    @Benchmark
+    public int exitBatch(ExitBatch batch) throws InterruptedException {
+        batch.gateThread.start();
+        while (batch.parkingLot.getStatus().getOccupiedSpaces() > 0) {
+            Thread.sleep(1);
+        }
+        return batch.gate.getStats().getVehiclesExited();
+    }
+    
+    /**
+     * Wall clock whose sleeps are shortened by a fixed factor
+     */
+    static final class CompressedClock implements SimulationClock {
+        private final long factor;
+        
+        CompressedClock(long factor) {
+            this.factor = factor;
+        }
+        
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+        
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+        
+        @Override
+        public LocalDateTime now() {
+            return LocalDateTime.now();
+        }
+        
+        @Override
+        public void sleep(long millis) throws InterruptedException {
+            TimeUnit.MICROSECONDS.sleep(millis * 1000 / factor);
+        }
+        
+        @Override
+        public Random random() {
+            return ThreadLocalRandom.current();
+        }
+    }
+}
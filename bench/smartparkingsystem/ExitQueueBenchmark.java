@@ -0,0 +1,97 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ExitQueueBenchmark - JMH benchmark for exit-queue admission
+ * Threads admit parked vehicles through ExitGateManager while taking one off
+ * per operation in place of the exit gates, which are never started, so the
+ * queue stays at a steady depth. Cars are built up front and recycled, so
+ * the operation measures the queue rather than allocation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dsmartparking.log.level=WARN", "-Dsmartparking.zeroLatency=true"})
+@Threads(8)
+public class ExitQueueBenchmark {
+    
+    // Cars each thread cycles through (power of two)
+    private static final int CARS_PER_THREAD = 1024;
+    
+    /**
+     * One exit manager shared by every benchmark thread
+     */
+    @State(Scope.Benchmark)
+    public static class SharedManager {
+        ExitGateManager exitGateManager;
+        Statistics statistics;
+        final AtomicInteger nextGate = new AtomicInteger();
+        
+        @Setup(Level.Trial)
+        public void setUp() {
+            ParkingLot parkingLot = new ParkingLot(1000, 5, SystemClock.ZERO_LATENCY);
+            PaymentProcessor paymentProcessor = new PaymentProcessor(0.0, 0.0, SystemClock.ZERO_LATENCY);
+            statistics = new Statistics(SystemClock.ZERO_LATENCY);
+            exitGateManager = new ExitGateManager(parkingLot, paymentProcessor, statistics);
+        }
+        
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            statistics.shutdown();
+        }
+    }
+    
+    /**
+     * Per-thread ring of parked cars, far larger than the queue ever gets, so
+     * a car is always out of the queue again before it comes round
+     */
+    @State(Scope.Thread)
+    public static class Cars {
+        final Car[] cars = new Car[CARS_PER_THREAD];
+        int next;
+        
+        @Setup(Level.Trial)
+        public void setUp(SharedManager shared) {
+            int gate = shared.nextGate.getAndIncrement();
+            for (int i = 0; i < cars.length; i++) {
+                String id = gate + "-" + i;
+                cars[i] = new Car("BENCH" + id, "BEN" + id, "Benchmark", SystemClock.ZERO_LATENCY);
+                cars[i].setSpaceNumber((gate * CARS_PER_THREAD + i) % 1000);
+            }
+        }
+    }
+    
+    @Benchmark
+    public Car admitAndTake(SharedManager shared, Cars cars) {
+        Car car = cars.cars[cars.next++ & (CARS_PER_THREAD - 1)];
+        car.clearQueuedForExit();
+        
+        shared.exitGateManager.addVehicleToExitQueue(car);
+        return shared.exitGateManager.pollExitQueue();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ParkingLotBenchmark - JMH benchmarks for the shared parking lot
+ * Park/remove runs with many gate threads hitting one lot; getStatus is what
+ * the monitor and reporters call while gates are busy. The lot uses the
+ * zero-latency clock, so no simulated delay is measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dsmartparking.log.level=WARN", "-Dsmartparking.zeroLatency=true"})
+public class ParkingLotBenchmark {
+    
+    /**
+     * One lot shared by every benchmark thread
+     */
+    @State(Scope.Benchmark)
+    public static class SharedLot {
+        @Param({"1000"})
+        public int totalSpaces;
+        
+        @Param({"1", "5"})
+        public int levelCount;
+        
+        ParkingLot parkingLot;
+        final AtomicInteger nextGate = new AtomicInteger();
+        
+        @Setup(Level.Trial)
+        public void setUp() {
+            parkingLot = new ParkingLot(totalSpaces, levelCount, SystemClock.ZERO_LATENCY);
+        }
+    }
+    
+    /**
+     * Per-thread gate: its home level and the car it keeps parking
+     */
+    @State(Scope.Thread)
+    public static class Gate {
+        int homeLevel;
+        Car car;
+        
+        @Setup(Level.Trial)
+        public void setUp(SharedLot lot) {
+            int gate = lot.nextGate.getAndIncrement();
+            homeLevel = gate % lot.levelCount;
+            car = new Car("BENCH" + gate, "BEN" + gate, "Benchmark", SystemClock.ZERO_LATENCY);
+        }
+    }
+    
+    /**
+     * Park then remove one car, 8 gates contending for the same lot
+     */
+    @Benchmark
+    @Threads(8)
+    public boolean parkAndRemove(SharedLot lot, Gate gate) {
+        lot.parkingLot.parkCar(gate.car, gate.homeLevel);
+        return lot.parkingLot.removeCar(gate.car);
+    }
+    
+    /**
+     * Park then remove one car on a single thread (uncontended baseline)
+     */
+    @Benchmark
+    @Threads(1)
+    public boolean parkAndRemoveUncontended(SharedLot lot, Gate gate) {
+        lot.parkingLot.parkCar(gate.car, gate.homeLevel);
+        return lot.parkingLot.removeCar(gate.car);
+    }
+    
+    /**
+     * Take a status snapshot of a half-full lot
+     */
+    @Benchmark
+    @Threads(1)
+    public ParkingLot.ParkingStatus getStatus(HalfFullLot lot) {
+        return lot.parkingLot.getStatus();
+    }
+    
+    /**
+     * A lot filled to half capacity, so status has real occupancy to report
+     */
+    @State(Scope.Benchmark)
+    public static class HalfFullLot {
+        @Param({"1000"})
+        public int totalSpaces;
+        
+        @Param({"1", "5"})
+        public int levelCount;
+        
+        ParkingLot parkingLot;
+        
+        @Setup(Level.Trial)
+        public void setUp() {
+            parkingLot = new ParkingLot(totalSpaces, levelCount, SystemClock.ZERO_LATENCY);
+            for (int i = 0; i < totalSpaces / 2; i++) {
+                Car car = new Car("BENCH" + i, "BEN" + i, "Benchmark", SystemClock.ZERO_LATENCY);
+                parkingLot.tryParkCar(car, i % levelCount);
+            }
+        }
+    }
+}
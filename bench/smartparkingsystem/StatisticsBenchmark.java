@@ -0,0 +1,102 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * StatisticsBenchmark - JMH benchmarks for the statistics hot path
+ * Every gate thread records each vehicle it handles, so these run with
+ * 8 threads sharing one Statistics instance
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dsmartparking.log.level=WARN", "-Dsmartparking.zeroLatency=true"})
+@Threads(8)
+public class StatisticsBenchmark {
+    
+    // Gates the benchmark threads are spread over (the simulation default)
+    private static final int GATES = 5;
+    
+    /**
+     * One Statistics instance shared by every benchmark thread
+     */
+    @State(Scope.Benchmark)
+    public static class SharedStatistics {
+        Statistics statistics;
+        final AtomicInteger nextGate = new AtomicInteger();
+        
+        @Setup(Level.Trial)
+        public void setUp() {
+            statistics = new Statistics(SystemClock.ZERO_LATENCY);
+        }
+        
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            statistics.shutdown();
+        }
+    }
+    
+    /**
+     * Per-thread gate handle and the car it reports
+     */
+    @State(Scope.Thread)
+    public static class Gate {
+        String gateName;
+        Statistics.GateCounters counters;
+        Car car;
+        
+        @Setup(Level.Trial)
+        public void setUp(SharedStatistics shared) {
+            int gate = shared.nextGate.getAndIncrement();
+            gateName = "Gate-" + (gate % GATES);
+            counters = shared.statistics.registerGate(gateName);
+            car = new Car("BENCH" + gate, "BEN" + gate, "Benchmark", SystemClock.ZERO_LATENCY);
+        }
+    }
+    
+    @Benchmark
+    public void recordVehicleEntry(SharedStatistics shared, Gate gate) {
+        shared.statistics.recordVehicleEntry(gate.car, ThreadLocalRandom.current().nextInt(0, 5000));
+    }
+    
+    /**
+     * Record through the gate's pre-registered counters (the gates' path)
+     */
+    @Benchmark
+    public void recordGateProcessing(SharedStatistics shared, Gate gate) {
+        shared.statistics.recordGateProcessing(gate.counters, ThreadLocalRandom.current().nextInt(500, 2000));
+    }
+    
+    /**
+     * Record by gate name, paying the map lookup each time
+     */
+    @Benchmark
+    public void recordGateProcessingByName(SharedStatistics shared, Gate gate) {
+        shared.statistics.recordGateProcessing(gate.gateName, ThreadLocalRandom.current().nextInt(500, 2000));
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AdmissionControl - Decides what happens to a vehicle that cannot be served
+ * Applied at two points: when the bounded arrival buffer is full, and when a
+ * gate has waited the park timeout for a space in a full lot. The policy
+ * either turns the vehicle away, diverts it to an overflow lot, or holds it
+ * (the generator blocks on the buffer, the gate keeps waiting for a space).
+ * Every refusal is recorded in Statistics with its reason.
+ */
+public class AdmissionControl {
+    
+    // Constants
+    private static final EventLog.Component LOG = EventLog.component("ADMISSION");
+    public static final int DEFAULT_ARRIVAL_CAPACITY = 100;
+    public static final long DEFAULT_PARK_TIMEOUT_MS = 30000;
+    public static final int DEFAULT_OVERFLOW_SPACES = 50;
+    
+    // Results of park() other than a space number
+    public static final int INTERRUPTED = -1;
+    public static final int TURNED_AWAY = -2;
+    public static final int DIVERTED = -3;
+    
+    // Rejection reasons
+    public static final String ARRIVAL_BUFFER_FULL = "ARRIVAL_BUFFER_FULL";
+    public static final String LOT_FULL = "LOT_FULL";
+    
+    /**
+     * What to do with a vehicle that cannot be served
+     */
+    public enum Policy {
+        TURN_AWAY,              // Refuse entry; the driver leaves
+        DIVERT_TO_OVERFLOW,     // Send to the overflow lot (turned away if that is full too)
+        HOLD_AT_GATE;           // Keep waiting (the original unbounded behaviour)
+        
+        /**
+         * Parse "turn-away", "divert" or "hold"
+         */
+        public static Policy parse(String name) {
+            String normalized = name.trim().toLowerCase(Locale.ROOT);
+            if (normalized.startsWith("turn")) {
+                return TURN_AWAY;
+            }
+            if (normalized.startsWith("divert")) {
+                return DIVERT_TO_OVERFLOW;
+            }
+            if (normalized.startsWith("hold")) {
+                return HOLD_AT_GATE;
+            }
+            throw new IllegalArgumentException("Unknown admission policy: " + name);
+        }
+    }
+    
+    // Configuration
+    private final Policy policy;
+    private final int arrivalCapacity;
+    private final long parkTimeoutMs;
+    private final ParkingLot overflowLot;       // null: nowhere to divert to
+    
+    // Dependencies
+    private final Statistics statistics;
+    
+    /**
+     * Constructor with the default hold-at-gate policy
+     */
+    public AdmissionControl(Statistics statistics) {
+        this(Policy.HOLD_AT_GATE, DEFAULT_ARRIVAL_CAPACITY, DEFAULT_PARK_TIMEOUT_MS, null, statistics);
+    }
+    
+    /**
+     * Constructor
+     * @param policy what to do with vehicles that cannot be served
+     * @param arrivalCapacity size of the arrival buffer in front of the gates
+     * @param parkTimeoutMs how long a gate waits for a space before applying the policy
+     * @param overflowLot lot to divert to (may be null)
+     * @param statistics collector for rejections and queue times
+     */
+    public AdmissionControl(Policy policy, int arrivalCapacity, long parkTimeoutMs, ParkingLot overflowLot,
+                            Statistics statistics) {
+        if (arrivalCapacity <= 0) {
+            throw new IllegalArgumentException("Arrival capacity must be positive: " + arrivalCapacity);
+        }
+        this.policy = policy;
+        this.arrivalCapacity = arrivalCapacity;
+        this.parkTimeoutMs = parkTimeoutMs;
+        this.overflowLot = overflowLot;
+        this.statistics = statistics;
+        
+        LOG.info("Admission control - Policy: {}, Arrival buffer: {}, Park timeout: {}ms, Overflow spaces: {}",
+                policy, arrivalCapacity, parkTimeoutMs, overflowLot != null ? overflowLot.getTotalSpaces() : 0);
+    }
+    
+    /**
+     * Build from system properties: smartparking.admission.policy (hold|turn-away|divert),
+     * smartparking.admission.bufferSize, smartparking.admission.parkTimeoutMs and
+     * smartparking.admission.overflowSpaces (used by the divert policy)
+     * @param clock time source for the overflow lot
+     */
+    public static AdmissionControl fromSystemProperties(Statistics statistics, SimulationClock clock) {
+        Policy policy = Policy.parse(System.getProperty("smartparking.admission.policy", "hold"));
+        int bufferSize = Integer.getInteger("smartparking.admission.bufferSize", DEFAULT_ARRIVAL_CAPACITY);
+        long parkTimeoutMs = Long.getLong("smartparking.admission.parkTimeoutMs", DEFAULT_PARK_TIMEOUT_MS);
+        
+        ParkingLot overflowLot = null;
+        if (policy == Policy.DIVERT_TO_OVERFLOW) {
+            int overflowSpaces = Integer.getInteger("smartparking.admission.overflowSpaces", DEFAULT_OVERFLOW_SPACES);
+            if (overflowSpaces > 0) {
+                overflowLot = new ParkingLot(overflowSpaces, 1, clock);
+            }
+        }
+        return new AdmissionControl(policy, bufferSize, parkTimeoutMs, overflowLot, statistics);
+    }
+    
+    /**
+     * Decide what to do with an arrival that found the buffer full
+     * @return true if the caller should block until the buffer has room (hold),
+     *         false if the vehicle has been turned away or diverted
+     */
+    public boolean onArrivalBufferFull(Car car) {
+        if (policy == Policy.HOLD_AT_GATE) {
+            return true;
+        }
+        refuse(car, ARRIVAL_BUFFER_FULL);
+        return false;
+    }
+    
+    /**
+     * Claim a space for a car at a gate under this policy
+     * @return space number, or INTERRUPTED, TURNED_AWAY or DIVERTED
+     */
+    public int park(ParkingLot parkingLot, Car car, int homeLevel) {
+        if (policy == Policy.HOLD_AT_GATE) {
+            return parkingLot.parkCar(car, homeLevel);
+        }
+        
+        int spaceNumber = parkingLot.tryParkCar(car, homeLevel, parkTimeoutMs, TimeUnit.MILLISECONDS);
+        if (spaceNumber != -1) {
+            return spaceNumber;
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            return INTERRUPTED;
+        }
+        return refuse(car, LOT_FULL);
+    }
+    
+    /**
+     * Turn away or divert a car whose gate waited the park timeout in a full lot
+     * Used by the discrete-event engine, which waits in virtual time instead of in park()
+     * @return TURNED_AWAY or DIVERTED
+     */
+    int onParkTimeout(Car car) {
+        return refuse(car, LOT_FULL);
+    }
+    
+    /**
+     * Turn away or divert a car and record why
+     * @return TURNED_AWAY or DIVERTED
+     */
+    private int refuse(Car car, String reason) {
+        if (policy == Policy.DIVERT_TO_OVERFLOW && overflowLot != null && overflowLot.tryParkCar(car, 0) != -1) {
+            statistics.recordVehicleDiverted(car, reason);
+            return DIVERTED;
+        }
+        statistics.recordVehicleTurnedAway(car, reason);
+        return TURNED_AWAY;
+    }
+    
+    // Getters
+    public Policy getPolicy() { return policy; }
+    public int getArrivalCapacity() { return arrivalCapacity; }
+    public long getParkTimeoutMs() { return parkTimeoutMs; }
+    public ParkingLot getOverflowLot() { return overflowLot; }
+}
@@ -0,0 +1,50 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.util.Random;
+
+/**
+ * ArrivalSource - Strategy for when vehicles arrive
+ * The VehicleGenerator asks for one gap at a time, so a source never holds
+ * the arrival stream in memory and may be unbounded
+ */
+public interface ArrivalSource {
+    
+    /**
+     * Arrival count of a source that never runs out
+     */
+    long UNBOUNDED = Long.MAX_VALUE;
+    
+    /**
+     * Get the number of arrivals this source produces
+     * @return arrival count, or UNBOUNDED
+     */
+    long getTotalArrivals();
+    
+    /**
+     * Draw the gap between an arrival and the next one
+     * @param index zero-based position of the arrival in the stream
+     * @param random generator to draw from (the simulation clock's)
+     * @return gap in nanoseconds of simulation time
+     */
+    long nextGapNanos(long index, Random random);
+    
+    /**
+     * Get the stay lengths that go with this arrival pattern
+     * @return per-type durations, or null to keep each car's own 1-5 minute draw
+     */
+    ParkingDurations getParkingDurations();
+    
+    /**
+     * Short description for logs and reports
+     */
+    String describe();
+}
@@ -0,0 +1,568 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BatchRunner - Headless, non-interactive runner for scenario files
+ * Each argument is a scenario in java.util.Properties format. The runner
+ * understands the layout keys below. Any other key must name one of the
+ * system's smartparking.* settings, with or without that prefix (so
+ * arrivals.pattern=poisson, payment.failureRate=0.1 and log.file=run.log
+ * all work); it is applied as a system property for that scenario only.
+ * Bare keys are checked against the known settings, so a typo is an error;
+ * fully prefixed keys are passed through as written.
+ *
+ * Every file is loaded and checked before the first scenario runs - layout
+ * values, the arrival model and the payment rates - so a bad value is a
+ * usage error rather than a failure halfway through the batch. Scenarios
+ * run one after another in this JVM, and each prints one JSON summary
+ * line; the exit status is 0 when every scenario completed, 1 when any
+ * failed (including a threaded run whose gates or payment threads had to
+ * be forced to stop), and 2 for a usage error.
+ *
+ *   name            label in the summary (default: file name)
+ *   mode            des (virtual time, default) or threaded (real gate threads)
+ *   capacity        parking spaces (default 50)
+ *   levels          levels the spaces are split across (default 1)
+ *   entryGates      entry gates (default 3)
+ *   exitGates       exit gates (default 2)
+ *   durationMinutes minutes of traffic to simulate (default 5)
+ *   seed            random seed, des mode only (default 1)
+ *   start           virtual start time as 2024-01-01T08:00, des mode only (default that)
+ *   clock           system or zeroLatency, threaded mode only (default system)
+ *   timeoutMinutes  threaded mode only; longest to wait past the duration (default 2)
+ *   output.summary  file to append the JSON line to (default stdout)
+ *   output.report   full statistics report: stderr (or true), or a file to append to (default none)
+ *
+ * The event log is configured once per process, so log.format and log.file
+ * are taken from the first scenario. Unless set, the log goes to stderr at
+ * WARN so stdout carries only the summaries; log.level applies per scenario.
+ */
+public class BatchRunner {
+    
+    // Exit codes
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_FAILED = 1;
+    public static final int EXIT_USAGE = 2;
+    
+    // Constants
+    private static final String PROPERTY_PREFIX = "smartparking.";
+    private static final String LOG_LEVEL_PROPERTY = "smartparking.log.level";
+    private static final String LOG_FILE_PROPERTY = "smartparking.log.file";
+    private static final String DEFAULT_LOG_LEVEL = "WARN";
+    private static final String DEFAULT_LOG_FILE = "stderr";
+    private static final int DEFAULT_TIMEOUT_MINUTES = 2;
+    
+    // Settings a scenario may give without the "smartparking." prefix (the clock key sets zeroLatency)
+    private static final Set<String> SETTINGS = new HashSet<String>(Arrays.asList(
+            "admission.bufferSize", "admission.overflowSpaces", "admission.parkTimeoutMs", "admission.policy",
+            "arrivals.count", "arrivals.pattern", "arrivals.profile", "arrivals.ratePerMinute",
+            "arrivals.rateScale", "arrivals.startTime",
+            "autoscale", "autoscale.cooldownIntervals", "autoscale.entryGates", "autoscale.exitGates",
+            "autoscale.intervalSeconds", "autoscale.scaleDownQueue", "autoscale.scaleUpQueue",
+            "entry.routing", "entry.stages", "exit.inFlight", "generator.history",
+            "journal.dir", "journal.fsyncIntervalMs", "journal.groupCommitMax", "journal.snapshotEvery",
+            "log.buffer", "log.file", "log.format", "log.level", "log.off",
+            "occupancy.file",
+            "payment.batchLingerMs", "payment.batchSize", "payment.breaker.failureThreshold",
+            "payment.breaker.openMs", "payment.failureRate", "payment.malfunctionRate", "payment.payLater",
+            "replay.speed", "replay.trace", "virtualThreads"));
+    
+    /**
+     * One parsed scenario file
+     */
+    static class Scenario {
+        private final Path file;
+        private final String name;
+        private final String mode;
+        private final int capacity;
+        private final int levels;
+        private final int entryGates;
+        private final int exitGates;
+        private final int durationMinutes;
+        private final long seed;
+        private final LocalDateTime start;
+        private final boolean zeroLatency;
+        private final int timeoutMinutes;
+        private final Path summaryFile;                  // null for stdout
+        private final boolean printReport;
+        private final Path reportFile;                   // null for stderr
+        private final Map<String, String> properties;    // Forwarded as system properties
+        
+        private Scenario(Path file, Properties props) {
+            this.file = file;
+            Properties remaining = new Properties();
+            remaining.putAll(props);
+            
+            String fileName = file.getFileName().toString();
+            int dot = fileName.lastIndexOf('.');
+            this.name = take(remaining, "name", dot > 0 ? fileName.substring(0, dot) : fileName);
+            this.mode = take(remaining, "mode", "des").toLowerCase(Locale.ROOT);
+            if (!mode.equals("des") && !mode.equals("threaded")) {
+                throw new IllegalArgumentException("mode must be des or threaded: " + mode);
+            }
+            this.capacity = positiveInt(remaining, "capacity", ParkingLot.DEFAULT_TOTAL_SPACES);
+            this.levels = positiveInt(remaining, "levels", ParkingLot.DEFAULT_LEVEL_COUNT);
+            this.entryGates = positiveInt(remaining, "entryGates", DiscreteEventSimulation.DEFAULT_ENTRY_GATES);
+            this.exitGates = positiveInt(remaining, "exitGates", DiscreteEventSimulation.DEFAULT_EXIT_GATES);
+            this.durationMinutes = positiveInt(remaining, "durationMinutes", DiscreteEventSimulation.DEFAULT_DURATION_MINUTES);
+            
+            String seedValue = take(remaining, "seed", String.valueOf(VirtualClock.DEFAULT_SEED));
+            try {
+                this.seed = Long.parseLong(seedValue);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("seed must be a whole number: " + seedValue);
+            }
+            String startValue = take(remaining, "start", DiscreteEventSimulation.DEFAULT_START.toString());
+            try {
+                this.start = LocalDateTime.parse(startValue);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("start must be a date-time such as 2024-01-01T08:00: " + startValue);
+            }
+            
+            String clock = take(remaining, "clock", "system");
+            if (clock.equals("system")) {
+                this.zeroLatency = false;
+            } else if (clock.equals("zeroLatency")) {
+                this.zeroLatency = true;
+            } else {
+                throw new IllegalArgumentException("clock must be system or zeroLatency: " + clock);
+            }
+            this.timeoutMinutes = positiveInt(remaining, "timeoutMinutes", DEFAULT_TIMEOUT_MINUTES);
+            
+            String summary = take(remaining, "output.summary", null);
+            this.summaryFile = summary != null ? resolve(file, summary) : null;
+            String report = take(remaining, "output.report", "false");
+            this.printReport = !report.equals("false");
+            this.reportFile = report.equals("true") || report.equals("stderr") || !printReport
+                    ? null : resolve(file, report);
+            
+            this.properties = new LinkedHashMap<String, String>();
+            for (String key : remaining.stringPropertyNames()) {
+                if (!key.startsWith(PROPERTY_PREFIX) && !SETTINGS.contains(key)) {
+                    throw new IllegalArgumentException("Unknown scenario key: " + key);
+                }
+                properties.put(key.startsWith(PROPERTY_PREFIX) ? key : PROPERTY_PREFIX + key,
+                        remaining.getProperty(key).trim());
+            }
+            if (mode.equals("threaded")) {
+                properties.put("smartparking.zeroLatency", String.valueOf(zeroLatency));
+            }
+        }
+        
+        /**
+         * Read and validate a scenario file
+         */
+        static Scenario load(Path file) throws IOException {
+            Properties props = new Properties();
+            try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                props.load(in);
+            }
+            Scenario scenario = new Scenario(file, props);
+            scenario.checkSettings();
+            return scenario;
+        }
+        
+        /**
+         * Build what the run would build from the forwarded settings, with them applied
+         */
+        private void checkSettings() {
+            Map<String, String> previous = applyProperties(this);
+            try {
+                logLevel();
+                ArrivalSource arrivals = VehicleGenerator.configuredArrivals(
+                        VehicleGenerator.DEFAULT_TOTAL_VEHICLES, durationMinutes);
+                if (arrivals instanceof TraceReplay) {
+                    ((TraceReplay) arrivals).close();
+                }
+                PaymentProcessor.configuredRate("smartparking.payment.failureRate", 0.0);
+                PaymentProcessor.configuredRate("smartparking.payment.malfunctionRate", 0.0);
+            } catch (UncheckedIOException e) {
+                throw new IllegalArgumentException(e.getMessage() + " - " + e.getCause());
+            } finally {
+                restoreProperties(previous);
+            }
+        }
+        
+        private static String take(Properties props, String key, String defaultValue) {
+            Object value = props.remove(key);
+            return value != null ? value.toString().trim() : defaultValue;
+        }
+        
+        private static int positiveInt(Properties props, String key, int defaultValue) {
+            String value = take(props, key, null);
+            if (value == null) {
+                return defaultValue;
+            }
+            int parsed;
+            try {
+                parsed = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(key + " must be an integer: " + value);
+            }
+            if (parsed <= 0) {
+                throw new IllegalArgumentException(key + " must be positive: " + parsed);
+            }
+            return parsed;
+        }
+        
+        /**
+         * Relative output paths are taken from the scenario file's directory
+         */
+        private static Path resolve(Path scenarioFile, String path) {
+            Path parent = scenarioFile.toAbsolutePath().getParent();
+            return parent != null ? parent.resolve(path) : Path.of(path);
+        }
+    }
+    
+    /**
+     * Outcome of one scenario
+     */
+    static class Result {
+        private final Scenario scenario;
+        private final long wallMillis;
+        private final String failure;                           // null on success
+        private final Statistics.SystemStatistics stats;        // null if the run never started
+        private final DiscreteEventSimulation.SimulationSummary desSummary;  // des mode only
+        
+        Result(Scenario scenario, long wallMillis, String failure, Statistics.SystemStatistics stats,
+               DiscreteEventSimulation.SimulationSummary desSummary) {
+            this.scenario = scenario;
+            this.wallMillis = wallMillis;
+            this.failure = failure;
+            this.stats = stats;
+            this.desSummary = desSummary;
+        }
+        
+        public boolean isSuccess() { return failure == null; }
+        
+        /**
+         * Single-line JSON summary
+         */
+        String toJson() {
+            StringBuilder json = new StringBuilder(1024);
+            json.append('{');
+            field(json, "scenario", scenario.name);
+            field(json, "file", scenario.file.toString());
+            field(json, "mode", scenario.mode);
+            field(json, "status", failure == null ? "ok" : "failed");
+            if (failure != null) {
+                field(json, "error", failure);
+            }
+            field(json, "capacity", scenario.capacity);
+            field(json, "levels", scenario.levels);
+            field(json, "entryGates", scenario.entryGates);
+            field(json, "exitGates", scenario.exitGates);
+            field(json, "durationMinutes", scenario.durationMinutes);
+            if (scenario.mode.equals("threaded")) {
+                field(json, "clock", scenario.zeroLatency ? "zeroLatency" : "system");
+            } else {
+                field(json, "seed", scenario.seed);
+                field(json, "start", scenario.start.toString());
+            }
+            field(json, "wallMillis", wallMillis);
+            if (desSummary != null) {
+                field(json, "events", desSummary.getEventsProcessed());
+                field(json, "queued", desSummary.getVehiclesQueued());
+            }
+            if (stats != null) {
+                field(json, "generated", stats.totalGenerated);
+                field(json, "entered", stats.totalEntered);
+                field(json, "exited", stats.totalExited);
+                field(json, "parked", stats.currentlyParked);
+                field(json, "turnedAway", stats.vehiclesTurnedAway);
+                field(json, "diverted", stats.vehiclesDiverted);
+                field(json, "peakOccupancy", stats.peakOccupancy);
+                field(json, "peakQueue", stats.peakWaitingQueue);
+                field(json, "revenue", Math.round(stats.totalRevenue * 100) / 100.0);
+                field(json, "paidVehicles", stats.paidVehicles);
+                field(json, "paymentFailures", stats.paymentFailures);
+                field(json, "paymentSuccessRate", stats.paymentSuccessRate);
+                field(json, "errors", stats.totalErrors);
+                field(json, "avgWaitSeconds", stats.averageWaitingTime);
+                field(json, "avgParkingMinutes", stats.averageParkingDuration);
+                percentiles(json, "waitMs", stats.waitTimePercentiles);
+                percentiles(json, "parkingMs", stats.parkingDurationPercentiles);
+                percentiles(json, "gateMs", stats.gateProcessingPercentiles);
+                percentiles(json, "paymentMs", stats.paymentLatencyPercentiles);
+                percentiles(json, "arrivalQueueMs", stats.arrivalQueuePercentiles);
+            }
+            json.setLength(json.length() - 1); // Trailing comma
+            return json.append('}').toString();
+        }
+        
+        private static void percentiles(StringBuilder json, String key, LatencyHistogram.Snapshot snapshot) {
+            if (snapshot == null) {
+                return;
+            }
+            json.append('"').append(key).append("\":{");
+            field(json, "count", snapshot.count);
+            field(json, "p50", snapshot.p50);
+            field(json, "p90", snapshot.p90);
+            field(json, "p99", snapshot.p99);
+            field(json, "p999", snapshot.p999);
+            field(json, "max", snapshot.max);
+            json.setLength(json.length() - 1);
+            json.append("},");
+        }
+        
+        private static void field(StringBuilder json, String key, long value) {
+            json.append('"').append(key).append("\":").append(value).append(',');
+        }
+        
+        private static void field(StringBuilder json, String key, double value) {
+            json.append('"').append(key).append("\":");
+            if (Double.isFinite(value)) {
+                json.append(String.format(Locale.ROOT, "%.4f", value));
+            } else {
+                json.append("null");
+            }
+            json.append(',');
+        }
+        
+        private static void field(StringBuilder json, String key, String value) {
+            json.append('"').append(key).append("\":\"");
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"': json.append("\\\""); break;
+                    case '\\': json.append("\\\\"); break;
+                    case '\n': json.append("\\n"); break;
+                    case '\r': json.append("\\r"); break;
+                    case '\t': json.append("\\t"); break;
+                    default:
+                        if (c < 0x20) {
+                            json.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            json.append(c);
+                        }
+                }
+            }
+            json.append("\",");
+        }
+    }
+    
+    /**
+     * Set a scenario's system properties, plus the batch log defaults
+     * @return the values they replaced, for restoreProperties()
+     */
+    private static Map<String, String> applyProperties(Scenario scenario) {
+        Map<String, String> previous = new LinkedHashMap<String, String>();
+        for (Map.Entry<String, String> entry : scenario.properties.entrySet()) {
+            previous.put(entry.getKey(), System.setProperty(entry.getKey(), entry.getValue()));
+        }
+        if (System.getProperty(LOG_LEVEL_PROPERTY) == null) {
+            previous.put(LOG_LEVEL_PROPERTY, System.setProperty(LOG_LEVEL_PROPERTY, DEFAULT_LOG_LEVEL));
+        }
+        if (System.getProperty(LOG_FILE_PROPERTY) == null) {
+            previous.put(LOG_FILE_PROPERTY, System.setProperty(LOG_FILE_PROPERTY, DEFAULT_LOG_FILE));
+        }
+        return previous;
+    }
+    
+    private static void restoreProperties(Map<String, String> previous) {
+        for (Map.Entry<String, String> entry : previous.entrySet()) {
+            if (entry.getValue() == null) {
+                System.clearProperty(entry.getKey());
+            } else {
+                System.setProperty(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+    
+    /**
+     * Log level from the applied properties
+     */
+    private static EventLog.Level logLevel() {
+        String level = System.getProperty(LOG_LEVEL_PROPERTY).trim().toUpperCase(Locale.ROOT);
+        try {
+            return EventLog.Level.valueOf(level);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown log level: " + level);
+        }
+    }
+    
+    /**
+     * Run one scenario with its properties applied, restoring them afterwards
+     */
+    static Result run(Scenario scenario) {
+        Map<String, String> previous = applyProperties(scenario);
+        PrintStream report = null;
+        long start = System.nanoTime();
+        try {
+            // First use creates the log from the properties above; later scenarios only change its level
+            EventLog.setDefaultLevel(logLevel());
+            
+            report = scenario.printReport ? openReport(scenario) : null;
+            return scenario.mode.equals("threaded")
+                    ? runThreaded(scenario, report, start)
+                    : runDiscreteEvent(scenario, report, start);
+        } catch (Exception e) {
+            return new Result(scenario, elapsedMillis(start), e.toString(), null, null);
+        } finally {
+            EventLog.flush();
+            if (report != null && report != System.err) {
+                report.close();
+            }
+            restoreProperties(previous);
+        }
+    }
+    
+    /**
+     * Stream for the full report: stderr, or the report file opened for append
+     */
+    private static PrintStream openReport(Scenario scenario) throws IOException {
+        if (scenario.reportFile == null) {
+            return System.err;
+        }
+        createParentDirectories(scenario.reportFile);
+        return new PrintStream(Files.newOutputStream(scenario.reportFile,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), true, StandardCharsets.UTF_8);
+    }
+    
+    private static void createParentDirectories(Path file) throws IOException {
+        Path parent = file.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+    }
+    
+    private static Result runDiscreteEvent(Scenario scenario, PrintStream report, long start) {
+        DiscreteEventSimulation simulation = new DiscreteEventSimulation(scenario.capacity, scenario.levels,
+                scenario.entryGates, scenario.exitGates,
+                VehicleGenerator.configuredArrivals(VehicleGenerator.DEFAULT_TOTAL_VEHICLES, scenario.durationMinutes),
+                scenario.durationMinutes, new VirtualClock(scenario.start, scenario.seed));
+        try {
+            DiscreteEventSimulation.SimulationSummary summary = simulation.run();
+            Statistics.SystemStatistics stats = simulation.getStatistics().getCurrentStats();
+            if (report != null) {
+                simulation.getStatistics().printFinalStatistics(report);
+            }
+            return new Result(scenario, elapsedMillis(start), null, stats, summary);
+        } finally {
+            simulation.shutdown();
+        }
+    }
+    
+    private static Result runThreaded(Scenario scenario, PrintStream report, long start) {
+        SimulationController controller = new SimulationController(scenario.capacity, scenario.levels,
+                scenario.entryGates, scenario.exitGates, scenario.durationMinutes);
+        controller.setFinalReportOutput(report);
+        controller.startSimulation();
+        
+        String failure;
+        if (controller.awaitCompletion(scenario.durationMinutes + scenario.timeoutMinutes, TimeUnit.MINUTES)) {
+            failure = controller.getFailureReason();
+        } else {
+            controller.stopSimulation();
+            failure = "Timed out after " + (scenario.durationMinutes + scenario.timeoutMinutes) + " minutes";
+        }
+        return new Result(scenario, elapsedMillis(start), failure, controller.getCurrentStatistics(), null);
+    }
+    
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+    
+    /**
+     * Write a summary line to the scenario's sink
+     */
+    private static void writeSummary(Scenario scenario, String line, PrintStream stdout) throws IOException {
+        if (scenario.summaryFile == null) {
+            stdout.println(line);
+            stdout.flush();
+            return;
+        }
+        createParentDirectories(scenario.summaryFile);
+        try (Writer out = Files.newBufferedWriter(scenario.summaryFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            out.write(line);
+            out.write(System.lineSeparator());
+        }
+    }
+    
+    /**
+     * Run every scenario in order
+     * @return process exit code
+     */
+    public static int runAll(List<Path> files) {
+        // Validate everything up front so a typo fails the batch before any time is spent
+        List<Scenario> scenarios = new ArrayList<Scenario>();
+        for (Path file : files) {
+            try {
+                scenarios.add(Scenario.load(file));
+            } catch (IOException e) {
+                System.err.println("Cannot read scenario " + file + ": " + e);
+                return EXIT_USAGE;
+            } catch (IllegalArgumentException e) {
+                System.err.println("Invalid scenario " + file + ": " + e.getMessage());
+                return EXIT_USAGE;
+            }
+        }
+        
+        int exitCode = EXIT_OK;
+        for (Scenario scenario : scenarios) {
+            Result result = run(scenario);
+            if (!result.isSuccess()) {
+                exitCode = EXIT_FAILED;
+            }
+            try {
+                writeSummary(scenario, result.toJson(), System.out);
+            } catch (IOException e) {
+                System.err.println("Cannot write summary for " + scenario.name + ": " + e);
+                exitCode = EXIT_FAILED;
+            }
+        }
+        return exitCode;
+    }
+    
+    private static void printUsage() {
+        System.err.println("Usage: java smartparkingsystem.BatchRunner <scenario.properties>...");
+        System.err.println("Runs each scenario headless and prints one JSON summary line per scenario.");
+        System.err.println("Exit status: 0 all completed, 1 a scenario failed, 2 usage error.");
+    }
+    
+    public static void main(String[] args) {
+        if (args.length == 0 || args[0].equals("-h") || args[0].equals("--help")) {
+            printUsage();
+            System.exit(args.length == 0 ? EXIT_USAGE : EXIT_OK);
+        }
+        
+        List<Path> files = new ArrayList<Path>();
+        for (String arg : args) {
+            files.add(Path.of(arg));
+        }
+        
+        // Gate and payment pools are not all daemon threads; exit explicitly once done
+        System.exit(runAll(files));
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * BitmapSpaceAllocator - Lock-free space allocator backed by an atomic bitmap
+ * Each bit is one parking space (1 = occupied); spaces are claimed with CAS so
+ * parking and leaving cars never block each other.
+ * A second-level summary bitmap (1 bit per occupancy word, set = word may have a
+ * free space) lets allocation skip full regions 4096 spaces at a time, so large
+ * lots do not pay for a linear scan.
+ */
+public class BitmapSpaceAllocator implements SpaceAllocator {
+    
+    // Constants
+    private static final int BITS_PER_WORD = 64;
+    
+    // Space management
+    private final int capacity;
+    private final int wordCount;
+    private final AtomicLongArray occupancy;           // 64 spaces per word
+    private final AtomicLongArray summary;             // 1 bit per occupancy word
+    private final long lastWordMask;                   // Valid bits of the final word
+    private volatile int nextWordHint;                 // Hint for next word to check
+    
+    /**
+     * Constructor
+     * @param capacity number of parking spaces to manage
+     */
+    public BitmapSpaceAllocator(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.wordCount = (capacity + BITS_PER_WORD - 1) / BITS_PER_WORD;
+        this.occupancy = new AtomicLongArray(wordCount);
+        
+        int remainder = capacity % BITS_PER_WORD;
+        this.lastWordMask = remainder == 0 ? -1L : (1L << remainder) - 1;
+        
+        // Every word starts with free spaces
+        int summaryCount = (wordCount + BITS_PER_WORD - 1) / BITS_PER_WORD;
+        this.summary = new AtomicLongArray(summaryCount);
+        for (int w = 0; w < wordCount; w++) {
+            summary.set(w / BITS_PER_WORD, summary.get(w / BITS_PER_WORD) | (1L << (w % BITS_PER_WORD)));
+        }
+        this.nextWordHint = 0;
+    }
+    
+    /**
+     * Claim a free space: try the hint word, then walk the summary bitmap
+     */
+    @Override
+    public int allocate() {
+        int startWord = nextWordHint;
+        
+        int space = tryClaimInWord(startWord);
+        if (space != -1) {
+            return space;
+        }
+        
+        // Walk summary words from the hint, visiting only words that may have room
+        int summaryCount = summary.length();
+        int startSummary = startWord / BITS_PER_WORD;
+        for (int s = 0; s < summaryCount; s++) {
+            int summaryIndex = (startSummary + s) % summaryCount;
+            long candidates = summary.get(summaryIndex);
+            
+            while (candidates != 0) {
+                int wordIndex = summaryIndex * BITS_PER_WORD + Long.numberOfTrailingZeros(candidates);
+                space = tryClaimInWord(wordIndex);
+                if (space != -1) {
+                    return space;
+                }
+                candidates &= candidates - 1; // Clear lowest candidate
+            }
+        }
+        
+        // Summary is only a hint - confirm the lot is really full before giving up
+        for (int wordIndex = 0; wordIndex < wordCount; wordIndex++) {
+            space = tryClaimInWord(wordIndex);
+            if (space != -1) {
+                return space;
+            }
+        }
+        return -1; // No space found
+    }
+    
+    /**
+     * Claim the lowest free bit of one occupancy word
+     * @return space number or -1 if the word is full
+     */
+    private int tryClaimInWord(int wordIndex) {
+        long validMask = validMask(wordIndex);
+        
+        while (true) {
+            long word = occupancy.get(wordIndex);
+            long freeBits = ~word & validMask;
+            if (freeBits == 0) {
+                markWordFull(wordIndex, validMask);
+                return -1;
+            }
+            
+            int bit = Long.numberOfTrailingZeros(freeBits);
+            long claimed = word | (1L << bit);
+            if (occupancy.compareAndSet(wordIndex, word, claimed)) {
+                if (claimed == validMask) {
+                    markWordFull(wordIndex, validMask);
+                }
+                nextWordHint = wordIndex;
+                return wordIndex * BITS_PER_WORD + bit;
+            }
+            // Lost the race for this word - re-read and try again
+        }
+    }
+    
+    /**
+     * Clear a word's summary bit, restoring it if a space was freed concurrently
+     */
+    private void markWordFull(int wordIndex, long validMask) {
+        int summaryIndex = wordIndex / BITS_PER_WORD;
+        long summaryBit = 1L << (wordIndex % BITS_PER_WORD);
+        
+        clearSummaryBit(summaryIndex, summaryBit);
+        if ((occupancy.get(wordIndex) & validMask) != validMask) {
+            setSummaryBit(summaryIndex, summaryBit);
+        }
+    }
+    
+    @Override
+    public boolean claim(int spaceNumber) {
+        if (spaceNumber < 0 || spaceNumber >= capacity) {
+            return false;
+        }
+        
+        int wordIndex = spaceNumber / BITS_PER_WORD;
+        long mask = 1L << (spaceNumber % BITS_PER_WORD);
+        long validMask = validMask(wordIndex);
+        
+        while (true) {
+            long word = occupancy.get(wordIndex);
+            if ((word & mask) != 0) {
+                return false; // Already claimed
+            }
+            long claimed = word | mask;
+            if (occupancy.compareAndSet(wordIndex, word, claimed)) {
+                if (claimed == validMask) {
+                    markWordFull(wordIndex, validMask);
+                }
+                return true;
+            }
+        }
+    }
+    
+    @Override
+    public boolean release(int spaceNumber) {
+        if (spaceNumber < 0 || spaceNumber >= capacity) {
+            return false;
+        }
+        
+        int wordIndex = spaceNumber / BITS_PER_WORD;
+        long mask = 1L << (spaceNumber % BITS_PER_WORD);
+        
+        while (true) {
+            long word = occupancy.get(wordIndex);
+            if ((word & mask) == 0) {
+                return false; // Already free
+            }
+            if (occupancy.compareAndSet(wordIndex, word, word & ~mask)) {
+                break;
+            }
+        }
+        
+        // Publish the free space after the bit is cleared
+        setSummaryBit(wordIndex / BITS_PER_WORD, 1L << (wordIndex % BITS_PER_WORD));
+        return true;
+    }
+    
+    @Override
+    public boolean isAllocated(int spaceNumber) {
+        if (spaceNumber < 0 || spaceNumber >= capacity) {
+            return false;
+        }
+        return (occupancy.get(spaceNumber / BITS_PER_WORD) & (1L << (spaceNumber % BITS_PER_WORD))) != 0;
+    }
+    
+    @Override
+    public int nextAllocated(int fromSpace) {
+        if (fromSpace < 0) {
+            fromSpace = 0;
+        }
+        
+        int wordIndex = fromSpace / BITS_PER_WORD;
+        if (wordIndex >= wordCount) {
+            return -1;
+        }
+        
+        long word = occupancy.get(wordIndex) & (-1L << (fromSpace % BITS_PER_WORD));
+        while (true) {
+            if (word != 0) {
+                return wordIndex * BITS_PER_WORD + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == wordCount) {
+                return -1;
+            }
+            word = occupancy.get(wordIndex);
+        }
+    }
+    
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    private long validMask(int wordIndex) {
+        return (wordIndex == wordCount - 1) ? lastWordMask : -1L;
+    }
+    
+    private void setSummaryBit(int summaryIndex, long bit) {
+        while (true) {
+            long current = summary.get(summaryIndex);
+            if ((current & bit) != 0 || summary.compareAndSet(summaryIndex, current, current | bit)) {
+                return;
+            }
+        }
+    }
+    
+    private void clearSummaryBit(int summaryIndex, long bit) {
+        while (true) {
+            long current = summary.get(summaryIndex);
+            if ((current & bit) == 0 || summary.compareAndSet(summaryIndex, current, current & ~bit)) {
+                return;
+            }
+        }
+    }
+}
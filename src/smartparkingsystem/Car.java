@@ -8,10 +8,9 @@ package smartparkingsystem;
  *
  * @author amiryusof
  */
-import java.time.LocalDateTime;
-import java.time.Duration;
 import java.util.Objects;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Car - Entity representing a vehicle in the parking system
@@ -19,49 +18,63 @@ import java.util.concurrent.ThreadLocalRandom;
  */
 public class Car {
     
+    // Marks a timestamp that has not happened yet
+    public static final long NOT_SET = Long.MIN_VALUE;
+    
     // Car identification
     private final String carId;
     private final String licensePlate;
     
-    // Timing information
-    private final LocalDateTime arrivalTime;
-    private LocalDateTime parkingTime;
-    private LocalDateTime exitTime;
+    // Timing information (clock nanoTime() values)
+    private final long arrivalNanos;
+    private long parkingNanos = NOT_SET;
+    private volatile long exitNanos = NOT_SET;          // Read by the exit scheduler thread
     private final int plannedParkingDuration; // in minutes
+    private long recordedStayNanos = NOT_SET;           // Exact stay replayed from a gate trace
     
     // Parking information
     private int spaceNumber = -1;
     private boolean isPaid = false;
     private double paymentAmount = 0.0;
+    private final AtomicBoolean queuedForExit = new AtomicBoolean(false);
+    private int storeIndex = -1;                        // Row in the generator's VehicleStore
     
     // Car characteristics
     private final CarType carType;
     private final String ownerName;
     
+    // Time source (system or virtual)
+    private final SimulationClock clock;
+    
     /**
      * Constructor for creating a new car
      * @param carId unique identifier for the car
      * @param licensePlate car's license plate
      * @param ownerName owner's name
+     * @param clock time source for arrival and duration calculations (the lot's clock)
      */
-    public Car(String carId, String licensePlate, String ownerName) {
+    public Car(String carId, String licensePlate, String ownerName, SimulationClock clock) {
         this.carId = carId;
         this.licensePlate = licensePlate;
         this.ownerName = ownerName;
-        this.arrivalTime = LocalDateTime.now();
+        this.clock = clock;
+        this.arrivalNanos = clock.nanoTime();
         this.carType = generateRandomCarType();
         this.plannedParkingDuration = generateRandomParkingDuration();
     }
     
     /**
-     * Alternative constructor with specified parking duration
+     * Constructor for a car with a known type and stay (rebuilt after a restart,
+     * or drawn from a traffic profile's duration model)
      */
-    public Car(String carId, String licensePlate, String ownerName, int parkingDurationMinutes) {
+    Car(String carId, String licensePlate, String ownerName, CarType carType, int parkingDurationMinutes,
+        SimulationClock clock) {
         this.carId = carId;
         this.licensePlate = licensePlate;
         this.ownerName = ownerName;
-        this.arrivalTime = LocalDateTime.now();
-        this.carType = generateRandomCarType();
+        this.clock = clock;
+        this.arrivalNanos = clock.nanoTime();
+        this.carType = carType;
         this.plannedParkingDuration = parkingDurationMinutes;
     }
     
@@ -70,14 +83,14 @@ public class Car {
      */
     private CarType generateRandomCarType() {
         CarType[] types = CarType.values();
-        return types[ThreadLocalRandom.current().nextInt(types.length)];
+        return types[clock.random().nextInt(types.length)];
     }
     
     /**
      * Generate random parking duration (1 to 5 minutes)
      */
     private int generateRandomParkingDuration() {
-        return ThreadLocalRandom.current().nextInt(1, 6); // 1 to 5 minutes
+        return clock.random().nextInt(1, 6); // 1 to 5 minutes
     }
     
     /**
@@ -85,10 +98,21 @@ public class Car {
      * @return duration in minutes, or -1 if not yet exited
      */
     public long getActualParkingDuration() {
-        if (parkingTime == null) return -1;
+        if (parkingNanos == NOT_SET) return -1;
+        
+        long endNanos = (exitNanos != NOT_SET) ? exitNanos : clock.nanoTime();
+        return TimeUnit.NANOSECONDS.toMinutes(endNanos - parkingNanos);
+    }
+    
+    /**
+     * Calculate actual parking duration at full clock resolution
+     * @return duration in milliseconds, or -1 if not yet parked
+     */
+    public long getActualParkingDurationMillis() {
+        if (parkingNanos == NOT_SET) return -1;
         
-        LocalDateTime endTime = (exitTime != null) ? exitTime : LocalDateTime.now();
-        return Duration.between(parkingTime, endTime).toMinutes();
+        long endNanos = (exitNanos != NOT_SET) ? exitNanos : clock.nanoTime();
+        return TimeUnit.NANOSECONDS.toMillis(endNanos - parkingNanos);
     }
     
     /**
@@ -96,8 +120,8 @@ public class Car {
      * @return duration in milliseconds, or -1 if not yet parked
      */
     public long getWaitingTime() {
-        if (parkingTime == null) return -1;
-        return Duration.between(arrivalTime, parkingTime).toMillis();
+        if (parkingNanos == NOT_SET) return -1;
+        return TimeUnit.NANOSECONDS.toMillis(parkingNanos - arrivalNanos);
     }
     
     /**
@@ -105,8 +129,8 @@ public class Car {
      * @return duration in minutes, or -1 if not yet exited
      */
     public long getTotalTimeInSystem() {
-        if (exitTime == null) return -1;
-        return Duration.between(arrivalTime, exitTime).toMinutes();
+        if (exitNanos == NOT_SET) return -1;
+        return TimeUnit.NANOSECONDS.toMinutes(exitNanos - arrivalNanos);
     }
     
     /**
@@ -114,7 +138,7 @@ public class Car {
      * @return amount to be paid
      */
     public double calculatePaymentAmount() {
-        if (parkingTime == null) return 0.0;
+        if (parkingNanos == NOT_SET) return 0.0;
         
         long durationMinutes = getActualParkingDuration();
         if (durationMinutes <= 0) return 0.0;
@@ -140,14 +164,14 @@ public class Car {
         
         // Simulate payment processing time
         try {
-            Thread.sleep(ThreadLocalRandom.current().nextInt(100, 500)); // 100-500ms
+            clock.sleep(clock.random().nextInt(100, 500)); // 100-500ms
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             return false;
         }
         
         // Simulate payment failure (5% chance)
-        if (ThreadLocalRandom.current().nextDouble() < 0.05) {
+        if (clock.random().nextDouble() < 0.05) {
             return false;
         }
         
@@ -160,30 +184,66 @@ public class Car {
      * @return true if ready to exit
      */
     public boolean isReadyToExit() {
-        if (parkingTime == null) return false;
+        if (parkingNanos == NOT_SET) return false;
         
-        long actualDuration = getActualParkingDuration();
-        return actualDuration >= (plannedParkingDuration * 0.5); // Allow 50% variance
+        return clock.nanoTime() - parkingNanos >= getMinimumStayNanos();
+    }
+    
+    /**
+     * Get whole minutes the car must stay before it is ready to exit
+     * @return minimum stay in minutes (50% of planned duration, rounded up)
+     */
+    public long getMinimumStayMinutes() {
+        return (long) Math.ceil(plannedParkingDuration * 0.5); // Allow 50% variance
+    }
+    
+    /**
+     * Get how long the car stays before it is ready to exit
+     * @return the recorded stay for replayed cars, otherwise the minimum stay
+     */
+    public long getMinimumStayNanos() {
+        return recordedStayNanos != NOT_SET ? recordedStayNanos : TimeUnit.MINUTES.toNanos(getMinimumStayMinutes());
+    }
+    
+    /**
+     * Claim the car's single place in the exit queue
+     * @return true the first time only, so a car is never queued twice
+     */
+    public boolean markQueuedForExit() {
+        return queuedForExit.compareAndSet(false, true);
+    }
+    
+    /**
+     * Let the car be queued for exit again
+     * Used by the benchmarks to recycle pre-built cars
+     */
+    void clearQueuedForExit() {
+        queuedForExit.set(false);
     }
     
     // Getters and Setters
     public String getCarId() { return carId; }
     public String getLicensePlate() { return licensePlate; }
     public String getOwnerName() { return ownerName; }
-    public LocalDateTime getArrivalTime() { return arrivalTime; }
-    public LocalDateTime getParkingTime() { return parkingTime; }
-    public LocalDateTime getExitTime() { return exitTime; }
+    public long getArrivalNanos() { return arrivalNanos; }
+    public long getParkingNanos() { return parkingNanos; }
+    public long getExitNanos() { return exitNanos; }
+    public boolean hasExited() { return exitNanos != NOT_SET; }
     public int getPlannedParkingDuration() { return plannedParkingDuration; }
     public int getSpaceNumber() { return spaceNumber; }
     public boolean isPaid() { return isPaid; }
     public double getPaymentAmount() { return paymentAmount; }
     public CarType getCarType() { return carType; }
+    public SimulationClock getClock() { return clock; }
+    int getStoreIndex() { return storeIndex; }
     
-    public void setParkingTime(LocalDateTime parkingTime) { this.parkingTime = parkingTime; }
-    public void setExitTime(LocalDateTime exitTime) { this.exitTime = exitTime; }
+    public void setParkingNanos(long parkingNanos) { this.parkingNanos = parkingNanos; }
+    public void setExitNanos(long exitNanos) { this.exitNanos = exitNanos; }
     public void setSpaceNumber(int spaceNumber) { this.spaceNumber = spaceNumber; }
     public void setPaid(boolean paid) { this.isPaid = paid; }
     public void setPaymentAmount(double paymentAmount) { this.paymentAmount = paymentAmount; }
+    void setStoreIndex(int storeIndex) { this.storeIndex = storeIndex; }
+    void setRecordedStayNanos(long stayNanos) { this.recordedStayNanos = stayNanos; }
     
     @Override
     public boolean equals(Object obj) {
@@ -216,7 +276,7 @@ public class Car {
             sb.append(String.format(", Space: %d", spaceNumber));
         }
         
-        if (parkingTime != null) {
+        if (parkingNanos != NOT_SET) {
             sb.append(String.format(", Parked: %d min", getActualParkingDuration()));
         }
         
@@ -227,28 +287,3 @@ public class Car {
         return sb.toString();
     }
 }
-
-/**
- * Enum for different car types with different pricing
- */
-enum CarType {
-    COMPACT(0.8, "Compact Car"),
-    SEDAN(1.0, "Sedan"),
-    SUV(1.2, "SUV"),
-    LUXURY(1.5, "Luxury Car"),
-    ELECTRIC(0.9, "Electric Vehicle");
-    
-    private final double priceMultiplier;
-    private final String description;
-    
-    CarType(double priceMultiplier, String description) {
-        this.priceMultiplier = priceMultiplier;
-        this.description = description;
-    }
-    
-    public double getPriceMultiplier() { return priceMultiplier; }
-    public String getDescription() { return description; }
-    
-    @Override
-    public String toString() { return description; }
-}
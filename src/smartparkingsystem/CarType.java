@@ -0,0 +1,35 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+/**
+ * CarType - Vehicle categories with their pricing multipliers
+ */
+public enum CarType {
+    COMPACT(0.8, "Compact Car"),
+    SEDAN(1.0, "Sedan"),
+    SUV(1.2, "SUV"),
+    LUXURY(1.5, "Luxury Car"),
+    ELECTRIC(0.9, "Electric Vehicle");
+    
+    private final double priceMultiplier;
+    private final String description;
+    
+    CarType(double priceMultiplier, String description) {
+        this.priceMultiplier = priceMultiplier;
+        this.description = description;
+    }
+    
+    public double getPriceMultiplier() { return priceMultiplier; }
+    public String getDescription() { return description; }
+    
+    @Override
+    public String toString() { return description; }
+}
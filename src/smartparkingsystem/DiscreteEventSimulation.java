@@ -0,0 +1,523 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DiscreteEventSimulation - Single-threaded, virtual-time run of the parking system
+ * Drives the real ParkingLot, gates, PaymentProcessor and Statistics from a
+ * time-ordered event queue: instead of sleeping through gate, payment and
+ * arrival delays, the VirtualClock jumps straight to the next event, so a day
+ * of traffic completes as fast as the CPU can process it. Every random draw
+ * comes from the clock's seeded generator and nothing runs on a background
+ * thread, so the same start, seed and settings always give the same run.
+ * Admission control applies as in the threaded run: a full arrival buffer
+ * holds back further arrivals or refuses the car, and a car held at a full
+ * lot is refused once the park timeout passes in virtual time
+ *
+ * Usage: java smartparkingsystem.DiscreteEventSimulation [spaces] [levels] [vehicles] [minutes]
+ * (the smartparking.arrivals.* properties pick another arrival stream)
+ */
+public class DiscreteEventSimulation {
+    
+    // Constants
+    private static final EventLog.Component LOG = EventLog.component("DES");
+    private static final long NANOS_PER_MS = 1000000L;
+    public static final int DEFAULT_ENTRY_GATES = 3;
+    public static final int DEFAULT_EXIT_GATES = 2;
+    public static final int DEFAULT_DURATION_MINUTES = 5;
+    public static final LocalDateTime DEFAULT_START = LocalDateTime.of(2024, 1, 1, 8, 0);
+    
+    // Configuration
+    private final long totalVehicles;
+    private final int durationMinutes;
+    private final long horizonNanos;
+    
+    // Components shared with the threaded simulation
+    private final VirtualClock clock;
+    private final Statistics statistics;
+    private final ParkingLot parkingLot;
+    private final VehicleGenerator vehicleGenerator;
+    private final AdmissionControl admission;
+    private final PaymentProcessor paymentProcessor;
+    private final List<EntryGate> entryGates;
+    private final List<ExitGate> exitGates;
+    
+    // Event queue
+    private final PriorityQueue<SimEvent> events;
+    private long eventSequence;
+    private long eventsProcessed;
+    private long arrivalsGenerated;
+    
+    // Waiting lines
+    private final ArrayDeque<Car> arrivalQueue;         // Cars waiting for an entry gate (the arrival buffer)
+    private Car heldArrival;                            // Arrival waiting for buffer room (hold policy)
+    private long heldArrivalIndex;
+    private final ArrayDeque<EntryGate> idleEntryGates;
+    private final ArrayDeque<SimEvent> blockedEntries;  // Gates holding a car until a space frees
+    private final ArrayDeque<Car> exitQueue;            // Cars due to leave, waiting for an exit gate
+    private final ArrayDeque<ExitGate> idleExitGates;
+    
+    /**
+     * Constructor with the default gate layout and 5-minute horizon
+     * @param parkingCapacity number of parking spaces
+     * @param parkingLevels number of levels the spaces are split across
+     * @param totalVehicles number of arriving vehicles
+     */
+    public DiscreteEventSimulation(int parkingCapacity, int parkingLevels, int totalVehicles) {
+        this(parkingCapacity, parkingLevels, DEFAULT_ENTRY_GATES, DEFAULT_EXIT_GATES,
+                totalVehicles, DEFAULT_DURATION_MINUTES);
+    }
+    
+    /**
+     * Constructor
+     * @param parkingCapacity number of parking spaces
+     * @param parkingLevels number of levels the spaces are split across
+     * @param entryGateCount number of entry gates
+     * @param exitGateCount number of exit gates
+     * @param totalVehicles number of arriving vehicles
+     * @param durationMinutes virtual time to simulate
+     */
+    public DiscreteEventSimulation(int parkingCapacity, int parkingLevels, int entryGateCount,
+                                   int exitGateCount, int totalVehicles, int durationMinutes) {
+        this(parkingCapacity, parkingLevels, entryGateCount, exitGateCount,
+                new PhasedArrivals(totalVehicles, durationMinutes), durationMinutes);
+    }
+    
+    /**
+     * Constructor with a pluggable arrival stream
+     * @param arrivals when vehicles arrive; an unbounded stream runs until the horizon
+     * @param durationMinutes virtual time to simulate
+     */
+    public DiscreteEventSimulation(int parkingCapacity, int parkingLevels, int entryGateCount,
+                                   int exitGateCount, ArrivalSource arrivals, int durationMinutes) {
+        this(parkingCapacity, parkingLevels, entryGateCount, exitGateCount, arrivals, durationMinutes,
+                new VirtualClock(DEFAULT_START, VirtualClock.DEFAULT_SEED));
+    }
+    
+    /**
+     * Constructor with a pluggable arrival stream and a given virtual clock
+     * @param arrivals when vehicles arrive; an unbounded stream runs until the horizon
+     * @param durationMinutes virtual time to simulate
+     * @param clock fresh virtual clock; its start and seed fix the run
+     */
+    public DiscreteEventSimulation(int parkingCapacity, int parkingLevels, int entryGateCount,
+                                   int exitGateCount, ArrivalSource arrivals, int durationMinutes,
+                                   VirtualClock clock) {
+        if (entryGateCount <= 0 || exitGateCount <= 0) {
+            throw new IllegalArgumentException("At least one entry and one exit gate required");
+        }
+        this.totalVehicles = arrivals.getTotalArrivals();
+        this.durationMinutes = durationMinutes;
+        this.horizonNanos = TimeUnit.MINUTES.toNanos(durationMinutes);
+        
+        this.clock = clock;
+        this.statistics = new Statistics(clock);
+        this.parkingLot = new ParkingLot(parkingCapacity, parkingLevels, clock);
+        this.admission = AdmissionControl.fromSystemProperties(statistics, clock);
+        this.vehicleGenerator = new VehicleGenerator(arrivals, statistics, admission,
+                VehicleGenerator.configuredKeepHistory(), clock);
+        this.paymentProcessor = PaymentProcessor.forEventLoop(clock);
+        VehicleStore history = vehicleGenerator.getVehicleStore();
+        if (history != null) {
+            parkingLot.addParkingListener(history);
+            paymentProcessor.addPaymentListener(history);
+        }
+        
+        this.events = new PriorityQueue<SimEvent>();
+        this.arrivalQueue = new ArrayDeque<Car>();
+        this.idleEntryGates = new ArrayDeque<EntryGate>();
+        this.blockedEntries = new ArrayDeque<SimEvent>();
+        this.exitQueue = new ArrayDeque<Car>();
+        this.idleExitGates = new ArrayDeque<ExitGate>();
+        
+        // Gates are created exactly as the managers do, but never started as threads
+        this.entryGates = new ArrayList<EntryGate>();
+        for (int i = 1; i <= entryGateCount; i++) {
+            EntryGate gate = new EntryGate(i, parkingLot, vehicleGenerator, statistics);
+            entryGates.add(gate);
+            idleEntryGates.add(gate);
+        }
+        this.exitGates = new ArrayList<ExitGate>();
+        for (int i = 1; i <= exitGateCount; i++) {
+            ExitGate gate = new ExitGate(i, parkingLot, new LinkedBlockingQueue<Car>(), paymentProcessor, statistics);
+            exitGates.add(gate);
+            idleExitGates.add(gate);
+        }
+        
+        LOG.info("Discrete-event simulation initialized - {} spaces, {} entry / {} exit gates, {} arrivals over {} virtual minutes",
+                parkingCapacity, entryGateCount, exitGateCount, arrivals.describe(), durationMinutes);
+    }
+    
+    /**
+     * Run the event loop until the horizon is reached or no events remain
+     * @return summary of the run
+     */
+    public SimulationSummary run() {
+        long wallStart = System.nanoTime();
+        
+        schedule(new SimEvent(EventType.ARRIVAL, 0, null));
+        
+        while (!events.isEmpty() && events.peek().time <= horizonNanos) {
+            SimEvent event = events.poll();
+            clock.advanceTo(event.time);
+            
+            switch (event.type) {
+                case ARRIVAL:
+                    handleArrival();
+                    break;
+                case ENTRY_DONE:
+                    handleEntryDone(event);
+                    break;
+                case EXIT_DUE:
+                    handleExitDue(event);
+                    break;
+                case EXIT_DONE:
+                    handleExitDone(event);
+                    break;
+                case PARK_TIMEOUT:
+                    handleParkTimeout(event);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown event type: " + event.type);
+            }
+            eventsProcessed++;
+        }
+        
+        long wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - wallStart);
+        Statistics.SystemStatistics stats = statistics.getCurrentStats();
+        
+        SimulationSummary summary = new SimulationSummary(durationMinutes, wallMillis, eventsProcessed,
+                stats.totalGenerated, stats.totalEntered, stats.totalExited,
+                arrivalQueue.size() + blockedEntries.size() + (heldArrival != null ? 1 : 0),
+                parkingLot.getStatus().getOccupiedSpaces(), stats.totalRevenue);
+        
+        LOG.info("Discrete-event simulation completed - {}", summary);
+        return summary;
+    }
+    
+    /**
+     * A vehicle arrives; buffer it (or apply admission control) and schedule the next arrival
+     */
+    private void handleArrival() {
+        Car car = vehicleGenerator.createVehicle();
+        statistics.recordVehicleGenerated();
+        long index = arrivalsGenerated++;
+        
+        if (arrivalQueue.size() < admission.getArrivalCapacity()) {
+            arrivalQueue.add(car);
+            statistics.updatePeakWaitingQueue(arrivalQueue.size());
+        } else if (admission.onArrivalBufferFull(car)) {
+            // Like the generator blocking on a full buffer: no more arrivals until a gate takes a car
+            heldArrival = car;
+            heldArrivalIndex = index;
+            return;
+        }
+        
+        scheduleNextArrival(index);
+        dispatchEntries();
+    }
+    
+    private void scheduleNextArrival(long index) {
+        if (arrivalsGenerated < totalVehicles) {
+            long gapNanos = vehicleGenerator.sampleArrivalGapNanos(index, clock.random());
+            schedule(new SimEvent(EventType.ARRIVAL, clock.nanoTime() + gapNanos, null));
+        }
+    }
+    
+    /**
+     * Start service on every idle entry gate that has a car waiting
+     */
+    private void dispatchEntries() {
+        while (!idleEntryGates.isEmpty() && !arrivalQueue.isEmpty()) {
+            EntryGate gate = idleEntryGates.poll();
+            Car car = arrivalQueue.poll();
+            if (heldArrival != null) {
+                arrivalQueue.add(heldArrival);
+                heldArrival = null;
+                scheduleNextArrival(heldArrivalIndex);
+            }
+            
+            SimEvent done = new SimEvent(EventType.ENTRY_DONE,
+                    clock.nanoTime() + gate.sampleProcessingTime() * NANOS_PER_MS, car);
+            done.entryGate = gate;
+            done.serviceStartNanos = clock.nanoTime();
+            done.waitTimeMs = (clock.nanoTime() - car.getArrivalNanos()) / NANOS_PER_MS;
+            statistics.recordArrivalQueueTime(done.waitTimeMs);
+            schedule(done);
+        }
+    }
+    
+    /**
+     * Gate processing finished; park or hold the car at the barrier if full
+     */
+    private void handleEntryDone(SimEvent event) {
+        int spaceNumber = parkingLot.tryParkCar(event.car, event.entryGate.getHomeLevel());
+        if (spaceNumber == -1) {
+            // Like the threaded gate waiting in park(): the gate stays occupied
+            blockedEntries.add(event);
+            if (admission.getPolicy() != AdmissionControl.Policy.HOLD_AT_GATE) {
+                SimEvent timeout = new SimEvent(EventType.PARK_TIMEOUT,
+                        clock.nanoTime() + admission.getParkTimeoutMs() * NANOS_PER_MS, event.car);
+                timeout.blockedEntry = event;
+                schedule(timeout);
+            }
+            return;
+        }
+        completeEntry(event);
+    }
+    
+    /**
+     * A car held at a full lot reached the park timeout; refuse it and free the gate
+     */
+    private void handleParkTimeout(SimEvent event) {
+        SimEvent blocked = event.blockedEntry;
+        if (!blockedEntries.remove(blocked)) {
+            return;                                 // Parked before the timeout
+        }
+        admission.onParkTimeout(blocked.car);
+        blocked.entryGate.recordSimulatedEntry(false, (clock.nanoTime() - blocked.serviceStartNanos) / NANOS_PER_MS);
+        
+        idleEntryGates.add(blocked.entryGate);
+        dispatchEntries();
+    }
+    
+    /**
+     * Record a parked car, schedule its departure and free the gate
+     */
+    private void completeEntry(SimEvent event) {
+        Car car = event.car;
+        statistics.recordVehicleEntry(car, event.waitTimeMs);
+        event.entryGate.recordSimulatedEntry(true, (clock.nanoTime() - event.serviceStartNanos) / NANOS_PER_MS);
+        
+        long stayNanos = car.getMinimumStayNanos();
+        schedule(new SimEvent(EventType.EXIT_DUE, car.getParkingNanos() + stayNanos, car));
+        
+        idleEntryGates.add(event.entryGate);
+        dispatchEntries();
+    }
+    
+    /**
+     * A parked car's minimum stay has elapsed; send it to the exit queue
+     */
+    private void handleExitDue(SimEvent event) {
+        if (event.car.markQueuedForExit()) {
+            exitQueue.add(event.car);
+            dispatchExits();
+        }
+    }
+    
+    /**
+     * Start service on every idle exit gate that has a car waiting
+     */
+    private void dispatchExits() {
+        while (!idleExitGates.isEmpty() && !exitQueue.isEmpty()) {
+            ExitGate gate = idleExitGates.poll();
+            Car car = exitQueue.poll();
+            
+            // Gateway latency only applies when something is owed
+            int paymentLatency = (!car.isPaid() && car.calculatePaymentAmount() > 0)
+                    ? paymentProcessor.samplePaymentLatency() : 0;
+            long serviceMs = paymentLatency + gate.sampleMalfunctionDelay() + gate.sampleProcessingTime();
+            
+            SimEvent done = new SimEvent(EventType.EXIT_DONE, clock.nanoTime() + serviceMs * NANOS_PER_MS, car);
+            done.exitGate = gate;
+            done.serviceStartNanos = clock.nanoTime();
+            done.paymentLatencyMs = paymentLatency;
+            schedule(done);
+        }
+    }
+    
+    /**
+     * Exit processing finished; settle payment, free the space and the gate
+     */
+    private void handleExitDone(SimEvent event) {
+        Car car = event.car;
+        
+        boolean paid = car.isPaid();
+        if (!paid) {
+            paid = paymentProcessor.settleSimulatedPayment(car, event.paymentLatencyMs);
+            statistics.recordPaymentLatency(event.paymentLatencyMs);
+        }
+        if (!paid) {
+            // Same manual override as the threaded exit gate
+            statistics.recordPaymentFailure(car, "Payment processing failed at exit gate");
+        }
+        
+        boolean exited = parkingLot.removeCar(car);
+        if (exited) {
+            statistics.recordVehicleExit(car);
+        } else {
+            statistics.recordError("EXIT_REMOVAL_FAILED", "Failed to remove vehicle " + car.getCarId() + " from parking lot");
+        }
+        event.exitGate.recordSimulatedExit(car, exited, !paid, (clock.nanoTime() - event.serviceStartNanos) / NANOS_PER_MS);
+        
+        idleExitGates.add(event.exitGate);
+        admitBlockedEntries();
+        dispatchExits();
+    }
+    
+    /**
+     * Park cars held at entry barriers, oldest first, while spaces are free
+     */
+    private void admitBlockedEntries() {
+        while (!blockedEntries.isEmpty()) {
+            SimEvent blocked = blockedEntries.peek();
+            if (parkingLot.tryParkCar(blocked.car, blocked.entryGate.getHomeLevel()) == -1) {
+                return;
+            }
+            blockedEntries.poll();
+            completeEntry(blocked);
+        }
+    }
+    
+    private void schedule(SimEvent event) {
+        event.sequence = eventSequence++;
+        events.add(event);
+    }
+    
+    /**
+     * Release background resources held by the shared components
+     */
+    public void shutdown() {
+        vehicleGenerator.stopGeneration();
+        paymentProcessor.shutdown();
+        statistics.shutdown();
+    }
+    
+    // Getters
+    public VirtualClock getClock() { return clock; }
+    public ParkingLot getParkingLot() { return parkingLot; }
+    public Statistics getStatistics() { return statistics; }
+    public List<EntryGate> getEntryGates() { return entryGates; }
+    public List<ExitGate> getExitGates() { return exitGates; }
+    
+    public static void main(String[] args) {
+        int spaces = args.length > 0 ? Integer.parseInt(args[0]) : ParkingLot.DEFAULT_TOTAL_SPACES;
+        int levels = args.length > 1 ? Integer.parseInt(args[1]) : ParkingLot.DEFAULT_LEVEL_COUNT;
+        int vehicles = args.length > 2 ? Integer.parseInt(args[2]) : VehicleGenerator.DEFAULT_TOTAL_VEHICLES;
+        int minutes = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_DURATION_MINUTES;
+        
+        // Per-vehicle events arrive far faster than any console can print
+        if (System.getProperty("smartparking.log.level") == null) {
+            EventLog.setDefaultLevel(EventLog.Level.WARN);
+            LOG.setLevel(EventLog.Level.INFO);
+        }
+        
+        DiscreteEventSimulation simulation = new DiscreteEventSimulation(spaces, levels,
+                DEFAULT_ENTRY_GATES, DEFAULT_EXIT_GATES, VehicleGenerator.configuredArrivals(vehicles, minutes), minutes);
+        simulation.run();
+        simulation.getStatistics().printFinalStatistics();
+        simulation.shutdown();
+    }
+    
+    /**
+     * Kinds of events in the queue
+     */
+    private enum EventType {
+        ARRIVAL,        // Vehicle reaches the entry queue
+        ENTRY_DONE,     // Entry gate finished processing a vehicle
+        EXIT_DUE,       // Parked vehicle's minimum stay elapsed
+        EXIT_DONE,      // Exit gate finished processing a vehicle
+        PARK_TIMEOUT    // Vehicle held at a full lot waited the park timeout
+    }
+    
+    /**
+     * One scheduled event, ordered by virtual time then scheduling order
+     */
+    private static class SimEvent implements Comparable<SimEvent> {
+        private final EventType type;
+        private final long time;
+        private final Car car;
+        private long sequence;
+        
+        // Service details (set for gate events)
+        private EntryGate entryGate;
+        private ExitGate exitGate;
+        private long serviceStartNanos;
+        private long waitTimeMs;
+        private long paymentLatencyMs;
+        private SimEvent blockedEntry;      // Entry held at a full lot (park timeouts)
+        
+        SimEvent(EventType type, long time, Car car) {
+            this.type = type;
+            this.time = time;
+            this.car = car;
+        }
+        
+        @Override
+        public int compareTo(SimEvent other) {
+            if (time != other.time) {
+                return time < other.time ? -1 : 1;
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+    
+    /**
+     * Inner class for the outcome of one run
+     */
+    public static class SimulationSummary {
+        private final int virtualMinutes;
+        private final long wallMillis;
+        private final long eventsProcessed;
+        private final int vehiclesGenerated;
+        private final int vehiclesEntered;
+        private final int vehiclesExited;
+        private final int vehiclesQueued;
+        private final int vehiclesParked;
+        private final double totalRevenue;
+        
+        public SimulationSummary(int virtualMinutes, long wallMillis, long eventsProcessed, int generated,
+                                 int entered, int exited, int queued, int parked, double revenue) {
+            this.virtualMinutes = virtualMinutes;
+            this.wallMillis = wallMillis;
+            this.eventsProcessed = eventsProcessed;
+            this.vehiclesGenerated = generated;
+            this.vehiclesEntered = entered;
+            this.vehiclesExited = exited;
+            this.vehiclesQueued = queued;
+            this.vehiclesParked = parked;
+            this.totalRevenue = revenue;
+        }
+        
+        // Getters
+        public int getVirtualMinutes() { return virtualMinutes; }
+        public long getWallMillis() { return wallMillis; }
+        public long getEventsProcessed() { return eventsProcessed; }
+        public int getVehiclesGenerated() { return vehiclesGenerated; }
+        public int getVehiclesEntered() { return vehiclesEntered; }
+        public int getVehiclesExited() { return vehiclesExited; }
+        public int getVehiclesQueued() { return vehiclesQueued; }
+        public int getVehiclesParked() { return vehiclesParked; }
+        public double getTotalRevenue() { return totalRevenue; }
+        
+        /**
+         * Virtual time simulated per unit of wall time
+         */
+        public double getSpeedup() {
+            return wallMillis > 0 ? virtualMinutes * 60000.0 / wallMillis : Double.POSITIVE_INFINITY;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("Virtual: %d min, Wall: %dms (%.0fx), Events: %d, Generated: %d, Entered: %d, Exited: %d, Queued: %d, Parked: %d, Revenue: $%.2f",
+                    virtualMinutes, wallMillis, getSpeedup(), eventsProcessed, vehiclesGenerated, vehiclesEntered,
+                    vehiclesExited, vehiclesQueued, vehiclesParked, totalRevenue);
+        }
+    }
+}
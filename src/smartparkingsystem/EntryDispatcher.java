@@ -0,0 +1,374 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * EntryDispatcher - Routes arriving vehicles to per-gate entry queues
+ * A single dispatcher thread drains the generator's arrival queue and places
+ * each car in the bounded queue of the gate with the shortest expected wait
+ * (queued cars plus those in service, times that gate's mean processing
+ * time), so fast gates get proportionally more traffic and gates no longer
+ * contend on one shared queue. A gate whose own queue is empty steals the
+ * oldest car from the longest other queue before going idle.
+ */
+public class EntryDispatcher implements Runnable {
+    
+    // Constants
+    private static final EventLog.Component LOG = EventLog.component("ENTRY_DISPATCH");
+    public static final int DEFAULT_LANE_CAPACITY = 20;
+    private static final long ARRIVAL_POLL_MS = 500;
+    private static final long LANE_RETRY_MS = 100;
+    private static final long STEAL_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+    
+    /**
+     * How the dispatcher picks a gate for each car
+     */
+    public enum RoutingPolicy {
+        JOIN_SHORTEST_QUEUE,    // Compare every gate (cheap for a handful of gates)
+        POWER_OF_TWO_CHOICES;   // Compare two random gates (constant cost for many gates)
+        
+        /**
+         * Get the policy named by the smartparking.entry.routing system property
+         * ("jsq" or "p2c", default jsq)
+         */
+        public static RoutingPolicy fromSystemProperties() {
+            String name = System.getProperty("smartparking.entry.routing", "jsq");
+            return "p2c".equalsIgnoreCase(name) ? POWER_OF_TWO_CHOICES : JOIN_SHORTEST_QUEUE;
+        }
+    }
+    
+    // Dependencies
+    private final VehicleGenerator vehicleGenerator;
+    private final RoutingPolicy policy;
+    private final int laneCapacity;
+    
+    // One lane per gate
+    private final List<Lane> lanes;
+    private final Map<EntryGate, Lane> lanesByGate;
+    
+    // Statistics
+    private final LongAdder vehiclesDispatched;
+    private final LongAdder vehiclesStolen;
+    
+    // Control
+    private volatile boolean isDispatching;
+    
+    /**
+     * Constructor with default lane capacity and the configured routing policy
+     * @param vehicleGenerator source of arriving vehicles
+     */
+    public EntryDispatcher(VehicleGenerator vehicleGenerator) {
+        this(vehicleGenerator, RoutingPolicy.fromSystemProperties(), DEFAULT_LANE_CAPACITY);
+    }
+    
+    /**
+     * Constructor
+     * @param vehicleGenerator source of arriving vehicles
+     * @param policy how to choose a gate for each car
+     * @param laneCapacity maximum cars waiting at any one gate
+     */
+    public EntryDispatcher(VehicleGenerator vehicleGenerator, RoutingPolicy policy, int laneCapacity) {
+        if (laneCapacity <= 0) {
+            throw new IllegalArgumentException("Lane capacity must be positive: " + laneCapacity);
+        }
+        this.vehicleGenerator = vehicleGenerator;
+        this.policy = policy;
+        this.laneCapacity = laneCapacity;
+        this.lanes = new CopyOnWriteArrayList<>();
+        this.lanesByGate = new ConcurrentHashMap<>();
+        this.vehiclesDispatched = new LongAdder();
+        this.vehiclesStolen = new LongAdder();
+        this.isDispatching = false;
+        
+        LOG.info("EntryDispatcher initialized - Policy: {}, Lane capacity: {}", policy, laneCapacity);
+    }
+    
+    /**
+     * Give a gate its own queue
+     * @param gate gate that will take cars through {@link #takeVehicle}
+     */
+    public void addGate(EntryGate gate) {
+        Lane lane = new Lane(gate, new ArrayBlockingQueue<Car>(laneCapacity));
+        lanesByGate.put(gate, lane);
+        lanes.add(lane);
+    }
+    
+    /**
+     * Open or close a gate's lane to new arrivals
+     * Cars already in a closed lane stay there for their gate to drain (or for
+     * an open gate to steal).
+     */
+    public void setGateOpen(EntryGate gate, boolean open) {
+        laneFor(gate).open = open;
+    }
+    
+    /**
+     * Dispatcher loop: route every arrival until generation is complete
+     */
+    @Override
+    public void run() {
+        isDispatching = true;
+        LOG.info("Entry dispatch started ({} gates)", lanes.size());
+        
+        try {
+            while (isDispatching && !Thread.currentThread().isInterrupted()) {
+                Car car = vehicleGenerator.getNextVehicle(ARRIVAL_POLL_MS, TimeUnit.MILLISECONDS);
+                if (car != null) {
+                    route(car);
+                } else if (vehicleGenerator.isGenerationComplete() && !vehicleGenerator.hasVehiclesWaiting()) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            isDispatching = false;
+            LOG.info("Entry dispatch stopped - {} vehicles routed, {} stolen",
+                    vehiclesDispatched.sum(), vehiclesStolen.sum());
+        }
+    }
+    
+    /**
+     * Place a car in the best gate's queue, waiting while every queue is full
+     */
+    private void route(Car car) throws InterruptedException {
+        while (true) {
+            Lane lane = chooseLane();
+            if (lane.queue.offer(car, LANE_RETRY_MS, TimeUnit.MILLISECONDS)) {
+                vehiclesDispatched.increment();
+                LOG.debug("Vehicle {} routed to {} (queue depth {})",
+                        car.getCarId(), lane.gate.getGateName(), lane.queue.size());
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Pick the open lane with the lowest expected wait under the routing policy
+     * (every lane is a candidate if all gates are closed, so no car is dropped)
+     */
+    private Lane chooseLane() {
+        List<Lane> candidates = openLanes();
+        int count = candidates.size();
+        if (count == 1) {
+            return candidates.get(0);
+        }
+        
+        if (policy == RoutingPolicy.POWER_OF_TWO_CHOICES) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(count);
+            int second = random.nextInt(count - 1);
+            if (second >= first) {
+                second++;
+            }
+            Lane a = candidates.get(first);
+            Lane b = candidates.get(second);
+            return b.expectedWaitMs() < a.expectedWaitMs() ? b : a;
+        }
+        
+        Lane best = candidates.get(0);
+        double bestWait = best.expectedWaitMs();
+        for (int i = 1; i < count; i++) {
+            Lane lane = candidates.get(i);
+            double wait = lane.expectedWaitMs();
+            if (wait < bestWait) {
+                best = lane;
+                bestWait = wait;
+            }
+        }
+        return best;
+    }
+    
+    private List<Lane> openLanes() {
+        List<Lane> open = new ArrayList<>(lanes.size());
+        for (Lane lane : lanes) {
+            if (lane.open) {
+                open.add(lane);
+            }
+        }
+        return open.isEmpty() ? lanes : open;
+    }
+    
+    /**
+     * Take the next car for a gate: its own queue first, then steal
+     * @param gate the gate asking for work
+     * @param timeout how long to wait for work before giving up
+     * @return next car, or null if nothing arrived in time
+     */
+    public Car takeVehicle(EntryGate gate, long timeout, TimeUnit unit) throws InterruptedException {
+        Lane own = laneFor(gate);
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        
+        while (true) {
+            Car car = own.queue.poll();
+            if (car == null) {
+                car = steal(own);
+            }
+            if (car != null) {
+                return car;
+            }
+            
+            // Wait briefly on our own queue, then look for work to steal again
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            car = own.queue.poll(Math.min(remaining, STEAL_INTERVAL_NANOS), TimeUnit.NANOSECONDS);
+            if (car != null) {
+                return car;
+            }
+        }
+    }
+    
+    /**
+     * Take the next car from a gate's own queue without waiting or stealing
+     * Used by a closing gate to drain what was routed to it.
+     * @return next car, or null if the gate's queue is empty
+     */
+    public Car pollOwnVehicle(EntryGate gate) {
+        return laneFor(gate).queue.poll();
+    }
+    
+    /**
+     * Take the oldest car from the longest other queue
+     */
+    private Car steal(Lane thief) {
+        Lane victim = null;
+        int victimDepth = 0;
+        for (Lane lane : lanes) {
+            int depth = lane.queue.size();
+            if (lane != thief && depth > victimDepth) {
+                victim = lane;
+                victimDepth = depth;
+            }
+        }
+        if (victim == null) {
+            return null;
+        }
+        
+        Car car = victim.queue.poll();
+        if (car != null) {
+            vehiclesStolen.increment();
+            thief.stolen.increment();
+            LOG.debug("{} stole vehicle {} from {}", thief.gate.getGateName(), car.getCarId(),
+                    victim.gate.getGateName());
+        }
+        return car;
+    }
+    
+    private Lane laneFor(EntryGate gate) {
+        Lane lane = lanesByGate.get(gate);
+        if (lane != null) {
+            return lane;
+        }
+        throw new IllegalArgumentException("Gate not registered with dispatcher: " + gate.getGateName());
+    }
+    
+    /**
+     * Check whether every vehicle has been generated, routed and taken by a gate
+     */
+    public boolean isDrained() {
+        if (isDispatching || !vehicleGenerator.isGenerationComplete() || vehicleGenerator.hasVehiclesWaiting()) {
+            return false;
+        }
+        for (Lane lane : lanes) {
+            if (!lane.queue.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Stop routing new arrivals (cars already queued stay for their gates)
+     */
+    public void shutdown() {
+        isDispatching = false;
+    }
+    
+    /**
+     * Get number of cars waiting at a gate
+     */
+    public int getQueueDepth(EntryGate gate) {
+        return laneFor(gate).queue.size();
+    }
+    
+    /**
+     * Get number of cars waiting in every gate queue
+     */
+    public int getTotalQueueDepth() {
+        int depth = 0;
+        for (Lane lane : lanes) {
+            depth += lane.queue.size();
+        }
+        return depth;
+    }
+    
+    /**
+     * Get number of cars a gate has taken from other gates' queues
+     */
+    public long getVehiclesStolen(EntryGate gate) {
+        return laneFor(gate).stolen.sum();
+    }
+    
+    /**
+     * Get total cars routed to gate queues
+     */
+    public long getVehiclesDispatched() {
+        return vehiclesDispatched.sum();
+    }
+    
+    /**
+     * Get total cars moved between gate queues by stealing
+     */
+    public long getTotalVehiclesStolen() {
+        return vehiclesStolen.sum();
+    }
+    
+    public RoutingPolicy getPolicy() {
+        return policy;
+    }
+    
+    /**
+     * Inner class for one gate's queue
+     */
+    private static class Lane {
+        final EntryGate gate;
+        final BlockingQueue<Car> queue;
+        final LongAdder stolen = new LongAdder();
+        volatile boolean open = true;                // Receives new arrivals
+        
+        Lane(EntryGate gate, BlockingQueue<Car> queue) {
+            this.gate = gate;
+            this.queue = queue;
+        }
+        
+        /**
+         * Expected time for a new arrival to clear this gate: the cars ahead of
+         * it plus itself, at this gate's mean processing time (so idle gates
+         * tie-break towards the fastest one)
+         */
+        double expectedWaitMs() {
+            int ahead = queue.size() + gate.getVehiclesInService();
+            return (ahead + 1) * gate.getMeanProcessingTimeMs();
+        }
+    }
+}
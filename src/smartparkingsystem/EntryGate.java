@@ -9,12 +9,10 @@ package smartparkingsystem;
  * @author amiryusof
  */
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * EntryGate - Individual entry gate thread that processes incoming vehicles
@@ -23,7 +21,13 @@ import java.util.concurrent.ThreadLocalRandom;
 public class EntryGate implements Runnable {
     
     // Constants
-    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+    public static final String[] STAGE_NAMES = {"Scan", "Validate", "Allocate", "Barrier"};
+    private static final String STAGES_PROPERTY = "smartparking.entry.stages";
+    private static final String DEFAULT_STAGE_WORKERS = "1,1,1,1";
+    private static final int STAGE_QUEUE_CAPACITY = 2;          // Cars waiting between two stages
+    private static final int SCAN_SHARE_PERCENT = 40;           // Of the sampled processing time;
+    private static final int VALIDATE_SHARE_PERCENT = 30;       // the barrier takes the rest
+    private static final long PIPELINE_DRAIN_SECONDS = 30;
     
     // Gate identification
     private final int gateId;
@@ -32,19 +36,27 @@ public class EntryGate implements Runnable {
     // Dependencies
     private final ParkingLot parkingLot;
     private final VehicleGenerator vehicleGenerator;
+    private final EntryDispatcher dispatcher;        // null: pull from the generator's queue
     private final Statistics statistics;
+    private final SimulationClock clock;
+    private final EventLog.Component log;
+    private final Statistics.GateCounters gateCounters;
+    private final StagedPipeline<EntryJob> pipeline;  // null: each car start to finish on the gate thread
     
     // Statistics
-    private final AtomicInteger vehiclesProcessed;
-    private final AtomicInteger vehiclesParked;
-    private final AtomicInteger vehiclesRejected;
-    private final AtomicLong totalProcessingTime;
+    private final LongAdder vehiclesProcessed;
+    private final LongAdder vehiclesParked;
+    private final LongAdder vehiclesRejected;
+    private final LongAdder totalProcessingTime;
     
     // Control
     private volatile boolean isOperating;
-    private final CountDownLatch shutdownLatch;
+    private volatile boolean isBusy;                 // Sequential mode; read by the dispatcher's routing
+    private volatile boolean isClosing;              // Draining its queue before stopping
+    private volatile CountDownLatch shutdownLatch;   // Replaced by reopen() for each run
     
     // Gate specific settings
+    private final int homeLevel;         // Level this gate feeds; others only when full
     private final int processingTimeMin; // milliseconds
     private final int processingTimeMax; // milliseconds
     
@@ -56,27 +68,94 @@ public class EntryGate implements Runnable {
      * @param statistics reference to statistics collector
      */
     public EntryGate(int gateId, ParkingLot parkingLot, VehicleGenerator vehicleGenerator, Statistics statistics) {
+        this(gateId, parkingLot, vehicleGenerator, statistics, null);
+    }
+    
+    /**
+     * Constructor for a gate fed by its own dispatcher queue
+     * @param dispatcher dispatcher routing arrivals to this gate (registers the gate)
+     */
+    public EntryGate(int gateId, ParkingLot parkingLot, VehicleGenerator vehicleGenerator, Statistics statistics,
+                     EntryDispatcher dispatcher) {
+        this(gateId, parkingLot, vehicleGenerator, statistics, dispatcher, null);
+    }
+    
+    /**
+     * Constructor for a pipelined gate
+     * @param stageWorkers workers for the scan, validate, allocate and barrier
+     *        stages, or null to process each car start to finish on the gate thread
+     */
+    public EntryGate(int gateId, ParkingLot parkingLot, VehicleGenerator vehicleGenerator, Statistics statistics,
+                     EntryDispatcher dispatcher, int[] stageWorkers) {
         this.gateId = gateId;
         this.gateName = "EntryGate-" + gateId;
+        this.log = EventLog.component(gateName);
         this.parkingLot = parkingLot;
         this.vehicleGenerator = vehicleGenerator;
+        this.dispatcher = dispatcher;
         this.statistics = statistics;
+        this.gateCounters = statistics.registerGate(gateName);
+        this.clock = parkingLot.getClock();
         
         // Initialize statistics
-        this.vehiclesProcessed = new AtomicInteger(0);
-        this.vehiclesParked = new AtomicInteger(0);
-        this.vehiclesRejected = new AtomicInteger(0);
-        this.totalProcessingTime = new AtomicLong(0);
+        this.vehiclesProcessed = new LongAdder();
+        this.vehiclesParked = new LongAdder();
+        this.vehiclesRejected = new LongAdder();
+        this.totalProcessingTime = new LongAdder();
         
         // Control
         this.isOperating = false;
+        this.isClosing = false;
         this.shutdownLatch = new CountDownLatch(1);
         
+        // Gates are spread across levels so they park on different shards
+        this.homeLevel = (gateId - 1) % parkingLot.getLevelCount();
+        
         // Gate processing times (simulate different gate speeds)
         this.processingTimeMin = 500 + (gateId * 100); // 500ms base + variation
         this.processingTimeMax = 1500 + (gateId * 200); // 1500ms base + variation
         
-        logEvent("Entry gate initialized");
+        // Entry stages joined by small queues, so the next car is scanned while this one is allocated
+        if (stageWorkers != null) {
+            if (stageWorkers.length != STAGE_NAMES.length) {
+                throw new IllegalArgumentException("Expected " + STAGE_NAMES.length + " stage worker counts");
+            }
+            this.pipeline = new StagedPipeline<EntryJob>(gateName, this::finishPipelinedEntry)
+                    .addStage(STAGE_NAMES[0], stageWorkers[0], STAGE_QUEUE_CAPACITY, this::scanPlate)
+                    .addStage(STAGE_NAMES[1], stageWorkers[1], STAGE_QUEUE_CAPACITY, this::validateAccess)
+                    .addStage(STAGE_NAMES[2], stageWorkers[2], STAGE_QUEUE_CAPACITY, this::allocateSpace)
+                    .addStage(STAGE_NAMES[3], stageWorkers[3], STAGE_QUEUE_CAPACITY, this::openBarrier);
+        } else {
+            this.pipeline = null;
+        }
+        
+        if (dispatcher != null) {
+            dispatcher.addGate(this);
+        }
+        
+        log.info("Entry gate initialized{}", pipeline != null ? " (pipelined)" : "");
+    }
+    
+    /**
+     * Get stage worker counts from the smartparking.entry.stages system property
+     * ("scan,validate,allocate,barrier", default 1,1,1,1; "off" for sequential gates)
+     * @return worker counts, or null for sequential processing
+     */
+    public static int[] configuredStageWorkers() {
+        String value = System.getProperty(STAGES_PROPERTY, DEFAULT_STAGE_WORKERS).trim();
+        if (value.equalsIgnoreCase("off")) {
+            return null;
+        }
+        
+        String[] parts = value.split(",");
+        if (parts.length != STAGE_NAMES.length) {
+            throw new IllegalArgumentException(STAGES_PROPERTY + " needs " + STAGE_NAMES.length + " counts: " + value);
+        }
+        int[] workers = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            workers[i] = Integer.parseInt(parts[i].trim());
+        }
+        return workers;
     }
     
     /**
@@ -87,21 +166,27 @@ public class EntryGate implements Runnable {
         Thread.currentThread().setName(gateName);
         isOperating = true;
         
-        logEvent("Entry gate started operations");
+        log.info("Entry gate started operations");
+        if (pipeline != null) {
+            pipeline.start();
+        }
         
         try {
             while (isOperating && !Thread.currentThread().isInterrupted()) {
                 processNextVehicle();
             }
-            
+        
         } catch (Exception e) {
-            logEvent("ERROR: Exception in entry gate - " + e.getMessage());
+            log.error("ERROR: Exception in entry gate - {}", e.getMessage());
             statistics.recordError("ENTRY_GATE_EXCEPTION", "Exception in " + gateName + ": " + e.getMessage());
             e.printStackTrace();
         } finally {
             isOperating = false;
+            if (pipeline != null) {
+                drainPipeline();
+            }
             shutdownLatch.countDown();
-            logEvent("Entry gate stopped operations");
+            log.info("Entry gate stopped operations");
         }
     }
     
@@ -110,13 +195,29 @@ public class EntryGate implements Runnable {
      */
     private void processNextVehicle() {
         try {
+            if (isClosing) {
+                // Closing: serve the cars already routed here, then stop
+                Car car = dispatcher != null ? dispatcher.pollOwnVehicle(this) : null;
+                if (car == null) {
+                    if (finishClosing()) {
+                        log.info("Gate closed - queue drained");
+                    }
+                    return;
+                }
+                processVehicle(car);
+                return;
+            }
+            
             // Get next vehicle with timeout to allow periodic status checks
-            Car car = vehicleGenerator.getNextVehicle(2, TimeUnit.SECONDS);
+            Car car = dispatcher != null
+                    ? dispatcher.takeVehicle(this, 2, TimeUnit.SECONDS)
+                    : vehicleGenerator.getNextVehicle(2, TimeUnit.SECONDS);
             
             if (car == null) {
                 // No vehicle available, check if generation is complete
-                if (vehicleGenerator.isGenerationComplete() && !vehicleGenerator.hasVehiclesWaiting()) {
-                    logEvent("No more vehicles to process, shutting down");
+                if (dispatcher != null ? dispatcher.isDrained()
+                        : vehicleGenerator.isGenerationComplete() && !vehicleGenerator.hasVehiclesWaiting()) {
+                    log.info("No more vehicles to process, shutting down");
                     isOperating = false;
                     return;
                 }
@@ -124,104 +225,306 @@ public class EntryGate implements Runnable {
             }
             
             // Process the vehicle
-            processVehicleEntry(car);
-            
+            processVehicle(car);
+        
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        
         } catch (Exception e) {
-            logEvent("ERROR: Failed to process vehicle - " + e.getMessage());
+            log.error("ERROR: Failed to process vehicle - {}", e.getMessage());
             statistics.recordError("VEHICLE_PROCESSING_ERROR", "Failed to process vehicle in " + gateName + ": " + e.getMessage());
         }
     }
     
     /**
-     * Process individual vehicle entry
+     * Hand a car to the pipeline, or process it here in sequential mode
+     */
+    private void processVehicle(Car car) throws InterruptedException {
+        if (pipeline != null) {
+            pipeline.submit(beginEntry(car));
+            return;
+        }
+        isBusy = true;
+        try {
+            processVehicleEntry(car);
+        } finally {
+            isBusy = false;
+        }
+    }
+    
+    /**
+     * Process individual vehicle entry start to finish on the gate thread
      * @param car the car attempting to enter
      */
     private void processVehicleEntry(Car car) {
-        long startTime = System.currentTimeMillis();
-        int processed = vehiclesProcessed.incrementAndGet();
+        EntryJob job = beginEntry(car);
         
-        logEvent("Processing vehicle " + car.getCarId() + " [" + car.getLicensePlate() + 
-                "] (Vehicle #" + processed + ")");
+        try {
+            scanPlate(job);
+            validateAccess(job);
+            if (allocateSpace(job)) {
+                openBarrier(job);
+            }
+        
+        } catch (Exception e) {
+            failEntry(job, e);
         
+        } finally {
+            completeEntry(job);
+        }
+    }
+    
+    /**
+     * Pipeline completion: every car leaves through here, finished or failed
+     */
+    private void finishPipelinedEntry(EntryJob job, Exception failure) {
+        if (failure != null) {
+            failEntry(job, failure);
+        }
+        completeEntry(job);
+    }
+    
+    /**
+     * Let cars already inside the pipeline finish, then stop its workers
+     * Cars still queued after the drain timeout are settled here: those that
+     * already hold a space count as entered, the rest are turned away.
+     */
+    private void drainPipeline() {
         try {
-            // Calculate wait time (from arrival to start of processing)
-            long arrivalTimeMs = car.getArrivalTime().atZone(java.time.ZoneId.systemDefault()).toInstant().toEpochMilli();
-            long waitTime = startTime - arrivalTimeMs;
-            
-            // Simulate gate processing time (validation, barrier operation, etc.)
-            simulateGateProcessing();
-            
-            // Attempt to park the vehicle
-            int spaceNumber = parkingLot.parkCar(car);
-            
-            if (spaceNumber != -1) {
-                // Successfully parked
-                vehiclesParked.incrementAndGet();
-                
-                // Record statistics
-                statistics.recordVehicleEntry(car, waitTime);
-                
-                logEvent("Vehicle " + car.getCarId() + " successfully entered and parked in space " + 
-                        spaceNumber);
-                
-                // Log parking lot status
-                ParkingLot.ParkingStatus status = parkingLot.getStatus();
-                if (status.getAvailableSpaces() <= 10) {
-                    logEvent("WARNING: Low parking availability - " + status.getAvailableSpaces() + 
-                            " spaces remaining");
-                }
-                
-            } else {
-                // Failed to park (should be rare due to semaphore)
-                vehiclesRejected.incrementAndGet();
-                logEvent("Vehicle " + car.getCarId() + " entry failed - no parking space available");
-                statistics.recordError("PARKING_FAILED", "No space available for vehicle " + car.getCarId());
+            if (!pipeline.awaitDrained(PIPELINE_DRAIN_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("WARNING: {} vehicles still in entry pipeline at shutdown", pipeline.getInFlight());
             }
-            
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            logEvent("Vehicle " + car.getCarId() + " processing interrupted");
-            vehiclesRejected.incrementAndGet();
-            
-        } catch (Exception e) {
-            logEvent("ERROR: Failed to process vehicle " + car.getCarId() + " - " + e.getMessage());
-            statistics.recordError("ENTRY_PROCESSING_ERROR", "Failed to process vehicle " + car.getCarId() + ": " + e.getMessage());
-            vehiclesRejected.incrementAndGet();
-            
         } finally {
-            // Update processing time statistics
-            long processingTime = System.currentTimeMillis() - startTime;
-            totalProcessingTime.addAndGet(processingTime);
-            
-            // Record gate processing statistics
-            statistics.recordGateProcessing(gateName, processingTime);
-            
-            logEvent("Completed processing vehicle " + car.getCarId() + " in " + processingTime + "ms");
+            for (EntryJob job : pipeline.shutdown()) {
+                if (job.car.getSpaceNumber() == -1) {
+                    vehiclesRejected.increment();
+                    statistics.recordVehicleTurnedAway(job.car, "GATE_CLOSED");
+                }
+                completeEntry(job);
+            }
         }
     }
     
     /**
-     * Simulate gate processing operations
+     * Start timing a vehicle's entry
      */
-    private void simulateGateProcessing() throws InterruptedException {
-        // Simulate various gate operations:
-        // - License plate scanning
-        // - Barrier operation
-        // - Ticket dispensing
-        // - Access validation
+    private EntryJob beginEntry(Car car) {
+        long startNanos = clock.nanoTime();
+        vehiclesProcessed.increment();
+        int processed = vehiclesProcessed.intValue();   // Log ordinal only: not unique if other threads count too
         
-        int processingTime = ThreadLocalRandom.current().nextInt(processingTimeMin, processingTimeMax + 1);
-        Thread.sleep(processingTime);
+        log.info("Processing vehicle {} [{}] (Vehicle #{})", car.getCarId(), car.getLicensePlate(), processed);
+        
+        // Calculate wait time (from arrival to start of processing)
+        long waitTime = TimeUnit.NANOSECONDS.toMillis(startNanos - car.getArrivalNanos());
+        statistics.recordArrivalQueueTime(waitTime);
+        return new EntryJob(car, startNanos, waitTime, sampleProcessingTime());
+    }
+    
+    /**
+     * Stage 1: license plate scanning
+     */
+    private boolean scanPlate(EntryJob job) throws InterruptedException {
+        clock.sleep(job.processingTimeMs * SCAN_SHARE_PERCENT / 100);
+        return true;
+    }
+    
+    /**
+     * Stage 2: ticket dispensing and access validation
+     */
+    private boolean validateAccess(EntryJob job) throws InterruptedException {
+        clock.sleep(job.processingTimeMs * VALIDATE_SHARE_PERCENT / 100);
+        return true;
+    }
+    
+    /**
+     * Stage 3: claim a parking space under the generator's admission control
+     * (waits while the lot is full, up to the park timeout unless holding)
+     * @return true if the car got a space
+     */
+    private boolean allocateSpace(EntryJob job) {
+        Car car = job.car;
+        int spaceNumber = vehicleGenerator.getAdmissionControl().park(parkingLot, car, homeLevel);
+        
+        if (spaceNumber == AdmissionControl.TURNED_AWAY || spaceNumber == AdmissionControl.DIVERTED) {
+            // Lot stayed full for the park timeout; admission control recorded the outcome
+            vehiclesRejected.increment();
+            log.info("Vehicle {} {} - lot full", car.getCarId(),
+                    spaceNumber == AdmissionControl.DIVERTED ? "diverted to overflow" : "turned away");
+            return false;
+        }
+        
+        if (spaceNumber == -1) {
+            // Failed to park (should be rare due to semaphore)
+            vehiclesRejected.increment();
+            log.info("Vehicle {} entry failed - no parking space available", car.getCarId());
+            statistics.recordError("PARKING_FAILED", "No space available for vehicle " + car.getCarId());
+            return false;
+        }
+        
+        // Successfully parked
+        vehiclesParked.increment();
+        
+        // Record statistics
+        statistics.recordVehicleEntry(car, job.waitTimeMs);
+        
+        log.info("Vehicle {} successfully entered and parked in space {}", car.getCarId(), spaceNumber);
+        
+        // Log parking lot status
+        ParkingLot.ParkingStatus status = parkingLot.getStatus();
+        if (status.getAvailableSpaces() <= 10) {
+            log.warn("WARNING: Low parking availability - {} spaces remaining", status.getAvailableSpaces());
+        }
+        return true;
+    }
+    
+    /**
+     * Stage 4: barrier operation
+     */
+    private boolean openBarrier(EntryJob job) throws InterruptedException {
+        clock.sleep(job.processingTimeMs - job.processingTimeMs * (SCAN_SHARE_PERCENT + VALIDATE_SHARE_PERCENT) / 100);
+        return true;
+    }
+    
+    /**
+     * Account for a vehicle whose entry stopped with an exception
+     */
+    private void failEntry(EntryJob job, Exception e) {
+        Car car = job.car;
+        if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+            log.info("Vehicle {} processing interrupted", car.getCarId());
+        } else {
+            log.error("ERROR: Failed to process vehicle {} - {}", car.getCarId(), e.getMessage());
+            statistics.recordError("ENTRY_PROCESSING_ERROR", "Failed to process vehicle " + car.getCarId() + ": " + e.getMessage());
+        }
+        vehiclesRejected.increment();
+    }
+    
+    /**
+     * Record gate processing time once a vehicle's entry is over
+     */
+    private void completeEntry(EntryJob job) {
+        // Update processing time statistics
+        long processingTime = TimeUnit.NANOSECONDS.toMillis(clock.nanoTime() - job.startNanos);
+        totalProcessingTime.add(processingTime);
+        
+        // Record gate processing statistics
+        statistics.recordGateProcessing(gateCounters, processingTime);
+        
+        log.info("Completed processing vehicle {} in {}ms", job.car.getCarId(), processingTime);
+    }
+    
+    /**
+     * Draw one gate processing time from this gate's distribution
+     * @return processing time in milliseconds
+     */
+    public int sampleProcessingTime() {
+        return clock.random().nextInt(processingTimeMin, processingTimeMax + 1);
+    }
+    
+    /**
+     * Get this gate's mean processing time (midpoint of its distribution)
+     */
+    public double getMeanProcessingTimeMs() {
+        return (processingTimeMin + processingTimeMax) / 2.0;
+    }
+    
+    /**
+     * Get number of vehicles the gate is working on right now (in any stage)
+     */
+    public int getVehiclesInService() {
+        if (pipeline != null) {
+            return pipeline.getInFlight();
+        }
+        return isBusy ? 1 : 0;
+    }
+    
+    /**
+     * Get per-stage throughput and queue depth (empty for sequential gates)
+     */
+    public List<StagedPipeline.StageStats> getStageStats() {
+        return pipeline != null ? pipeline.getStageStats() : Collections.<StagedPipeline.StageStats>emptyList();
+    }
+    
+    /**
+     * Check whether the gate runs its entry stages as a pipeline
+     */
+    public boolean isPipelined() {
+        return pipeline != null;
+    }
+    
+    /**
+     * Record a vehicle handled by the discrete-event engine instead of run()
+     * @param parked true if the vehicle got a space
+     * @param processingTimeMs virtual time the gate was busy with the vehicle
+     */
+    void recordSimulatedEntry(boolean parked, long processingTimeMs) {
+        vehiclesProcessed.increment();
+        if (parked) {
+            vehiclesParked.increment();
+        } else {
+            vehiclesRejected.increment();
+        }
+        totalProcessingTime.add(processingTimeMs);
+        statistics.recordGateProcessing(gateCounters, processingTimeMs);
     }
     
     /**
      * Request shutdown of this entry gate
      */
     public void shutdown() {
-        logEvent("Shutdown requested");
+        log.info("Shutdown requested");
         isOperating = false;
     }
     
+    /**
+     * Close this gate: it stops taking new work, finishes the cars already in
+     * its own queue (and pipeline), then stops
+     */
+    public void close() {
+        log.info("Closing - draining queued vehicles");
+        isClosing = true;
+    }
+    
+    /**
+     * Cancel a close that is still draining
+     * @return true if the gate was closing and keeps running, false if it has
+     *         already stopped (or was not closing)
+     */
+    synchronized boolean cancelClose() {
+        if (isClosing && isOperating) {
+            isClosing = false;
+            log.info("Close cancelled - gate reopened");
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Stop after a close, unless cancelClose() got in first
+     */
+    private synchronized boolean finishClosing() {
+        if (isClosing) {
+            isOperating = false;
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Prepare a stopped gate to run again
+     */
+    synchronized void reopen() {
+        if (isOperating) {
+            throw new IllegalStateException(gateName + " is still operating");
+        }
+        isClosing = false;
+        shutdownLatch = new CountDownLatch(1);
+    }
+    
     /**
      * Wait for gate to complete shutdown
      * @param timeout maximum time to wait
@@ -241,16 +544,18 @@ public class EntryGate implements Runnable {
      * Get current gate statistics
      */
     public EntryGateStats getStats() {
-        long avgProcessingTime = vehiclesProcessed.get() > 0 ? 
-                totalProcessingTime.get() / vehiclesProcessed.get() : 0;
+        long avgProcessingTime = vehiclesProcessed.intValue() > 0 ? 
+                totalProcessingTime.sum() / vehiclesProcessed.intValue() : 0;
         
         return new EntryGateStats(
                 gateId,
                 gateName,
-                vehiclesProcessed.get(),
-                vehiclesParked.get(),
-                vehiclesRejected.get(),
+                vehiclesProcessed.intValue(),
+                vehiclesParked.intValue(),
+                vehiclesRejected.intValue(),
                 avgProcessingTime,
+                dispatcher != null ? dispatcher.getQueueDepth(this) : 0,
+                dispatcher != null ? dispatcher.getVehiclesStolen(this) : 0,
                 isOperating
         );
     }
@@ -262,6 +567,20 @@ public class EntryGate implements Runnable {
         return isOperating;
     }
     
+    /**
+     * Check if gate is draining its queue before stopping
+     */
+    public boolean isClosing() {
+        return isClosing;
+    }
+    
+    /**
+     * Get this gate's counters in the shared statistics
+     */
+    public Statistics.GateCounters getGateCounters() {
+        return gateCounters;
+    }
+    
     /**
      * Get gate identification
      */
@@ -274,11 +593,27 @@ public class EntryGate implements Runnable {
     }
     
     /**
-     * Utility method for consistent logging
+     * Get the level this gate parks cars on by preference
      */
-    private void logEvent(String message) {
-        System.out.println("[" + LocalDateTime.now().format(TIME_FORMAT) + 
-                          "] [" + gateName + "] " + message);
+    public int getHomeLevel() {
+        return homeLevel;
+    }
+    
+    /**
+     * Inner class for one vehicle's trip through the entry stages
+     */
+    static final class EntryJob {
+        final Car car;
+        final long startNanos;
+        final long waitTimeMs;
+        final int processingTimeMs;     // Sampled once, split across scan, validate and barrier
+        
+        EntryJob(Car car, long startNanos, long waitTimeMs, int processingTimeMs) {
+            this.car = car;
+            this.startNanos = startNanos;
+            this.waitTimeMs = waitTimeMs;
+            this.processingTimeMs = processingTimeMs;
+        }
     }
     
     /**
@@ -291,16 +626,25 @@ public class EntryGate implements Runnable {
         private final int vehiclesParked;
         private final int vehiclesRejected;
         private final long avgProcessingTime;
+        private final int queueDepth;
+        private final long vehiclesStolen;
         private final boolean isOperating;
         
         public EntryGateStats(int gateId, String gateName, int processed, int parked, 
                              int rejected, long avgTime, boolean operating) {
+            this(gateId, gateName, processed, parked, rejected, avgTime, 0, 0, operating);
+        }
+        
+        public EntryGateStats(int gateId, String gateName, int processed, int parked, 
+                             int rejected, long avgTime, int queueDepth, long stolen, boolean operating) {
             this.gateId = gateId;
             this.gateName = gateName;
             this.vehiclesProcessed = processed;
             this.vehiclesParked = parked;
             this.vehiclesRejected = rejected;
             this.avgProcessingTime = avgTime;
+            this.queueDepth = queueDepth;
+            this.vehiclesStolen = stolen;
             this.isOperating = operating;
         }
         
@@ -311,12 +655,15 @@ public class EntryGate implements Runnable {
         public int getVehiclesParked() { return vehiclesParked; }
         public int getVehiclesRejected() { return vehiclesRejected; }
         public long getAvgProcessingTime() { return avgProcessingTime; }
+        public int getQueueDepth() { return queueDepth; }
+        public long getVehiclesStolen() { return vehiclesStolen; }
         public boolean isOperating() { return isOperating; }
         
         @Override
         public String toString() {
-            return String.format("%s - Processed: %d, Parked: %d, Rejected: %d, Avg Time: %dms, Operating: %s",
-                    gateName, vehiclesProcessed, vehiclesParked, vehiclesRejected, avgProcessingTime, isOperating);
+            return String.format("%s - Processed: %d, Parked: %d, Rejected: %d, Avg Time: %dms, Queue: %d, Stolen: %d, Operating: %s",
+                    gateName, vehiclesProcessed, vehiclesParked, vehiclesRejected, avgProcessingTime,
+                    queueDepth, vehiclesStolen, isOperating);
         }
     }
 }
\ No newline at end of file
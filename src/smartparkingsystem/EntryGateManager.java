@@ -8,33 +8,38 @@ package smartparkingsystem;
  *
  * @author amiryusof
  */
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Map;
 
 /**
  * EntryGateManager - Manages multiple entry gates and coordinates their operations
- * Handles the lifecycle of entry gate threads and collects statistics
+ * Handles the lifecycle of entry gate threads and collects statistics. Gates
+ * beyond the starting count are created closed and can be opened and closed
+ * at runtime (see GateAutoscaler).
  */
-public class EntryGateManager {
+public class EntryGateManager implements GateAutoscaler.ScalableGates {
     
     // Constants
-    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+    private static final EventLog.Component LOG = EventLog.component("ENTRY_MGR");
     private static final int DEFAULT_GATE_COUNT = 3;
     
     // Gate management
-    private final int numberOfGates;
+    private final int numberOfGates;                 // Open at start
+    private final int maxGates;
     private final List<EntryGate> entryGates;
+    private final List<EntryGate> openGates;         // Guarded by this
+    private final Map<EntryGate, Future<?>> gateRuns; // Latest run of each started gate
     private final List<Future<?>> gateFutures;
     private ExecutorService gateExecutor;
     
     // Dependencies
     private final ParkingLot parkingLot;
     private final VehicleGenerator vehicleGenerator;
+    private final EntryDispatcher dispatcher;
     private final Statistics statistics;
     
     // Control
@@ -61,14 +66,36 @@ public class EntryGateManager {
      * @param statistics reference to statistics collector
      */
     public EntryGateManager(int numberOfGates, ParkingLot parkingLot, VehicleGenerator vehicleGenerator, Statistics statistics) {
+        this(numberOfGates, numberOfGates, parkingLot, vehicleGenerator, statistics);
+    }
+    
+    /**
+     * Constructor with room to open more gates at runtime
+     * @param numberOfGates number of entry gates open at start
+     * @param maxGates number of entry gates that may be open at once
+     * @param parkingLot reference to parking lot
+     * @param vehicleGenerator reference to vehicle generator
+     * @param statistics reference to statistics collector
+     */
+    public EntryGateManager(int numberOfGates, int maxGates, ParkingLot parkingLot, VehicleGenerator vehicleGenerator,
+                            Statistics statistics) {
+        if (numberOfGates < 1 || maxGates < numberOfGates) {
+            throw new IllegalArgumentException("Invalid entry gate counts: " + numberOfGates + " of " + maxGates);
+        }
         this.numberOfGates = numberOfGates;
+        this.maxGates = maxGates;
         this.parkingLot = parkingLot;
         this.vehicleGenerator = vehicleGenerator;
         this.statistics = statistics;
         
+        // Per-gate queues fed by one dispatcher
+        this.dispatcher = new EntryDispatcher(vehicleGenerator);
+        
         // Initialize collections
         this.entryGates = new ArrayList<>();
-        this.gateFutures = new ArrayList<>();
+        this.openGates = new ArrayList<>();
+        this.gateRuns = new ConcurrentHashMap<>();
+        this.gateFutures = new CopyOnWriteArrayList<>();
         
         // Control
         this.isOperating = false;
@@ -82,18 +109,22 @@ public class EntryGateManager {
         // Create entry gates
         createEntryGates();
         
-        logEvent("EntryGateManager initialized with " + numberOfGates + " gates");
+        LOG.info("EntryGateManager initialized with {} of {} gates open", numberOfGates, maxGates);
     }
     
     /**
-     * Create and initialize entry gates
+     * Create and initialize entry gates (those past the starting count closed)
      */
     private void createEntryGates() {
-        for (int i = 1; i <= numberOfGates; i++) {
-            EntryGate gate = new EntryGate(i, parkingLot, vehicleGenerator, statistics);
+        int[] stageWorkers = EntryGate.configuredStageWorkers();
+        for (int i = 1; i <= maxGates; i++) {
+            EntryGate gate = new EntryGate(i, parkingLot, vehicleGenerator, statistics, dispatcher, stageWorkers);
             entryGates.add(gate);
+            if (i > numberOfGates) {
+                dispatcher.setGateOpen(gate, false);
+            }
         }
-        logEvent("Created " + numberOfGates + " entry gates");
+        LOG.info("Created {} entry gates", maxGates);
     }
     
     /**
@@ -101,46 +132,150 @@ public class EntryGateManager {
      */
     public void startOperations() {
         if (isOperating) {
-            logEvent("Entry gates already operating");
+            LOG.info("Entry gates already operating");
             return;
         }
         
         isOperating = true;
         
-        // Create thread pool for gates
-        gateExecutor = Executors.newFixedThreadPool(numberOfGates, new ThreadFactory() {
-            private final AtomicInteger threadNumber = new AtomicInteger(1);
-            
-            @Override
-            public Thread newThread(Runnable r) {
-                Thread t = new Thread(r, "EntryGateThread-" + threadNumber.getAndIncrement());
-                t.setDaemon(false); // Ensure threads complete their work
-                return t;
-            }
-        });
+        // Create one thread per gate (platform or virtual, see GateThreads)
+        gateExecutor = GateThreads.newGatePool("EntryGateThread-", maxGates);
         
-        // Start all gates
-        for (EntryGate gate : entryGates) {
-            Future<?> future = gateExecutor.submit(new Runnable() {
-                @Override
-                public void run() {
-                    activeGates.incrementAndGet();
-                    try {
-                        gate.run();
-                    } finally {
-                        activeGates.decrementAndGet();
-                    }
-                }
-            });
-            gateFutures.add(future);
+        // Start the gates that open at start
+        synchronized (this) {
+            for (EntryGate gate : entryGates.subList(0, numberOfGates)) {
+                startGate(gate);
+                openGates.add(gate);
+            }
         }
         
-        logEvent("All " + numberOfGates + " entry gates started");
+        LOG.info("{} entry gates started on {}", numberOfGates, GateThreads.describe());
+        
+        // Start routing arrivals to the gate queues
+        Thread dispatcherThread = new Thread(dispatcher, "EntryDispatcher");
+        dispatcherThread.setDaemon(true);
+        dispatcherThread.start();
         
         // Start monitoring thread
         startMonitoring();
     }
     
+    /**
+     * Run a gate on the gate executor
+     */
+    private void startGate(EntryGate gate) {
+        Future<?> future = gateExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                activeGates.incrementAndGet();
+                try {
+                    gate.run();
+                } finally {
+                    activeGates.decrementAndGet();
+                }
+            }
+        });
+        gateRuns.put(gate, future);
+        gateFutures.add(future);
+    }
+    
+    /**
+     * Open the closed gate with the lowest id: cancel its close if it is
+     * still draining, otherwise start it again
+     * @return true if a gate was opened
+     */
+    @Override
+    public synchronized boolean openGate() {
+        if (!isOperating) {
+            return false;
+        }
+        for (EntryGate gate : entryGates) {
+            if (openGates.contains(gate)) {
+                continue;
+            }
+            Future<?> run = gateRuns.get(gate);
+            if (run != null && !run.isDone()) {
+                if (!gate.cancelClose()) {
+                    continue; // Stopping right now; try another gate
+                }
+            } else {
+                if (run != null) {
+                    gate.reopen();
+                }
+                startGate(gate);
+            }
+            dispatcher.setGateOpen(gate, true);
+            openGates.add(gate);
+            LOG.info("{} opened - {} of {} gates open", gate.getGateName(), openGates.size(), maxGates);
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Close the open gate with the highest id: it takes no new arrivals and
+     * stops once the cars already queued at it have entered
+     * @return true if a gate was closed
+     */
+    @Override
+    public synchronized boolean closeGate() {
+        if (!isOperating || openGates.size() <= 1) {
+            return false;
+        }
+        EntryGate highest = openGates.get(0);
+        for (EntryGate gate : openGates) {
+            if (gate.getGateId() > highest.getGateId()) {
+                highest = gate;
+            }
+        }
+        dispatcher.setGateOpen(highest, false);
+        highest.close();
+        openGates.remove(highest);
+        LOG.info("{} closing - {} of {} gates open", highest.getGateName(), openGates.size(), maxGates);
+        return true;
+    }
+    
+    @Override
+    public synchronized int getOpenGateCount() {
+        return openGates.size();
+    }
+    
+    @Override
+    public int getMaxGates() {
+        return maxGates;
+    }
+    
+    @Override
+    public String getGateType() {
+        return "Entry";
+    }
+    
+    /**
+     * Get vehicles waiting to enter: the arrival buffer plus every gate queue
+     */
+    @Override
+    public int getQueueDepth() {
+        return vehicleGenerator.getQueueSize() + dispatcher.getTotalQueueDepth();
+    }
+    
+    /**
+     * Get entry processing times recorded since the previous call, all gates merged
+     */
+    @Override
+    public LatencyHistogram takeProcessingWindow() {
+        LatencyHistogram merged = new LatencyHistogram();
+        for (EntryGate gate : entryGates) {
+            merged.add(gate.getGateCounters().takeWindow());
+        }
+        return merged;
+    }
+    
+    @Override
+    public long getVehiclesProcessed() {
+        updateOverallStats();
+        return totalVehiclesProcessed.get();
+    }
+    
     /**
      * Start monitoring thread for periodic status updates
      */
@@ -168,29 +303,33 @@ public class EntryGateManager {
      * Report current status of all entry gates
      */
     public void reportStatus() {
-        logEvent("=== ENTRY GATES STATUS REPORT ===");
+        LOG.info("=== ENTRY GATES STATUS REPORT ===");
         
         // Individual gate statistics
         for (EntryGate gate : entryGates) {
             EntryGate.EntryGateStats stats = gate.getStats();
-            logEvent(stats.toString());
+            LOG.info("{}", stats.toString());
+            for (StagedPipeline.StageStats stage : gate.getStageStats()) {
+                LOG.info("  {}", stage.toString());
+            }
         }
         
         // Overall statistics
         updateOverallStats();
-        logEvent("TOTAL - Processed: " + totalVehiclesProcessed.get() + 
-                ", Parked: " + totalVehiclesParked.get() + 
-                ", Rejected: " + totalVehiclesRejected.get());
+        LOG.info("TOTAL - Processed: {}, Parked: {}, Rejected: {}",
+                totalVehiclesProcessed.get(), totalVehiclesParked.get(), totalVehiclesRejected.get());
         
         // System status
         ParkingLot.ParkingStatus parkingStatus = parkingLot.getStatus();
-        logEvent("Parking Status: " + parkingStatus.toString());
+        LOG.info("Parking Status: {}", parkingStatus.toString());
         
         VehicleGenerator.GenerationStats genStats = vehicleGenerator.getStats();
-        logEvent("Generation Status: " + genStats.toString());
+        LOG.info("Generation Status: {}", genStats.toString());
         
-        logEvent("Active Gates: " + activeGates.get() + "/" + numberOfGates);
-        logEvent("=== END STATUS REPORT ===");
+        LOG.info("Routing: {} - Dispatched: {}, Stolen: {}", dispatcher.getPolicy(),
+                dispatcher.getVehiclesDispatched(), dispatcher.getTotalVehiclesStolen());
+        LOG.info("Active Gates: {}/{} ({} open)", activeGates.get(), maxGates, getOpenGateCount());
+        LOG.info("=== END STATUS REPORT ===");
     }
     
     /**
@@ -213,21 +352,23 @@ public class EntryGateManager {
     
     /**
      * Shutdown all entry gates gracefully
+     * @return true if every gate stopped and every executor terminated in time
      */
-    public void shutdown() {
-        logEvent("Initiating shutdown of all entry gates");
+    public boolean shutdown() {
+        LOG.info("Initiating shutdown of all entry gates");
         isOperating = false;
+        dispatcher.shutdown();
         
         // Request shutdown of all gates
         for (EntryGate gate : entryGates) {
             gate.shutdown();
         }
         
-        // Wait for gates to complete current operations
+        // Wait for gates to complete current operations (never-started gates have nothing to wait for)
         boolean allShutdown = true;
         for (EntryGate gate : entryGates) {
-            if (!gate.awaitShutdown(10, TimeUnit.SECONDS)) {
-                logEvent("WARNING: Gate " + gate.getGateName() + " did not shutdown gracefully");
+            if (gateRuns.containsKey(gate) && !gate.awaitShutdown(10, TimeUnit.SECONDS)) {
+                LOG.warn("WARNING: Gate {} did not shutdown gracefully", gate.getGateName());
                 allShutdown = false;
             }
         }
@@ -245,30 +386,34 @@ public class EntryGateManager {
             try {
                 if (!gateExecutor.awaitTermination(15, TimeUnit.SECONDS)) {
                     gateExecutor.shutdownNow();
-                    logEvent("Entry gate executor forced shutdown");
+                    LOG.warn("Entry gate executor forced shutdown");
+                    allShutdown = false;
                 }
             } catch (InterruptedException e) {
                 gateExecutor.shutdownNow();
                 Thread.currentThread().interrupt();
+                allShutdown = false;
             }
         }
         
         if (allShutdown) {
-            logEvent("All entry gates shutdown successfully");
+            LOG.info("All entry gates shutdown successfully");
         } else {
-            logEvent("Entry gate shutdown completed with warnings");
+            LOG.info("Entry gate shutdown completed with warnings");
         }
         
         // Final statistics report
         reportFinalStatistics();
+        return allShutdown;
     }
     
     /**
      * Force shutdown of all entry gates (emergency)
      */
     public void forceShutdown() {
-        logEvent("EMERGENCY: Force shutdown initiated");
+        LOG.error("EMERGENCY: Force shutdown initiated");
         isOperating = false;
+        dispatcher.shutdown();
         
         // Cancel all futures immediately
         for (Future<?> future : gateFutures) {
@@ -280,7 +425,7 @@ public class EntryGateManager {
             gateExecutor.shutdownNow();
         }
         
-        logEvent("Force shutdown completed");
+        LOG.info("Force shutdown completed");
     }
     
     /**
@@ -301,12 +446,12 @@ public class EntryGateManager {
                 }
                 
                 future.get(remainingTime, TimeUnit.MILLISECONDS);
-                
+            
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 return false;
             } catch (ExecutionException e) {
-                logEvent("ERROR: Entry gate execution exception - " + e.getMessage());
+                LOG.error("ERROR: Entry gate execution exception - {}", e.getMessage());
             } catch (TimeoutException e) {
                 return false;
             }
@@ -319,25 +464,27 @@ public class EntryGateManager {
      * Report final statistics
      */
     private void reportFinalStatistics() {
-        logEvent("=== FINAL ENTRY GATES STATISTICS ===");
+        LOG.info("=== FINAL ENTRY GATES STATISTICS ===");
         updateOverallStats();
         
         for (EntryGate gate : entryGates) {
             EntryGate.EntryGateStats stats = gate.getStats();
-            logEvent("FINAL " + stats.toString());
+            LOG.info("FINAL {}", stats.toString());
+            for (StagedPipeline.StageStats stage : gate.getStageStats()) {
+                LOG.info("FINAL   {}", stage.toString());
+            }
         }
         
-        logEvent("FINAL TOTALS - Processed: " + totalVehiclesProcessed.get() + 
-                ", Parked: " + totalVehiclesParked.get() + 
-                ", Rejected: " + totalVehiclesRejected.get());
+        LOG.info("FINAL TOTALS - Processed: {}, Parked: {}, Rejected: {}",
+                totalVehiclesProcessed.get(), totalVehiclesParked.get(), totalVehiclesRejected.get());
         
         // Calculate efficiency
         if (totalVehiclesProcessed.get() > 0) {
             double efficiency = (double) totalVehiclesParked.get() / totalVehiclesProcessed.get() * 100;
-            logEvent("Entry Success Rate: " + String.format("%.2f%%", efficiency));
+            LOG.info("Entry Success Rate: {.2}%", efficiency);
         }
         
-        logEvent("=== END FINAL STATISTICS ===");
+        LOG.info("=== END FINAL STATISTICS ===");
     }
     
     /**
@@ -347,7 +494,7 @@ public class EntryGateManager {
         updateOverallStats();
         
         return new EntryManagerStats(
-                numberOfGates,
+                maxGates,
                 activeGates.get(),
                 totalVehiclesProcessed.get(),
                 totalVehiclesParked.get(),
@@ -377,14 +524,6 @@ public class EntryGateManager {
         return activeGates.get();
     }
     
-    /**
-     * Utility method for consistent logging
-     */
-    private void logEvent(String message) {
-        System.out.println("[" + LocalDateTime.now().format(TIME_FORMAT) + 
-                          "] [ENTRY_MGR] " + message);
-    }
-    
     /**
      * Inner class for manager statistics
      */
@@ -0,0 +1,519 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * EventLog - Shared asynchronous logger for all simulation components
+ * Log calls copy a message template and its arguments into a preallocated
+ * ring buffer slot; a single background thread formats them and writes them
+ * to the sink. Gate threads therefore never contend on stdout, and calls at a
+ * disabled level return before any string is built. When the ring is full,
+ * INFO and DEBUG events are dropped at once; WARN and ERROR wait briefly for
+ * the drainer to make room, so problems are not lost in a burst of chatter.
+ *
+ * Configured with system properties:
+ *   smartparking.log.level    default level (DEBUG, INFO, WARN, ERROR, OFF)
+ *   smartparking.log.off      comma-separated components to silence
+ *   smartparking.log.format   text (default) or json (JSON lines)
+ *   smartparking.log.file     write to this file (or "stderr") instead of stdout
+ *   smartparking.log.buffer   ring buffer slots (rounded up to a power of two)
+ */
+public final class EventLog {
+    
+    // Constants
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+    private static final int DEFAULT_BUFFER_SIZE = 16384;
+    private static final int MAX_ARGS = 6;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long FULL_RING_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);  // WARN and above
+    
+    // Shared instance
+    private static final EventLog INSTANCE = new EventLog();
+    
+    /**
+     * Severity levels, lowest first
+     */
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR, OFF
+    }
+    
+    // Ring buffer
+    private final Slot[] ring;
+    private final int mask;
+    private final AtomicLong claimSequence;            // Next slot producers will claim
+    private volatile long drainSequence;               // Next slot the drainer will read
+    private final AtomicLong droppedEvents;            // Events lost because the ring was full
+    
+    // Configuration
+    private final ConcurrentHashMap<String, Component> components;
+    private volatile Level defaultLevel;
+    private final Sink sink;
+    
+    // Drainer
+    private final Thread drainer;
+    
+    private EventLog() {
+        int requested = Integer.getInteger("smartparking.log.buffer", DEFAULT_BUFFER_SIZE);
+        int capacity = Integer.highestOneBit(Math.max(2, requested - 1)) << 1;
+        this.ring = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new Slot();
+        }
+        this.mask = capacity - 1;
+        this.claimSequence = new AtomicLong(0);
+        this.drainSequence = 0;
+        this.droppedEvents = new AtomicLong(0);
+        
+        this.components = new ConcurrentHashMap<String, Component>();
+        this.defaultLevel = Level.valueOf(System.getProperty("smartparking.log.level", "INFO").toUpperCase());
+        String silenced = System.getProperty("smartparking.log.off", "");
+        for (String name : silenced.split(",")) {
+            if (!name.trim().isEmpty()) {
+                forName(name.trim()).setLevel(Level.OFF);
+            }
+        }
+        this.sink = createSink(System.getProperty("smartparking.log.format", "text"),
+                System.getProperty("smartparking.log.file"));
+        
+        this.drainer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drainLoop();
+            }
+        }, "EventLogDrainer");
+        drainer.setDaemon(true);
+        drainer.start();
+        
+        // Write out whatever is still buffered when the JVM exits
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, "EventLogShutdownHook"));
+    }
+    
+    private static Sink createSink(String format, String file) {
+        OutputStream out;
+        try {
+            if (file == null) {
+                out = System.out;
+            } else if (file.equals("stderr")) {
+                out = System.err;      // Keeps stdout free for batch summaries
+            } else {
+                out = new FileOutputStream(file, true);
+            }
+        } catch (IOException e) {
+            System.err.println("EventLog: cannot open " + file + " (" + e.getMessage() + "), using stdout");
+            out = System.out;
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        return "json".equalsIgnoreCase(format) ? new JsonLinesSink(writer) : new TextSink(writer);
+    }
+    
+    /**
+     * Get (or create) the logger for a component
+     * @param name component tag, e.g. "PARKING_LOT" or "EntryGate-1"
+     */
+    public static Component component(String name) {
+        return INSTANCE.forName(name);
+    }
+    
+    /**
+     * Set the level of every component that has no explicit level of its own
+     */
+    public static void setDefaultLevel(Level level) {
+        INSTANCE.defaultLevel = level;
+    }
+    
+    /**
+     * Get the level used by components without an explicit level
+     */
+    public static Level getDefaultLevel() {
+        return INSTANCE.defaultLevel;
+    }
+    
+    /**
+     * Block until every event logged so far has been written to the sink
+     * Call before printing directly to stdout so output stays in order
+     */
+    public static void flush() {
+        INSTANCE.awaitDrained();
+    }
+    
+    /**
+     * Get number of events dropped because the ring buffer was full
+     */
+    public static long getDroppedEvents() {
+        return INSTANCE.droppedEvents.get();
+    }
+    
+    private Component forName(String name) {
+        Component component = components.get(name);
+        if (component == null) {
+            Component created = new Component(name);
+            component = components.putIfAbsent(name, created);
+            if (component == null) {
+                component = created;
+            }
+        }
+        return component;
+    }
+    
+    /**
+     * Claim the next slot and fill in the event header
+     * Below WARN this never blocks; WARN and ERROR wait up to 100ms for room.
+     * The caller stores the arguments and then calls commit()
+     * @return the claimed slot, or null if the ring stayed full (event dropped)
+     */
+    private Slot claim(Component component, Level level, String template, int argCount) {
+        long sequence;
+        long waitDeadline = 0;
+        while (true) {
+            sequence = claimSequence.get();
+            if (sequence - drainSequence < ring.length) {
+                if (claimSequence.compareAndSet(sequence, sequence + 1)) {
+                    break;
+                }
+                continue;
+            }
+            
+            // Full: only warnings and errors are worth stalling the caller for
+            long now = System.nanoTime();
+            if (waitDeadline == 0) {
+                waitDeadline = now + FULL_RING_WAIT_NANOS;
+            }
+            if (level.compareTo(Level.WARN) < 0 || now - waitDeadline >= 0 || !drainer.isAlive()) {
+                droppedEvents.incrementAndGet();
+                return null;
+            }
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+        
+        Slot slot = ring[(int) (sequence & mask)];
+        slot.claimed = sequence;
+        slot.epochMillis = System.currentTimeMillis();
+        slot.level = level;
+        slot.component = component.name;
+        slot.threadName = Thread.currentThread().getName();
+        slot.template = template;
+        slot.argCount = argCount;
+        return slot;
+    }
+    
+    private static void commit(Slot slot) {
+        slot.published = slot.claimed;                  // Volatile write hands the slot to the drainer
+    }
+    
+    private void drainLoop() {
+        StringBuilder message = new StringBuilder(256);
+        while (true) {
+            try {
+                if (!drainAvailable(message)) {
+                    sink.flush();
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+            } catch (IOException e) {
+                System.err.println("EventLog: write failed - " + e.getMessage());
+            } catch (RuntimeException e) {
+                System.err.println("EventLog: drain failed - " + e);
+            }
+        }
+    }
+    
+    /**
+     * Write every published event in order
+     * @return true if at least one event was written
+     */
+    private boolean drainAvailable(StringBuilder message) throws IOException {
+        boolean wroteAny = false;
+        long next = drainSequence;
+        while (true) {
+            Slot slot = ring[(int) (next & mask)];
+            if (slot.published != next) {
+                return wroteAny;
+            }
+            
+            message.setLength(0);
+            formatTemplate(message, slot.template, slot.args, slot.argCount);
+            try {
+                sink.write(slot.epochMillis, slot.level, slot.component, slot.threadName, message);
+            } finally {
+                for (int i = 0; i < slot.argCount; i++) {
+                    slot.args[i] = null;                // Don't keep cars etc. reachable
+                }
+                drainSequence = ++next;
+            }
+            wroteAny = true;
+        }
+    }
+    
+    private void awaitDrained() {
+        long target = claimSequence.get();
+        while (drainSequence < target && drainer.isAlive()) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        try {
+            sink.flush();
+        } catch (IOException e) {
+            System.err.println("EventLog: flush failed - " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Substitute each placeholder in the template with the next argument
+     * "{}" appends the argument as is, "{.N}" formats a number with N decimals
+     */
+    static void formatTemplate(StringBuilder out, String template, Object[] args, int argCount) {
+        int argIndex = 0;
+        int start = 0;
+        int marker;
+        while (argIndex < argCount && (marker = template.indexOf('{', start)) != -1) {
+            int close = template.indexOf('}', marker);
+            if (close == marker + 1) {
+                out.append(template, start, marker).append(args[argIndex++]);
+            } else if (close == marker + 3 && template.charAt(marker + 1) == '.'
+                    && Character.isDigit(template.charAt(marker + 2)) && args[argIndex] instanceof Number) {
+                out.append(template, start, marker).append(String.format(
+                        "%." + template.charAt(marker + 2) + "f", ((Number) args[argIndex++]).doubleValue()));
+            } else {
+                out.append(template, start, marker + 1);  // Literal brace
+                start = marker + 1;
+                continue;
+            }
+            start = close + 1;
+        }
+        out.append(template, start, template.length());
+    }
+    
+    /**
+     * Logger for one component; cheap to call when its level is disabled
+     */
+    public static final class Component {
+        private final String name;
+        private volatile Level level;                   // null = follow the default level
+        
+        private Component(String name) {
+            this.name = name;
+        }
+        
+        public String getName() { return name; }
+        
+        /**
+         * Override the level for this component only (null restores the default)
+         */
+        public void setLevel(Level level) {
+            this.level = level;
+        }
+        
+        public boolean isEnabled(Level check) {
+            Level threshold = (level != null) ? level : INSTANCE.defaultLevel;
+            return check != Level.OFF && check.ordinal() >= threshold.ordinal();
+        }
+        
+        public boolean isDebugEnabled() {
+            return isEnabled(Level.DEBUG);
+        }
+        
+        public void log(Level level, String template) {
+            Slot slot;
+            if (isEnabled(level) && (slot = INSTANCE.claim(this, level, template, 0)) != null) {
+                commit(slot);
+            }
+        }
+        
+        public void log(Level level, String template, Object arg) {
+            Slot slot;
+            if (isEnabled(level) && (slot = INSTANCE.claim(this, level, template, 1)) != null) {
+                slot.args[0] = arg;
+                commit(slot);
+            }
+        }
+        
+        public void log(Level level, String template, Object arg1, Object arg2) {
+            Slot slot;
+            if (isEnabled(level) && (slot = INSTANCE.claim(this, level, template, 2)) != null) {
+                slot.args[0] = arg1;
+                slot.args[1] = arg2;
+                commit(slot);
+            }
+        }
+        
+        public void log(Level level, String template, Object arg1, Object arg2, Object arg3) {
+            Slot slot;
+            if (isEnabled(level) && (slot = INSTANCE.claim(this, level, template, 3)) != null) {
+                slot.args[0] = arg1;
+                slot.args[1] = arg2;
+                slot.args[2] = arg3;
+                commit(slot);
+            }
+        }
+        
+        public void log(Level level, String template, Object... args) {
+            if (args.length > MAX_ARGS) {
+                throw new IllegalArgumentException("At most " + MAX_ARGS + " log arguments supported");
+            }
+            Slot slot;
+            if (isEnabled(level) && (slot = INSTANCE.claim(this, level, template, args.length)) != null) {
+                System.arraycopy(args, 0, slot.args, 0, args.length);
+                commit(slot);
+            }
+        }
+        
+        public void debug(String template) { log(Level.DEBUG, template); }
+        public void debug(String template, Object arg) { log(Level.DEBUG, template, arg); }
+        public void debug(String template, Object arg1, Object arg2) { log(Level.DEBUG, template, arg1, arg2); }
+        public void debug(String template, Object arg1, Object arg2, Object arg3) { log(Level.DEBUG, template, arg1, arg2, arg3); }
+        public void debug(String template, Object... args) { log(Level.DEBUG, template, args); }
+        
+        public void info(String template) { log(Level.INFO, template); }
+        public void info(String template, Object arg) { log(Level.INFO, template, arg); }
+        public void info(String template, Object arg1, Object arg2) { log(Level.INFO, template, arg1, arg2); }
+        public void info(String template, Object arg1, Object arg2, Object arg3) { log(Level.INFO, template, arg1, arg2, arg3); }
+        public void info(String template, Object... args) { log(Level.INFO, template, args); }
+        
+        public void warn(String template) { log(Level.WARN, template); }
+        public void warn(String template, Object arg) { log(Level.WARN, template, arg); }
+        public void warn(String template, Object arg1, Object arg2) { log(Level.WARN, template, arg1, arg2); }
+        public void warn(String template, Object arg1, Object arg2, Object arg3) { log(Level.WARN, template, arg1, arg2, arg3); }
+        public void warn(String template, Object... args) { log(Level.WARN, template, args); }
+        
+        public void error(String template) { log(Level.ERROR, template); }
+        public void error(String template, Object arg) { log(Level.ERROR, template, arg); }
+        public void error(String template, Object arg1, Object arg2) { log(Level.ERROR, template, arg1, arg2); }
+        public void error(String template, Object arg1, Object arg2, Object arg3) { log(Level.ERROR, template, arg1, arg2, arg3); }
+        public void error(String template, Object... args) { log(Level.ERROR, template, args); }
+    }
+    
+    /**
+     * One preallocated ring buffer entry
+     */
+    private static final class Slot {
+        private volatile long published = -1;           // Sequence number of the event held
+        private long claimed;                           // Sequence being filled by a producer
+        private long epochMillis;
+        private Level level;
+        private String component;
+        private String threadName;
+        private String template;
+        private final Object[] args = new Object[MAX_ARGS];
+        private int argCount;
+    }
+    
+    /**
+     * Destination for formatted events; only called from the drainer thread
+     * (and from flush() under the sink's monitor)
+     */
+    interface Sink {
+        void write(long epochMillis, Level level, String component, String threadName,
+                   CharSequence message) throws IOException;
+        
+        void flush() throws IOException;
+    }
+    
+    /**
+     * Human-readable sink matching the original console format
+     * [HH:mm:ss.SSS] [COMPONENT] message
+     */
+    static final class TextSink implements Sink {
+        private final Writer out;
+        private final ZoneId zone = ZoneId.systemDefault();
+        
+        TextSink(Writer out) {
+            this.out = out;
+        }
+        
+        @Override
+        public synchronized void write(long epochMillis, Level level, String component, String threadName,
+                                       CharSequence message) throws IOException {
+            out.write('[');
+            out.write(LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), zone).format(TIME_FORMAT));
+            out.write("] [");
+            out.write(component);
+            out.write("] ");
+            out.append(message);
+            out.write('\n');
+        }
+        
+        @Override
+        public synchronized void flush() throws IOException {
+            out.flush();
+        }
+    }
+    
+    /**
+     * Machine-readable sink writing one JSON object per line
+     */
+    static final class JsonLinesSink implements Sink {
+        private final Writer out;
+        
+        JsonLinesSink(Writer out) {
+            this.out = out;
+        }
+        
+        @Override
+        public synchronized void write(long epochMillis, Level level, String component, String threadName,
+                                       CharSequence message) throws IOException {
+            out.write("{\"ts\":");
+            out.write(Long.toString(epochMillis));
+            out.write(",\"level\":\"");
+            out.write(level.name());
+            out.write("\",\"component\":");
+            writeString(component);
+            out.write(",\"thread\":");
+            writeString(threadName);
+            out.write(",\"msg\":");
+            writeString(message);
+            out.write("}\n");
+        }
+        
+        private void writeString(CharSequence value) throws IOException {
+            out.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':  out.write("\\\""); break;
+                    case '\\': out.write("\\\\"); break;
+                    case '\n': out.write("\\n"); break;
+                    case '\r': out.write("\\r"); break;
+                    case '\t': out.write("\\t"); break;
+                    default:
+                        if (c < 0x20) {
+                            out.write(String.format("\\u%04x", (int) c));
+                        } else {
+                            out.write(c);
+                        }
+                }
+            }
+            out.write('"');
+        }
+        
+        @Override
+        public synchronized void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
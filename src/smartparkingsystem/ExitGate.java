@@ -9,21 +9,23 @@ package smartparkingsystem;
  * @author amiryusof
  */
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * ExitGate - Individual exit gate thread that processes departing vehicles
- * Handles vehicle exit operations and coordinates with payment processing
+ * Handles vehicle exit operations and coordinates with payment processing.
+ * Payment authorization runs asynchronously alongside the barrier work, and
+ * the gate takes the next car while earlier ones are still paying, up to a
+ * configured number of cars in flight.
  */
 public class ExitGate implements Runnable {
     
     // Constants
-    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+    private static final int MANUAL_INTERVENTION_MS = 5000;
+    private static final String IN_FLIGHT_PROPERTY = "smartparking.exit.inFlight";
+    public static final int DEFAULT_MAX_IN_FLIGHT = 3;
+    private static final long IN_FLIGHT_DRAIN_SECONDS = 30;
     
     // Gate identification
     private final int gateId;
@@ -34,17 +36,26 @@ public class ExitGate implements Runnable {
     private final BlockingQueue<Car> exitQueue;
     private final PaymentProcessor paymentProcessor;
     private final Statistics statistics;
+    private final SimulationClock clock;
+    private final EventLog.Component log;
+    private final Statistics.GateCounters gateCounters;
     
     // Statistics
-    private final AtomicInteger vehiclesProcessed;
-    private final AtomicInteger vehiclesExited;
-    private final AtomicInteger paymentFailures;
-    private final AtomicLong totalProcessingTime;
-    private final AtomicLong totalRevenue;
+    private final LongAdder vehiclesProcessed;
+    private final LongAdder vehiclesExited;
+    private final LongAdder paymentFailures;
+    private final LongAdder totalProcessingTime;
+    private final LongAdder totalRevenue;
     
     // Control
     private volatile boolean isOperating;
-    private final CountDownLatch shutdownLatch;
+    private volatile boolean isClosing;              // Stop after the vehicles in flight
+    private volatile CountDownLatch shutdownLatch;   // Replaced by reopen() for each run
+    
+    // Cars in flight: one permit per car between taking it and its exit completing
+    private final int maxInFlight;
+    private final Semaphore inFlightPermits;
+    private volatile ExecutorService barrierWorkers;  // Created per run
     
     // Gate specific settings
     private final int processingTimeMin; // milliseconds
@@ -61,30 +72,56 @@ public class ExitGate implements Runnable {
      */
     public ExitGate(int gateId, ParkingLot parkingLot, BlockingQueue<Car> exitQueue, 
                     PaymentProcessor paymentProcessor, Statistics statistics) {
+        this(gateId, parkingLot, exitQueue, paymentProcessor, statistics, configuredMaxInFlight());
+    }
+    
+    /**
+     * Constructor with an explicit in-flight limit
+     * @param maxInFlight cars this gate may have between dequeue and exit (1 = one at a time)
+     */
+    public ExitGate(int gateId, ParkingLot parkingLot, BlockingQueue<Car> exitQueue, 
+                    PaymentProcessor paymentProcessor, Statistics statistics, int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Exit gate needs at least one car in flight: " + maxInFlight);
+        }
         this.gateId = gateId;
         this.gateName = "ExitGate-" + gateId;
+        this.log = EventLog.component(gateName);
         this.parkingLot = parkingLot;
         this.exitQueue = exitQueue;
         this.paymentProcessor = paymentProcessor;
         this.statistics = statistics;
+        this.gateCounters = statistics.registerGate(gateName);
+        this.clock = parkingLot.getClock();
         
         // Initialize statistics
-        this.vehiclesProcessed = new AtomicInteger(0);
-        this.vehiclesExited = new AtomicInteger(0);
-        this.paymentFailures = new AtomicInteger(0);
-        this.totalProcessingTime = new AtomicLong(0);
-        this.totalRevenue = new AtomicLong(0);
+        this.vehiclesProcessed = new LongAdder();
+        this.vehiclesExited = new LongAdder();
+        this.paymentFailures = new LongAdder();
+        this.totalProcessingTime = new LongAdder();
+        this.totalRevenue = new LongAdder();
         
         // Control
         this.isOperating = false;
+        this.isClosing = false;
         this.shutdownLatch = new CountDownLatch(1);
+        this.maxInFlight = maxInFlight;
+        this.inFlightPermits = new Semaphore(maxInFlight);
         
         // Gate specific settings (each gate has different characteristics)
         this.processingTimeMin = 800 + (gateId * 100); // 800ms base + variation
         this.processingTimeMax = 2000 + (gateId * 150); // 2000ms base + variation
         this.malfunctionProbability = 0.02 + (gateId * 0.005); // 2% base + variation
         
-        logEvent("Exit gate initialized");
+        log.info("Exit gate initialized ({} in flight)", maxInFlight);
+    }
+    
+    /**
+     * Get the in-flight limit from the smartparking.exit.inFlight system property
+     * (default 3; 1 processes one car at a time)
+     */
+    public static int configuredMaxInFlight() {
+        return Integer.getInteger(IN_FLIGHT_PROPERTY, DEFAULT_MAX_IN_FLIGHT);
     }
     
     /**
@@ -95,21 +132,43 @@ public class ExitGate implements Runnable {
         Thread.currentThread().setName(gateName);
         isOperating = true;
         
-        logEvent("Exit gate started operations");
+        log.info("Exit gate started operations");
+        barrierWorkers = GateThreads.newTaskPool(gateName + "-Barrier-");
         
         try {
             while (isOperating && !Thread.currentThread().isInterrupted()) {
                 processNextVehicle();
+                if (isClosing && finishClosing()) {
+                    log.info("Gate closed");
+                }
             }
-            
+        
         } catch (Exception e) {
-            logEvent("ERROR: Exception in exit gate - " + e.getMessage());
+            log.error("ERROR: Exception in exit gate - {}", e.getMessage());
             statistics.recordError("EXIT_GATE_EXCEPTION", "Exception in " + gateName + ": " + e.getMessage());
             e.printStackTrace();
         } finally {
             isOperating = false;
+            drainInFlight();
             shutdownLatch.countDown();
-            logEvent("Exit gate stopped operations");
+            log.info("Exit gate stopped operations");
+        }
+    }
+    
+    /**
+     * Wait for the cars still in flight to finish exiting, then stop the barrier workers
+     */
+    private void drainInFlight() {
+        try {
+            if (inFlightPermits.tryAcquire(maxInFlight, IN_FLIGHT_DRAIN_SECONDS, TimeUnit.SECONDS)) {
+                inFlightPermits.release(maxInFlight);
+            } else {
+                log.warn("WARNING: {} vehicles still exiting at shutdown", getVehiclesInFlight());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            barrierWorkers.shutdown();
         }
     }
     
@@ -118,110 +177,201 @@ public class ExitGate implements Runnable {
      */
     private void processNextVehicle() {
         try {
-            // Get next vehicle with timeout to allow periodic status checks
-            Car car = exitQueue.poll(3, TimeUnit.SECONDS);
+            // Wait for room for another car in flight, with timeout to allow periodic status checks
+            if (!inFlightPermits.tryAcquire(3, TimeUnit.SECONDS)) {
+                return;
+            }
+            
+            // Get next vehicle (a closing gate only looks once, so it stops promptly)
+            Car car = null;
+            try {
+                car = isClosing ? exitQueue.poll() : exitQueue.poll(3, TimeUnit.SECONDS);
+            } finally {
+                if (car == null) {
+                    inFlightPermits.release();
+                }
+            }
             
             if (car == null) {
                 // No vehicle available, continue waiting
                 return;
             }
             
-            // Process the vehicle exit
-            processVehicleExit(car);
-            
+            // Start the vehicle exit; its permit is released when the exit completes
+            startVehicleExit(car);
+        
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            logEvent("Exit processing interrupted");
+            log.info("Exit processing interrupted");
         } catch (Exception e) {
-            logEvent("ERROR: Failed to process vehicle exit - " + e.getMessage());
+            log.error("ERROR: Failed to process vehicle exit - {}", e.getMessage());
             statistics.recordError("EXIT_PROCESSING_ERROR", "Failed to process vehicle exit in " + gateName + ": " + e.getMessage());
         }
     }
     
     /**
-     * Process individual vehicle exit
+     * Start an individual vehicle exit
+     * Payment authorization and the barrier work run at the same time; the car
+     * leaves its space once both are done (see completeVehicleExit)
      * @param car the car attempting to exit
      */
-    private void processVehicleExit(Car car) {
-        long startTime = System.currentTimeMillis();
-        int processed = vehiclesProcessed.incrementAndGet();
+    private void startVehicleExit(Car car) {
+        long startNanos = clock.nanoTime();
+        vehiclesProcessed.increment();
+        int processed = vehiclesProcessed.intValue();   // Single writer: this gate's thread
         
-        logEvent("Processing exit for vehicle " + car.getCarId() + " [" + car.getLicensePlate() + 
-                "] from space " + car.getSpaceNumber() + " (Vehicle #" + processed + ")");
+        log.info("Processing exit for vehicle {} [{}] from space {} (Vehicle #{})",
+                car.getCarId(), car.getLicensePlate(), car.getSpaceNumber(), processed);
         
         try {
             // Step 1: Validate vehicle is in parking lot
             if (!validateVehicle(car)) {
-                logEvent("ERROR: Vehicle " + car.getCarId() + " validation failed");
+                log.error("ERROR: Vehicle {} validation failed", car.getCarId());
                 statistics.recordError("EXIT_VALIDATION_FAILED", "Vehicle validation failed for " + car.getCarId());
+                finishVehicleExit(car, startNanos);
                 return;
             }
             
-            // Step 2: Process payment if not already paid
-            if (!processPayment(car)) {
-                paymentFailures.incrementAndGet();
-                statistics.recordPaymentFailure(car, "Payment processing failed at exit gate");
-                logEvent("ERROR: Payment failed for vehicle " + car.getCarId() + 
-                        " - blocking exit until resolved");
-                
-                // In real system, would handle payment retry or manual intervention
-                // For simulation, we'll allow exit after logging the failure
-                logEvent("MANUAL_OVERRIDE: Allowing exit for vehicle " + car.getCarId() + 
-                        " despite payment failure");
-            }
+            // Step 2: Authorize payment if not already paid
+            CompletableFuture<Boolean> payment = startPayment(car);
+            
+            // Steps 3-4: Malfunction check and physical exit process, meanwhile
+            CompletableFuture<Void> barrier = CompletableFuture.runAsync(this::operateBarrier, barrierWorkers);
             
+            // Step 5 once both are done
+            payment.thenCombine(barrier, (paid, ignored) -> paid)
+                    .whenComplete((paid, failure) -> completeVehicleExit(car, paid, failure, startNanos));
+        
+        } catch (RuntimeException e) {
+            log.error("ERROR: Failed to process exit for vehicle {} - {}", car.getCarId(), e.getMessage());
+            statistics.recordError("EXIT_PROCESSING_ERROR", "Failed to process exit for " + car.getCarId() + ": " + e.getMessage());
+            finishVehicleExit(car, startNanos);
+        }
+    }
+    
+    /**
+     * Barrier side of an exit: malfunction check and physical exit process
+     */
+    private void operateBarrier() {
+        try {
             // Step 3: Simulate gate malfunction check
             if (simulateGateMalfunction()) {
-                logEvent("WARNING: Gate malfunction detected - attempting recovery");
+                log.warn("WARNING: Gate malfunction detected - attempting recovery");
                 handleGateMalfunction();
             }
             
             // Step 4: Simulate physical exit process
             simulateExitProcessing();
+        
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+    
+    /**
+     * Finish an exit once payment and barrier work are both done
+     * @param paid payment outcome (null if a step failed)
+     * @param failure exception from either step, or null
+     */
+    private void completeVehicleExit(Car car, Boolean paid, Throwable failure, long startNanos) {
+        try {
+            if (failure != null) {
+                Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                        ? failure.getCause() : failure;
+                if (cause instanceof InterruptedException) {
+                    log.info("Vehicle {} exit processing interrupted", car.getCarId());
+                } else {
+                    log.error("ERROR: Failed to process exit for vehicle {} - {}", car.getCarId(), cause.getMessage());
+                    statistics.recordError("EXIT_PROCESSING_ERROR", "Failed to process exit for " + car.getCarId() + ": " + cause.getMessage());
+                }
+                return;
+            }
+            
+            if (!paid) {
+                paymentFailures.increment();
+                statistics.recordPaymentFailure(car, "Payment processing failed at exit gate");
+                log.error("ERROR: Payment failed for vehicle {} - blocking exit until resolved", car.getCarId());
+                
+                // In real system, would handle payment retry or manual intervention
+                // For simulation, we'll allow exit after logging the failure
+                log.warn("MANUAL_OVERRIDE: Allowing exit for vehicle {} despite payment failure", car.getCarId());
+            }
+            
+            // A car on a pay-later token is settled in the background; count
+            // its fee when that settlement lands, not at the barrier
+            CompletableFuture<Boolean> deferred = paid ? paymentProcessor.getDeferredSettlement(car) : null;
+            boolean paidAtExit = deferred == null && car.isPaid();
             
             // Step 5: Remove vehicle from parking lot
             if (parkingLot.removeCar(car)) {
-                vehiclesExited.incrementAndGet();
+                vehiclesExited.increment();
                 
                 // Update revenue tracking
-                if (car.isPaid()) {
+                if (paidAtExit) {
                     long revenueInCents = Math.round(car.getPaymentAmount() * 100);
-                    totalRevenue.addAndGet(revenueInCents);
+                    totalRevenue.add(revenueInCents);
                 }
                 
                 // Record statistics
-                statistics.recordVehicleExit(car);
+                statistics.recordVehicleExit(car, paidAtExit);
                 
-                logEvent("Vehicle " + car.getCarId() + " successfully exited" + 
-                        (car.isPaid() ? " (Paid: $" + String.format("%.2f", car.getPaymentAmount()) + ")" : " (UNPAID)"));
+                if (deferred != null) {
+                    log.info("Vehicle {} successfully exited (pay-later)", car.getCarId());
+                    deferred.thenAccept(settled -> recordDeferredSettlement(car, settled));
+                } else if (paidAtExit) {
+                    log.info("Vehicle {} successfully exited (Paid: ${.2})", car.getCarId(), car.getPaymentAmount());
+                } else {
+                    log.info("Vehicle {} successfully exited (UNPAID)", car.getCarId());
+                }
                 
                 // Log updated parking status
                 ParkingLot.ParkingStatus status = parkingLot.getStatus();
-                logEvent("Parking spaces freed - Available: " + status.getAvailableSpaces() + 
-                        "/" + status.getTotalSpaces());
-                
+                log.info("Parking spaces freed - Available: {}/{}",
+                        status.getAvailableSpaces(), status.getTotalSpaces());
+            
             } else {
-                logEvent("ERROR: Failed to remove vehicle " + car.getCarId() + " from parking lot");
+                log.error("ERROR: Failed to remove vehicle {} from parking lot", car.getCarId());
                 statistics.recordError("EXIT_REMOVAL_FAILED", "Failed to remove vehicle " + car.getCarId() + " from parking lot");
             }
-            
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            logEvent("Vehicle " + car.getCarId() + " exit processing interrupted");
-            
-        } catch (Exception e) {
-            logEvent("ERROR: Failed to process exit for vehicle " + car.getCarId() + " - " + e.getMessage());
+        
+        } catch (RuntimeException e) {
+            log.error("ERROR: Failed to process exit for vehicle {} - {}", car.getCarId(), e.getMessage());
             statistics.recordError("EXIT_PROCESSING_ERROR", "Failed to process exit for " + car.getCarId() + ": " + e.getMessage());
-            
+        
         } finally {
+            finishVehicleExit(car, startNanos);
+        }
+    }
+    
+    /**
+     * Account for a pay-later fee once its background settlement finishes
+     */
+    private void recordDeferredSettlement(Car car, boolean settled) {
+        if (settled) {
+            totalRevenue.add(Math.round(car.getPaymentAmount() * 100));
+            statistics.recordDeferredPaymentSettled(car);
+        } else {
+            paymentFailures.increment();
+            statistics.recordPaymentFailure(car, "Pay-later settlement failed after exit");
+        }
+    }
+    
+    /**
+     * Every exit ends here: record its processing time and free its in-flight slot
+     */
+    private void finishVehicleExit(Car car, long startNanos) {
+        try {
             // Update processing time statistics
-            long processingTime = System.currentTimeMillis() - startTime;
-            totalProcessingTime.addAndGet(processingTime);
+            long processingTime = TimeUnit.NANOSECONDS.toMillis(clock.nanoTime() - startNanos);
+            totalProcessingTime.add(processingTime);
             
             // Record gate processing statistics
-            statistics.recordGateProcessing(gateName, processingTime);
+            statistics.recordGateProcessing(gateCounters, processingTime);
             
-            logEvent("Completed exit processing for vehicle " + car.getCarId() + " in " + processingTime + "ms");
+            log.info("Completed exit processing for vehicle {} in {}ms", car.getCarId(), processingTime);
+        } finally {
+            inFlightPermits.release();
         }
     }
     
@@ -231,74 +381,73 @@ public class ExitGate implements Runnable {
     private boolean validateVehicle(Car car) {
         // Check if vehicle has valid parking information
         if (car.getSpaceNumber() == -1) {
-            logEvent("ERROR: Vehicle " + car.getCarId() + " has no assigned parking space");
+            log.error("ERROR: Vehicle {} has no assigned parking space", car.getCarId());
             return false;
         }
         
         // Verify vehicle is actually in the parking lot
         Car parkedCar = parkingLot.getCarInSpace(car.getSpaceNumber());
         if (parkedCar == null || !parkedCar.getCarId().equals(car.getCarId())) {
-            logEvent("ERROR: Vehicle " + car.getCarId() + " not found in assigned space " + 
-                    car.getSpaceNumber());
+            log.error("ERROR: Vehicle {} not found in assigned space {}", car.getCarId(), car.getSpaceNumber());
             return false;
         }
         
-        logEvent("Vehicle " + car.getCarId() + " validation successful");
+        log.info("Vehicle {} validation successful", car.getCarId());
         return true;
     }
     
     /**
-     * Process payment for vehicle
+     * Start payment for vehicle
+     * @return future payment outcome (already complete if nothing is owed)
      */
-    private boolean processPayment(Car car) {
+    private CompletableFuture<Boolean> startPayment(Car car) {
         if (car.isPaid()) {
-            logEvent("Vehicle " + car.getCarId() + " already paid: $" + 
-                    String.format("%.2f", car.getPaymentAmount()));
-            return true;
+            log.info("Vehicle {} already paid: ${.2}", car.getCarId(), car.getPaymentAmount());
+            return CompletableFuture.completedFuture(true);
         }
         
-        logEvent("Processing payment for vehicle " + car.getCarId());
+        log.info("Processing payment for vehicle {}", car.getCarId());
         
         // Delegate to payment processor
-        boolean paymentSuccess = paymentProcessor.processPayment(car);
-        
-        if (paymentSuccess) {
-            logEvent("Payment successful for vehicle " + car.getCarId() + ": $" + 
-                    String.format("%.2f", car.getPaymentAmount()));
-        } else {
-            logEvent("Payment failed for vehicle " + car.getCarId());
-        }
-        
-        return paymentSuccess;
+        long paymentStartNanos = clock.nanoTime();
+        return paymentProcessor.processPaymentAsync(car).thenApply(paymentSuccess -> {
+            statistics.recordPaymentLatency(TimeUnit.NANOSECONDS.toMillis(clock.nanoTime() - paymentStartNanos));
+            
+            if (paymentSuccess) {
+                log.info("Payment successful for vehicle {}: ${.2}", car.getCarId(), car.getPaymentAmount());
+            } else {
+                log.info("Payment failed for vehicle {}", car.getCarId());
+            }
+            return paymentSuccess;
+        });
     }
     
     /**
      * Simulate gate malfunction
      */
     private boolean simulateGateMalfunction() {
-        return ThreadLocalRandom.current().nextDouble() < malfunctionProbability;
+        return clock.random().nextDouble() < malfunctionProbability;
     }
     
     /**
      * Handle gate malfunction scenario
      */
     private void handleGateMalfunction() throws InterruptedException {
-        logEvent("MALFUNCTION: Gate experiencing technical difficulties");
+        log.warn("MALFUNCTION: Gate experiencing technical difficulties");
         statistics.recordError("GATE_MALFUNCTION", "Exit gate " + gateName + " experienced malfunction");
         
         // Simulate malfunction recovery time
-        int recoveryTime = ThreadLocalRandom.current().nextInt(2000, 8000); // 2-8 seconds
-        Thread.sleep(recoveryTime);
+        clock.sleep(sampleRecoveryTime());
         
         // Simulate recovery success/failure
-        if (ThreadLocalRandom.current().nextDouble() < 0.9) { // 90% recovery success
-            logEvent("Gate malfunction resolved - resuming normal operations");
+        if (sampleRecoverySuccess()) {
+            log.info("Gate malfunction resolved - resuming normal operations");
         } else {
-            logEvent("Gate malfunction persists - manual intervention required");
+            log.warn("Gate malfunction persists - manual intervention required");
             statistics.recordError("GATE_MANUAL_INTERVENTION", "Exit gate " + gateName + " requires manual intervention");
             // In real system, would alert maintenance
-            Thread.sleep(5000); // Additional delay for manual intervention
-            logEvent("Manual intervention completed - gate operational");
+            clock.sleep(MANUAL_INTERVENTION_MS); // Additional delay for manual intervention
+            log.info("Manual intervention completed - gate operational");
         }
     }
     
@@ -312,18 +461,114 @@ public class ExitGate implements Runnable {
         // - Vehicle sensor confirmation
         // - Receipt printing
         
-        int processingTime = ThreadLocalRandom.current().nextInt(processingTimeMin, processingTimeMax + 1);
-        Thread.sleep(processingTime);
+        clock.sleep(sampleProcessingTime());
+    }
+    
+    /**
+     * Draw one exit processing time from this gate's distribution
+     * @return processing time in milliseconds
+     */
+    public int sampleProcessingTime() {
+        return clock.random().nextInt(processingTimeMin, processingTimeMax + 1);
+    }
+    
+    /**
+     * Draw the extra time lost to a malfunction for one vehicle
+     * @return delay in milliseconds (0 when the gate works normally)
+     */
+    public int sampleMalfunctionDelay() {
+        if (!simulateGateMalfunction()) {
+            return 0;
+        }
+        int delay = sampleRecoveryTime();
+        if (!sampleRecoverySuccess()) {
+            delay += MANUAL_INTERVENTION_MS;
+        }
+        return delay;
+    }
+    
+    private int sampleRecoveryTime() {
+        return clock.random().nextInt(2000, 8000); // 2-8 seconds
+    }
+    
+    private boolean sampleRecoverySuccess() {
+        return clock.random().nextDouble() < 0.9; // 90% recovery success
+    }
+    
+    /**
+     * Record a vehicle handled by the discrete-event engine instead of run()
+     * @param car the departing car (payment already settled)
+     * @param exited true if the car left its space
+     * @param paymentFailed true if payment failed and exit was overridden
+     * @param processingTimeMs virtual time the gate was busy with the vehicle
+     */
+    void recordSimulatedExit(Car car, boolean exited, boolean paymentFailed, long processingTimeMs) {
+        vehiclesProcessed.increment();
+        if (paymentFailed) {
+            paymentFailures.increment();
+        }
+        if (exited) {
+            vehiclesExited.increment();
+            if (car.isPaid()) {
+                totalRevenue.add(Math.round(car.getPaymentAmount() * 100));
+            }
+        }
+        totalProcessingTime.add(processingTimeMs);
+        statistics.recordGateProcessing(gateCounters, processingTimeMs);
     }
     
     /**
      * Request shutdown of this exit gate
      */
     public void shutdown() {
-        logEvent("Shutdown requested");
+        log.info("Shutdown requested");
         isOperating = false;
     }
     
+    /**
+     * Close this gate: it finishes the vehicles in hand, then stops
+     */
+    public void close() {
+        log.info("Closing - finishing vehicles in flight");
+        isClosing = true;
+    }
+    
+    /**
+     * Cancel a close that has not taken effect yet
+     * @return true if the gate was closing and keeps running, false if it has
+     *         already stopped (or was not closing)
+     */
+    synchronized boolean cancelClose() {
+        if (isClosing && isOperating) {
+            isClosing = false;
+            log.info("Close cancelled - gate reopened");
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Stop after a close, unless cancelClose() got in first
+     */
+    private synchronized boolean finishClosing() {
+        if (isClosing) {
+            isOperating = false;
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Prepare a stopped gate to run again
+     */
+    synchronized void reopen() {
+        if (isOperating) {
+            throw new IllegalStateException(gateName + " is still operating");
+        }
+        isClosing = false;
+        shutdownLatch = new CountDownLatch(1);
+    }
+    
     /**
      * Wait for gate to complete shutdown
      * @param timeout maximum time to wait
@@ -343,19 +588,20 @@ public class ExitGate implements Runnable {
      * Get current gate statistics
      */
     public ExitGateStats getStats() {
-        long avgProcessingTime = vehiclesProcessed.get() > 0 ? 
-                totalProcessingTime.get() / vehiclesProcessed.get() : 0;
+        long avgProcessingTime = vehiclesProcessed.intValue() > 0 ? 
+                totalProcessingTime.sum() / vehiclesProcessed.intValue() : 0;
         
-        double revenue = totalRevenue.get() / 100.0; // Convert cents to dollars
+        double revenue = totalRevenue.sum() / 100.0; // Convert cents to dollars
         
         return new ExitGateStats(
                 gateId,
                 gateName,
-                vehiclesProcessed.get(),
-                vehiclesExited.get(),
-                paymentFailures.get(),
+                vehiclesProcessed.intValue(),
+                vehiclesExited.intValue(),
+                paymentFailures.intValue(),
                 avgProcessingTime,
                 revenue,
+                getVehiclesInFlight(),
                 isOperating
         );
     }
@@ -367,6 +613,34 @@ public class ExitGate implements Runnable {
         return isOperating;
     }
     
+    /**
+     * Get number of cars taken from the queue whose exit has not completed
+     */
+    public int getVehiclesInFlight() {
+        return maxInFlight - inFlightPermits.availablePermits();
+    }
+    
+    /**
+     * Get the most cars this gate works on at once
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+    
+    /**
+     * Check if gate is closing after the vehicles in hand
+     */
+    public boolean isClosing() {
+        return isClosing;
+    }
+    
+    /**
+     * Get this gate's counters in the shared statistics
+     */
+    public Statistics.GateCounters getGateCounters() {
+        return gateCounters;
+    }
+    
     /**
      * Get gate identification
      */
@@ -378,14 +652,6 @@ public class ExitGate implements Runnable {
         return gateName;
     }
     
-    /**
-     * Utility method for consistent logging
-     */
-    private void logEvent(String message) {
-        System.out.println("[" + LocalDateTime.now().format(TIME_FORMAT) + 
-                          "] [" + gateName + "] " + message);
-    }
-    
     /**
      * Inner class for exit gate statistics
      */
@@ -397,10 +663,16 @@ public class ExitGate implements Runnable {
         private final int paymentFailures;
         private final long avgProcessingTime;
         private final double totalRevenue;
+        private final int vehiclesInFlight;
         private final boolean isOperating;
         
         public ExitGateStats(int gateId, String gateName, int processed, int exited, 
                            int failures, long avgTime, double revenue, boolean operating) {
+            this(gateId, gateName, processed, exited, failures, avgTime, revenue, 0, operating);
+        }
+        
+        public ExitGateStats(int gateId, String gateName, int processed, int exited, 
+                           int failures, long avgTime, double revenue, int inFlight, boolean operating) {
             this.gateId = gateId;
             this.gateName = gateName;
             this.vehiclesProcessed = processed;
@@ -408,6 +680,7 @@ public class ExitGate implements Runnable {
             this.paymentFailures = failures;
             this.avgProcessingTime = avgTime;
             this.totalRevenue = revenue;
+            this.vehiclesInFlight = inFlight;
             this.isOperating = operating;
         }
         
@@ -419,12 +692,13 @@ public class ExitGate implements Runnable {
         public int getPaymentFailures() { return paymentFailures; }
         public long getAvgProcessingTime() { return avgProcessingTime; }
         public double getTotalRevenue() { return totalRevenue; }
+        public int getVehiclesInFlight() { return vehiclesInFlight; }
         public boolean isOperating() { return isOperating; }
         
         @Override
         public String toString() {
-            return String.format("%s - Processed: %d, Exited: %d, Payment Failures: %d, Revenue: $%.2f, Avg Time: %dms, Operating: %s",
-                    gateName, vehiclesProcessed, vehiclesExited, paymentFailures, totalRevenue, avgProcessingTime, isOperating);
+            return String.format("%s - Processed: %d, Exited: %d, Payment Failures: %d, Revenue: $%.2f, Avg Time: %dms, In Flight: %d, Operating: %s",
+                    gateName, vehiclesProcessed, vehiclesExited, paymentFailures, totalRevenue, avgProcessingTime, vehiclesInFlight, isOperating);
         }
     }
 }
\ No newline at end of file
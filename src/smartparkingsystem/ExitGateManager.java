@@ -9,27 +9,32 @@ package smartparkingsystem;
  * @author amiryusof
  */
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Map;
 
 /**
  * ExitGateManager - Manages multiple exit gates and coordinates exit operations
- * Handles vehicle exit queue and manages the lifecycle of exit gate threads
+ * Handles vehicle exit queue and manages the lifecycle of exit gate threads.
+ * Gates beyond the starting count are created closed and can be opened and
+ * closed at runtime (see GateAutoscaler).
  */
-public class ExitGateManager {
+public class ExitGateManager implements GateAutoscaler.ScalableGates {
     
     // Constants
-    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+    private static final EventLog.Component LOG = EventLog.component("EXIT_MGR");
     private static final int DEFAULT_GATE_COUNT = 2;
+    private static final long EXIT_POLL_MS = 500;      // Bounds shutdown latency of the generator
     
     // Gate management
-    private final int numberOfGates;
+    private final int numberOfGates;                 // Open at start
+    private final int maxGates;
     private final List<ExitGate> exitGates;
+    private final List<ExitGate> openGates;          // Guarded by this
+    private final Map<ExitGate, Future<?>> gateRuns; // Latest run of each started gate
     private final List<Future<?>> gateFutures;
     private ExecutorService gateExecutor;
     
@@ -51,6 +56,7 @@ public class ExitGateManager {
     private final AtomicInteger totalPaymentFailures;
     
     // Exit vehicle generation
+    private final ExitScheduler exitScheduler;         // Parked cars indexed by ready-to-exit time
     private ExecutorService exitVehicleGenerator;
     private volatile boolean generatingExitVehicles;
     
@@ -69,7 +75,24 @@ public class ExitGateManager {
      * @param statistics reference to statistics collector
      */
     public ExitGateManager(int numberOfGates, ParkingLot parkingLot, PaymentProcessor paymentProcessor, Statistics statistics) {
+        this(numberOfGates, numberOfGates, parkingLot, paymentProcessor, statistics);
+    }
+    
+    /**
+     * Constructor with room to open more gates at runtime
+     * @param numberOfGates number of exit gates open at start
+     * @param maxGates number of exit gates that may be open at once
+     * @param parkingLot reference to parking lot
+     * @param paymentProcessor payment processing service
+     * @param statistics reference to statistics collector
+     */
+    public ExitGateManager(int numberOfGates, int maxGates, ParkingLot parkingLot, PaymentProcessor paymentProcessor,
+                           Statistics statistics) {
+        if (numberOfGates < 1 || maxGates < numberOfGates) {
+            throw new IllegalArgumentException("Invalid exit gate counts: " + numberOfGates + " of " + maxGates);
+        }
         this.numberOfGates = numberOfGates;
+        this.maxGates = maxGates;
         this.parkingLot = parkingLot;
         this.paymentProcessor = paymentProcessor;
         this.statistics = statistics;
@@ -79,13 +102,19 @@ public class ExitGateManager {
         
         // Initialize collections
         this.exitGates = new ArrayList<>();
-        this.gateFutures = new ArrayList<>();
+        this.openGates = new ArrayList<>();
+        this.gateRuns = new ConcurrentHashMap<>();
+        this.gateFutures = new CopyOnWriteArrayList<>();
         
         // Control
         this.isOperating = false;
         this.activeGates = new AtomicInteger(0);
         this.generatingExitVehicles = false;
         
+        // Index every car at park time instead of scanning the lot
+        this.exitScheduler = new ExitScheduler();
+        parkingLot.addParkingListener(exitScheduler);
+        
         // Statistics
         this.totalVehiclesProcessed = new AtomicInteger(0);
         this.totalVehiclesExited = new AtomicInteger(0);
@@ -94,18 +123,18 @@ public class ExitGateManager {
         // Create exit gates
         createExitGates();
         
-        logEvent("ExitGateManager initialized with " + numberOfGates + " gates");
+        LOG.info("ExitGateManager initialized with {} of {} gates open", numberOfGates, maxGates);
     }
     
     /**
-     * Create and initialize exit gates
+     * Create and initialize exit gates (those past the starting count stay closed)
      */
     private void createExitGates() {
-        for (int i = 1; i <= numberOfGates; i++) {
+        for (int i = 1; i <= maxGates; i++) {
             ExitGate gate = new ExitGate(i, parkingLot, exitQueue, paymentProcessor, statistics);
             exitGates.add(gate);
         }
-        logEvent("Created " + numberOfGates + " exit gates");
+        LOG.info("Created {} exit gates", maxGates);
     }
     
     /**
@@ -113,41 +142,24 @@ public class ExitGateManager {
      */
     public void startOperations() {
         if (isOperating) {
-            logEvent("Exit gates already operating");
+            LOG.info("Exit gates already operating");
             return;
         }
         
         isOperating = true;
         
-        // Create thread pool for gates
-        gateExecutor = Executors.newFixedThreadPool(numberOfGates, new ThreadFactory() {
-            private final AtomicInteger threadNumber = new AtomicInteger(1);
-            
-            @Override
-            public Thread newThread(Runnable r) {
-                Thread t = new Thread(r, "ExitGateThread-" + threadNumber.getAndIncrement());
-                t.setDaemon(false);
-                return t;
-            }
-        });
+        // Create one thread per gate (platform or virtual, see GateThreads)
+        gateExecutor = GateThreads.newGatePool("ExitGateThread-", maxGates);
         
-        // Start all gates
-        for (ExitGate gate : exitGates) {
-            Future<?> future = gateExecutor.submit(new Runnable() {
-                @Override
-                public void run() {
-                    activeGates.incrementAndGet();
-                    try {
-                        gate.run();
-                    } finally {
-                        activeGates.decrementAndGet();
-                    }
-                }
-            });
-            gateFutures.add(future);
+        // Start the gates that open at start
+        synchronized (this) {
+            for (ExitGate gate : exitGates.subList(0, numberOfGates)) {
+                startGate(gate);
+                openGates.add(gate);
+            }
         }
         
-        logEvent("All " + numberOfGates + " exit gates started");
+        LOG.info("{} exit gates started on {}", numberOfGates, GateThreads.describe());
         
         // Start exit vehicle generator
         startExitVehicleGeneration();
@@ -156,6 +168,117 @@ public class ExitGateManager {
         startMonitoring();
     }
     
+    /**
+     * Run a gate on the gate executor
+     */
+    private void startGate(ExitGate gate) {
+        Future<?> future = gateExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                activeGates.incrementAndGet();
+                try {
+                    gate.run();
+                } finally {
+                    activeGates.decrementAndGet();
+                }
+            }
+        });
+        gateRuns.put(gate, future);
+        gateFutures.add(future);
+    }
+    
+    /**
+     * Open the closed gate with the lowest id: cancel its close if it has
+     * not stopped yet, otherwise start it again
+     * @return true if a gate was opened
+     */
+    @Override
+    public synchronized boolean openGate() {
+        if (!isOperating) {
+            return false;
+        }
+        for (ExitGate gate : exitGates) {
+            if (openGates.contains(gate)) {
+                continue;
+            }
+            Future<?> run = gateRuns.get(gate);
+            if (run != null && !run.isDone()) {
+                if (!gate.cancelClose()) {
+                    continue; // Stopping right now; try another gate
+                }
+            } else {
+                if (run != null) {
+                    gate.reopen();
+                }
+                startGate(gate);
+            }
+            openGates.add(gate);
+            LOG.info("{} opened - {} of {} gates open", gate.getGateName(), openGates.size(), maxGates);
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Close the open gate with the highest id: it finishes the vehicles in
+     * flight and stops
+     * @return true if a gate was closed
+     */
+    @Override
+    public synchronized boolean closeGate() {
+        if (!isOperating || openGates.size() <= 1) {
+            return false;
+        }
+        ExitGate highest = openGates.get(0);
+        for (ExitGate gate : openGates) {
+            if (gate.getGateId() > highest.getGateId()) {
+                highest = gate;
+            }
+        }
+        highest.close();
+        openGates.remove(highest);
+        LOG.info("{} closing - {} of {} gates open", highest.getGateName(), openGates.size(), maxGates);
+        return true;
+    }
+    
+    @Override
+    public synchronized int getOpenGateCount() {
+        return openGates.size();
+    }
+    
+    @Override
+    public int getMaxGates() {
+        return maxGates;
+    }
+    
+    @Override
+    public String getGateType() {
+        return "Exit";
+    }
+    
+    @Override
+    public int getQueueDepth() {
+        return exitQueue.size();
+    }
+    
+    /**
+     * Get exit processing times recorded since the previous call, all gates merged
+     */
+    @Override
+    public LatencyHistogram takeProcessingWindow() {
+        LatencyHistogram merged = new LatencyHistogram();
+        for (ExitGate gate : exitGates) {
+            merged.add(gate.getGateCounters().takeWindow());
+        }
+        return merged;
+    }
+    
+    @Override
+    public long getVehiclesProcessed() {
+        updateOverallStats();
+        return totalVehiclesProcessed.get();
+    }
+    
     /**
      * Start generating vehicles for exit based on their parking duration
      */
@@ -174,68 +297,52 @@ public class ExitGateManager {
         exitVehicleGenerator.submit(new Runnable() {
             @Override
             public void run() {
-                logEvent("Exit vehicle generation started");
+                LOG.info("Exit vehicle generation started");
                 
                 while (generatingExitVehicles && !Thread.currentThread().isInterrupted()) {
                     try {
                         generateExitVehicles();
-                        Thread.sleep(5000); // Check every 5 seconds
                     } catch (InterruptedException e) {
                         Thread.currentThread().interrupt();
                         break;
                     } catch (Exception e) {
-                        logEvent("ERROR: Exception in exit vehicle generation - " + e.getMessage());
+                        LOG.error("ERROR: Exception in exit vehicle generation - {}", e.getMessage());
                         statistics.recordError("EXIT_GENERATION_ERROR", "Exception in exit vehicle generation: " + e.getMessage());
                     }
                 }
                 
-                logEvent("Exit vehicle generation stopped");
+                LOG.info("Exit vehicle generation stopped");
             }
         });
     }
     
     /**
-     * Check for vehicles ready to exit and add them to exit queue
+     * Move vehicles whose minimum stay has elapsed into the exit queue
+     * Blocks until the next car falls due, so cost is per exiting car, not per parked car
      */
-    private void generateExitVehicles() {
-        try {
-            // Get all currently parked vehicles
-            ConcurrentHashMap<Integer, Car> occupiedSpaces = parkingLot.getOccupiedSpaces();
-            
-            for (Car car : occupiedSpaces.values()) {
-                if (car.isReadyToExit() && !isCarInExitQueue(car)) {
-                    // Add car to exit queue
-                    exitQueue.offer(car);
-                    logEvent("Vehicle " + car.getCarId() + " added to exit queue " +
-                            "(parked for " + car.getActualParkingDuration() + " minutes)");
-                }
+    private void generateExitVehicles() throws InterruptedException {
+        Car car = exitScheduler.pollDue(EXIT_POLL_MS, TimeUnit.MILLISECONDS);
+        while (car != null) {
+            if (car.markQueuedForExit()) {
+                exitQueue.offer(car);
+                LOG.info("Vehicle {} added to exit queue (parked for {} minutes)",
+                        car.getCarId(), car.getActualParkingDuration());
             }
-            
-        } catch (Exception e) {
-            logEvent("ERROR: Exception in generateExitVehicles - " + e.getMessage());
-            statistics.recordError("EXIT_VEHICLE_GENERATION_ERROR", "Exception in generateExitVehicles: " + e.getMessage());
+            car = exitScheduler.pollDue(0, TimeUnit.MILLISECONDS);
         }
     }
     
-    /**
-     * Check if car is already in exit queue (to avoid duplicates)
-     */
-    private boolean isCarInExitQueue(Car car) {
-        // Simple check - in a real system might use a Set to track cars in queue
-        return exitQueue.contains(car);
-    }
-    
     /**
      * Manually add a vehicle to exit queue (for testing or special cases)
      */
     public boolean addVehicleToExitQueue(Car car) {
-        if (car == null || car.getSpaceNumber() == -1) {
+        if (car == null || car.getSpaceNumber() == -1 || !car.markQueuedForExit()) {
             return false;
         }
         
         try {
             exitQueue.put(car);
-            logEvent("Vehicle " + car.getCarId() + " manually added to exit queue");
+            LOG.info("Vehicle {} manually added to exit queue", car.getCarId());
             return true;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -243,6 +350,15 @@ public class ExitGateManager {
         }
     }
     
+    /**
+     * Take the next vehicle from the exit queue without waiting, as a gate would
+     * Used by the benchmarks to keep the queue at a steady depth
+     * @return next queued vehicle, or null if the queue is empty
+     */
+    Car pollExitQueue() {
+        return exitQueue.poll();
+    }
+    
     /**
      * Start monitoring thread for periodic status updates
      */
@@ -270,29 +386,28 @@ public class ExitGateManager {
      * Report current status of all exit gates
      */
     public void reportStatus() {
-        logEvent("=== EXIT GATES STATUS REPORT ===");
+        LOG.info("=== EXIT GATES STATUS REPORT ===");
         
         // Individual gate statistics
         for (ExitGate gate : exitGates) {
             ExitGate.ExitGateStats stats = gate.getStats();
-            logEvent(stats.toString());
+            LOG.info("{}", stats.toString());
         }
         
         // Overall statistics
         updateOverallStats();
-        logEvent("TOTAL - Processed: " + totalVehiclesProcessed.get() + 
-                ", Exited: " + totalVehiclesExited.get() + 
-                ", Payment Failures: " + totalPaymentFailures.get());
+        LOG.info("TOTAL - Processed: {}, Exited: {}, Payment Failures: {}",
+                totalVehiclesProcessed.get(), totalVehiclesExited.get(), totalPaymentFailures.get());
         
         // Queue status
-        logEvent("Exit Queue Size: " + exitQueue.size() + " vehicles waiting");
+        LOG.info("Exit Queue Size: {} vehicles waiting", exitQueue.size());
         
         // System status
         ParkingLot.ParkingStatus parkingStatus = parkingLot.getStatus();
-        logEvent("Parking Status: " + parkingStatus.toString());
+        LOG.info("Parking Status: {}", parkingStatus.toString());
         
-        logEvent("Active Gates: " + activeGates.get() + "/" + numberOfGates);
-        logEvent("=== END STATUS REPORT ===");
+        LOG.info("Active Gates: {}/{} ({} open)", activeGates.get(), maxGates, getOpenGateCount());
+        LOG.info("=== END STATUS REPORT ===");
     }
     
     /**
@@ -326,22 +441,27 @@ public class ExitGateManager {
     
     /**
      * Shutdown all exit gates gracefully
+     * @return true if every gate stopped and every executor terminated in time
      */
-    public void shutdown() {
-        logEvent("Initiating shutdown of all exit gates");
+    public boolean shutdown() {
+        LOG.info("Initiating shutdown of all exit gates");
         isOperating = false;
         generatingExitVehicles = false;
         
         // Shutdown exit vehicle generator
+        boolean allShutdown = true;
         if (exitVehicleGenerator != null) {
             exitVehicleGenerator.shutdown();
             try {
                 if (!exitVehicleGenerator.awaitTermination(5, TimeUnit.SECONDS)) {
                     exitVehicleGenerator.shutdownNow();
+                    LOG.warn("Exit vehicle scanner forced shutdown");
+                    allShutdown = false;
                 }
             } catch (InterruptedException e) {
                 exitVehicleGenerator.shutdownNow();
                 Thread.currentThread().interrupt();
+                allShutdown = false;
             }
         }
         
@@ -350,11 +470,10 @@ public class ExitGateManager {
             gate.shutdown();
         }
         
-        // Wait for gates to complete current operations
-        boolean allShutdown = true;
+        // Wait for gates to complete current operations (never-started gates have nothing to wait for)
         for (ExitGate gate : exitGates) {
-            if (!gate.awaitShutdown(10, TimeUnit.SECONDS)) {
-                logEvent("WARNING: Gate " + gate.getGateName() + " did not shutdown gracefully");
+            if (gateRuns.containsKey(gate) && !gate.awaitShutdown(10, TimeUnit.SECONDS)) {
+                LOG.warn("WARNING: Gate {} did not shutdown gracefully", gate.getGateName());
                 allShutdown = false;
             }
         }
@@ -372,29 +491,32 @@ public class ExitGateManager {
             try {
                 if (!gateExecutor.awaitTermination(15, TimeUnit.SECONDS)) {
                     gateExecutor.shutdownNow();
-                    logEvent("Exit gate executor forced shutdown");
+                    LOG.warn("Exit gate executor forced shutdown");
+                    allShutdown = false;
                 }
             } catch (InterruptedException e) {
                 gateExecutor.shutdownNow();
                 Thread.currentThread().interrupt();
+                allShutdown = false;
             }
         }
         
         if (allShutdown) {
-            logEvent("All exit gates shutdown successfully");
+            LOG.info("All exit gates shutdown successfully");
         } else {
-            logEvent("Exit gate shutdown completed with warnings");
+            LOG.info("Exit gate shutdown completed with warnings");
         }
         
         // Final statistics report
         reportFinalStatistics();
+        return allShutdown;
     }
     
     /**
      * Force shutdown of all exit gates (emergency)
      */
     public void forceShutdown() {
-        logEvent("EMERGENCY: Force shutdown initiated");
+        LOG.error("EMERGENCY: Force shutdown initiated");
         isOperating = false;
         generatingExitVehicles = false;
         
@@ -413,7 +535,7 @@ public class ExitGateManager {
             gateExecutor.shutdownNow();
         }
         
-        logEvent("Force shutdown completed");
+        LOG.info("Force shutdown completed");
     }
     
     /**
@@ -434,12 +556,12 @@ public class ExitGateManager {
                 }
                 
                 future.get(remainingTime, TimeUnit.MILLISECONDS);
-                
+            
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 return false;
             } catch (ExecutionException e) {
-                logEvent("ERROR: Exit gate execution exception - " + e.getMessage());
+                LOG.error("ERROR: Exit gate execution exception - {}", e.getMessage());
             } catch (TimeoutException e) {
                 return false;
             }
@@ -452,32 +574,30 @@ public class ExitGateManager {
      * Report final statistics
      */
     private void reportFinalStatistics() {
-        logEvent("=== FINAL EXIT GATES STATISTICS ===");
+        LOG.info("=== FINAL EXIT GATES STATISTICS ===");
         updateOverallStats();
         
         double totalRevenue = getTotalRevenue();
         
         for (ExitGate gate : exitGates) {
             ExitGate.ExitGateStats stats = gate.getStats();
-            logEvent("FINAL " + stats.toString());
+            LOG.info("FINAL {}", stats.toString());
         }
         
-        logEvent("FINAL TOTALS - Processed: " + totalVehiclesProcessed.get() + 
-                ", Exited: " + totalVehiclesExited.get() + 
-                ", Payment Failures: " + totalPaymentFailures.get() +
-                ", Total Revenue: $" + String.format("%.2f", totalRevenue));
+        LOG.info("FINAL TOTALS - Processed: {}, Exited: {}, Payment Failures: {}, Total Revenue: ${.2}",
+                totalVehiclesProcessed.get(), totalVehiclesExited.get(), totalPaymentFailures.get(), totalRevenue);
         
         // Calculate efficiency
         if (totalVehiclesProcessed.get() > 0) {
             double efficiency = (double) totalVehiclesExited.get() / totalVehiclesProcessed.get() * 100;
-            logEvent("Exit Success Rate: " + String.format("%.2f%%", efficiency));
+            LOG.info("Exit Success Rate: {.2}%", efficiency);
             
             double paymentFailureRate = (double) totalPaymentFailures.get() / totalVehiclesProcessed.get() * 100;
-            logEvent("Payment Failure Rate: " + String.format("%.2f%%", paymentFailureRate));
+            LOG.info("Payment Failure Rate: {.2}%", paymentFailureRate);
         }
         
-        logEvent("Exit Queue Final Size: " + exitQueue.size() + " vehicles");
-        logEvent("=== END FINAL STATISTICS ===");
+        LOG.info("Exit Queue Final Size: {} vehicles", exitQueue.size());
+        LOG.info("=== END FINAL STATISTICS ===");
     }
     
     /**
@@ -487,7 +607,7 @@ public class ExitGateManager {
         updateOverallStats();
         
         return new ExitManagerStats(
-                numberOfGates,
+                maxGates,
                 activeGates.get(),
                 totalVehiclesProcessed.get(),
                 totalVehiclesExited.get(),
@@ -527,18 +647,17 @@ public class ExitGateManager {
     }
     
     /**
-     * Get copy of current exit queue
+     * Get number of parked vehicles not yet due to exit
      */
-    public List<Car> getExitQueueSnapshot() {
-        return new ArrayList<>(exitQueue);
+    public int getScheduledExitCount() {
+        return exitScheduler.getScheduledCount();
     }
     
     /**
-     * Utility method for consistent logging
+     * Get copy of current exit queue
      */
-    private void logEvent(String message) {
-        System.out.println("[" + LocalDateTime.now().format(TIME_FORMAT) + 
-                          "] [EXIT_MGR] " + message);
+    public List<Car> getExitQueueSnapshot() {
+        return new ArrayList<>(exitQueue);
     }
     
     /**
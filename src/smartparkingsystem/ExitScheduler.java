@@ -0,0 +1,105 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ExitScheduler - Expiry index of parked cars keyed by their ready-to-exit instant
+ * Cars are indexed when they park (O(log n)) and released exactly when due,
+ * replacing periodic scans of the whole lot. Deadlines are measured from each
+ * car's parking time on its own clock, so a recovered car keeps its old stay.
+ */
+public class ExitScheduler implements ParkingListener {
+    
+    // Expiry index
+    private final DelayQueue<ScheduledExit> dueExits;
+    private final AtomicLong sequence;                 // Keeps FIFO order for equal deadlines
+    
+    /**
+     * Constructor
+     */
+    public ExitScheduler() {
+        this.dueExits = new DelayQueue<ScheduledExit>();
+        this.sequence = new AtomicLong(0);
+    }
+    
+    @Override
+    public void onCarParked(Car car, int spaceNumber) {
+        long readyAtNanos = car.getParkingNanos() + car.getMinimumStayNanos();
+        dueExits.offer(new ScheduledExit(car, readyAtNanos, sequence.getAndIncrement()));
+    }
+    
+    @Override
+    public void onCarRemoved(Car car, int spaceNumber) {
+        // Entries of cars that already left are skipped when they fall due
+    }
+    
+    /**
+     * Wait for the next car whose minimum stay has elapsed
+     * @param timeout maximum time to wait
+     * @param unit time unit
+     * @return due car still parked in the lot, or null on timeout
+     */
+    public Car pollDue(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        
+        while (true) {
+            long remaining = deadline - System.nanoTime();
+            ScheduledExit due = dueExits.poll(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+            if (due == null) {
+                return null;
+            }
+            if (!due.car.hasExited()) {
+                return due.car;
+            }
+            // Car already left (e.g. manually released) - skip stale entry
+        }
+    }
+    
+    /**
+     * Get number of parked cars waiting for their exit instant
+     */
+    public int getScheduledCount() {
+        return dueExits.size();
+    }
+    
+    /**
+     * Index entry for one parked car
+     */
+    private static class ScheduledExit implements Delayed {
+        private final Car car;
+        private final long readyAtNanos;
+        private final long sequenceNumber;
+        
+        ScheduledExit(Car car, long readyAtNanos, long sequenceNumber) {
+            this.car = car;
+            this.readyAtNanos = readyAtNanos;
+            this.sequenceNumber = sequenceNumber;
+        }
+        
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(readyAtNanos - car.getClock().nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        
+        @Override
+        public int compareTo(Delayed other) {
+            ScheduledExit that = (ScheduledExit) other;
+            if (readyAtNanos != that.readyAtNanos) {
+                return readyAtNanos - that.readyAtNanos < 0 ? -1 : 1;
+            }
+            return Long.compare(sequenceNumber, that.sequenceNumber);
+        }
+    }
+}
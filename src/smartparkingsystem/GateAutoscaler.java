@@ -0,0 +1,411 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GateAutoscaler - Opens and closes gates while the simulation runs
+ * Models staffing manned booths: every interval it looks at how many vehicles
+ * are waiting per open gate and at the p95 gate processing time over the last
+ * interval, opens a booth when either is too high and closes one when both are
+ * comfortably low. Closed gates drain the vehicles already queued at them
+ * before stopping. Booth-minutes are accumulated per side so a run shows what
+ * the extra throughput cost in staffing.
+ */
+public class GateAutoscaler {
+    
+    // Constants
+    private static final EventLog.Component LOG = EventLog.component("AUTOSCALER");
+    public static final int DEFAULT_INTERVAL_SECONDS = 10;
+    public static final double DEFAULT_SCALE_UP_QUEUE = 4.0;     // Waiting vehicles per open gate
+    public static final double DEFAULT_SCALE_DOWN_QUEUE = 1.0;
+    public static final long DEFAULT_TARGET_P95_MS = 5000;
+    public static final int DEFAULT_COOLDOWN_INTERVALS = 2;      // Intervals to wait after a change
+    
+    /**
+     * A set of gates the autoscaler can open and close
+     */
+    public interface ScalableGates {
+        String getGateType();
+        int getOpenGateCount();
+        int getMaxGates();
+        
+        /**
+         * @return vehicles waiting for one of these gates
+         */
+        int getQueueDepth();
+        
+        /**
+         * @return processing times recorded since the previous call
+         */
+        LatencyHistogram takeProcessingWindow();
+        
+        long getVehiclesProcessed();
+        
+        /**
+         * @return true if a closed gate was opened
+         */
+        boolean openGate();
+        
+        /**
+         * @return true if an open gate was told to drain and close
+         */
+        boolean closeGate();
+    }
+    
+    /**
+     * Autoscaling configuration
+     */
+    public static class Settings {
+        private final boolean enabled;
+        private final int minEntryGates;
+        private final int maxEntryGates;
+        private final int minExitGates;
+        private final int maxExitGates;
+        private final int intervalSeconds;
+        private final double scaleUpQueue;
+        private final double scaleDownQueue;
+        private final long targetP95Ms;
+        private final int cooldownIntervals;
+        
+        public Settings(boolean enabled, int minEntryGates, int maxEntryGates, int minExitGates, int maxExitGates,
+                        int intervalSeconds, double scaleUpQueue, double scaleDownQueue, long targetP95Ms,
+                        int cooldownIntervals) {
+            if (minEntryGates < 1 || maxEntryGates < minEntryGates || minExitGates < 1 || maxExitGates < minExitGates) {
+                throw new IllegalArgumentException(String.format("Invalid gate bounds: entry %d-%d, exit %d-%d",
+                        minEntryGates, maxEntryGates, minExitGates, maxExitGates));
+            }
+            if (intervalSeconds <= 0 || scaleDownQueue >= scaleUpQueue) {
+                throw new IllegalArgumentException("Autoscale interval must be positive and scale-down queue below scale-up queue");
+            }
+            this.enabled = enabled;
+            this.minEntryGates = minEntryGates;
+            this.maxEntryGates = maxEntryGates;
+            this.minExitGates = minExitGates;
+            this.maxExitGates = maxExitGates;
+            this.intervalSeconds = intervalSeconds;
+            this.scaleUpQueue = scaleUpQueue;
+            this.scaleDownQueue = scaleDownQueue;
+            this.targetP95Ms = targetP95Ms;
+            this.cooldownIntervals = cooldownIntervals;
+        }
+        
+        /**
+         * Read smartparking.autoscale (true to enable), smartparking.autoscale.entryGates
+         * and smartparking.autoscale.exitGates ("min-max", default 1 to twice the
+         * starting count), smartparking.autoscale.intervalSeconds,
+         * smartparking.autoscale.scaleUpQueue / scaleDownQueue (vehicles waiting
+         * per open gate), smartparking.autoscale.targetP95Ms and
+         * smartparking.autoscale.cooldownIntervals
+         * When disabled the bounds are the starting counts, so nothing changes.
+         * @param entryGates gates open at start on the entry side
+         * @param exitGates gates open at start on the exit side
+         */
+        public static Settings fromSystemProperties(int entryGates, int exitGates) {
+            boolean enabled = Boolean.getBoolean("smartparking.autoscale");
+            int[] entryBounds = enabled ? parseBounds("smartparking.autoscale.entryGates", entryGates)
+                    : new int[] {entryGates, entryGates};
+            int[] exitBounds = enabled ? parseBounds("smartparking.autoscale.exitGates", exitGates)
+                    : new int[] {exitGates, exitGates};
+            
+            return new Settings(enabled, entryBounds[0], entryBounds[1], exitBounds[0], exitBounds[1],
+                    Integer.getInteger("smartparking.autoscale.intervalSeconds", DEFAULT_INTERVAL_SECONDS),
+                    Double.parseDouble(System.getProperty("smartparking.autoscale.scaleUpQueue",
+                            String.valueOf(DEFAULT_SCALE_UP_QUEUE))),
+                    Double.parseDouble(System.getProperty("smartparking.autoscale.scaleDownQueue",
+                            String.valueOf(DEFAULT_SCALE_DOWN_QUEUE))),
+                    Long.getLong("smartparking.autoscale.targetP95Ms", DEFAULT_TARGET_P95_MS),
+                    Integer.getInteger("smartparking.autoscale.cooldownIntervals", DEFAULT_COOLDOWN_INTERVALS));
+        }
+        
+        /**
+         * Parse "min-max" (the starting count must lie inside it)
+         */
+        private static int[] parseBounds(String property, int startingGates) {
+            String value = System.getProperty(property);
+            if (value == null) {
+                return new int[] {1, startingGates * 2};
+            }
+            String[] parts = value.split("-");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException(property + " must be min-max: " + value);
+            }
+            int min = Integer.parseInt(parts[0].trim());
+            int max = Integer.parseInt(parts[1].trim());
+            if (startingGates < min || startingGates > max) {
+                throw new IllegalArgumentException(property + " " + value + " excludes the starting " + startingGates + " gates");
+            }
+            return new int[] {min, max};
+        }
+        
+        // Getters
+        public boolean isEnabled() { return enabled; }
+        public int getMinEntryGates() { return minEntryGates; }
+        public int getMaxEntryGates() { return maxEntryGates; }
+        public int getMinExitGates() { return minExitGates; }
+        public int getMaxExitGates() { return maxExitGates; }
+        public int getIntervalSeconds() { return intervalSeconds; }
+        public double getScaleUpQueue() { return scaleUpQueue; }
+        public double getScaleDownQueue() { return scaleDownQueue; }
+        public long getTargetP95Ms() { return targetP95Ms; }
+        public int getCooldownIntervals() { return cooldownIntervals; }
+    }
+    
+    // Configuration
+    private final Settings settings;
+    private final List<Side> sides;
+    
+    // Runtime
+    private final ScheduledExecutorService scheduler;
+    private final List<String> scalingHistory;
+    private volatile long startNanos;
+    
+    /**
+     * Constructor
+     * @param settings bounds, thresholds and interval
+     * @param entryGates entry side (bounded by the entry min/max)
+     * @param exitGates exit side (bounded by the exit min/max)
+     */
+    public GateAutoscaler(Settings settings, ScalableGates entryGates, ScalableGates exitGates) {
+        this.settings = settings;
+        this.sides = new ArrayList<>();
+        this.sides.add(new Side(entryGates, settings.getMinEntryGates()));
+        this.sides.add(new Side(exitGates, settings.getMinExitGates()));
+        this.scalingHistory = Collections.synchronizedList(new ArrayList<String>());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "GateAutoscaler");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        
+        LOG.info("Gate autoscaler initialized - Entry: {}-{}, Exit: {}-{}, Interval: {}s",
+                settings.getMinEntryGates(), settings.getMaxEntryGates(), settings.getMinExitGates(),
+                settings.getMaxExitGates(), settings.getIntervalSeconds());
+        LOG.info("Scale up above {.1} or down below {.1} waiting per gate, target p95: {}ms",
+                settings.getScaleUpQueue(), settings.getScaleDownQueue(), settings.getTargetP95Ms());
+    }
+    
+    /**
+     * Start evaluating every interval (call after the gate managers have started)
+     */
+    public void start() {
+        long now = System.nanoTime();
+        startNanos = now;
+        for (Side side : sides) {
+            side.lastNanos = now;
+            side.peakOpen = side.gates.getOpenGateCount();
+            side.gates.takeProcessingWindow();
+        }
+        
+        scheduler.scheduleAtFixedRate(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        evaluate();
+                    }
+                },
+                settings.getIntervalSeconds(),
+                settings.getIntervalSeconds(),
+                TimeUnit.SECONDS
+        );
+        
+        LOG.info("Gate autoscaling started");
+    }
+    
+    /**
+     * One evaluation of both sides
+     */
+    private void evaluate() {
+        try {
+            long now = System.nanoTime();
+            for (Side side : sides) {
+                side.evaluate(now);
+            }
+        } catch (RuntimeException e) {
+            // An exception would cancel the schedule; log and keep scaling
+            LOG.error("ERROR: Autoscaling evaluation failed - {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Stop scaling (gates stay as they are) and report the staffing used
+     */
+    public void stop() {
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        
+        long now = System.nanoTime();
+        for (Side side : sides) {
+            side.accrue(side.gates.getOpenGateCount(), now);
+        }
+        reportFinalStatistics();
+    }
+    
+    /**
+     * Report scaling events and booth-minutes per side
+     */
+    public void reportFinalStatistics() {
+        LOG.info("=== GATE AUTOSCALING STATISTICS ===");
+        for (String event : getScalingHistory()) {
+            LOG.info("  {}", event);
+        }
+        for (Side side : sides) {
+            LOG.info("{}", side.getStats().toString());
+        }
+        LOG.info("=== END AUTOSCALING STATISTICS ===");
+    }
+    
+    /**
+     * Get the scaling decisions taken so far, oldest first
+     */
+    public List<String> getScalingHistory() {
+        synchronized (scalingHistory) {
+            return new ArrayList<>(scalingHistory);
+        }
+    }
+    
+    /**
+     * Get staffing statistics for each side (entry first)
+     */
+    public List<ScalingStats> getStats() {
+        List<ScalingStats> result = new ArrayList<>();
+        for (Side side : sides) {
+            result.add(side.getStats());
+        }
+        return result;
+    }
+    
+    /**
+     * Inner class for the scaling state of one side
+     */
+    private class Side {
+        final ScalableGates gates;
+        final int minGates;
+        int cooldown;
+        int peakOpen;
+        int scaleUps;
+        int scaleDowns;
+        long lastNanos;
+        long boothNanos;       // Sum over time of open gates x elapsed time
+        
+        Side(ScalableGates gates, int minGates) {
+            this.gates = gates;
+            this.minGates = minGates;
+        }
+        
+        synchronized void evaluate(long now) {
+            int open = gates.getOpenGateCount();
+            accrue(open, now);
+            
+            int depth = gates.getQueueDepth();
+            LatencyHistogram window = gates.takeProcessingWindow();
+            long p95 = window.getCount() > 0 ? window.getValueAtPercentile(95.0) : 0;
+            double queuePerGate = (double) depth / Math.max(1, open);
+            
+            if (cooldown > 0) {
+                cooldown--;
+                return;
+            }
+            
+            boolean overloaded = depth > 0 && (queuePerGate > settings.getScaleUpQueue() || p95 > settings.getTargetP95Ms());
+            boolean underloaded = queuePerGate < settings.getScaleDownQueue() && p95 <= settings.getTargetP95Ms() / 2;
+            
+            if (overloaded && open < gates.getMaxGates() && gates.openGate()) {
+                scaleUps++;
+                record(open, open + 1, queuePerGate, p95, now);
+            } else if (underloaded && open > minGates && gates.closeGate()) {
+                scaleDowns++;
+                record(open, open - 1, queuePerGate, p95, now);
+            }
+        }
+        
+        synchronized void accrue(int open, long now) {
+            boothNanos += open * (now - lastNanos);
+            lastNanos = now;
+        }
+        
+        void record(int from, int to, double queuePerGate, long p95, long now) {
+            cooldown = settings.getCooldownIntervals();
+            peakOpen = Math.max(peakOpen, to);
+            String event = String.format("+%ds %s gates %d -> %d (queue %.1f/gate, p95 %dms)",
+                    TimeUnit.NANOSECONDS.toSeconds(now - startNanos), gates.getGateType(), from, to, queuePerGate, p95);
+            scalingHistory.add(event);
+            LOG.info("{}", event);
+        }
+        
+        synchronized ScalingStats getStats() {
+            return new ScalingStats(gates.getGateType(), gates.getOpenGateCount(), peakOpen, scaleUps, scaleDowns,
+                    boothNanos / 60e9, gates.getVehiclesProcessed());
+        }
+    }
+    
+    /**
+     * Inner class for one side's staffing statistics
+     */
+    public static class ScalingStats {
+        private final String gateType;
+        private final int openGates;
+        private final int peakOpenGates;
+        private final int scaleUps;
+        private final int scaleDowns;
+        private final double boothMinutes;
+        private final long vehiclesProcessed;
+        
+        public ScalingStats(String gateType, int openGates, int peakOpenGates, int scaleUps, int scaleDowns,
+                            double boothMinutes, long vehiclesProcessed) {
+            this.gateType = gateType;
+            this.openGates = openGates;
+            this.peakOpenGates = peakOpenGates;
+            this.scaleUps = scaleUps;
+            this.scaleDowns = scaleDowns;
+            this.boothMinutes = boothMinutes;
+            this.vehiclesProcessed = vehiclesProcessed;
+        }
+        
+        // Getters
+        public String getGateType() { return gateType; }
+        public int getOpenGates() { return openGates; }
+        public int getPeakOpenGates() { return peakOpenGates; }
+        public int getScaleUps() { return scaleUps; }
+        public int getScaleDowns() { return scaleDowns; }
+        public double getBoothMinutes() { return boothMinutes; }
+        public long getVehiclesProcessed() { return vehiclesProcessed; }
+        
+        /**
+         * Get vehicles served per staffed booth-minute
+         */
+        public double getVehiclesPerBoothMinute() {
+            return boothMinutes > 0 ? vehiclesProcessed / boothMinutes : 0.0;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%s gates - Open: %d (peak %d), Scale-ups: %d, Scale-downs: %d, Booth-minutes: %.1f, Vehicles/booth-minute: %.2f",
+                    gateType, openGates, peakOpenGates, scaleUps, scaleDowns, boothMinutes, getVehiclesPerBoothMinute());
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * GateThreads - Creates the threads that run gates and payments
+ * Platform threads by default. With -Dsmartparking.virtualThreads=true every
+ * gate and every payment gets its own virtual thread instead, so thousands of
+ * simulated gates and kiosks (across many lots) share a handful of carrier
+ * threads rather than needing one OS thread each.
+ *
+ * Virtual threads need a JDK 21+ runtime; they are looked up reflectively so
+ * the project still builds on JDK 17, and on older runtimes the mode falls
+ * back to platform threads with a warning.
+ */
+public final class GateThreads {
+    
+    // Constants
+    private static final EventLog.Component LOG = EventLog.component("THREADS");
+    private static final String VIRTUAL_THREADS_PROPERTY = "smartparking.virtualThreads";
+    
+    // Resolved once: Thread.ofVirtual() and its builder methods (null when unavailable)
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_FACTORY;
+    private static final Method THREAD_PER_TASK_EXECUTOR;
+    private static final boolean VIRTUAL;
+    
+    static {
+        Method ofVirtual = null, builderName = null, builderFactory = null, perTaskExecutor = null;
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            builderName = builderClass.getMethod("name", String.class, long.class);
+            builderFactory = builderClass.getMethod("factory");
+            perTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        } catch (ReflectiveOperationException e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_FACTORY = builderFactory;
+        THREAD_PER_TASK_EXECUTOR = perTaskExecutor;
+        
+        boolean requested = Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY);
+        if (requested && OF_VIRTUAL == null) {
+            LOG.warn("Virtual threads need Java 21+ (running {}) - using platform threads",
+                    System.getProperty("java.version"));
+        }
+        VIRTUAL = requested && OF_VIRTUAL != null;
+    }
+    
+    private GateThreads() {
+    }
+    
+    /**
+     * Check whether gates and payments run on virtual threads
+     */
+    public static boolean isVirtual() {
+        return VIRTUAL;
+    }
+    
+    /**
+     * Executor running one long-lived task per gate
+     * Platform mode: a fixed pool of non-daemon threads, one per gate.
+     * Virtual mode: a new virtual thread per gate (virtual threads are always
+     * daemon, so callers must await completion as the managers already do).
+     * @param namePrefix thread name prefix, numbered from 1
+     * @param gates number of gates the pool must run at once
+     */
+    public static ExecutorService newGatePool(String namePrefix, int gates) {
+        if (VIRTUAL) {
+            return newVirtualPerTaskExecutor(namePrefix);
+        }
+        return Executors.newFixedThreadPool(gates, platformFactory(namePrefix, false));
+    }
+    
+    /**
+     * Executor for short blocking tasks such as individual payments
+     * Platform mode: an unbounded cached pool of daemon threads.
+     * Virtual mode: a new virtual thread per task.
+     * @param namePrefix thread name prefix, numbered from 1
+     */
+    public static ExecutorService newTaskPool(String namePrefix) {
+        if (VIRTUAL) {
+            return newVirtualPerTaskExecutor(namePrefix);
+        }
+        return Executors.newCachedThreadPool(platformFactory(namePrefix, true));
+    }
+    
+    /**
+     * Describe the active mode for startup banners and reports
+     */
+    public static String describe() {
+        return VIRTUAL ? "virtual threads" : "platform threads";
+    }
+    
+    /**
+     * Platform thread factory with numbered names
+     */
+    private static ThreadFactory platformFactory(final String namePrefix, final boolean daemon) {
+        return new ThreadFactory() {
+            private final AtomicInteger threadNumber = new AtomicInteger(1);
+            
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, namePrefix + threadNumber.getAndIncrement());
+                t.setDaemon(daemon);
+                return t;
+            }
+        };
+    }
+    
+    /**
+     * Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 1).factory())
+     */
+    private static ExecutorService newVirtualPerTaskExecutor(String namePrefix) {
+        try {
+            Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), namePrefix, 1L);
+            ThreadFactory factory = (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+            return (ExecutorService) THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create virtual thread executor", e);
+        }
+    }
+}
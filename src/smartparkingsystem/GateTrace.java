@@ -0,0 +1,501 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * GateTrace - Forward-only reader for recorded ANPR gate logs
+ * The file is memory-mapped in windows and parsed straight from the mapped
+ * bytes: no line Strings, no split(), no date parser. Plates are the only
+ * Strings created, and repeat plates (the same commuters every day) come
+ * from a small cache, so a month of logs produces little garbage.
+ *
+ * CSV format, one visit per line, ordered by entry time:
+ *   plate,gate,entry,exit
+ * Times are epoch seconds, epoch milliseconds or "yyyy-MM-dd HH:mm:ss[.SSS]"
+ * (a 'T' separator is fine too). An empty exit means the car was still
+ * parked when the log ends. Lines starting with '#' are comments and a
+ * header line is skipped.
+ *
+ * Binary format (writeBinary()), little-endian: a 16-byte header ("GTR1",
+ * version, record count) followed by 32-byte records: entry millis, exit
+ * millis (or NO_EXIT), gate, plate length, plate bytes.
+ */
+public class GateTrace implements Closeable {
+    
+    // Constants
+    private static final EventLog.Component LOG = EventLog.component("GATE_TRACE");
+    public static final long NO_EXIT = Long.MIN_VALUE;
+    private static final int MAGIC = 0x31525447;               // "GTR1"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 32;
+    private static final int MAX_PLATE_BYTES = 13;
+    private static final long WINDOW_BYTES = 64L << 20;        // 64MB mapped at a time
+    private static final int MAX_CSV_PLATE_BYTES = 64;
+    private static final int PLATE_CACHE_BITS = 17;
+    private static final int PLATE_CACHE_SLOTS = 1 << PLATE_CACHE_BITS;
+    private static final int MAX_WARNINGS = 5;
+    
+    // File and current window
+    private final Path path;
+    private final FileChannel channel;
+    private final long fileSize;
+    private final boolean binary;
+    private final long binaryRecords;
+    private MappedByteBuffer window;
+    private long windowStart;                                  // File offset of window position 0
+    private int position;                                      // Next byte to read within the window
+    
+    // Current record
+    private final byte[] plateBytes = new byte[MAX_CSV_PLATE_BYTES];
+    private int plateLength;
+    private String plate;
+    private int gate;
+    private long entryMillis;
+    private long exitMillis;
+    
+    // Plate cache, indexed by byte hash; two slots per hash, the older one is replaced
+    private final String[] plateCache = new String[PLATE_CACHE_SLOTS];
+    
+    // Statistics
+    private long recordsRead;
+    private long malformedLines;
+    private long linesRead;
+    private boolean headerChecked;                             // First data line seen
+    private boolean reportMalformed = true;
+    
+    /**
+     * Open a trace, detecting the binary format by its magic number
+     */
+    public static GateTrace open(Path path) throws IOException {
+        return new GateTrace(path);
+    }
+    
+    private GateTrace(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            this.fileSize = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+            
+            this.binary = header.remaining() == HEADER_BYTES && header.getInt(0) == MAGIC;
+            if (binary) {
+                if (header.getInt(4) != FORMAT_VERSION) {
+                    throw new IOException("Unsupported gate trace version " + header.getInt(4) + " in " + path);
+                }
+                this.binaryRecords = header.getLong(8);
+                if (HEADER_BYTES + binaryRecords * RECORD_BYTES > fileSize) {
+                    throw new IOException("Gate trace " + path + " is truncated");
+                }
+            } else {
+                this.binaryRecords = -1;
+            }
+            map(binary ? HEADER_BYTES : 0);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Map the window starting at a file offset
+     */
+    private void map(long offset) throws IOException {
+        long length = Math.min(WINDOW_BYTES, fileSize - offset);
+        if (binary) {
+            length -= length % RECORD_BYTES;                   // Never split a record across windows
+        }
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        window.order(ByteOrder.LITTLE_ENDIAN);
+        windowStart = offset;
+        position = 0;
+    }
+    
+    /**
+     * Advance to the next record
+     * @return false at the end of the trace
+     */
+    public boolean next() throws IOException {
+        return binary ? nextBinary() : nextCsv();
+    }
+    
+    private boolean nextBinary() throws IOException {
+        if (recordsRead >= binaryRecords) {
+            return false;
+        }
+        if (position + RECORD_BYTES > window.limit()) {
+            map(windowStart + position);
+        }
+        
+        entryMillis = window.getLong(position);
+        exitMillis = window.getLong(position + 8);
+        gate = window.getShort(position + 16);
+        plateLength = window.get(position + 18);
+        if (plateLength < 0 || plateLength > MAX_PLATE_BYTES) {
+            throw new IOException("Gate trace " + path + " is corrupt - record " + (recordsRead + 1)
+                    + " has plate length " + plateLength);
+        }
+        for (int i = 0; i < plateLength; i++) {
+            plateBytes[i] = window.get(position + 19 + i);
+        }
+        plate = null;
+        position += RECORD_BYTES;
+        recordsRead++;
+        return true;
+    }
+    
+    private boolean nextCsv() throws IOException {
+        while (true) {
+            int end = findLineEnd();
+            if (end < 0) {
+                return false;
+            }
+            int start = position;
+            position = end + 1;
+            linesRead++;
+            
+            // Trim a Windows line ending and skip blanks and comments
+            if (end > start && window.get(end - 1) == '\r') {
+                end--;
+            }
+            if (end == start || window.get(start) == '#') {
+                continue;
+            }
+            
+            boolean firstLine = !headerChecked;
+            headerChecked = true;
+            if (parseCsvLine(start, end)) {
+                recordsRead++;
+                return true;
+            }
+            if (firstLine) {
+                continue;                                      // Did not parse: a header line
+            }
+            malformedLines++;
+            if (reportMalformed && malformedLines <= MAX_WARNINGS) {
+                LOG.warn("WARNING: Skipping malformed line {} of {}", linesRead, path.getFileName());
+            }
+        }
+    }
+    
+    /**
+     * Find the next '\n', remapping when the line runs past the window
+     * @return window index of the line end (the file end counts), or -1 at end of file
+     */
+    private int findLineEnd() throws IOException {
+        while (true) {
+            int limit = window.limit();
+            for (int i = position; i < limit; i++) {
+                if (window.get(i) == '\n') {
+                    return i;
+                }
+            }
+            
+            if (windowStart + limit >= fileSize) {
+                return position >= limit ? -1 : limit;         // Last line may lack a newline
+            }
+            if (position == 0) {
+                throw new IOException("Line longer than the mapping window at offset " + windowStart);
+            }
+            map(windowStart + position);                       // Continue from the partial line
+        }
+    }
+    
+    /**
+     * Parse "plate,gate,entry,exit" from window bytes [start, end)
+     */
+    private boolean parseCsvLine(int start, int end) {
+        int comma1 = indexOf(',', start, end);
+        int comma2 = comma1 < 0 ? -1 : indexOf(',', comma1 + 1, end);
+        int comma3 = comma2 < 0 ? -1 : indexOf(',', comma2 + 1, end);
+        if (comma3 < 0) {
+            return false;
+        }
+        
+        int plateStart = skipSpaces(start, comma1);
+        int plateEnd = trimSpaces(plateStart, comma1);
+        if (plateEnd == plateStart || plateEnd - plateStart > MAX_CSV_PLATE_BYTES) {
+            return false;
+        }
+        
+        long entry = parseTime(skipSpaces(comma2 + 1, comma3), trimSpaces(comma2 + 1, comma3));
+        if (entry == NO_EXIT) {
+            return false;
+        }
+        int exitStart = skipSpaces(comma3 + 1, end);
+        int exitEnd = trimSpaces(exitStart, end);
+        long exit = exitEnd == exitStart ? NO_EXIT : parseTime(exitStart, exitEnd);
+        if (exitEnd != exitStart && exit == NO_EXIT) {
+            return false;
+        }
+        
+        plateLength = plateEnd - plateStart;
+        for (int i = 0; i < plateLength; i++) {
+            plateBytes[i] = window.get(plateStart + i);
+        }
+        plate = null;
+        gate = parseGate(comma1 + 1, comma2);
+        entryMillis = entry;
+        exitMillis = exit;
+        return true;
+    }
+    
+    private int indexOf(char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (window.get(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private int skipSpaces(int from, int to) {
+        while (from < to && window.get(from) == ' ') {
+            from++;
+        }
+        return from;
+    }
+    
+    private int trimSpaces(int from, int to) {
+        while (to > from && window.get(to - 1) == ' ') {
+            to--;
+        }
+        return to;
+    }
+    
+    /**
+     * Gate number from a field such as "3", "E3" or "EXIT-03" (0 if it has no digits)
+     */
+    private int parseGate(int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            byte b = window.get(i);
+            if (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+            }
+        }
+        return value;
+    }
+    
+    /**
+     * Parse epoch seconds, epoch millis or an ISO-style local date-time
+     * @return epoch milliseconds (UTC for date-times), or NO_EXIT if malformed
+     */
+    private long parseTime(int from, int to) {
+        if (to - from >= 19 && window.get(from + 4) == '-') {
+            return parseDateTime(from, to);
+        }
+        
+        long value = 0;
+        if (to == from || to - from > 18) {
+            return NO_EXIT;
+        }
+        for (int i = from; i < to; i++) {
+            byte b = window.get(i);
+            if (b < '0' || b > '9') {
+                return NO_EXIT;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return (to - from) <= 10 ? value * 1000 : value;      // Up to 10 digits: seconds
+    }
+    
+    private long parseDateTime(int from, int to) {
+        int year = digits(from, 4);
+        int month = digits(from + 5, 2);
+        int day = digits(from + 8, 2);
+        int hour = digits(from + 11, 2);
+        int minute = digits(from + 14, 2);
+        int second = digits(from + 17, 2);
+        byte separator = window.get(from + 10);
+        if ((year | month | day | hour | minute | second) < 0 || (separator != ' ' && separator != 'T')
+                || month < 1 || month > 12 || day < 1 || day > 31) {
+            return NO_EXIT;
+        }
+        
+        int millis = 0;
+        if (to - from >= 23 && window.get(from + 19) == '.') {
+            millis = digits(from + 20, 3);
+            if (millis < 0) {
+                return NO_EXIT;
+            }
+        }
+        long days = daysFromCivil(year, month, day);
+        return ((days * 24 + hour) * 60 + minute) * 60000L + second * 1000L + millis;
+    }
+    
+    /**
+     * Parse a fixed-width decimal field
+     * @return value or -1 if a byte is not a digit
+     */
+    private int digits(int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            byte b = window.get(i);
+            if (b < '0' || b > '9') {
+                return -1;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+    
+    /**
+     * Days since 1970-01-01 for a proleptic Gregorian date
+     */
+    static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+    
+    /**
+     * Get the current record's plate (shared String for repeat plates)
+     */
+    public String getPlate() {
+        if (plate == null) {
+            int hash = 0;
+            for (int i = 0; i < plateLength; i++) {
+                hash = 31 * hash + plateBytes[i];
+            }
+            int slot = (hash * 0x9E3779B1) >>> (Integer.SIZE - PLATE_CACHE_BITS);
+            int neighbour = slot ^ 1;
+            String cached = plateCache[slot];
+            if (cached == null || !sameBytes(cached)) {
+                cached = plateCache[neighbour];
+                if (cached == null || !sameBytes(cached)) {
+                    // Miss: the previous occupant moves to the neighbour slot
+                    cached = new String(plateBytes, 0, plateLength, StandardCharsets.ISO_8859_1);
+                    plateCache[neighbour] = plateCache[slot];
+                    plateCache[slot] = cached;
+                }
+            }
+            plate = cached;
+        }
+        return plate;
+    }
+    
+    private boolean sameBytes(String cached) {
+        if (cached.length() != plateLength) {
+            return false;
+        }
+        for (int i = 0; i < plateLength; i++) {
+            if (cached.charAt(i) != (char) (plateBytes[i] & 0xFF)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    // Current record
+    public int getGate() { return gate; }
+    public long getEntryMillis() { return entryMillis; }
+    public long getExitMillis() { return exitMillis; }
+    public boolean hasExit() { return exitMillis != NO_EXIT; }
+    
+    // Reader state
+    public boolean isBinary() { return binary; }
+    public long getRecordsRead() { return recordsRead; }
+    public long getMalformedLines() { return malformedLines; }
+    public Path getPath() { return path; }
+    
+    /**
+     * Count the records in a trace (the header for binary files, a parse pass for CSV)
+     */
+    public static long countRecords(Path path) throws IOException {
+        try (GateTrace trace = open(path)) {
+            if (trace.binary) {
+                return trace.binaryRecords;
+            }
+            trace.reportMalformed = false;                     // The replay pass reports them
+            long count = 0;
+            while (trace.next()) {
+                count++;
+            }
+            return count;
+        }
+    }
+    
+    /**
+     * Convert a CSV trace to the binary format, which replays without parsing
+     * Plates longer than 13 bytes don't fit a record, so a trace holding one
+     * is refused rather than written with a cut-down plate.
+     * @return records written
+     * @throws IOException also if a plate is too long for the binary format
+     */
+    public static long writeBinary(Path csv, Path binary) throws IOException {
+        try (GateTrace trace = open(csv)) {
+            boolean written = false;
+            try (FileChannel out = FileChannel.open(binary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocate(RECORD_BYTES * 4096).order(ByteOrder.LITTLE_ENDIAN);
+                out.position(HEADER_BYTES);
+                long count = 0;
+                while (trace.next()) {
+                    if (!buffer.hasRemaining()) {
+                        writeFully(out, buffer);
+                    }
+                    int length = trace.plateLength;
+                    if (length > MAX_PLATE_BYTES) {
+                        throw new IOException("Plate " + trace.getPlate() + " on line " + trace.linesRead + " of " + csv
+                                + " is longer than " + MAX_PLATE_BYTES + " bytes - keep this trace as CSV");
+                    }
+                    buffer.putLong(trace.entryMillis).putLong(trace.exitMillis)
+                            .putShort((short) trace.gate).put((byte) length)
+                            .put(trace.plateBytes, 0, length)
+                            .put(new byte[MAX_PLATE_BYTES - length]);
+                    count++;
+                }
+                writeFully(out, buffer);
+                
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(count).flip();
+                out.write(header, 0);
+                out.force(true);
+                written = true;
+                return count;
+            } finally {
+                if (!written) {
+                    Files.deleteIfExists(binary);              // A file without its header would read as CSV
+                }
+            }
+        }
+    }
+    
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram - Fixed-memory, lock-free log-bucketed histogram
+ * Values below 32 get exact buckets; above that every power of two is split
+ * into 32 linear sub-buckets (HdrHistogram-style), so any recorded value is
+ * reported within ~3% using under 2,000 counters no matter how many vehicles
+ * pass through. Recording is one atomic increment; percentiles are a single
+ * pass over the buckets.
+ */
+public class LatencyHistogram {
+    
+    // Bucket layout
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;   // 32
+    private static final int MAX_MAGNITUDE = 62;                         // Highest bit of Long.MAX_VALUE
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT * (MAX_MAGNITUDE - SUB_BUCKET_BITS + 2);
+    
+    // Counters
+    private final AtomicLongArray counts;
+    private final LongAdder totalCount;
+    private final LongAdder totalSum;
+    private final AtomicLong maxValue;
+    
+    /**
+     * Constructor
+     */
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKET_COUNT);
+        this.totalCount = new LongAdder();
+        this.totalSum = new LongAdder();
+        this.maxValue = new AtomicLong(0);
+    }
+    
+    /**
+     * Record one value (negative values are clamped to 0)
+     * @param value measurement, in whatever unit the owner uses
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucketIndex(value));
+        totalCount.increment();
+        totalSum.add(value);
+        
+        long currentMax = maxValue.get();
+        while (value > currentMax && !maxValue.compareAndSet(currentMax, value)) {
+            currentMax = maxValue.get();
+        }
+    }
+    
+    /**
+     * Add every value recorded by another histogram to this one
+     * @param other histogram to merge in (may still be recording)
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = other.counts.get(i);
+            if (count > 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        totalCount.add(other.totalCount.sum());
+        totalSum.add(other.totalSum.sum());
+        
+        long otherMax = other.maxValue.get();
+        long currentMax = maxValue.get();
+        while (otherMax > currentMax && !maxValue.compareAndSet(currentMax, otherMax)) {
+            currentMax = maxValue.get();
+        }
+    }
+    
+    /**
+     * Get number of recorded values
+     */
+    public long getCount() {
+        return totalCount.sum();
+    }
+    
+    /**
+     * Get exact mean of recorded values
+     */
+    public double getMean() {
+        long count = totalCount.sum();
+        return count > 0 ? (double) totalSum.sum() / count : 0.0;
+    }
+    
+    /**
+     * Get largest recorded value
+     */
+    public long getMax() {
+        return maxValue.get();
+    }
+    
+    /**
+     * Get the value at a percentile
+     * @param percentile 0-100
+     * @return highest value equivalent to the bucket holding that rank
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] values = valuesAtPercentiles(new double[] {percentile});
+        return values[0];
+    }
+    
+    /**
+     * Take a consistent-enough summary of the distribution in one bucket pass
+     */
+    public Snapshot snapshot() {
+        long[] values = valuesAtPercentiles(new double[] {50.0, 90.0, 99.0, 99.9});
+        return new Snapshot(getCount(), getMean(), values[0], values[1], values[2], values[3], getMax());
+    }
+    
+    /**
+     * Walk the buckets once, resolving each requested percentile (ascending)
+     */
+    private long[] valuesAtPercentiles(double[] percentiles) {
+        long[] bucketCounts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            bucketCounts[i] = counts.get(i);
+            total += bucketCounts[i];
+        }
+        
+        long[] values = new long[percentiles.length];
+        if (total == 0) {
+            return values;
+        }
+        
+        long max = maxValue.get();
+        long seen = 0;
+        int next = 0;
+        for (int i = 0; i < BUCKET_COUNT && next < percentiles.length; i++) {
+            seen += bucketCounts[i];
+            while (next < percentiles.length && seen >= rankFor(percentiles[next], total)) {
+                values[next++] = Math.min(highestEquivalentValue(i), max);
+            }
+        }
+        while (next < percentiles.length) {
+            values[next++] = max;
+        }
+        return values;
+    }
+    
+    private static long rankFor(double percentile, long total) {
+        return Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+    }
+    
+    /**
+     * Map a value to its bucket
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT * (shift + 1) + subBucket;
+    }
+    
+    /**
+     * Largest value that maps to a bucket
+     */
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long subBucket = SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+    
+    /**
+     * Inner class for a percentile summary of a histogram
+     */
+    public static class Snapshot {
+        public final long count;
+        public final double mean;
+        public final long p50;
+        public final long p90;
+        public final long p99;
+        public final long p999;
+        public final long max;
+        
+        public Snapshot(long count, double mean, long p50, long p90, long p99, long p999, long max) {
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.max = max;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("n=%d, mean=%.1f, p50=%d, p90=%d, p99=%d, p99.9=%d, max=%d",
+                    count, mean, p50, p90, p99, p999, max);
+        }
+    }
+}
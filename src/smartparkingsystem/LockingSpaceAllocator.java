@@ -0,0 +1,139 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * LockingSpaceAllocator - Original lock-based allocator (fair write lock + linear scan)
+ * Kept as the baseline for AllocatorContentionBenchmark
+ */
+public class LockingSpaceAllocator implements SpaceAllocator {
+    
+    // Concurrency controls
+    private final ReentrantReadWriteLock spaceLock;
+    private final Lock readLock;
+    private final Lock writeLock;
+    
+    // Space management
+    private final int capacity;
+    private final boolean[] spaceStatus;               // true = occupied, false = available
+    private volatile int nextAvailableSpace;           // Hint for next space to check
+    
+    /**
+     * Constructor
+     * @param capacity number of parking spaces to manage
+     */
+    public LockingSpaceAllocator(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.spaceLock = new ReentrantReadWriteLock(true); // Fair lock
+        this.readLock = spaceLock.readLock();
+        this.writeLock = spaceLock.writeLock();
+        this.spaceStatus = new boolean[capacity];
+        this.nextAvailableSpace = 0;
+    }
+    
+    @Override
+    public int allocate() {
+        writeLock.lock();
+        try {
+            // Find first available space starting from hint
+            for (int i = 0; i < capacity; i++) {
+                int spaceIndex = (nextAvailableSpace + i) % capacity;
+                
+                if (!spaceStatus[spaceIndex]) {
+                    spaceStatus[spaceIndex] = true;
+                    nextAvailableSpace = (spaceIndex + 1) % capacity;
+                    return spaceIndex;
+                }
+            }
+            return -1; // No space found
+        
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    @Override
+    public boolean claim(int spaceNumber) {
+        if (spaceNumber < 0 || spaceNumber >= capacity) {
+            return false;
+        }
+        
+        writeLock.lock();
+        try {
+            if (spaceStatus[spaceNumber]) {
+                return false;
+            }
+            spaceStatus[spaceNumber] = true;
+            return true;
+        
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    @Override
+    public boolean release(int spaceNumber) {
+        if (spaceNumber < 0 || spaceNumber >= capacity) {
+            return false;
+        }
+        
+        writeLock.lock();
+        try {
+            if (!spaceStatus[spaceNumber]) {
+                return false;
+            }
+            spaceStatus[spaceNumber] = false;
+            return true;
+        
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    @Override
+    public boolean isAllocated(int spaceNumber) {
+        if (spaceNumber < 0 || spaceNumber >= capacity) {
+            return false;
+        }
+        
+        readLock.lock();
+        try {
+            return spaceStatus[spaceNumber];
+        } finally {
+            readLock.unlock();
+        }
+    }
+    
+    @Override
+    public int nextAllocated(int fromSpace) {
+        readLock.lock();
+        try {
+            for (int i = Math.max(0, fromSpace); i < capacity; i++) {
+                if (spaceStatus[i]) {
+                    return i;
+                }
+            }
+            return -1;
+        } finally {
+            readLock.unlock();
+        }
+    }
+    
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+}
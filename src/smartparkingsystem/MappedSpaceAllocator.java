@@ -0,0 +1,191 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * MappedSpaceAllocator - Lock-free bitmap allocator whose words live in an OccupancyFile
+ * Same claiming scheme as BitmapSpaceAllocator (one CAS per claim, 64 spaces
+ * per word), but the words are read and CASed in place in a memory-mapped
+ * region, so the bitmap survives a restart and other processes can map it.
+ * There is no summary bitmap: the hint word plus a word scan is enough for
+ * one level, and it keeps the file format to the occupancy bits alone.
+ */
+public class MappedSpaceAllocator implements SpaceAllocator {
+    
+    // Constants
+    private static final int BITS_PER_WORD = 64;
+    private static final VarHandle WORDS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    
+    // Space management
+    private final ByteBuffer region;                   // Mapped file, shared with OccupancyFile
+    private final int baseOffset;                      // Byte offset of this level's first word
+    private final int capacity;
+    private final int wordCount;
+    private final long lastWordMask;                   // Valid bits of the final word
+    private volatile int nextWordHint;                 // Hint for next word to check
+    
+    /**
+     * Constructor
+     * @param region mapped buffer holding the bitmap (direct, 8-byte aligned words)
+     * @param baseOffset byte offset of the first bitmap word
+     * @param capacity number of parking spaces to manage
+     */
+    public MappedSpaceAllocator(ByteBuffer region, int baseOffset, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        if (baseOffset % Long.BYTES != 0) {
+            throw new IllegalArgumentException("Bitmap offset must be 8-byte aligned: " + baseOffset);
+        }
+        this.region = region;
+        this.baseOffset = baseOffset;
+        this.capacity = capacity;
+        this.wordCount = wordsFor(capacity);
+        
+        int remainder = capacity % BITS_PER_WORD;
+        this.lastWordMask = remainder == 0 ? -1L : (1L << remainder) - 1;
+        this.nextWordHint = 0;
+    }
+    
+    /**
+     * Number of bitmap words needed for a level
+     */
+    static int wordsFor(int capacity) {
+        return (capacity + BITS_PER_WORD - 1) / BITS_PER_WORD;
+    }
+    
+    @Override
+    public int allocate() {
+        int startWord = nextWordHint;
+        for (int i = 0; i < wordCount; i++) {
+            int wordIndex = (startWord + i) % wordCount;
+            int space = tryClaimInWord(wordIndex);
+            if (space != -1) {
+                return space;
+            }
+        }
+        return -1; // No space found
+    }
+    
+    /**
+     * Claim the lowest free bit of one word
+     * @return space number or -1 if the word is full
+     */
+    private int tryClaimInWord(int wordIndex) {
+        long validMask = validMask(wordIndex);
+        
+        while (true) {
+            long word = getWord(wordIndex);
+            long freeBits = ~word & validMask;
+            if (freeBits == 0) {
+                return -1;
+            }
+            
+            int bit = Long.numberOfTrailingZeros(freeBits);
+            if (casWord(wordIndex, word, word | (1L << bit))) {
+                nextWordHint = wordIndex;
+                return wordIndex * BITS_PER_WORD + bit;
+            }
+            // Lost the race for this word - re-read and try again
+        }
+    }
+    
+    @Override
+    public boolean claim(int spaceNumber) {
+        if (spaceNumber < 0 || spaceNumber >= capacity) {
+            return false;
+        }
+        
+        int wordIndex = spaceNumber / BITS_PER_WORD;
+        long mask = 1L << (spaceNumber % BITS_PER_WORD);
+        while (true) {
+            long word = getWord(wordIndex);
+            if ((word & mask) != 0) {
+                return false; // Already claimed
+            }
+            if (casWord(wordIndex, word, word | mask)) {
+                return true;
+            }
+        }
+    }
+    
+    @Override
+    public boolean release(int spaceNumber) {
+        if (spaceNumber < 0 || spaceNumber >= capacity) {
+            return false;
+        }
+        
+        int wordIndex = spaceNumber / BITS_PER_WORD;
+        long mask = 1L << (spaceNumber % BITS_PER_WORD);
+        while (true) {
+            long word = getWord(wordIndex);
+            if ((word & mask) == 0) {
+                return false; // Already free
+            }
+            if (casWord(wordIndex, word, word & ~mask)) {
+                return true;
+            }
+        }
+    }
+    
+    @Override
+    public boolean isAllocated(int spaceNumber) {
+        if (spaceNumber < 0 || spaceNumber >= capacity) {
+            return false;
+        }
+        return (getWord(spaceNumber / BITS_PER_WORD) & (1L << (spaceNumber % BITS_PER_WORD))) != 0;
+    }
+    
+    @Override
+    public int nextAllocated(int fromSpace) {
+        if (fromSpace < 0) {
+            fromSpace = 0;
+        }
+        
+        int wordIndex = fromSpace / BITS_PER_WORD;
+        if (wordIndex >= wordCount) {
+            return -1;
+        }
+        
+        long word = getWord(wordIndex) & (-1L << (fromSpace % BITS_PER_WORD));
+        while (true) {
+            if (word != 0) {
+                return wordIndex * BITS_PER_WORD + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == wordCount) {
+                return -1;
+            }
+            word = getWord(wordIndex);
+        }
+    }
+    
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    private long getWord(int wordIndex) {
+        return (long) WORDS.getVolatile(region, baseOffset + wordIndex * Long.BYTES);
+    }
+    
+    private boolean casWord(int wordIndex, long expected, long updated) {
+        return WORDS.compareAndSet(region, baseOffset + wordIndex * Long.BYTES, expected, updated);
+    }
+    
+    private long validMask(int wordIndex) {
+        return (wordIndex == wordCount - 1) ? lastWordMask : -1L;
+    }
+}
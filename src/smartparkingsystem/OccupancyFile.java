@@ -0,0 +1,483 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OccupancyFile - Fixed-layout, memory-mapped image of a ParkingLot
+ * The file holds a header, one occupancy bitmap region per level (used in
+ * place by MappedSpaceAllocator) and one fixed-size record per space with
+ * the parked car's id, plate, owner, type, park time and fee. Parking and
+ * payments update the mapping directly - no system call per event - so a
+ * restarted process maps the file and sees the lot as it was, and a
+ * separate dashboard can open it read-only and watch it live, with no
+ * journal replay in either case. Startup cost is one read per occupied
+ * space, not per event ever recorded.
+ *
+ * Each record carries a version that is odd while it is being rewritten, so
+ * readers in other processes never see a half-written car; writers claim
+ * the odd version with a CAS, so a park and the previous car's removal on
+ * the same space cannot interleave. A removal empties the record, so a
+ * space whose bit is set before its new record is written reads as empty,
+ * never as the car that left. The mapping is
+ * forced to disk on close(); between forces it survives a process crash but
+ * not a power loss (that is what OccupancyJournal is for).
+ *
+ * Layout (little-endian):
+ *   0   header (64 bytes): magic, format version, total spaces, level count,
+ *       record size, clean-close flag, last open time
+ *   64  bitmap words, level by level, each level word-aligned
+ *   ... space records, RECORD_BYTES each, indexed by global space number
+ */
+public class OccupancyFile implements ParkingListener, PaymentListener {
+    
+    // Constants
+    private static final EventLog.Component LOG = EventLog.component("OCCUPANCY_FILE");
+    private static final int MAGIC = 0x4F434331;               // "OCC1"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    static final int RECORD_BYTES = 128;
+    private static final VarHandle INTS =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    
+    // Header fields
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_TOTAL_SPACES = 8;
+    private static final int H_LEVEL_COUNT = 12;
+    private static final int H_RECORD_BYTES = 16;
+    private static final int H_CLEAN_CLOSE = 20;
+    private static final int H_OPENED_AT = 24;
+    
+    // Record fields
+    private static final int R_VERSION = 0;                    // Odd while being written
+    private static final int R_PLANNED_MINUTES = 4;
+    private static final int R_PARKED_AT = 8;
+    private static final int R_PAID_CENTS = 16;                // -1: not paid
+    private static final int R_CAR_TYPE = 24;
+    private static final int R_ID_LENGTH = 25;
+    private static final int R_PLATE_LENGTH = 26;
+    private static final int R_OWNER_LENGTH = 27;
+    private static final int R_ID = 28;
+    private static final int ID_BYTES = 32;
+    private static final int R_PLATE = R_ID + ID_BYTES;
+    private static final int PLATE_BYTES = 24;
+    private static final int R_OWNER = R_PLATE + PLATE_BYTES;
+    private static final int OWNER_BYTES = RECORD_BYTES - R_OWNER;
+    
+    // Mapping
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final boolean readOnly;
+    private final SimulationClock clock;
+    
+    // Layout
+    private final int totalSpaces;
+    private final int levelCount;
+    private final int[] levelBitmapOffsets;
+    private final int[] levelCapacities;
+    private final int recordsOffset;
+    private final boolean wasCleanlyClosed;
+    private final boolean existed;
+    
+    private OccupancyFile(Path path, int totalSpaces, int levelCount, boolean readOnly, SimulationClock clock)
+            throws IOException {
+        this.path = path;
+        this.readOnly = readOnly;
+        this.clock = clock;
+        this.existed = Files.exists(path) && Files.size(path) > 0;
+        this.channel = readOnly
+                ? FileChannel.open(path, StandardOpenOption.READ)
+                : FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        
+        // Check an existing file's layout before mapping (and possibly growing) it
+        if (existed) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            try {
+                checkMagic(header);
+                if (readOnly) {
+                    totalSpaces = header.getInt(H_TOTAL_SPACES);
+                    levelCount = header.getInt(H_LEVEL_COUNT);
+                } else if (header.getInt(H_TOTAL_SPACES) != totalSpaces || header.getInt(H_LEVEL_COUNT) != levelCount
+                        || header.getInt(H_RECORD_BYTES) != RECORD_BYTES) {
+                    throw new IOException(String.format("Occupancy file %s is for %d spaces on %d levels, not %d on %d",
+                            path, header.getInt(H_TOTAL_SPACES), header.getInt(H_LEVEL_COUNT), totalSpaces, levelCount));
+                }
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        } else if (readOnly) {
+            channel.close();
+            throw new IOException("Occupancy file " + path + " is empty");
+        }
+        
+        this.totalSpaces = totalSpaces;
+        this.levelCount = levelCount;
+        this.levelCapacities = new int[levelCount];
+        this.levelBitmapOffsets = new int[levelCount];
+        int offset = HEADER_BYTES;
+        for (int i = 0; i < levelCount; i++) {
+            levelCapacities[i] = ParkingLot.levelCapacity(totalSpaces, levelCount, i);
+            levelBitmapOffsets[i] = offset;
+            offset += MappedSpaceAllocator.wordsFor(levelCapacities[i]) * Long.BYTES;
+        }
+        this.recordsOffset = (offset + 63) / 64 * 64;
+        long fileSize = (long) recordsOffset + (long) totalSpaces * RECORD_BYTES;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Occupancy file for " + totalSpaces + " spaces exceeds 2GB");
+        }
+        
+        if (readOnly) {
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            this.wasCleanlyClosed = buffer.get(H_CLEAN_CLOSE) == 1;
+            return;
+        }
+        
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        
+        if (existed) {
+            this.wasCleanlyClosed = buffer.get(H_CLEAN_CLOSE) == 1;
+            if (!wasCleanlyClosed) {
+                discardTornRecords();
+            }
+        } else {
+            buffer.putInt(H_MAGIC, MAGIC);
+            buffer.putInt(H_VERSION, FORMAT_VERSION);
+            buffer.putInt(H_TOTAL_SPACES, totalSpaces);
+            buffer.putInt(H_LEVEL_COUNT, levelCount);
+            buffer.putInt(H_RECORD_BYTES, RECORD_BYTES);
+            this.wasCleanlyClosed = true;
+        }
+        buffer.put(H_CLEAN_CLOSE, (byte) 0);
+        buffer.putLong(H_OPENED_AT, clock.currentTimeMillis());
+    }
+    
+    /**
+     * Empty every record a crashed writer left mid-update, so its space reads
+     * as unreadable (and is freed) and later writers can claim the record
+     */
+    private void discardTornRecords() {
+        int torn = 0;
+        for (int space = 0; space < totalSpaces; space++) {
+            int base = recordsOffset + space * RECORD_BYTES;
+            int version = buffer.getInt(base + R_VERSION);
+            if ((version & 1) != 0) {
+                buffer.put(base + R_ID_LENGTH, (byte) 0);
+                buffer.putInt(base + R_VERSION, version + 1);
+                torn++;
+            }
+        }
+        if (torn > 0) {
+            LOG.warn("Discarded {} space records torn by the crash", torn);
+        }
+    }
+    
+    /**
+     * Map (creating if needed) the occupancy file of a lot
+     * @param path file location
+     * @param totalSpaces lot size; an existing file must match
+     * @param levelCount number of levels; an existing file must match
+     * @param clock wall-clock source for park times
+     */
+    public static OccupancyFile open(Path path, int totalSpaces, int levelCount, SimulationClock clock)
+            throws IOException {
+        OccupancyFile file = new OccupancyFile(path, totalSpaces, levelCount, false, clock);
+        LOG.info("Occupancy file {} mapped - {} spaces on {} level(s){}", path, totalSpaces, levelCount,
+                file.existed ? (file.wasCleanlyClosed ? ", reopened" : ", reopened after a crash") : ", created");
+        return file;
+    }
+    
+    /**
+     * Map an existing occupancy file read-only (e.g. for a dashboard process)
+     */
+    public static OccupancyFile openReadOnly(Path path) throws IOException {
+        return new OccupancyFile(path, 0, 0, true, SystemClock.INSTANCE);
+    }
+    
+    /**
+     * Path from smartparking.occupancy.file, or null if the lot is memory-only
+     */
+    public static Path configuredPath() {
+        String file = System.getProperty("smartparking.occupancy.file");
+        return file != null && !file.trim().isEmpty() ? Paths.get(file.trim()) : null;
+    }
+    
+    private static void checkMagic(ByteBuffer header) throws IOException {
+        if (header.getInt(H_MAGIC) != MAGIC || header.getInt(H_VERSION) != FORMAT_VERSION) {
+            throw new IOException("Not an occupancy file (or unsupported version)");
+        }
+    }
+    
+    /**
+     * Allocator for one level, working on that level's bitmap in the mapping
+     */
+    SpaceAllocator allocatorForLevel(int levelId) {
+        if (readOnly) {
+            throw new IllegalStateException("Occupancy file is mapped read-only");
+        }
+        return new MappedSpaceAllocator(buffer, levelBitmapOffsets[levelId], levelCapacities[levelId]);
+    }
+    
+    /**
+     * Rebuild the car recorded in a space
+     * @param globalSpace space number
+     * @return the car with its park time translated to this run's clock, or
+     *         null if the record is unreadable
+     */
+    Car readCar(int globalSpace) {
+        SpaceRecord record = readRecord(globalSpace);
+        if (record == null) {
+            return null;
+        }
+        
+        CarType[] types = CarType.values();
+        CarType type = types[Math.floorMod(record.carTypeOrdinal, types.length)];
+        Car car = new Car(record.carId, record.licensePlate, record.ownerName, type, record.plannedMinutes, clock);
+        long parkedForMillis = Math.max(0, clock.currentTimeMillis() - record.parkedAtMillis);
+        car.setParkingNanos(clock.nanoTime() - TimeUnit.MILLISECONDS.toNanos(parkedForMillis));
+        car.setSpaceNumber(globalSpace);
+        if (record.paidCents >= 0) {
+            car.setPaid(true);
+            car.setPaymentAmount(record.paidCents / 100.0);
+        }
+        return car;
+    }
+    
+    /**
+     * Read one space record, retrying while a writer is mid-update
+     * @return record, or null if it never settled or is empty
+     */
+    private SpaceRecord readRecord(int globalSpace) {
+        int base = recordsOffset + globalSpace * RECORD_BYTES;
+        for (int attempt = 0; attempt < 100; attempt++) {
+            int before = (int) INTS.getAcquire(buffer, base + R_VERSION);
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            
+            String carId = getString(base + R_ID, buffer.get(base + R_ID_LENGTH));
+            String plate = getString(base + R_PLATE, buffer.get(base + R_PLATE_LENGTH));
+            String owner = getString(base + R_OWNER, buffer.get(base + R_OWNER_LENGTH));
+            SpaceRecord record = new SpaceRecord(globalSpace, carId, plate, owner, buffer.get(base + R_CAR_TYPE),
+                    buffer.getInt(base + R_PLANNED_MINUTES), buffer.getLong(base + R_PARKED_AT),
+                    buffer.getLong(base + R_PAID_CENTS));
+            
+            VarHandle.acquireFence();
+            if ((int) INTS.getVolatile(buffer, base + R_VERSION) == before) {
+                return before == 0 || carId.isEmpty() ? null : record;
+            }
+        }
+        return null;
+    }
+    
+    private String getString(int offset, byte length) {
+        byte[] bytes = new byte[length & 0xFF];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    @Override
+    public void onCarParked(Car car, int spaceNumber) {
+        int base = recordsOffset + spaceNumber * RECORD_BYTES;
+        int version = beginWrite(base);
+        buffer.putInt(base + R_PLANNED_MINUTES, car.getPlannedParkingDuration());
+        buffer.putLong(base + R_PARKED_AT, clock.currentTimeMillis()
+                - TimeUnit.NANOSECONDS.toMillis(clock.nanoTime() - car.getParkingNanos()));
+        buffer.putLong(base + R_PAID_CENTS, car.isPaid() ? Math.round(car.getPaymentAmount() * 100) : -1);
+        buffer.put(base + R_CAR_TYPE, (byte) car.getCarType().ordinal());
+        buffer.put(base + R_ID_LENGTH, putString(base + R_ID, car.getCarId(), ID_BYTES));
+        buffer.put(base + R_PLATE_LENGTH, putString(base + R_PLATE, car.getLicensePlate(), PLATE_BYTES));
+        buffer.put(base + R_OWNER_LENGTH, putString(base + R_OWNER, car.getOwnerName(), OWNER_BYTES));
+        endWrite(base, version);
+    }
+    
+    @Override
+    public void onCarRemoved(Car car, int spaceNumber) {
+        // The bit is already clear, but the next park sets it before rewriting
+        // the record; empty it now so that window never shows this car
+        int base = recordsOffset + spaceNumber * RECORD_BYTES;
+        int version = beginWrite(base);
+        if (fieldEquals(base + R_ID, buffer.get(base + R_ID_LENGTH), car.getCarId(), ID_BYTES)) {
+            buffer.put(base + R_ID_LENGTH, (byte) 0);
+        }
+        endWrite(base, version);
+    }
+    
+    @Override
+    public void onPaymentSettled(Car car, long amountInCents) {
+        int spaceNumber = car.getSpaceNumber();
+        if (car.hasExited() || spaceNumber < 0 || spaceNumber >= totalSpaces) {
+            return; // Settled after exit (pay-later): nothing left in the lot to update
+        }
+        int base = recordsOffset + spaceNumber * RECORD_BYTES;
+        int version = beginWrite(base);
+        buffer.putLong(base + R_PAID_CENTS, amountInCents);
+        endWrite(base, version);
+    }
+    
+    /**
+     * Claim a record for writing by making its version odd
+     * @return the odd version to pass to endWrite()
+     */
+    private int beginWrite(int base) {
+        while (true) {
+            int version = (int) INTS.getVolatile(buffer, base + R_VERSION);
+            if ((version & 1) == 0 && INTS.compareAndSet(buffer, base + R_VERSION, version, version + 1)) {
+                return version + 1;
+            }
+            Thread.onSpinWait(); // Another writer holds the record
+        }
+    }
+    
+    private void endWrite(int base, int version) {
+        INTS.setRelease(buffer, base + R_VERSION, version + 1);
+    }
+    
+    /**
+     * Check whether a field holds a value as putString() would have written it
+     */
+    private boolean fieldEquals(int offset, byte length, String value, int maxBytes) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int expected = Math.min(bytes.length, Math.min(maxBytes, 255));
+        if ((length & 0xFF) != expected) {
+            return false;
+        }
+        for (int i = 0; i < expected; i++) {
+            if (buffer.get(offset + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Write a string truncated to a field
+     * @return bytes written
+     */
+    private byte putString(int offset, String value, int maxBytes) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, Math.min(maxBytes, 255));
+        buffer.put(offset, bytes, 0, length);
+        return (byte) length;
+    }
+    
+    /**
+     * Read every occupied space (a consistent view per space, not across the lot)
+     */
+    public List<SpaceRecord> readOccupancy() {
+        List<SpaceRecord> records = new ArrayList<>();
+        for (int level = 0; level < levelCount; level++) {
+            int base = 0;
+            for (int l = 0; l < level; l++) {
+                base += levelCapacities[l];
+            }
+            MappedSpaceAllocator bitmap = new MappedSpaceAllocator(buffer, levelBitmapOffsets[level], levelCapacities[level]);
+            for (int space = bitmap.nextAllocated(0); space != -1; space = bitmap.nextAllocated(space + 1)) {
+                SpaceRecord record = readRecord(base + space);
+                if (record != null) {
+                    records.add(record);
+                }
+            }
+        }
+        return records;
+    }
+    
+    /**
+     * Write the mapping to disk and mark the file cleanly closed
+     */
+    public void close() {
+        if (readOnly) {
+            closeChannel();
+            return;
+        }
+        buffer.put(H_CLEAN_CLOSE, (byte) 1);
+        buffer.force();
+        closeChannel();
+        LOG.info("Occupancy file {} forced and closed", path);
+    }
+    
+    private void closeChannel() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOG.error("ERROR: Failed to close occupancy file - {}", e.getMessage());
+        }
+    }
+    
+    // Getters
+    public Path getPath() { return path; }
+    public int getTotalSpaces() { return totalSpaces; }
+    public int getLevelCount() { return levelCount; }
+    public boolean wasCleanlyClosed() { return wasCleanlyClosed; }
+    public boolean isReadOnly() { return readOnly; }
+    
+    /**
+     * Inner class for one occupied space as stored in the file
+     */
+    public static class SpaceRecord {
+        private final int spaceNumber;
+        private final String carId;
+        private final String licensePlate;
+        private final String ownerName;
+        private final int carTypeOrdinal;
+        private final int plannedMinutes;
+        private final long parkedAtMillis;
+        private final long paidCents;
+        
+        public SpaceRecord(int spaceNumber, String carId, String licensePlate, String ownerName, int carTypeOrdinal,
+                           int plannedMinutes, long parkedAtMillis, long paidCents) {
+            this.spaceNumber = spaceNumber;
+            this.carId = carId;
+            this.licensePlate = licensePlate;
+            this.ownerName = ownerName;
+            this.carTypeOrdinal = carTypeOrdinal;
+            this.plannedMinutes = plannedMinutes;
+            this.parkedAtMillis = parkedAtMillis;
+            this.paidCents = paidCents;
+        }
+        
+        // Getters
+        public int getSpaceNumber() { return spaceNumber; }
+        public String getCarId() { return carId; }
+        public String getLicensePlate() { return licensePlate; }
+        public String getOwnerName() { return ownerName; }
+        public int getPlannedMinutes() { return plannedMinutes; }
+        public long getParkedAtMillis() { return parkedAtMillis; }
+        public boolean isPaid() { return paidCents >= 0; }
+        public double getPaidAmount() { return Math.max(0, paidCents) / 100.0; }
+        
+        @Override
+        public String toString() {
+            return String.format("Space %d: %s [%s] parked at %d%s", spaceNumber, carId, licensePlate,
+                    parkedAtMillis, isPaid() ? String.format(", paid $%.2f", getPaidAmount()) : "");
+        }
+    }
+}
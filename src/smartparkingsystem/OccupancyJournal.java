@@ -0,0 +1,818 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * OccupancyJournal - Write-ahead journal of parking and payment events
+ * Parks, removals and collected fees are appended to occupancy.journal through
+ * a FileChannel by one writer thread. Gates and payment threads only queue a
+ * record; the writer group-commits whatever has queued up with a single write
+ * and, depending on the fsync interval, a single force. Every so many records
+ * the writer compacts its state into occupancy.snapshot and starts a fresh
+ * journal. On startup recover() loads the snapshot, replays the journal up to
+ * the first torn or corrupt record, and puts the cars back in their spaces and
+ * the revenue back in the PaymentProcessor.
+ *
+ * Records are acknowledged before they are on disk: a crash can lose the
+ * records of the last fsync interval, but never corrupts earlier ones.
+ */
+public class OccupancyJournal implements ParkingListener, PaymentListener {
+    
+    // Constants
+    private static final EventLog.Component LOG = EventLog.component("JOURNAL");
+    static final String JOURNAL_FILE = "occupancy.journal";
+    static final String SNAPSHOT_FILE = "occupancy.snapshot";
+    private static final int SNAPSHOT_MAGIC = 0x534E5031;      // "SNP1"
+    private static final int RECORD_HEADER_BYTES = 8;          // Payload length + CRC32
+    private static final int MAX_RECORD_BYTES = 4096;
+    private static final long WRITER_POLL_MS = 50;             // Idle wake-up for interval fsyncs and close
+    
+    // Record types
+    private static final byte PARK = 1;
+    private static final byte REMOVE = 2;
+    private static final byte PAYMENT = 3;
+    
+    public static final long DEFAULT_FSYNC_INTERVAL_MS = 0;
+    public static final int DEFAULT_GROUP_COMMIT_MAX = 256;
+    public static final int DEFAULT_SNAPSHOT_EVERY = 5000;
+    
+    // Configuration
+    private final Settings settings;
+    private final Path journalPath;
+    private final Path snapshotPath;
+    private final SimulationClock clock;
+    
+    // Records waiting for the writer
+    private final BlockingQueue<JournalRecord> pending;
+    private volatile boolean isOperating;
+    private volatile boolean isClosing;
+    private Thread writerThread;
+    
+    // Writer-thread state: the occupancy the journal describes
+    private final Map<String, ParkedEntry> parked;
+    private long revenueCents;
+    private long lastSequence;
+    private long recordsSinceSnapshot;
+    private FileChannel channel;
+    private final ByteBuffer writeBuffer;
+    private final ByteBuffer recordBuffer;
+    private final CRC32 crc;
+    private boolean unforcedWrites;
+    private long lastForceNanos;
+    
+    // Statistics (written by the writer thread only)
+    private volatile long recordsWritten;
+    private volatile long groupCommits;
+    private volatile long forces;
+    private volatile long snapshots;
+    private volatile long bytesWritten;
+    
+    /**
+     * Journal configuration
+     */
+    public static class Settings {
+        private final Path directory;
+        private final long fsyncIntervalMs;
+        private final int groupCommitMax;
+        private final int snapshotEvery;
+        
+        /**
+         * @param directory where the journal and snapshot live (null disables journaling)
+         * @param fsyncIntervalMs 0: force after every group commit; above 0: at most one
+         *        force per interval; below 0: never force, leave flushing to the OS
+         * @param groupCommitMax most records written by one commit
+         * @param snapshotEvery records between compacted snapshots
+         */
+        public Settings(Path directory, long fsyncIntervalMs, int groupCommitMax, int snapshotEvery) {
+            if (groupCommitMax <= 0 || snapshotEvery <= 0) {
+                throw new IllegalArgumentException("Group commit size and snapshot interval must be positive");
+            }
+            this.directory = directory;
+            this.fsyncIntervalMs = fsyncIntervalMs;
+            this.groupCommitMax = groupCommitMax;
+            this.snapshotEvery = snapshotEvery;
+        }
+        
+        /**
+         * Read smartparking.journal.dir (journaling is off unless set),
+         * smartparking.journal.fsyncIntervalMs, smartparking.journal.groupCommitMax
+         * and smartparking.journal.snapshotEvery
+         */
+        public static Settings fromSystemProperties() {
+            String dir = System.getProperty("smartparking.journal.dir");
+            return new Settings(dir != null && !dir.trim().isEmpty() ? Paths.get(dir.trim()) : null,
+                    Long.getLong("smartparking.journal.fsyncIntervalMs", DEFAULT_FSYNC_INTERVAL_MS),
+                    Integer.getInteger("smartparking.journal.groupCommitMax", DEFAULT_GROUP_COMMIT_MAX),
+                    Integer.getInteger("smartparking.journal.snapshotEvery", DEFAULT_SNAPSHOT_EVERY));
+        }
+        
+        // Getters
+        public boolean isEnabled() { return directory != null; }
+        public Path getDirectory() { return directory; }
+        public long getFsyncIntervalMs() { return fsyncIntervalMs; }
+        public int getGroupCommitMax() { return groupCommitMax; }
+        public int getSnapshotEvery() { return snapshotEvery; }
+    }
+    
+    /**
+     * Constructor - opens the journal directory; call recover() then start()
+     * @param settings journal configuration (must be enabled)
+     * @param clock wall-clock source for record timestamps
+     */
+    public OccupancyJournal(Settings settings, SimulationClock clock) throws IOException {
+        if (!settings.isEnabled()) {
+            throw new IllegalArgumentException("Journal directory not configured");
+        }
+        this.settings = settings;
+        this.clock = clock;
+        Files.createDirectories(settings.getDirectory());
+        this.journalPath = settings.getDirectory().resolve(JOURNAL_FILE);
+        this.snapshotPath = settings.getDirectory().resolve(SNAPSHOT_FILE);
+        
+        this.pending = new LinkedBlockingQueue<>();
+        this.parked = new LinkedHashMap<>();
+        this.writeBuffer = ByteBuffer.allocateDirect(64 * 1024);
+        this.recordBuffer = ByteBuffer.allocate(MAX_RECORD_BYTES);
+        this.crc = new CRC32();
+        
+        LOG.info("Occupancy journal at {} - fsync interval: {}ms, group commit: {}, snapshot every: {} records",
+                settings.getDirectory(), settings.getFsyncIntervalMs(), settings.getGroupCommitMax(),
+                settings.getSnapshotEvery());
+    }
+    
+    /**
+     * Rebuild the lot and the revenue from the snapshot and the journal
+     * Must run before start() and before any gate is running.
+     * @param parkingLot lot to put recovered cars back into
+     * @param paymentProcessor processor to restore collected revenue into
+     * @param statistics collector told about the recovered cars (may be null)
+     */
+    public RecoveryResult recover(ParkingLot parkingLot, PaymentProcessor paymentProcessor, Statistics statistics)
+            throws IOException {
+        if (isOperating) {
+            throw new IllegalStateException("Journal already started");
+        }
+        
+        boolean snapshotLoaded = loadSnapshot();
+        long snapshotSequence = lastSequence;
+        
+        // Replay the journal, stopping at the first incomplete or corrupt record
+        int replayed = 0;
+        long tornBytes = 0;
+        if (Files.exists(journalPath)) {
+            ByteBuffer journal = ByteBuffer.wrap(Files.readAllBytes(journalPath));
+            while (journal.remaining() > 0) {
+                int recordStart = journal.position();
+                JournalRecord record = readRecord(journal);
+                if (record == null) {
+                    tornBytes = journal.limit() - recordStart;
+                    break;
+                }
+                if (record.sequence > snapshotSequence) {
+                    apply(record);
+                    lastSequence = record.sequence;
+                    replayed++;
+                }
+            }
+        }
+        if (tornBytes > 0) {
+            LOG.warn("Journal ends with {} bytes of a torn or corrupt record - discarding them", tornBytes);
+        }
+        
+        // Put the cars back, in the space each one held where possible
+        int restored = 0;
+        int relocated = 0;
+        int dropped = 0;
+        int alreadyParked = 0;
+        long nowMillis = clock.currentTimeMillis();
+        Iterator<ParkedEntry> entries = parked.values().iterator();
+        while (entries.hasNext()) {
+            ParkedEntry entry = entries.next();
+            
+            // A lot backed by an OccupancyFile may already hold the car
+            Car present = parkingLot.getCarInSpace(entry.spaceNumber);
+            if (present != null && present.getCarId().equals(entry.carId)) {
+                alreadyParked++;
+                continue;
+            }
+            
+            Car car = entry.toCar(clock);
+            long parkingNanos = clock.nanoTime() - TimeUnit.MILLISECONDS.toNanos(Math.max(0, nowMillis - entry.parkedAtMillis));
+            
+            if (parkingLot.restoreCar(car, entry.spaceNumber, parkingNanos)) {
+                restored++;
+            } else if (parkingLot.relocateRecoveredCar(car, parkingNanos) != -1) {
+                LOG.warn("Car {} could not return to space {} - moved to space {}",
+                        entry.carId, entry.spaceNumber, car.getSpaceNumber());
+                entry.spaceNumber = car.getSpaceNumber();
+                relocated++;
+            } else {
+                LOG.warn("Car {} could not be restored - lot is full", entry.carId);
+                entries.remove();
+                dropped++;
+            }
+        }
+        
+        if (revenueCents > 0) {
+            paymentProcessor.restoreRevenue(revenueCents);
+        }
+        if (statistics != null && restored + relocated > 0) {
+            statistics.recordRecoveredVehicles(restored + relocated);
+        }
+        
+        // Start this run from a compacted snapshot and an empty journal
+        channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        writeSnapshot();
+        
+        if (alreadyParked > 0) {
+            LOG.info("{} journaled cars were already in place in the mapped lot", alreadyParked);
+        }
+        RecoveryResult result = new RecoveryResult(snapshotLoaded, replayed, tornBytes, restored, relocated,
+                dropped, revenueCents);
+        LOG.info("RECOVERY: {}", result.toString());
+        return result;
+    }
+    
+    /**
+     * Load the last compacted snapshot into the writer state
+     * @return true if a valid snapshot was found
+     */
+    private boolean loadSnapshot() throws IOException {
+        if (!Files.exists(snapshotPath)) {
+            return false;
+        }
+        
+        byte[] bytes = Files.readAllBytes(snapshotPath);
+        if (bytes.length < 8) {
+            LOG.warn("Snapshot {} is truncated - ignoring it", snapshotPath);
+            return false;
+        }
+        crc.reset();
+        crc.update(bytes, 0, bytes.length - 4);
+        int storedCrc = ByteBuffer.wrap(bytes, bytes.length - 4, 4).getInt();
+        if ((int) crc.getValue() != storedCrc) {
+            LOG.warn("Snapshot {} failed its checksum - ignoring it", snapshotPath);
+            return false;
+        }
+        
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 4))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                LOG.warn("Snapshot {} has an unknown format - ignoring it", snapshotPath);
+                return false;
+            }
+            lastSequence = in.readLong();
+            revenueCents = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                ParkedEntry entry = new ParkedEntry(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(),
+                        in.readInt(), in.readInt(), in.readLong());
+                entry.paidCents = in.readLong();
+                parked.put(entry.carId, entry);
+            }
+        }
+        LOG.info("Loaded snapshot - {} parked cars, revenue ${.2}, through record {}",
+                parked.size(), revenueCents / 100.0, lastSequence);
+        return true;
+    }
+    
+    /**
+     * Start the writer thread and begin journaling the lot and the payments
+     */
+    public void start(ParkingLot parkingLot, PaymentProcessor paymentProcessor) {
+        if (channel == null) {
+            throw new IllegalStateException("recover() must run before start()");
+        }
+        isOperating = true;
+        lastForceNanos = System.nanoTime();
+        writerThread = new Thread(this::writeLoop, "JournalWriter");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        
+        parkingLot.addParkingListener(this);
+        paymentProcessor.addPaymentListener(this);
+    }
+    
+    @Override
+    public void onCarParked(Car car, int spaceNumber) {
+        append(JournalRecord.park(car, spaceNumber, clock.currentTimeMillis()));
+    }
+    
+    @Override
+    public void onCarRemoved(Car car, int spaceNumber) {
+        append(JournalRecord.remove(car.getCarId(), spaceNumber, clock.currentTimeMillis()));
+    }
+    
+    @Override
+    public void onPaymentSettled(Car car, long amountInCents) {
+        append(JournalRecord.payment(car.getCarId(), amountInCents, clock.currentTimeMillis()));
+    }
+    
+    private void append(JournalRecord record) {
+        if (!isOperating || isClosing) {
+            return;
+        }
+        pending.add(record);
+    }
+    
+    /**
+     * Writer loop: group-commit queued records until closed and drained
+     */
+    private void writeLoop() {
+        List<JournalRecord> group = new ArrayList<>(settings.getGroupCommitMax());
+        try {
+            while (true) {
+                JournalRecord first = pending.poll(WRITER_POLL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (isClosing && pending.isEmpty()) {
+                        break;
+                    }
+                    forceIfDue();
+                    continue;
+                }
+                
+                group.add(first);
+                pending.drainTo(group, settings.getGroupCommitMax() - 1);
+                commit(group);
+                group.clear();
+                
+                if (recordsSinceSnapshot >= settings.getSnapshotEvery()) {
+                    writeSnapshot();
+                }
+            }
+            
+            // Everything queued before close() is on disk
+            force();
+        
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn("Journal writer interrupted - {} records not written", pending.size());
+        
+        } catch (IOException e) {
+            LOG.error("ERROR: Journal write failed - journaling stopped: {}", e.getMessage());
+            isOperating = false;
+        }
+    }
+    
+    /**
+     * Write one group of records with a single channel write
+     */
+    private void commit(List<JournalRecord> group) throws IOException {
+        writeBuffer.clear();
+        for (JournalRecord record : group) {
+            record.sequence = lastSequence + 1;
+            if (!encode(record)) {
+                continue;
+            }
+            if (writeBuffer.remaining() < recordBuffer.remaining()) {
+                flushWriteBuffer();
+            }
+            writeBuffer.put(recordBuffer);
+            
+            lastSequence = record.sequence;
+            apply(record);
+            recordsSinceSnapshot++;
+            recordsWritten++;
+        }
+        flushWriteBuffer();
+        groupCommits++;
+        
+        unforcedWrites = true;
+        if (settings.getFsyncIntervalMs() == 0) {
+            force();
+        } else {
+            forceIfDue();
+        }
+    }
+    
+    /**
+     * Frame a record into recordBuffer: payload length, CRC32 of payload, payload
+     * @return false if the record does not fit (it is skipped)
+     */
+    private boolean encode(JournalRecord record) {
+        recordBuffer.clear();
+        try {
+            recordBuffer.position(RECORD_HEADER_BYTES);
+            recordBuffer.put(record.type);
+            recordBuffer.putLong(record.sequence);
+            recordBuffer.putLong(record.wallMillis);
+            putString(record.carId);
+            switch (record.type) {
+                case PARK:
+                    putString(record.licensePlate);
+                    putString(record.ownerName);
+                    putString(record.carType);
+                    recordBuffer.putInt(record.plannedMinutes);
+                    recordBuffer.putInt(record.spaceNumber);
+                    break;
+                case REMOVE:
+                    recordBuffer.putInt(record.spaceNumber);
+                    break;
+                default:
+                    recordBuffer.putLong(record.amountCents);
+                    break;
+            }
+        } catch (BufferOverflowException e) {
+            LOG.error("ERROR: Journal record for {} too large - skipped", record.carId);
+            return false;
+        }
+        
+        int payloadLength = recordBuffer.position() - RECORD_HEADER_BYTES;
+        crc.reset();
+        crc.update(recordBuffer.array(), RECORD_HEADER_BYTES, payloadLength);
+        recordBuffer.putInt(0, payloadLength);
+        recordBuffer.putInt(4, (int) crc.getValue());
+        recordBuffer.flip();
+        return true;
+    }
+    
+    private void putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        recordBuffer.putShort((short) bytes.length);
+        recordBuffer.put(bytes);
+    }
+    
+    /**
+     * Read one framed record
+     * @return the record, or null if the rest of the buffer is torn or corrupt
+     */
+    private JournalRecord readRecord(ByteBuffer journal) {
+        if (journal.remaining() < RECORD_HEADER_BYTES) {
+            return null;
+        }
+        int payloadLength = journal.getInt();
+        int storedCrc = journal.getInt();
+        if (payloadLength <= 0 || payloadLength > MAX_RECORD_BYTES || payloadLength > journal.remaining()) {
+            return null;
+        }
+        
+        crc.reset();
+        crc.update(journal.array(), journal.arrayOffset() + journal.position(), payloadLength);
+        if ((int) crc.getValue() != storedCrc) {
+            return null;
+        }
+        
+        ByteBuffer payload = journal.slice();
+        payload.limit(payloadLength);
+        journal.position(journal.position() + payloadLength);
+        try {
+            byte type = payload.get();
+            long sequence = payload.getLong();
+            long wallMillis = payload.getLong();
+            String carId = getString(payload);
+            JournalRecord record;
+            switch (type) {
+                case PARK:
+                    record = new JournalRecord(PARK, carId, wallMillis);
+                    record.licensePlate = getString(payload);
+                    record.ownerName = getString(payload);
+                    record.carType = getString(payload);
+                    record.plannedMinutes = payload.getInt();
+                    record.spaceNumber = payload.getInt();
+                    break;
+                case REMOVE:
+                    record = new JournalRecord(REMOVE, carId, wallMillis);
+                    record.spaceNumber = payload.getInt();
+                    break;
+                case PAYMENT:
+                    record = new JournalRecord(PAYMENT, carId, wallMillis);
+                    record.amountCents = payload.getLong();
+                    break;
+                default:
+                    return null;
+            }
+            record.sequence = sequence;
+            return record;
+        
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+    
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Apply a record to the occupancy the journal describes
+     */
+    private void apply(JournalRecord record) {
+        switch (record.type) {
+            case PARK:
+                parked.put(record.carId, new ParkedEntry(record.carId, record.licensePlate, record.ownerName,
+                        record.carType, record.plannedMinutes, record.spaceNumber, record.wallMillis));
+                break;
+            case REMOVE:
+                parked.remove(record.carId);
+                break;
+            default:
+                revenueCents += record.amountCents;
+                ParkedEntry entry = parked.get(record.carId);
+                if (entry != null) {
+                    entry.paidCents = record.amountCents;
+                }
+                break;
+        }
+    }
+    
+    private void flushWriteBuffer() throws IOException {
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            bytesWritten += channel.write(writeBuffer);
+        }
+        writeBuffer.clear();
+    }
+    
+    private void forceIfDue() throws IOException {
+        long intervalMs = settings.getFsyncIntervalMs();
+        if (unforcedWrites && intervalMs >= 0
+                && System.nanoTime() - lastForceNanos >= TimeUnit.MILLISECONDS.toNanos(intervalMs)) {
+            force();
+        }
+    }
+    
+    private void force() throws IOException {
+        if (unforcedWrites) {
+            channel.force(false);
+            forces++;
+            unforcedWrites = false;
+        }
+        lastForceNanos = System.nanoTime();
+    }
+    
+    /**
+     * Write the current state as the new snapshot, then empty the journal
+     * The snapshot records the last sequence it covers, so a crash between the
+     * rename and the truncate just replays records that are skipped as old.
+     */
+    private void writeSnapshot() throws IOException {
+        force();
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(lastSequence);
+            out.writeLong(revenueCents);
+            out.writeInt(parked.size());
+            for (ParkedEntry entry : parked.values()) {
+                out.writeUTF(entry.carId);
+                out.writeUTF(entry.licensePlate);
+                out.writeUTF(entry.ownerName);
+                out.writeUTF(entry.carType);
+                out.writeInt(entry.plannedMinutes);
+                out.writeInt(entry.spaceNumber);
+                out.writeLong(entry.parkedAtMillis);
+                out.writeLong(entry.paidCents);
+            }
+        }
+        byte[] body = bytes.toByteArray();
+        crc.reset();
+        crc.update(body, 0, body.length);
+        ByteBuffer snapshot = ByteBuffer.allocate(body.length + 4);
+        snapshot.put(body).putInt((int) crc.getValue()).flip();
+        
+        Path tempPath = snapshotPath.resolveSibling(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (snapshot.hasRemaining()) {
+                out.write(snapshot);
+            }
+            out.force(true);
+        }
+        Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(true);
+        recordsSinceSnapshot = 0;
+        snapshots++;
+        
+        LOG.info("Snapshot written - {} parked cars, revenue ${.2}, through record {}",
+                parked.size(), revenueCents / 100.0, lastSequence);
+    }
+    
+    /**
+     * Stop journaling: write everything queued so far, force it, and close the file
+     */
+    public void close() {
+        if (writerThread == null || isClosing) {
+            return;
+        }
+        isClosing = true;
+        
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            LOG.warn("WARNING: Journal writer did not finish - {} records may be lost", pending.size());
+            writerThread.interrupt();
+        }
+        isOperating = false;
+        
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOG.error("ERROR: Failed to close journal - {}", e.getMessage());
+        }
+        LOG.info("FINAL {}", getStats().toString());
+    }
+    
+    /**
+     * Get journal write statistics
+     */
+    public JournalStats getStats() {
+        return new JournalStats(recordsWritten, groupCommits, forces, snapshots, bytesWritten, pending.size());
+    }
+    
+    /**
+     * One journaled event, built on the calling thread and framed by the writer
+     */
+    private static class JournalRecord {
+        private final byte type;
+        private final String carId;
+        private final long wallMillis;
+        private long sequence;
+        private String licensePlate;
+        private String ownerName;
+        private String carType;
+        private int plannedMinutes;
+        private int spaceNumber;
+        private long amountCents;
+        
+        JournalRecord(byte type, String carId, long wallMillis) {
+            this.type = type;
+            this.carId = carId;
+            this.wallMillis = wallMillis;
+        }
+        
+        static JournalRecord park(Car car, int spaceNumber, long wallMillis) {
+            JournalRecord record = new JournalRecord(PARK, car.getCarId(), wallMillis);
+            record.licensePlate = car.getLicensePlate();
+            record.ownerName = car.getOwnerName();
+            record.carType = car.getCarType().name();
+            record.plannedMinutes = car.getPlannedParkingDuration();
+            record.spaceNumber = spaceNumber;
+            return record;
+        }
+        
+        static JournalRecord remove(String carId, int spaceNumber, long wallMillis) {
+            JournalRecord record = new JournalRecord(REMOVE, carId, wallMillis);
+            record.spaceNumber = spaceNumber;
+            return record;
+        }
+        
+        static JournalRecord payment(String carId, long amountCents, long wallMillis) {
+            JournalRecord record = new JournalRecord(PAYMENT, carId, wallMillis);
+            record.amountCents = amountCents;
+            return record;
+        }
+    }
+    
+    /**
+     * A car the journal says is parked
+     */
+    private static class ParkedEntry {
+        private final String carId;
+        private final String licensePlate;
+        private final String ownerName;
+        private final String carType;
+        private final int plannedMinutes;
+        private int spaceNumber;
+        private final long parkedAtMillis;
+        private long paidCents = -1;                   // -1: not paid yet
+        
+        ParkedEntry(String carId, String licensePlate, String ownerName, String carType,
+                    int plannedMinutes, int spaceNumber, long parkedAtMillis) {
+            this.carId = carId;
+            this.licensePlate = licensePlate;
+            this.ownerName = ownerName;
+            this.carType = carType;
+            this.plannedMinutes = plannedMinutes;
+            this.spaceNumber = spaceNumber;
+            this.parkedAtMillis = parkedAtMillis;
+        }
+        
+        Car toCar(SimulationClock clock) {
+            Car car = new Car(carId, licensePlate, ownerName, CarType.valueOf(carType), plannedMinutes, clock);
+            if (paidCents >= 0) {
+                car.setPaid(true);
+                car.setPaymentAmount(paidCents / 100.0);
+            }
+            return car;
+        }
+    }
+    
+    /**
+     * Inner class for what recover() found
+     */
+    public static class RecoveryResult {
+        private final boolean snapshotLoaded;
+        private final int recordsReplayed;
+        private final long tornBytes;
+        private final int carsRestored;
+        private final int carsRelocated;
+        private final int carsDropped;
+        private final long revenueCents;
+        
+        public RecoveryResult(boolean snapshot, int replayed, long torn, int restored, int relocated,
+                              int dropped, long revenueCents) {
+            this.snapshotLoaded = snapshot;
+            this.recordsReplayed = replayed;
+            this.tornBytes = torn;
+            this.carsRestored = restored;
+            this.carsRelocated = relocated;
+            this.carsDropped = dropped;
+            this.revenueCents = revenueCents;
+        }
+        
+        // Getters
+        public boolean isSnapshotLoaded() { return snapshotLoaded; }
+        public int getRecordsReplayed() { return recordsReplayed; }
+        public long getTornBytes() { return tornBytes; }
+        public int getCarsRestored() { return carsRestored; }
+        public int getCarsRelocated() { return carsRelocated; }
+        public int getCarsDropped() { return carsDropped; }
+        public double getRevenue() { return revenueCents / 100.0; }
+        
+        @Override
+        public String toString() {
+            return String.format("Snapshot: %s, Records replayed: %d, Torn bytes: %d, Cars restored: %d (moved %d, dropped %d), Revenue: $%.2f",
+                    snapshotLoaded ? "loaded" : "none", recordsReplayed, tornBytes, carsRestored, carsRelocated,
+                    carsDropped, getRevenue());
+        }
+    }
+    
+    /**
+     * Inner class for journal write statistics
+     */
+    public static class JournalStats {
+        private final long recordsWritten;
+        private final long groupCommits;
+        private final long forces;
+        private final long snapshots;
+        private final long bytesWritten;
+        private final int queuedRecords;
+        
+        public JournalStats(long records, long commits, long forces, long snapshots, long bytes, int queued) {
+            this.recordsWritten = records;
+            this.groupCommits = commits;
+            this.forces = forces;
+            this.snapshots = snapshots;
+            this.bytesWritten = bytes;
+            this.queuedRecords = queued;
+        }
+        
+        // Getters
+        public long getRecordsWritten() { return recordsWritten; }
+        public long getGroupCommits() { return groupCommits; }
+        public long getForces() { return forces; }
+        public long getSnapshots() { return snapshots; }
+        public long getBytesWritten() { return bytesWritten; }
+        public int getQueuedRecords() { return queuedRecords; }
+        
+        public double getRecordsPerCommit() {
+            return groupCommits > 0 ? (double) recordsWritten / groupCommits : 0.0;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("Journal Stats - Records: %d, Commits: %d (%.1f records each), Fsyncs: %d, Snapshots: %d, Bytes: %d, Queued: %d",
+                    recordsWritten, groupCommits, getRecordsPerCommit(), forces, snapshots, bytesWritten, queuedRecords);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * ParkingDurations - How long each CarType stays, as a log-normal distribution
+ * Stays are right-skewed: most commuters leave around the median, a few
+ * stay much longer. Each type has its own median and spread (sigma of the
+ * underlying normal); samples are clamped to 1 minute .. 24 hours.
+ */
+public class ParkingDurations {
+    
+    // Constants
+    private static final int MIN_MINUTES = 1;
+    private static final int MAX_MINUTES = 24 * 60;
+    
+    // Per-type distribution parameters
+    private final Map<CarType, double[]> params;        // {ln(median), sigma}
+    
+    /**
+     * Constructor: every type starts with the same distribution
+     * @param medianMinutes median stay
+     * @param sigma spread of ln(stay)
+     */
+    public ParkingDurations(double medianMinutes, double sigma) {
+        this.params = new EnumMap<CarType, double[]>(CarType.class);
+        for (CarType type : CarType.values()) {
+            set(type, medianMinutes, sigma);
+        }
+    }
+    
+    /**
+     * Set the distribution for one type
+     * @return this, for chaining
+     */
+    public ParkingDurations set(CarType type, double medianMinutes, double sigma) {
+        if (!(medianMinutes > 0) || sigma < 0) {
+            throw new IllegalArgumentException("Median must be positive and sigma non-negative for " + type);
+        }
+        params.put(type, new double[] {Math.log(medianMinutes), sigma});
+        return this;
+    }
+    
+    /**
+     * Weekday commuters: compact and sedan drivers stay the working day,
+     * EV owners leave once charged, luxury cars are mostly short visits
+     */
+    public static ParkingDurations commuter() {
+        return new ParkingDurations(420, 0.4)
+                .set(CarType.COMPACT, 480, 0.35)
+                .set(CarType.SUV, 300, 0.5)
+                .set(CarType.LUXURY, 180, 0.6)
+                .set(CarType.ELECTRIC, 240, 0.5);
+    }
+    
+    /**
+     * Event night: nearly everyone stays for the show and leaves together
+     */
+    public static ParkingDurations eventNight() {
+        return new ParkingDurations(210, 0.25)
+                .set(CarType.LUXURY, 200, 0.3);
+    }
+    
+    /**
+     * Draw a planned stay
+     * @param random generator to draw from (the simulation clock's)
+     * @return whole minutes
+     */
+    public int sampleMinutes(CarType type, Random random) {
+        double[] p = params.get(type);
+        double minutes = Math.exp(p[0] + p[1] * random.nextGaussian());
+        return (int) Math.max(MIN_MINUTES, Math.min(MAX_MINUTES, Math.round(minutes)));
+    }
+    
+    /**
+     * Get the median stay for a type
+     */
+    public double getMedianMinutes(CarType type) {
+        return Math.exp(params.get(type)[0]);
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("median stay");
+        for (CarType type : CarType.values()) {
+            sb.append(String.format(" %s %.0fm", type.name(), getMedianMinutes(type)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * ParkingLevel - One independent shard (level/zone) of the parking lot
+ * Owns its own semaphore, occupancy bitmap and allocation hint so gates on
+ * different levels never contend on the same structures
+ */
+public class ParkingLevel {
+    
+    // Level identification
+    private final int levelId;
+    private final String levelName;
+    private final int baseSpace;                       // First global space number on this level
+    private final int capacity;
+    
+    // Concurrency controls
+    private final Semaphore availableSpaces;           // Controls access to this level's spaces
+    private final SpaceAllocator spaceAllocator;       // Lock-free space claiming
+    private final AtomicReferenceArray<Car> parkedCars; // Local space index -> parked car
+    
+    // Level statistics
+    private final AtomicInteger waitingVehicles;       // Gates blocked with this as home level
+    private final AtomicLong stolenParks;              // Cars parked here from another home level
+    
+    /**
+     * Constructor
+     * @param levelId zero-based level index
+     * @param baseSpace global space number of this level's first space
+     * @param capacity number of spaces on this level
+     */
+    public ParkingLevel(int levelId, int baseSpace, int capacity) {
+        this(levelId, baseSpace, capacity, new BitmapSpaceAllocator(capacity));
+    }
+    
+    /**
+     * Constructor with a specific space allocator (e.g. one backed by an OccupancyFile)
+     * Spaces the allocator already shows as claimed hold no permit until adopted.
+     */
+    public ParkingLevel(int levelId, int baseSpace, int capacity, SpaceAllocator spaceAllocator) {
+        this.levelId = levelId;
+        this.levelName = "L" + (levelId + 1);
+        this.baseSpace = baseSpace;
+        this.capacity = capacity;
+        this.availableSpaces = new Semaphore(capacity, true); // Fair semaphore
+        this.spaceAllocator = spaceAllocator;
+        this.parkedCars = new AtomicReferenceArray<Car>(capacity);
+        this.waitingVehicles = new AtomicInteger(0);
+        this.stolenParks = new AtomicLong(0);
+    }
+    
+    /**
+     * Try to reserve a space on this level without waiting
+     */
+    boolean tryAcquirePermit() {
+        try {
+            // Zero timeout keeps the fair ordering, unlike the untimed tryAcquire()
+            return availableSpaces.tryAcquire(0, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    /**
+     * Reserve a space on this level, waiting up to the given time
+     */
+    boolean tryAcquirePermit(long timeout, TimeUnit unit) throws InterruptedException {
+        return availableSpaces.tryAcquire(timeout, unit);
+    }
+    
+    /**
+     * Reserve a space on this level, waiting as long as necessary
+     */
+    void acquirePermit() throws InterruptedException {
+        availableSpaces.acquire();
+    }
+    
+    void releasePermit() {
+        availableSpaces.release();
+    }
+    
+    /**
+     * Claim a specific space for a car (caller must hold a permit)
+     * @return global space number or -1 if no space found
+     */
+    int allocateSpace(Car car) {
+        int localSpace = spaceAllocator.allocate();
+        if (localSpace == -1) {
+            return -1;
+        }
+        parkedCars.set(localSpace, car);
+        return baseSpace + localSpace;
+    }
+    
+    /**
+     * Put a car back into the exact space it held before a restart
+     * @return true if the space was free (a permit is taken for it)
+     */
+    boolean restoreCar(Car car, int globalSpace) {
+        if (!containsSpace(globalSpace) || !tryAcquirePermit()) {
+            return false;
+        }
+        int localSpace = globalSpace - baseSpace;
+        if (!spaceAllocator.claim(localSpace)) {
+            availableSpaces.release();
+            return false;
+        }
+        parkedCars.set(localSpace, car);
+        return true;
+    }
+    
+    /**
+     * Take over spaces the allocator already shows as claimed (mapped occupancy)
+     * Must run before the level is in use; takes one permit per car in one step.
+     * @param cars cars to place, each with its global space number set
+     */
+    void adoptCars(List<Car> cars) {
+        if (!availableSpaces.tryAcquire(cars.size())) {
+            throw new IllegalStateException("Level " + levelName + " cannot adopt " + cars.size() + " cars");
+        }
+        for (Car car : cars) {
+            parkedCars.set(car.getSpaceNumber() - baseSpace, car);
+        }
+    }
+    
+    /**
+     * Clear a claimed space that holds no car (e.g. an unreadable mapped record)
+     */
+    void releaseSpace(int globalSpace) {
+        spaceAllocator.release(globalSpace - baseSpace);
+    }
+    
+    /**
+     * Free a car's space and return its permit
+     * @return true if the car was found in its space
+     */
+    boolean removeCar(Car car, int globalSpace) {
+        int localSpace = globalSpace - baseSpace;
+        Car parkedCar = parkedCars.get(localSpace);
+        if (parkedCar == null || !parkedCar.getCarId().equals(car.getCarId())) {
+            return false;
+        }
+        
+        // Unmap the car first so a new claim of this space cannot be overwritten
+        if (!parkedCars.compareAndSet(localSpace, parkedCar, null)) {
+            return false;
+        }
+        
+        spaceAllocator.release(localSpace);
+        availableSpaces.release();
+        return true;
+    }
+    
+    /**
+     * Get car in a global space number on this level
+     */
+    Car getCarInSpace(int globalSpace) {
+        return parkedCars.get(globalSpace - baseSpace);
+    }
+    
+    /**
+     * Find the next occupied global space on this level at or after a position
+     * @return global space number or -1 if none
+     */
+    int nextOccupiedSpace(int fromGlobalSpace) {
+        int localSpace = spaceAllocator.nextAllocated(Math.max(0, fromGlobalSpace - baseSpace));
+        return localSpace == -1 ? -1 : baseSpace + localSpace;
+    }
+    
+    boolean containsSpace(int globalSpace) {
+        return globalSpace >= baseSpace && globalSpace < baseSpace + capacity;
+    }
+    
+    void recordStolenPark() {
+        stolenParks.incrementAndGet();
+    }
+    
+    void waitingStarted() {
+        waitingVehicles.incrementAndGet();
+    }
+    
+    void waitingFinished() {
+        waitingVehicles.decrementAndGet();
+    }
+    
+    // Getters
+    public int getLevelId() { return levelId; }
+    public String getLevelName() { return levelName; }
+    public int getBaseSpace() { return baseSpace; }
+    public int getCapacity() { return capacity; }
+    public int getAvailableSpaces() { return availableSpaces.availablePermits(); }
+    public int getOccupiedSpaces() { return capacity - availableSpaces.availablePermits(); }
+    
+    /**
+     * Get snapshot of this level's counters
+     */
+    public LevelStatus getStatus() {
+        int available = availableSpaces.availablePermits();
+        int waiting = waitingVehicles.get();
+        return new LevelStatus(levelId, levelName, capacity, capacity - available, available,
+                waiting, stolenParks.get());
+    }
+    
+    /**
+     * Inner class to represent a single level's status
+     */
+    public static class LevelStatus {
+        private final int levelId;
+        private final String levelName;
+        private final int totalSpaces;
+        private final int occupiedSpaces;
+        private final int availableSpaces;
+        private final int waitingVehicles;
+        private final long stolenParks;
+        
+        public LevelStatus(int levelId, String levelName, int total, int occupied, int available,
+                           int waiting, long stolen) {
+            this.levelId = levelId;
+            this.levelName = levelName;
+            this.totalSpaces = total;
+            this.occupiedSpaces = occupied;
+            this.availableSpaces = available;
+            this.waitingVehicles = waiting;
+            this.stolenParks = stolen;
+        }
+        
+        // Getters
+        public int getLevelId() { return levelId; }
+        public String getLevelName() { return levelName; }
+        public int getTotalSpaces() { return totalSpaces; }
+        public int getOccupiedSpaces() { return occupiedSpaces; }
+        public int getAvailableSpaces() { return availableSpaces; }
+        public int getWaitingVehicles() { return waitingVehicles; }
+        public long getStolenParks() { return stolenParks; }
+        
+        @Override
+        public String toString() {
+            return String.format("%s %d/%d (stolen: %d)", levelName, occupiedSpaces, totalSpaces, stolenParks);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+/**
+ * ParkingListener - Callback for occupancy changes in the ParkingLot
+ * Invoked on the gate thread right after a space is claimed or freed, so
+ * implementations must be fast and must not block
+ */
+public interface ParkingListener {
+    
+    /**
+     * Called after a car has been assigned a space
+     * @param car the parked car (parking time and space already set)
+     * @param spaceNumber global space number
+     */
+    void onCarParked(Car car, int spaceNumber);
+    
+    /**
+     * Called after a car has left its space
+     * @param car the departing car (exit time already set)
+     * @param spaceNumber global space number that was freed
+     */
+    void onCarRemoved(Car car, int spaceNumber);
+}
@@ -9,111 +9,439 @@ package smartparkingsystem;
  * @author amiryusof
  */
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.concurrent.*;
-import java.util.concurrent.locks.*;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * ParkingLot - Core shared resource that manages parking spaces concurrently
- * Handles space allocation, de-allocation, and maintains thread-safe operations
+ * Handles space allocation, de-allocation, and maintains thread-safe operations.
+ * Spaces are split into independent levels (shards); a gate parks on its home
+ * level and only steals from a neighbouring level when home is full.
+ * Optionally the occupancy lives in a memory-mapped OccupancyFile, so a
+ * restarted lot comes back with its cars already in place.
  */
 public class ParkingLot {
     
     // Constants
-    private static final int TOTAL_SPACES = 50;
-    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+    public static final int DEFAULT_TOTAL_SPACES = 50;
+    public static final int DEFAULT_LEVEL_COUNT = 1;
+    private static final EventLog.Component LOG = EventLog.component("PARKING_LOT");
     
-    // Concurrency controls
-    private final Semaphore availableSpaces;           // Controls access to parking spaces
-    private final ConcurrentHashMap<Integer, Car> occupiedSpaces;  // Thread-safe space tracking
-    private final ReentrantReadWriteLock spaceLock;    // For space allocation operations
-    private final Lock readLock;  // Changed from ReadWriteLock.ReadLock
-    private final Lock writeLock; // Changed from ReadWriteLock.WriteLock
+    // Capacity
+    private final int totalSpaces;
     
-    // Space management
-    private final boolean[] spaceStatus;               // true = occupied, false = available
-    private volatile int nextAvailableSpace;           // Hint for next space to check
+    // Time source for parking and exit timestamps
+    private final SimulationClock clock;
+    
+    // Shards
+    private final ParkingLevel[] levels;
+    private final int[] levelBaseSpaces;               // For O(log levels) space -> level lookup
+    private final Map<Integer, Car> occupiedSpacesView; // Read-only live view, never copied
+    
+    // Full-lot waiting across levels: woken when any level frees a space
+    private final AtomicInteger fullLotWaiters;
+    private final Object spaceFreed;
+    private long spacesFreed;                          // Guarded by spaceFreed
+    
+    // Occupancy listeners (e.g. exit scheduling)
+    private final List<ParkingListener> listeners = new CopyOnWriteArrayList<ParkingListener>();
+    
+    // Memory-mapped backing (null: occupancy is in memory only)
+    private final OccupancyFile occupancyFile;
+    private final List<Car> recoveredCars;             // Found in the file, not yet announced to listeners
     
     /**
      * Constructor - Initialize the parking lot with 50 spaces
      */
     public ParkingLot() {
-        this.availableSpaces = new Semaphore(TOTAL_SPACES, true); // Fair semaphore
-        this.occupiedSpaces = new ConcurrentHashMap<Integer, Car>();
-        this.spaceLock = new ReentrantReadWriteLock(true); // Fair lock
-        this.readLock = spaceLock.readLock();   // Fixed: Use Lock interface
-        this.writeLock = spaceLock.writeLock(); // Fixed: Use Lock interface
-        this.spaceStatus = new boolean[TOTAL_SPACES];
-        this.nextAvailableSpace = 0;
+        this(DEFAULT_TOTAL_SPACES);
+    }
+    
+    /**
+     * Constructor with configurable capacity on a single level
+     * @param totalSpaces number of parking spaces (e.g. 120000 for a campus)
+     */
+    public ParkingLot(int totalSpaces) {
+        this(totalSpaces, DEFAULT_LEVEL_COUNT);
+    }
+    
+    /**
+     * Constructor with configurable capacity split across levels
+     * @param totalSpaces number of parking spaces
+     * @param levelCount number of independent levels/zones (spaces are spread evenly)
+     */
+    public ParkingLot(int totalSpaces, int levelCount) {
+        this(totalSpaces, levelCount, SystemClock.INSTANCE);
+    }
+    
+    /**
+     * Constructor with configurable capacity, levels and time source
+     * @param totalSpaces number of parking spaces
+     * @param levelCount number of independent levels/zones (spaces are spread evenly)
+     * @param clock clock used to timestamp parking and exit
+     */
+    public ParkingLot(int totalSpaces, int levelCount, SimulationClock clock) {
+        this(totalSpaces, levelCount, clock, null);
+    }
+    
+    /**
+     * Constructor backed by a memory-mapped occupancy file
+     * Cars already recorded in the file are put back in their spaces at once;
+     * call publishRecoveredCars() once listeners are registered.
+     * @param occupancyFile mapped file for this lot's layout (null: memory only)
+     */
+    public ParkingLot(int totalSpaces, int levelCount, SimulationClock clock, OccupancyFile occupancyFile) {
+        if (totalSpaces <= 0) {
+            throw new IllegalArgumentException("Total spaces must be positive: " + totalSpaces);
+        }
+        if (levelCount <= 0 || levelCount > totalSpaces) {
+            throw new IllegalArgumentException("Level count must be between 1 and " + totalSpaces + ": " + levelCount);
+        }
+        
+        this.totalSpaces = totalSpaces;
+        this.clock = clock;
+        this.levels = new ParkingLevel[levelCount];
+        this.levelBaseSpaces = new int[levelCount];
+        this.fullLotWaiters = new AtomicInteger(0);
+        this.spaceFreed = new Object();
+        
+        this.occupancyFile = occupancyFile;
+        this.recoveredCars = new ArrayList<Car>();
+        
+        int baseSpace = 0;
+        for (int i = 0; i < levelCount; i++) {
+            int levelCapacity = levelCapacity(totalSpaces, levelCount, i);
+            levels[i] = occupancyFile != null
+                    ? new ParkingLevel(i, baseSpace, levelCapacity, occupancyFile.allocatorForLevel(i))
+                    : new ParkingLevel(i, baseSpace, levelCapacity);
+            levelBaseSpaces[i] = baseSpace;
+            baseSpace += levelCapacity;
+        }
+        this.occupiedSpacesView = new OccupiedSpacesView();
+        
+        if (occupancyFile != null) {
+            adoptMappedOccupancy();
+            listeners.add(occupancyFile);
+        }
         
-        logEvent("ParkingLot initialized with " + TOTAL_SPACES + " spaces");
+        LOG.info("ParkingLot initialized with {} spaces on {} level(s)", totalSpaces, levelCount);
     }
     
     /**
-     * Attempt to park a car - blocking operation if no spaces available
+     * Spaces on one level when a lot is spread evenly across levels
+     */
+    static int levelCapacity(int totalSpaces, int levelCount, int levelId) {
+        return totalSpaces / levelCount + (levelId < totalSpaces % levelCount ? 1 : 0);
+    }
+    
+    /**
+     * Put back every car the mapped file shows as parked (one record read each)
+     */
+    private void adoptMappedOccupancy() {
+        long startNanos = System.nanoTime();
+        int unreadable = 0;
+        for (ParkingLevel level : levels) {
+            List<Car> levelCars = new ArrayList<Car>();
+            for (int space = level.nextOccupiedSpace(level.getBaseSpace());
+                 space != -1;
+                 space = level.nextOccupiedSpace(space + 1)) {
+                Car car = occupancyFile.readCar(space);
+                if (car == null) {
+                    level.releaseSpace(space);
+                    unreadable++;
+                    continue;
+                }
+                levelCars.add(car);
+            }
+            level.adoptCars(levelCars);
+            recoveredCars.addAll(levelCars);
+        }
+        
+        if (!recoveredCars.isEmpty() || unreadable > 0) {
+            LOG.info("Adopted {} parked cars from {} in {}ms ({} unreadable spaces freed)",
+                    recoveredCars.size(), occupancyFile.getPath(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), unreadable);
+        }
+    }
+    
+    /**
+     * Tell the current listeners about cars adopted from the occupancy file,
+     * so they are scheduled to exit like cars that parked on this run
+     * @return the cars announced (each is announced once)
+     */
+    public List<Car> publishRecoveredCars() {
+        List<Car> cars = new ArrayList<Car>(recoveredCars);
+        recoveredCars.clear();
+        for (Car car : cars) {
+            for (ParkingListener listener : listeners) {
+                if (listener != occupancyFile) {
+                    listener.onCarParked(car, car.getSpaceNumber());
+                }
+            }
+        }
+        return cars;
+    }
+    
+    /**
+     * Attempt to park a car on the first level - blocking operation if no spaces available
      * @param car The car attempting to park
      * @return parking space number if successful, -1 if interrupted
      */
     public int parkCar(Car car) {
+        return parkCar(car, 0);
+    }
+    
+    /**
+     * Attempt to park a car - blocking operation if no spaces available
+     * @param car The car attempting to park
+     * @param homeLevel preferred level (normally the level served by the entry gate)
+     * @return parking space number if successful, -1 if interrupted
+     */
+    public int parkCar(Car car, int homeLevel) {
         String threadName = Thread.currentThread().getName();
         
         try {
             // Wait for available space (blocking call)
-            logEvent(threadName + " - Car " + car.getCarId() + " waiting for parking space...");
-            availableSpaces.acquire();
+            LOG.info("{} - Car {} waiting for parking space...", threadName, car.getCarId());
+            ParkingLevel home = levels[Math.floorMod(homeLevel, levels.length)];
+            ParkingLevel level = acquireLevel(home, -1);
             
-            // Allocate specific space
-            int spaceNumber = allocateSpace(car);
-            if (spaceNumber != -1) {
-                car.setParkingTime(LocalDateTime.now());
-                car.setSpaceNumber(spaceNumber);
-                
-                logEvent(threadName + " - Car " + car.getCarId() + " parked in space " + spaceNumber + 
-                        " (Available spaces: " + availableSpaces.availablePermits() + ")");
-                return spaceNumber;
-            } else {
-                // This shouldn't happen if semaphore is working correctly
-                availableSpaces.release();
-                logEvent(threadName + " - ERROR: No space found for car " + car.getCarId());
+            return occupySpace(car, home, level, threadName);
+        
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.info("{} - Car {} parking interrupted", threadName, car.getCarId());
+            return -1;
+        }
+    }
+    
+    /**
+     * Attempt to park a car, waiting at most the given time for a space
+     * @param car The car attempting to park
+     * @param homeLevel preferred level (normally the level served by the entry gate)
+     * @param timeout how long to wait while the whole lot is full
+     * @param unit time unit
+     * @return parking space number if successful, -1 if timed out or interrupted
+     */
+    public int tryParkCar(Car car, int homeLevel, long timeout, TimeUnit unit) {
+        String threadName = Thread.currentThread().getName();
+        
+        try {
+            ParkingLevel home = levels[Math.floorMod(homeLevel, levels.length)];
+            ParkingLevel level = acquireLevel(home, Math.max(0, unit.toNanos(timeout)));
+            if (level == null) {
+                LOG.info("{} - Car {} gave up waiting for a space after {}ms",
+                        threadName, car.getCarId(), unit.toMillis(timeout));
                 return -1;
             }
             
+            return occupySpace(car, home, level, threadName);
+        
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            logEvent(threadName + " - Car " + car.getCarId() + " parking interrupted");
+            LOG.info("{} - Car {} parking interrupted", threadName, car.getCarId());
+            return -1;
+        }
+    }
+    
+    /**
+     * Attempt to park a car without waiting - used by the discrete-event engine,
+     * which must never block its single thread
+     * @param car The car attempting to park
+     * @param homeLevel preferred level (normally the level served by the entry gate)
+     * @return parking space number if successful, -1 if the whole lot is full
+     */
+    public int tryParkCar(Car car, int homeLevel) {
+        ParkingLevel home = levels[Math.floorMod(homeLevel, levels.length)];
+        ParkingLevel level = home.tryAcquirePermit() ? home : tryStealPermit(home);
+        if (level == null) {
+            return -1;
+        }
+        return occupySpace(car, home, level, Thread.currentThread().getName());
+    }
+    
+    /**
+     * Park a recovered car whose old space is taken in any free space, without waiting
+     * Listeners see the car's original parking time, so its exit stays due when it was.
+     * @param car car rebuilt from the journal
+     * @param parkingNanos parking time on this run's clock
+     * @return parking space number if successful, -1 if the whole lot is full
+     */
+    public int relocateRecoveredCar(Car car, long parkingNanos) {
+        ParkingLevel home = levels[0];
+        ParkingLevel level = home.tryAcquirePermit() ? home : tryStealPermit(home);
+        if (level == null) {
             return -1;
         }
+        return occupySpace(car, home, level, Thread.currentThread().getName(), parkingNanos);
     }
     
     /**
-     * Allocate a specific parking space
-     * @param car The car to park
-     * @return space number or -1 if no space available
+     * Claim a space on a level whose permit is already held, parked as of now
+     * @return parking space number, or -1 (permit returned) if no space found
      */
-    private int allocateSpace(Car car) {
-        writeLock.lock();
+    private int occupySpace(Car car, ParkingLevel home, ParkingLevel level, String threadName) {
+        return occupySpace(car, home, level, threadName, clock.nanoTime());
+    }
+    
+    /**
+     * Claim a space on a level whose permit is already held
+     * @param parkingNanos parking time to record before listeners are notified
+     * @return parking space number, or -1 (permit returned) if no space found
+     */
+    private int occupySpace(Car car, ParkingLevel home, ParkingLevel level, String threadName, long parkingNanos) {
+        // Allocate specific space
+        int spaceNumber = level.allocateSpace(car);
+        if (spaceNumber != -1) {
+            car.setParkingNanos(parkingNanos);
+            car.setSpaceNumber(spaceNumber);
+            
+            if (level != home) {
+                level.recordStolenPark();
+            }
+            for (ParkingListener listener : listeners) {
+                listener.onCarParked(car, spaceNumber);
+            }
+            
+            LOG.info("{} - Car {} parked in space {} on {} (Available spaces: {})",
+                    threadName, car.getCarId(), spaceNumber, level.getLevelName(), getAvailableSpaces());
+            return spaceNumber;
+        } else {
+            // This shouldn't happen if semaphore is working correctly
+            level.releasePermit();
+            signalSpaceFreed();
+            LOG.error("{} - ERROR: No space found for car {}", threadName, car.getCarId());
+            return -1;
+        }
+    }
+    
+    /**
+     * Reserve a space permit, preferring the home level and stealing from a
+     * neighbour only when home is full
+     * @param timeoutNanos how long to wait while the whole lot is full (negative: no limit)
+     * @return the level whose permit was acquired, or null if the wait timed out
+     */
+    private ParkingLevel acquireLevel(ParkingLevel home, long timeoutNanos) throws InterruptedException {
+        if (home.tryAcquirePermit()) {
+            return home;
+        }
+        
+        ParkingLevel neighbour = tryStealPermit(home);
+        if (neighbour != null) {
+            return neighbour;
+        }
+        
+        // Whole lot is full - wait on home, or with several levels until any level frees a space
+        boolean timed = timeoutNanos >= 0;
+        if (timed && timeoutNanos == 0) {
+            return null;
+        }
+        long deadline = System.nanoTime() + (timed ? timeoutNanos : 0);
+        home.waitingStarted();
         try {
-            // Find first available space starting from hint
-            for (int i = 0; i < TOTAL_SPACES; i++) {
-                int spaceIndex = (nextAvailableSpace + i) % TOTAL_SPACES;
-                
-                if (!spaceStatus[spaceIndex]) {
-                    // Allocate this space
-                    spaceStatus[spaceIndex] = true;
-                    occupiedSpaces.put(spaceIndex, car);
-                    
-                    // Update hint for next allocation
-                    nextAvailableSpace = (spaceIndex + 1) % TOTAL_SPACES;
-                    
-                    return spaceIndex;
+            if (levels.length == 1) {
+                if (!timed) {
+                    home.acquirePermit();
+                    return home;
                 }
+                return home.tryAcquirePermit(timeoutNanos, TimeUnit.NANOSECONDS) ? home : null;
+            }
+            // Registered before the re-check, so a space freed after it always signals
+            fullLotWaiters.incrementAndGet();
+            try {
+                while (true) {
+                    long seen;
+                    synchronized (spaceFreed) {
+                        seen = spacesFreed;
+                    }
+                    ParkingLevel level = home.tryAcquirePermit() ? home : tryStealPermit(home);
+                    if (level != null) {
+                        return level;
+                    }
+                    synchronized (spaceFreed) {
+                        while (spacesFreed == seen) {
+                            if (!timed) {
+                                spaceFreed.wait();
+                                continue;
+                            }
+                            long remaining = deadline - System.nanoTime();
+                            if (remaining <= 0) {
+                                return null;
+                            }
+                            TimeUnit.NANOSECONDS.timedWait(spaceFreed, remaining);
+                        }
+                    }
+                }
+            } finally {
+                fullLotWaiters.decrementAndGet();
             }
-            return -1; // No space found
-            
         } finally {
-            writeLock.unlock();
+            home.waitingFinished();
+        }
+    }
+    
+    /**
+     * Wake cars waiting on a full lot after a permit is returned to any level
+     */
+    private void signalSpaceFreed() {
+        if (fullLotWaiters.get() > 0) {
+            synchronized (spaceFreed) {
+                spacesFreed++;
+                spaceFreed.notifyAll();
+            }
+        }
+    }
+    
+    /**
+     * Try neighbouring levels nearest first (one up, one down, two up, ...)
+     */
+    private ParkingLevel tryStealPermit(ParkingLevel home) {
+        int homeId = home.getLevelId();
+        for (int distance = 1; distance < levels.length; distance++) {
+            int up = homeId + distance;
+            if (up < levels.length && levels[up].tryAcquirePermit()) {
+                return levels[up];
+            }
+            int down = homeId - distance;
+            if (down >= 0 && levels[down].tryAcquirePermit()) {
+                return levels[down];
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Put a recovered car back into the space it held before a restart
+     * Listeners are notified as for a normal park, so the car is scheduled to exit.
+     * @param car car rebuilt from the journal
+     * @param spaceNumber space recorded for it
+     * @param parkingNanos parking time on this run's clock
+     * @return true if the space was free; false leaves the car unparked
+     */
+    public boolean restoreCar(Car car, int spaceNumber, long parkingNanos) {
+        ParkingLevel level = levelForSpace(spaceNumber);
+        if (level == null || !level.restoreCar(car, spaceNumber)) {
+            return false;
+        }
+        
+        car.setParkingNanos(parkingNanos);
+        car.setSpaceNumber(spaceNumber);
+        for (ParkingListener listener : listeners) {
+            listener.onCarParked(car, spaceNumber);
         }
+        
+        LOG.info("Car {} restored to space {} on {}", car.getCarId(), spaceNumber, level.getLevelName());
+        return true;
     }
     
     /**
@@ -124,57 +452,71 @@ public class ParkingLot {
     public boolean removeCar(Car car) {
         String threadName = Thread.currentThread().getName();
         
-        if (car.getSpaceNumber() == -1) {
-            logEvent(threadName + " - ERROR: Car " + car.getCarId() + " has no assigned space");
+        ParkingLevel level = levelForSpace(car.getSpaceNumber());
+        if (level == null) {
+            LOG.error("{} - ERROR: Car {} has no assigned space", threadName, car.getCarId());
             return false;
         }
         
-        writeLock.lock();
-        try {
-            int spaceNumber = car.getSpaceNumber();
-            
-            // Verify car is in the space
-            Car parkedCar = occupiedSpaces.get(spaceNumber);
-            if (parkedCar == null || !parkedCar.getCarId().equals(car.getCarId())) {
-                logEvent(threadName + " - ERROR: Car " + car.getCarId() + 
-                        " not found in space " + spaceNumber);
-                return false;
-            }
-            
-            // Free the space
-            spaceStatus[spaceNumber] = false;
-            occupiedSpaces.remove(spaceNumber);
-            car.setExitTime(LocalDateTime.now());
-            
-            // Release semaphore permit
-            availableSpaces.release();
-            
-            logEvent(threadName + " - Car " + car.getCarId() + " removed from space " + spaceNumber + 
-                    " (Available spaces: " + availableSpaces.availablePermits() + ")");
-            
-            return true;
-            
-        } finally {
-            writeLock.unlock();
+        int spaceNumber = car.getSpaceNumber();
+        
+        // Verify car is in the space and free it (lock-free, level-local)
+        if (!level.removeCar(car, spaceNumber)) {
+            LOG.error("{} - ERROR: Car {} not found in space {}", threadName, car.getCarId(), spaceNumber);
+            return false;
+        }
+        signalSpaceFreed();
+        
+        car.setExitNanos(clock.nanoTime());
+        for (ParkingListener listener : listeners) {
+            listener.onCarRemoved(car, spaceNumber);
         }
+        
+        LOG.info("{} - Car {} removed from space {} (Available spaces: {})",
+                threadName, car.getCarId(), spaceNumber, getAvailableSpaces());
+        
+        return true;
+    }
+    
+    /**
+     * Register a listener notified on every park and removal
+     */
+    public void addParkingListener(ParkingListener listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * Unregister a previously added listener
+     */
+    public void removeParkingListener(ParkingListener listener) {
+        listeners.remove(listener);
     }
     
     /**
-     * Get current parking lot status
+     * Get the mapped file backing this lot
+     * @return the file, or null if occupancy is in memory only
+     */
+    public OccupancyFile getOccupancyFile() {
+        return occupancyFile;
+    }
+    
+    /**
+     * Get current parking lot status, aggregated from per-level counters
      * @return status information
      */
     public ParkingStatus getStatus() {
-        readLock.lock();
-        try {
-            int occupied = TOTAL_SPACES - availableSpaces.availablePermits();
-            int available = availableSpaces.availablePermits();
-            int waitingThreads = availableSpaces.getQueueLength();
-            
-            return new ParkingStatus(TOTAL_SPACES, occupied, available, waitingThreads);
-            
-        } finally {
-            readLock.unlock();
+        List<ParkingLevel.LevelStatus> levelStatuses = new ArrayList<ParkingLevel.LevelStatus>(levels.length);
+        int available = 0;
+        int waiting = 0;
+        
+        for (ParkingLevel level : levels) {
+            ParkingLevel.LevelStatus status = level.getStatus();
+            levelStatuses.add(status);
+            available += status.getAvailableSpaces();
+            waiting += status.getWaitingVehicles();
         }
+        
+        return new ParkingStatus(totalSpaces, totalSpaces - available, available, waiting, levelStatuses);
     }
     
     /**
@@ -182,7 +524,18 @@ public class ParkingLot {
      * @return true if full, false otherwise
      */
     public boolean isFull() {
-        return availableSpaces.availablePermits() == 0;
+        return getAvailableSpaces() == 0;
+    }
+    
+    /**
+     * Get number of free spaces across all levels
+     */
+    public int getAvailableSpaces() {
+        int available = 0;
+        for (ParkingLevel level : levels) {
+            available += level.getAvailableSpaces();
+        }
+        return available;
     }
     
     /**
@@ -191,25 +544,139 @@ public class ParkingLot {
      * @return Car object or null if space is empty
      */
     public Car getCarInSpace(int spaceNumber) {
-        if (spaceNumber < 0 || spaceNumber >= TOTAL_SPACES) {
+        ParkingLevel level = levelForSpace(spaceNumber);
+        return level == null ? null : level.getCarInSpace(spaceNumber);
+    }
+    
+    /**
+     * Find the level holding a global space number
+     * @return level or null if the space number is out of range
+     */
+    private ParkingLevel levelForSpace(int spaceNumber) {
+        if (spaceNumber < 0 || spaceNumber >= totalSpaces) {
             return null;
         }
-        return occupiedSpaces.get(spaceNumber);
+        int index = Arrays.binarySearch(levelBaseSpaces, spaceNumber);
+        return levels[index >= 0 ? index : -index - 2];
     }
     
     /**
      * Get all currently parked cars
-     * @return concurrent map of occupied spaces
+     * @return read-only live view of occupied spaces (weakly consistent, not a copy)
+     */
+    public Map<Integer, Car> getOccupiedSpaces() {
+        return occupiedSpacesView;
+    }
+    
+    /**
+     * Get the total number of parking spaces
+     */
+    public int getTotalSpaces() {
+        return totalSpaces;
+    }
+    
+    /**
+     * Get the clock used for parking timestamps
+     */
+    public SimulationClock getClock() {
+        return clock;
+    }
+    
+    /**
+     * Get the number of levels/zones
      */
-    public ConcurrentHashMap<Integer, Car> getOccupiedSpaces() {
-        return new ConcurrentHashMap<Integer, Car>(occupiedSpaces);
+    public int getLevelCount() {
+        return levels.length;
     }
     
     /**
-     * Utility method for consistent logging
+     * Get all levels (read-only)
      */
-    private void logEvent(String message) {
-        System.out.println("[" + LocalDateTime.now().format(TIME_FORMAT) + "] [PARKING_LOT] " + message);
+    public List<ParkingLevel> getLevels() {
+        return Collections.unmodifiableList(Arrays.asList(levels));
+    }
+    
+    /**
+     * Read-only map view over the level bitmaps and space arrays
+     * size() is O(levels); iteration walks only occupied bitmap words
+     */
+    private class OccupiedSpacesView extends AbstractMap<Integer, Car> {
+        
+        @Override
+        public int size() {
+            return totalSpaces - getAvailableSpaces();
+        }
+        
+        @Override
+        public Car get(Object key) {
+            return (key instanceof Integer) ? getCarInSpace((Integer) key) : null;
+        }
+        
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+        
+        @Override
+        public Set<Map.Entry<Integer, Car>> entrySet() {
+            return new AbstractSet<Map.Entry<Integer, Car>>() {
+                @Override
+                public int size() {
+                    return OccupiedSpacesView.this.size();
+                }
+                
+                @Override
+                public Iterator<Map.Entry<Integer, Car>> iterator() {
+                    return new OccupiedSpacesIterator();
+                }
+            };
+        }
+    }
+    
+    /**
+     * Iterator over occupied spaces level by level, skipping spaces vacated mid-iteration
+     */
+    private class OccupiedSpacesIterator implements Iterator<Map.Entry<Integer, Car>> {
+        private int levelIndex = 0;
+        private int nextSpace = -1;
+        private Car nextCar;
+        
+        OccupiedSpacesIterator() {
+            advance(0);
+        }
+        
+        private void advance(int fromSpace) {
+            nextCar = null;
+            while (levelIndex < levels.length) {
+                ParkingLevel level = levels[levelIndex];
+                nextSpace = level.nextOccupiedSpace(fromSpace);
+                while (nextSpace != -1) {
+                    nextCar = level.getCarInSpace(nextSpace);
+                    if (nextCar != null) {
+                        return;
+                    }
+                    nextSpace = level.nextOccupiedSpace(nextSpace + 1);
+                }
+                levelIndex++;
+                fromSpace = 0;
+            }
+            nextSpace = -1;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return nextSpace != -1;
+        }
+        
+        @Override
+        public Map.Entry<Integer, Car> next() {
+            if (nextSpace == -1) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<Integer, Car> entry = new AbstractMap.SimpleImmutableEntry<Integer, Car>(nextSpace, nextCar);
+            advance(nextSpace + 1);
+            return entry;
+        }
     }
     
     /**
@@ -220,12 +687,19 @@ public class ParkingLot {
         private final int occupiedSpaces;
         private final int availableSpaces;
         private final int waitingVehicles;
+        private final List<ParkingLevel.LevelStatus> levels;
         
         public ParkingStatus(int total, int occupied, int available, int waiting) {
+            this(total, occupied, available, waiting, Collections.<ParkingLevel.LevelStatus>emptyList());
+        }
+        
+        public ParkingStatus(int total, int occupied, int available, int waiting,
+                             List<ParkingLevel.LevelStatus> levels) {
             this.totalSpaces = total;
             this.occupiedSpaces = occupied;
             this.availableSpaces = available;
             this.waitingVehicles = waiting;
+            this.levels = Collections.unmodifiableList(levels);
         }
         
         // Getters
@@ -233,11 +707,13 @@ public class ParkingLot {
         public int getOccupiedSpaces() { return occupiedSpaces; }
         public int getAvailableSpaces() { return availableSpaces; }
         public int getWaitingVehicles() { return waitingVehicles; }
+        public List<ParkingLevel.LevelStatus> getLevels() { return levels; }
         
         @Override
         public String toString() {
-            return String.format("Parking Status - Total: %d, Occupied: %d, Available: %d, Waiting: %d",
+            String summary = String.format("Parking Status - Total: %d, Occupied: %d, Available: %d, Waiting: %d",
                     totalSpaces, occupiedSpaces, availableSpaces, waitingVehicles);
+            return levels.size() > 1 ? summary + ", Levels: " + levels : summary;
         }
     }
 }
@@ -0,0 +1,238 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PaymentCircuitBreaker - Stops calling the payment gateway while it is down
+ * CLOSED: calls go through; a run of consecutive gateway failures trips it.
+ * OPEN: calls fail fast without touching the gateway until the open period ends.
+ * HALF_OPEN: one trial call is let through; success closes the breaker,
+ * failure opens it again for another period.
+ */
+public class PaymentCircuitBreaker {
+    
+    // Constants
+    private static final EventLog.Component LOG = EventLog.component("PAYMENT_BREAKER");
+    public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    public static final long DEFAULT_OPEN_MS = 5000;
+    
+    /**
+     * Breaker states
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+    
+    // Configuration
+    private final int failureThreshold;
+    private final long openNanos;
+    private final SimulationClock clock;
+    
+    // State (guarded by this)
+    private State state;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private boolean trialInFlight;
+    
+    // Metrics (guarded by this)
+    private long timesOpened;
+    private long timesHalfOpened;
+    private long timesClosed;
+    private long rejectedCalls;
+    private long totalOpenNanos;
+    
+    /**
+     * Constructor with default threshold and open period
+     */
+    public PaymentCircuitBreaker(SimulationClock clock) {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MS, clock);
+    }
+    
+    /**
+     * Constructor
+     * @param failureThreshold consecutive gateway failures that open the breaker
+     * @param openMs how long the breaker stays open before a trial call
+     * @param clock time source for the open period
+     */
+    public PaymentCircuitBreaker(int failureThreshold, long openMs, SimulationClock clock) {
+        if (failureThreshold <= 0 || openMs <= 0) {
+            throw new IllegalArgumentException("Breaker threshold and open time must be positive");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+        this.clock = clock;
+        this.state = State.CLOSED;
+        
+        LOG.info("Circuit breaker initialized - Failure threshold: {}, Open period: {}ms", failureThreshold, openMs);
+    }
+    
+    /**
+     * Build from system properties: smartparking.payment.breaker.failureThreshold
+     * and smartparking.payment.breaker.openMs
+     */
+    public static PaymentCircuitBreaker fromSystemProperties(SimulationClock clock) {
+        return new PaymentCircuitBreaker(
+                Integer.getInteger("smartparking.payment.breaker.failureThreshold", DEFAULT_FAILURE_THRESHOLD),
+                Long.getLong("smartparking.payment.breaker.openMs", DEFAULT_OPEN_MS),
+                clock);
+    }
+    
+    /**
+     * Ask to call the gateway
+     * Every allowed call must be followed by recordSuccess(), recordFailure()
+     * or recordCancelled().
+     * @return true if the call may go ahead, false to fail fast
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && clock.nanoTime() - openedAtNanos >= openNanos) {
+            transitionTo(State.HALF_OPEN);
+        }
+        
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (!trialInFlight) {
+                    trialInFlight = true;
+                    return true;
+                }
+                rejectedCalls++;
+                return false;
+            default:
+                rejectedCalls++;
+                return false;
+        }
+    }
+    
+    /**
+     * The gateway answered
+     */
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+            transitionTo(State.CLOSED);
+        }
+    }
+    
+    /**
+     * The gateway was unavailable
+     */
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+            transitionTo(State.OPEN);
+        } else if (state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+            transitionTo(State.OPEN);
+        }
+    }
+    
+    /**
+     * An allowed call ended without reaching the gateway (e.g. interrupted)
+     */
+    public synchronized void recordCancelled() {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+        }
+    }
+    
+    private void transitionTo(State next) {
+        long now = clock.nanoTime();
+        if (state == State.OPEN) {
+            totalOpenNanos += now - openedAtNanos;
+        }
+        
+        switch (next) {
+            case OPEN:
+                timesOpened++;
+                openedAtNanos = now;
+                LOG.warn("Circuit OPEN after {} consecutive gateway failures - failing fast for {}ms",
+                        consecutiveFailures, TimeUnit.NANOSECONDS.toMillis(openNanos));
+                break;
+            case HALF_OPEN:
+                timesHalfOpened++;
+                LOG.info("Circuit HALF_OPEN - allowing a trial payment");
+                break;
+            default:
+                timesClosed++;
+                LOG.info("Circuit CLOSED - payment gateway recovered");
+                break;
+        }
+        state = next;
+    }
+    
+    /**
+     * Get the current state (an expired open period shows as OPEN until the next call)
+     */
+    public synchronized State getState() {
+        return state;
+    }
+    
+    /**
+     * Get time left before an open breaker lets a trial call through
+     * @return milliseconds, 0 if the breaker is not open
+     */
+    public synchronized long getRemainingOpenMillis() {
+        if (state != State.OPEN) {
+            return 0;
+        }
+        long remaining = openNanos - (clock.nanoTime() - openedAtNanos);
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(remaining));
+    }
+    
+    /**
+     * Get state transition metrics
+     */
+    public synchronized BreakerStats getStats() {
+        long openNow = state == State.OPEN ? clock.nanoTime() - openedAtNanos : 0;
+        return new BreakerStats(state, timesOpened, timesHalfOpened, timesClosed, rejectedCalls,
+                TimeUnit.NANOSECONDS.toMillis(totalOpenNanos + openNow));
+    }
+    
+    /**
+     * Inner class for breaker statistics
+     */
+    public static class BreakerStats {
+        private final State state;
+        private final long timesOpened;
+        private final long timesHalfOpened;
+        private final long timesClosed;
+        private final long rejectedCalls;
+        private final long totalOpenMs;
+        
+        public BreakerStats(State state, long opened, long halfOpened, long closed, long rejected, long openMs) {
+            this.state = state;
+            this.timesOpened = opened;
+            this.timesHalfOpened = halfOpened;
+            this.timesClosed = closed;
+            this.rejectedCalls = rejected;
+            this.totalOpenMs = openMs;
+        }
+        
+        // Getters
+        public State getState() { return state; }
+        public long getTimesOpened() { return timesOpened; }
+        public long getTimesHalfOpened() { return timesHalfOpened; }
+        public long getTimesClosed() { return timesClosed; }
+        public long getRejectedCalls() { return rejectedCalls; }
+        public long getTotalOpenMs() { return totalOpenMs; }
+        
+        @Override
+        public String toString() {
+            return String.format("Circuit Breaker - State: %s, Opened: %d, Half-opened: %d, Closed: %d, Fast-failed: %d, Time open: %dms",
+                    state, timesOpened, timesHalfOpened, timesClosed, rejectedCalls, totalOpenMs);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+/**
+ * PaymentListener - Callback for fees collected by the PaymentProcessor
+ * Invoked on the payment thread right after a payment is booked, so
+ * implementations must be fast and must not block
+ */
+public interface PaymentListener {
+    
+    /**
+     * Called after a fee has been collected
+     * @param car the paying car (paid flag and amount already set)
+     * @param amountInCents amount collected
+     */
+    void onPaymentSettled(Car car, long amountInCents);
+}
@@ -9,23 +9,31 @@ package smartparkingsystem;
  * @author amiryusof
  */
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * PaymentProcessor - Handles payment processing for parking fees
- * Manages concurrent payment operations with error handling and statistics
+ * Manages concurrent payment operations with error handling and statistics.
+ * Gateway calls go through a circuit breaker: while the gateway is down,
+ * payments fail fast and the car gets a pay-later token, so it can leave
+ * and the fee is settled in the background once the gateway recovers.
+ * Paid exits are grouped into micro-batches (see SettlementBatcher) so one
+ * gateway round-trip settles several cars.
  */
 public class PaymentProcessor {
     
     // Constants
-    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+    private static final EventLog.Component LOG = EventLog.component("PAYMENT");
     private static final int MAX_CONCURRENT_PAYMENTS = 5;
+    private static final long MIN_SETTLEMENT_RETRY_MS = 1000;
+    private static final long BATCH_RESULT_TIMEOUT_SECONDS = 60;         // Longest an exit waits on its batch
+    private static final long STATUS_CHECK_MS = 5000;                     // Malfunction draw interval
+    private static final double DEFAULT_PAYMENT_FAILURE_RATE = 0.05;      // 5% payment failure
+    private static final double DEFAULT_SYSTEM_MALFUNCTION_RATE = 0.02;   // 2% system malfunction
     
     // Concurrency controls
     private final Semaphore paymentSemaphore;
@@ -47,11 +55,55 @@ public class PaymentProcessor {
     private final double paymentFailureRate;
     private final double systemMalfunctionRate;
     
+    // Time source for simulated gateway latency
+    private final SimulationClock clock;
+    
+    // Virtual-time gateway status (event-loop processors, which run no monitor thread)
+    private final boolean eventLoop;
+    private long nextStatusCheckNanos;
+    private long statusRecoveryNanos;
+    
+    // Gateway outage handling
+    private final PaymentCircuitBreaker circuitBreaker;
+    private final boolean payLaterEnabled;
+    private final ConcurrentHashMap<String, DeferredPayment> deferredPayments;  // By car ID, until settled
+    private final ScheduledExecutorService settlementScheduler;
+    private final AtomicInteger tokenSequence;
+    private final AtomicInteger paymentsDeferred;
+    private final AtomicInteger deferredSettled;
+    private final AtomicInteger deferredFailed;
+    
+    // Batched settlement (null: one gateway call per car)
+    private final SettlementBatcher settlementBatcher;
+    
+    // Notified of every collected fee
+    private final List<PaymentListener> listeners = new CopyOnWriteArrayList<PaymentListener>();
+    
     /**
      * Constructor with default settings
      */
     public PaymentProcessor() {
-        this(0.05, 0.02); // 5% payment failure, 2% system malfunction
+        this(SystemClock.INSTANCE);
+    }
+    
+    /**
+     * Constructor with configured error rates and a specific time source
+     * @param clock clock whose sleep() provides the simulated gateway latency
+     */
+    public PaymentProcessor(SimulationClock clock) {
+        this(configuredRate("smartparking.payment.failureRate", DEFAULT_PAYMENT_FAILURE_RATE),
+                configuredRate("smartparking.payment.malfunctionRate", DEFAULT_SYSTEM_MALFUNCTION_RATE), clock);
+    }
+    
+    /**
+     * Error rate from a system property, checked to be a probability
+     */
+    static double configuredRate(String property, double defaultRate) {
+        double rate = Double.parseDouble(System.getProperty(property, String.valueOf(defaultRate)));
+        if (!(rate >= 0.0 && rate <= 1.0)) {
+            throw new IllegalArgumentException(property + " must be between 0.0 and 1.0: " + rate);
+        }
+        return rate;
     }
     
     /**
@@ -60,14 +112,82 @@ public class PaymentProcessor {
      * @param systemMalfunctionRate probability of system malfunction (0.0-1.0)
      */
     public PaymentProcessor(double paymentFailureRate, double systemMalfunctionRate) {
+        this(paymentFailureRate, systemMalfunctionRate, SystemClock.INSTANCE);
+    }
+    
+    /**
+     * Constructor with custom error rates and time source
+     * @param clock clock whose sleep() provides the simulated gateway latency
+     */
+    public PaymentProcessor(double paymentFailureRate, double systemMalfunctionRate, SimulationClock clock) {
+        this(paymentFailureRate, systemMalfunctionRate, clock, PaymentCircuitBreaker.fromSystemProperties(clock),
+                Boolean.parseBoolean(System.getProperty("smartparking.payment.payLater", "true")));
+    }
+    
+    /**
+     * Constructor with explicit outage handling
+     * @param circuitBreaker breaker guarding gateway calls
+     * @param payLaterEnabled true to let cars leave on a pay-later token while
+     *        the gateway is down, false to fail those payments
+     */
+    public PaymentProcessor(double paymentFailureRate, double systemMalfunctionRate, SimulationClock clock,
+                            PaymentCircuitBreaker circuitBreaker, boolean payLaterEnabled) {
+        this(paymentFailureRate, systemMalfunctionRate, clock, circuitBreaker, payLaterEnabled,
+                SettlementBatcher.configuredBatchSize(), SettlementBatcher.configuredLingerMs());
+    }
+    
+    /**
+     * Constructor with explicit outage handling and settlement batching
+     * @param batchSize most cars settled per gateway call (1 for a call per car)
+     * @param batchLingerMs longest a payment waits for its batch to fill
+     */
+    public PaymentProcessor(double paymentFailureRate, double systemMalfunctionRate, SimulationClock clock,
+                            PaymentCircuitBreaker circuitBreaker, boolean payLaterEnabled,
+                            int batchSize, long batchLingerMs) {
+        this(paymentFailureRate, systemMalfunctionRate, clock, circuitBreaker, payLaterEnabled,
+                batchSize, batchLingerMs, false);
+    }
+    
+    /**
+     * Processor for the discrete-event engine
+     * Configured rates and breaker on the given clock, but no background threads:
+     * pay-later settlement and micro-batches need real threads, so both are off,
+     * and gateway malfunctions are drawn in virtual time instead of by the monitor
+     * @param clock the event loop's virtual clock
+     */
+    static PaymentProcessor forEventLoop(SimulationClock clock) {
+        return new PaymentProcessor(configuredRate("smartparking.payment.failureRate", DEFAULT_PAYMENT_FAILURE_RATE),
+                configuredRate("smartparking.payment.malfunctionRate", DEFAULT_SYSTEM_MALFUNCTION_RATE), clock,
+                PaymentCircuitBreaker.fromSystemProperties(clock), false, 1, 0, true);
+    }
+    
+    private PaymentProcessor(double paymentFailureRate, double systemMalfunctionRate, SimulationClock clock,
+                             PaymentCircuitBreaker circuitBreaker, boolean payLaterEnabled,
+                             int batchSize, long batchLingerMs, boolean eventLoop) {
+        this.clock = clock;
+        this.eventLoop = eventLoop;
+        this.circuitBreaker = circuitBreaker;
+        this.payLaterEnabled = payLaterEnabled;
+        
         // Initialize concurrency controls
         this.paymentSemaphore = new Semaphore(MAX_CONCURRENT_PAYMENTS, true);
         this.statisticsLock = new ReentrantLock();
-        this.paymentExecutor = Executors.newCachedThreadPool(r -> {
-            Thread t = new Thread(r, "PaymentProcessor-" + System.currentTimeMillis());
-            t.setDaemon(true);
-            return t;
+        this.paymentExecutor = GateThreads.newTaskPool("PaymentProcessor-");
+        
+        // Deferred settlement
+        this.deferredPayments = new ConcurrentHashMap<>();
+        this.settlementScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "DeferredSettlement");
+                t.setDaemon(true);
+                return t;
+            }
         });
+        this.tokenSequence = new AtomicInteger(0);
+        this.paymentsDeferred = new AtomicInteger(0);
+        this.deferredSettled = new AtomicInteger(0);
+        this.deferredFailed = new AtomicInteger(0);
         
         // Initialize statistics
         this.totalPaymentsProcessed = new AtomicInteger(0);
@@ -79,17 +199,25 @@ public class PaymentProcessor {
         // System state
         this.isOperating = true;
         this.systemStatus = PaymentSystemStatus.OPERATIONAL;
+        this.nextStatusCheckNanos = clock.nanoTime() + TimeUnit.MILLISECONDS.toNanos(STATUS_CHECK_MS);
         
         // Error rates
         this.paymentFailureRate = Math.max(0.0, Math.min(1.0, paymentFailureRate));
         this.systemMalfunctionRate = Math.max(0.0, Math.min(1.0, systemMalfunctionRate));
         
-        logEvent("PaymentProcessor initialized - Max concurrent: " + MAX_CONCURRENT_PAYMENTS +
-                ", Failure rate: " + String.format("%.1f%%", this.paymentFailureRate * 100) +
-                ", Malfunction rate: " + String.format("%.1f%%", this.systemMalfunctionRate * 100));
+        LOG.info("PaymentProcessor initialized - Max concurrent: {}, Failure rate: {.1}%, Malfunction rate: {.1}%",
+                MAX_CONCURRENT_PAYMENTS, this.paymentFailureRate * 100, this.systemMalfunctionRate * 100);
+        
+        // Batched settlement (no point lingering when gateway calls take no time)
+        boolean zeroLatency = clock instanceof SystemClock && ((SystemClock) clock).isZeroLatency();
+        this.settlementBatcher = batchSize > 1
+                ? new SettlementBatcher(batchSize, zeroLatency ? 0 : batchLingerMs, this::settleBatch, paymentExecutor)
+                : null;
         
         // Start system status monitor
-        startSystemMonitor();
+        if (!eventLoop) {
+            startSystemMonitor();
+        }
     }
     
     /**
@@ -99,7 +227,7 @@ public class PaymentProcessor {
      */
     public boolean processPayment(Car car) {
         if (!isOperating) {
-            logEvent("Payment system not operational - rejecting payment for " + car.getCarId());
+            LOG.info("Payment system not operational - rejecting payment for {}", car.getCarId());
             return false;
         }
         
@@ -107,22 +235,47 @@ public class PaymentProcessor {
         long startTime = System.currentTimeMillis();
         
         try {
+            // Free stays never reach the gateway
+            if (car.calculatePaymentAmount() <= 0) {
+                totalPaymentsProcessed.incrementAndGet();
+                return settlePayment(car, threadName);
+            }
+            
+            // Wait for this car's batch; the batch takes the permit
+            if (settlementBatcher != null) {
+                LOG.info("{} - Queueing payment for {} into next settlement batch", threadName, car.getCarId());
+                return awaitBatchedPayment(settlementBatcher.submit(car), car, threadName);
+            }
+            
+            // Fail fast while the gateway is known to be down
+            if (!circuitBreaker.allowRequest()) {
+                totalPaymentsProcessed.incrementAndGet();
+                LOG.info("{} - Payment circuit {} - not calling gateway for {}",
+                        threadName, circuitBreaker.getState(), car.getCarId());
+                return deferOrFail(car, threadName);
+            }
+            
             // Acquire payment processing permit
-            logEvent(threadName + " - Requesting payment processing for " + car.getCarId());
-            paymentSemaphore.acquire();
+            LOG.info("{} - Requesting payment processing for {}", threadName, car.getCarId());
+            try {
+                paymentSemaphore.acquire();
+            } catch (InterruptedException e) {
+                circuitBreaker.recordCancelled();
+                throw e;
+            }
             
             try {
                 return processPaymentInternal(car, threadName);
-                
+            
             } finally {
                 paymentSemaphore.release();
             }
-            
+        
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            logEvent(threadName + " - Payment processing interrupted for " + car.getCarId());
+            LOG.info("{} - Payment processing interrupted for {}", threadName, car.getCarId());
             return false;
-            
+        
         } finally {
             long processingTime = System.currentTimeMillis() - startTime;
             totalProcessingTime.addAndGet(processingTime);
@@ -135,41 +288,245 @@ public class PaymentProcessor {
     private boolean processPaymentInternal(Car car, String threadName) throws InterruptedException {
         int paymentNumber = totalPaymentsProcessed.incrementAndGet();
         
-        logEvent(threadName + " - Processing payment #" + paymentNumber + " for " + car.getCarId() +
-                " [" + car.getLicensePlate() + "]");
+        LOG.info("{} - Processing payment #{} for {} [{}]",
+                threadName, paymentNumber, car.getCarId(), car.getLicensePlate());
         
-        // Check system status
+        // Gateway down: count it against the breaker and let the car pay later
         if (systemStatus != PaymentSystemStatus.OPERATIONAL) {
-            logEvent(threadName + " - Payment system " + systemStatus + " - retrying...");
+            circuitBreaker.recordFailure();
+            LOG.info("{} - Payment system {} - gateway unavailable for {}", threadName, systemStatus, car.getCarId());
+            return deferOrFail(car, threadName);
+        }
+        
+        // Simulate payment processing time
+        try {
+            simulatePaymentProcessing();
+        } catch (InterruptedException e) {
+            circuitBreaker.recordCancelled();
+            throw e;
+        }
+        circuitBreaker.recordSuccess();
+        
+        return settlePayment(car, threadName);
+    }
+    
+    /**
+     * Block until a batched payment has been settled (or give up on it)
+     */
+    private boolean awaitBatchedPayment(CompletableFuture<Boolean> result, Car car, String threadName)
+            throws InterruptedException {
+        try {
+            return result.get(BATCH_RESULT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            LOG.error("{} - Batched payment failed for {} - {}", threadName, car.getCarId(), e.getCause().getMessage());
+            return false;
+        } catch (TimeoutException e) {
+            result.complete(false);                 // A late batch result no longer counts
+            LOG.error("{} - Batched payment for {} not settled within {}s", threadName, car.getCarId(),
+                    BATCH_RESULT_TIMEOUT_SECONDS);
+            return false;
+        }
+    }
+    
+    /**
+     * Settle a micro-batch with one gateway call (SettlementBatcher's gateway)
+     * The breaker and the permit are taken once for the whole batch; the
+     * per-car authorization outcome is still decided car by car.
+     * @return per-car payment results, in batch order
+     */
+    private boolean[] settleBatch(List<Car> cars) throws InterruptedException {
+        String threadName = Thread.currentThread().getName();
+        boolean[] results = new boolean[cars.size()];
+        totalPaymentsProcessed.addAndGet(cars.size());
+        
+        // Fail fast while the gateway is known to be down
+        if (!circuitBreaker.allowRequest()) {
+            LOG.info("{} - Payment circuit {} - not calling gateway for batch of {}",
+                    threadName, circuitBreaker.getState(), cars.size());
+            deferOrFailAll(cars, results, threadName);
+            return results;
+        }
+        
+        try {
+            paymentSemaphore.acquire();
+        } catch (InterruptedException e) {
+            circuitBreaker.recordCancelled();
+            throw e;
+        }
+        
+        try {
+            if (systemStatus != PaymentSystemStatus.OPERATIONAL) {
+                circuitBreaker.recordFailure();
+                LOG.info("{} - Payment system {} - gateway unavailable for batch of {}", threadName, systemStatus, cars.size());
+                deferOrFailAll(cars, results, threadName);
+                return results;
+            }
             
-            // Wait for system to recover
-            if (!waitForSystemRecovery()) {
-                logEvent(threadName + " - Payment failed for " + car.getCarId() + " - system unavailable");
-                failedPayments.incrementAndGet();
-                return false;
+            // One round-trip for the whole batch
+            LOG.info("{} - Sending batch of {} payments to gateway", threadName, cars.size());
+            try {
+                simulatePaymentProcessing();
+            } catch (InterruptedException e) {
+                circuitBreaker.recordCancelled();
+                throw e;
             }
+            circuitBreaker.recordSuccess();
+            
+            for (int i = 0; i < cars.size(); i++) {
+                results[i] = settlePayment(cars.get(i), threadName);
+            }
+            return results;
+        
+        } finally {
+            paymentSemaphore.release();
+        }
+    }
+    
+    private void deferOrFailAll(List<Car> cars, boolean[] results, String threadName) {
+        for (int i = 0; i < cars.size(); i++) {
+            results[i] = deferOrFail(cars.get(i), threadName);
+        }
+    }
+    
+    /**
+     * Payment could not reach the gateway: issue a pay-later token, or fail it
+     * @return true if the car may leave on a pay-later token
+     */
+    private boolean deferOrFail(Car car, String threadName) {
+        if (!payLaterEnabled) {
+            LOG.info("{} - Payment failed for {} - gateway unavailable", threadName, car.getCarId());
+            failedPayments.incrementAndGet();
+            return false;
+        }
+        
+        DeferredPayment token = new DeferredPayment(
+                String.format("PL-%06d", tokenSequence.incrementAndGet()), car, clock.nanoTime());
+        deferredPayments.put(car.getCarId(), token);
+        paymentsDeferred.incrementAndGet();
+        LOG.info("{} - Pay-later token {} issued to {} - settling after gateway recovery",
+                threadName, token.getTokenId(), car.getCarId());
+        
+        scheduleSettlement(token);
+        return true;
+    }
+    
+    /**
+     * Try a deferred payment again once the breaker would let a call through
+     */
+    private void scheduleSettlement(DeferredPayment token) {
+        long delayMs = Math.max(MIN_SETTLEMENT_RETRY_MS, circuitBreaker.getRemainingOpenMillis());
+        try {
+            settlementScheduler.schedule(() -> {
+                try {
+                    paymentExecutor.execute(() -> attemptSettlement(token));
+                } catch (RejectedExecutionException e) {
+                    abandonSettlement(token);
+                }
+            }, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            abandonSettlement(token);
+        }
+    }
+    
+    /**
+     * One background attempt to settle a pay-later token through the gateway
+     */
+    private void attemptSettlement(DeferredPayment token) {
+        if (!isOperating) {
+            abandonSettlement(token);
+            return;
         }
         
+        token.attempts.incrementAndGet();
+        if (!circuitBreaker.allowRequest()) {
+            scheduleSettlement(token);
+            return;
+        }
+        
+        try {
+            paymentSemaphore.acquire();
+        } catch (InterruptedException e) {
+            circuitBreaker.recordCancelled();
+            Thread.currentThread().interrupt();
+            abandonSettlement(token);
+            return;
+        }
+        
+        try {
+            if (systemStatus != PaymentSystemStatus.OPERATIONAL) {
+                circuitBreaker.recordFailure();
+                scheduleSettlement(token);
+                return;
+            }
+            
+            simulatePaymentProcessing();
+            circuitBreaker.recordSuccess();
+            
+            boolean settled = settlePayment(token.getCar(), "DeferredSettlement");
+            deferredPayments.remove(token.getCar().getCarId());
+            if (settled) {
+                deferredSettled.incrementAndGet();
+            } else {
+                deferredFailed.incrementAndGet();
+            }
+            LOG.info("DeferredSettlement - Token {} for {} {} after {} attempts",
+                    token.getTokenId(), token.getCar().getCarId(), settled ? "settled" : "declined", token.attempts.get());
+            token.settlement.complete(settled);
+        
+        } catch (InterruptedException e) {
+            circuitBreaker.recordCancelled();
+            Thread.currentThread().interrupt();
+            abandonSettlement(token);
+        
+        } finally {
+            paymentSemaphore.release();
+        }
+    }
+    
+    /**
+     * Give up on a token (processor shutting down)
+     */
+    private void abandonSettlement(DeferredPayment token) {
+        if (deferredPayments.remove(token.getCar().getCarId(), token)) {
+            deferredFailed.incrementAndGet();
+            token.settlement.complete(false);
+        }
+    }
+    
+    /**
+     * Get the pending settlement of a car that left on a pay-later token
+     * @return future completing with true once the fee is collected (false if
+     *         declined or abandoned at shutdown), or null if the car has no
+     *         outstanding token
+     */
+    public CompletableFuture<Boolean> getDeferredSettlement(Car car) {
+        DeferredPayment token = deferredPayments.get(car.getCarId());
+        return token != null ? token.settlement : null;
+    }
+    
+    /**
+     * Decide and book the outcome of one payment without simulating latency
+     * Shared by the threaded path and the discrete-event engine
+     * @param car the car to settle
+     * @param threadName caller name for logging
+     * @return true if payment successful (or nothing was due)
+     */
+    boolean settlePayment(Car car, String threadName) {
         // Calculate payment amount
         double amount = car.calculatePaymentAmount();
         if (amount <= 0) {
-            logEvent(threadName + " - No payment required for " + car.getCarId());
+            LOG.info("{} - No payment required for {}", threadName, car.getCarId());
             car.setPaid(true);
             car.setPaymentAmount(0.0);
             successfulPayments.incrementAndGet();
             return true;
         }
         
-        logEvent(threadName + " - Payment amount: $" + String.format("%.2f", amount) + 
-                " for " + car.getCarId());
-        
-        // Simulate payment processing time
-        simulatePaymentProcessing();
+        LOG.info("{} - Payment amount: ${.2} for {}", threadName, amount, car.getCarId());
         
         // Simulate payment failures
         if (simulatePaymentFailure()) {
-            logEvent(threadName + " - Payment FAILED for " + car.getCarId() + 
-                    " - amount: $" + String.format("%.2f", amount));
+            LOG.info("{} - Payment FAILED for {} - amount: ${.2}", threadName, car.getCarId(), amount);
             failedPayments.incrementAndGet();
             return false;
         }
@@ -182,25 +539,110 @@ public class PaymentProcessor {
         long amountInCents = Math.round(amount * 100);
         totalRevenue.addAndGet(amountInCents);
         successfulPayments.incrementAndGet();
+        for (PaymentListener listener : listeners) {
+            listener.onPaymentSettled(car, amountInCents);
+        }
         
-        logEvent(threadName + " - Payment SUCCESSFUL for " + car.getCarId() + 
-                " - amount: $" + String.format("%.2f", amount));
+        LOG.info("{} - Payment SUCCESSFUL for {} - amount: ${.2}", threadName, car.getCarId(), amount);
         
         return true;
     }
     
+    /**
+     * Settle a payment handled by the discrete-event engine
+     * Counts the payment and its virtual latency like processPayment() does, and
+     * goes through the breaker and the gateway status at the moment it completes
+     * @param car the car to settle
+     * @param latencyMs virtual gateway latency already accounted for by the caller
+     * @return true if payment successful
+     */
+    boolean settleSimulatedPayment(Car car, long latencyMs) {
+        String threadName = "EventLoop";
+        totalPaymentsProcessed.incrementAndGet();
+        totalProcessingTime.addAndGet(latencyMs);
+        if (car.calculatePaymentAmount() <= 0) {
+            return settlePayment(car, threadName);
+        }
+        
+        if (eventLoop) {
+            advanceSimulatedStatus();
+        }
+        if (!circuitBreaker.allowRequest()) {
+            LOG.info("{} - Payment circuit {} - not calling gateway for {}",
+                    threadName, circuitBreaker.getState(), car.getCarId());
+            return deferOrFail(car, threadName);
+        }
+        if (systemStatus != PaymentSystemStatus.OPERATIONAL) {
+            circuitBreaker.recordFailure();
+            LOG.info("{} - Payment system {} - gateway unavailable for {}", threadName, systemStatus, car.getCarId());
+            return deferOrFail(car, threadName);
+        }
+        circuitBreaker.recordSuccess();
+        
+        return settlePayment(car, threadName);
+    }
+    
+    /**
+     * Replay the status monitor and its recovery up to the current virtual time
+     * Same draws as the monitor thread, taken lazily whenever a payment needs
+     * the gateway status
+     */
+    private void advanceSimulatedStatus() {
+        long now = clock.nanoTime();
+        while (nextStatusCheckNanos <= now) {
+            settleSimulatedRecovery(nextStatusCheckNanos);
+            if (systemStatus == PaymentSystemStatus.OPERATIONAL && simulateSystemMalfunction()) {
+                systemStatus = PaymentSystemStatus.MALFUNCTION;
+                statusRecoveryNanos = nextStatusCheckNanos + TimeUnit.MILLISECONDS.toNanos(sampleRecoveryTime());
+                LOG.info("SYSTEM MALFUNCTION: Payment system experiencing technical difficulties");
+            }
+            nextStatusCheckNanos += TimeUnit.MILLISECONDS.toNanos(STATUS_CHECK_MS);
+        }
+        settleSimulatedRecovery(now);
+    }
+    
+    /**
+     * Apply every simulated recovery due by the given virtual time
+     */
+    private void settleSimulatedRecovery(long nanos) {
+        while (systemStatus != PaymentSystemStatus.OPERATIONAL && statusRecoveryNanos <= nanos) {
+            if (systemStatus == PaymentSystemStatus.MALFUNCTION && !sampleRecoverySuccess()) {
+                systemStatus = PaymentSystemStatus.MAINTENANCE;
+                statusRecoveryNanos += TimeUnit.MILLISECONDS.toNanos(sampleMaintenanceTime());
+                LOG.info("SYSTEM MAINTENANCE: Manual intervention required");
+            } else {
+                systemStatus = PaymentSystemStatus.OPERATIONAL;
+                LOG.info("SYSTEM RECOVERY: Payment system restored to operational status");
+            }
+        }
+    }
+    
     /**
      * Process payment asynchronously
      * @param car the car to process payment for
-     * @return Future representing the payment result
+     * @return future completing with the payment result on a payment thread
      */
-    public Future<Boolean> processPaymentAsync(Car car) {
+    public CompletableFuture<Boolean> processPaymentAsync(Car car) {
         if (!isOperating) {
-            logEvent("Payment system not operational - rejecting async payment for " + car.getCarId());
+            LOG.info("Payment system not operational - rejecting async payment for {}", car.getCarId());
             return CompletableFuture.completedFuture(false);
         }
         
-        return paymentExecutor.submit(() -> processPayment(car));
+        // Batched: no thread waits, the batch completes the future
+        if (settlementBatcher != null && car.calculatePaymentAmount() > 0) {
+            long startTime = System.currentTimeMillis();
+            return settlementBatcher.submit(car)
+                    .completeOnTimeout(false, BATCH_RESULT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .whenComplete((paid, failure) ->
+                            totalProcessingTime.addAndGet(System.currentTimeMillis() - startTime));
+        }
+        
+        try {
+            return CompletableFuture.supplyAsync(() -> processPayment(car), paymentExecutor);
+        } catch (RejectedExecutionException e) {
+            LOG.info("Payment executor shut down - rejecting async payment for {}", car.getCarId());
+            return CompletableFuture.completedFuture(false);
+        }
     }
     
     /**
@@ -213,37 +655,41 @@ public class PaymentProcessor {
         // - Receipt generation
         // - System updates
         
-        int processingTime = ThreadLocalRandom.current().nextInt(500, 3000); // 0.5-3 seconds
-        Thread.sleep(processingTime);
+        clock.sleep(samplePaymentLatency());
+    }
+    
+    /**
+     * Draw one payment gateway latency
+     * @return latency in milliseconds
+     */
+    public int samplePaymentLatency() {
+        return clock.random().nextInt(500, 3000); // 0.5-3 seconds
     }
     
     /**
      * Simulate payment failure scenarios
      */
     private boolean simulatePaymentFailure() {
-        return ThreadLocalRandom.current().nextDouble() < paymentFailureRate;
+        return clock.random().nextDouble() < paymentFailureRate;
     }
     
     /**
      * Simulate system malfunction
      */
     private boolean simulateSystemMalfunction() {
-        return ThreadLocalRandom.current().nextDouble() < systemMalfunctionRate;
+        return clock.random().nextDouble() < systemMalfunctionRate;
     }
     
-    /**
-     * Wait for system to recover from malfunction
-     */
-    private boolean waitForSystemRecovery() throws InterruptedException {
-        long maxWaitTime = 10000; // 10 seconds max wait
-        long startTime = System.currentTimeMillis();
-        
-        while (systemStatus != PaymentSystemStatus.OPERATIONAL && 
-               (System.currentTimeMillis() - startTime) < maxWaitTime) {
-            Thread.sleep(1000); // Check every second
-        }
-        
-        return systemStatus == PaymentSystemStatus.OPERATIONAL;
+    private int sampleRecoveryTime() {
+        return clock.random().nextInt(3000, 15000); // 3-15 seconds
+    }
+    
+    private boolean sampleRecoverySuccess() {
+        return clock.random().nextDouble() < 0.9; // 90% recovery success
+    }
+    
+    private int sampleMaintenanceTime() {
+        return clock.random().nextInt(5000, 20000); // 5-20 seconds
     }
     
     /**
@@ -253,13 +699,13 @@ public class PaymentProcessor {
         Thread monitorThread = new Thread(() -> {
             while (isOperating) {
                 try {
-                    Thread.sleep(5000); // Check every 5 seconds
+                    Thread.sleep(STATUS_CHECK_MS); // Check every 5 seconds
                     
                     // Simulate system malfunctions
                     if (systemStatus == PaymentSystemStatus.OPERATIONAL && simulateSystemMalfunction()) {
                         triggerSystemMalfunction();
                     }
-                    
+                
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                     break;
@@ -276,28 +722,27 @@ public class PaymentProcessor {
      */
     private void triggerSystemMalfunction() {
         systemStatus = PaymentSystemStatus.MALFUNCTION;
-        logEvent("SYSTEM MALFUNCTION: Payment system experiencing technical difficulties");
+        LOG.info("SYSTEM MALFUNCTION: Payment system experiencing technical difficulties");
         
         // Simulate recovery time
         Thread recoveryThread = new Thread(() -> {
             try {
-                int recoveryTime = ThreadLocalRandom.current().nextInt(3000, 15000); // 3-15 seconds
-                Thread.sleep(recoveryTime);
+                Thread.sleep(sampleRecoveryTime());
                 
                 // Simulate recovery success/failure
-                if (ThreadLocalRandom.current().nextDouble() < 0.9) { // 90% recovery success
+                if (sampleRecoverySuccess()) {
                     systemStatus = PaymentSystemStatus.OPERATIONAL;
-                    logEvent("SYSTEM RECOVERY: Payment system restored to operational status");
+                    LOG.info("SYSTEM RECOVERY: Payment system restored to operational status");
                 } else {
                     systemStatus = PaymentSystemStatus.MAINTENANCE;
-                    logEvent("SYSTEM MAINTENANCE: Manual intervention required");
+                    LOG.info("SYSTEM MAINTENANCE: Manual intervention required");
                     
                     // Additional recovery time for maintenance
-                    Thread.sleep(ThreadLocalRandom.current().nextInt(5000, 20000));
+                    Thread.sleep(sampleMaintenanceTime());
                     systemStatus = PaymentSystemStatus.OPERATIONAL;
-                    logEvent("MAINTENANCE COMPLETE: Payment system operational");
+                    LOG.info("MAINTENANCE COMPLETE: Payment system operational");
                 }
-                
+            
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
@@ -325,6 +770,10 @@ public class PaymentProcessor {
                     avgProcessingTime,
                     paymentSemaphore.availablePermits(),
                     systemStatus,
+                    circuitBreaker.getState(),
+                    paymentsDeferred.get(),
+                    deferredSettled.get(),
+                    deferredPayments.size(),
                     isOperating
             );
         } finally {
@@ -334,16 +783,34 @@ public class PaymentProcessor {
     
     /**
      * Shutdown payment processor
+     * @return true if every in-flight payment finished in time
      */
-    public void shutdown() {
-        logEvent("Shutting down payment processor");
+    public boolean shutdown() {
+        LOG.info("Shutting down payment processor");
         isOperating = false;
         
+        // Payments still waiting for a batch are not sent
+        if (settlementBatcher != null) {
+            settlementBatcher.shutdown();
+        }
+        
+        // Tokens still waiting for the gateway are not settled
+        settlementScheduler.shutdownNow();
+        int unsettled = deferredPayments.size();
+        for (DeferredPayment token : deferredPayments.values()) {
+            abandonSettlement(token);
+        }
+        if (unsettled > 0) {
+            LOG.warn("WARNING: {} pay-later tokens left unsettled at shutdown", unsettled);
+        }
+        
+        boolean terminated = false;
         paymentExecutor.shutdown();
         try {
-            if (!paymentExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+            terminated = paymentExecutor.awaitTermination(10, TimeUnit.SECONDS);
+            if (!terminated) {
                 paymentExecutor.shutdownNow();
-                logEvent("Payment processor forced shutdown");
+                LOG.warn("Payment processor forced shutdown");
             }
         } catch (InterruptedException e) {
             paymentExecutor.shutdownNow();
@@ -352,7 +819,12 @@ public class PaymentProcessor {
         
         // Final statistics
         PaymentStats finalStats = getStats();
-        logEvent("FINAL PAYMENT STATISTICS: " + finalStats.toString());
+        LOG.info("FINAL PAYMENT STATISTICS: {}", finalStats.toString());
+        LOG.info("FINAL {}", circuitBreaker.getStats().toString());
+        if (settlementBatcher != null) {
+            LOG.info("FINAL {}", settlementBatcher.getStats().toString());
+        }
+        return terminated;
     }
     
     /**
@@ -362,6 +834,42 @@ public class PaymentProcessor {
         return isOperating;
     }
     
+    /**
+     * Register a listener notified of every collected fee
+     */
+    public void addPaymentListener(PaymentListener listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * Unregister a previously added listener
+     */
+    public void removePaymentListener(PaymentListener listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Add revenue collected before a restart (rebuilt from the occupancy journal)
+     */
+    void restoreRevenue(long amountInCents) {
+        totalRevenue.addAndGet(amountInCents);
+    }
+    
+    /**
+     * Get settlement batching statistics
+     * @return batch stats, or null if every payment gets its own gateway call
+     */
+    public SettlementBatcher.BatchStats getBatchStats() {
+        return settlementBatcher != null ? settlementBatcher.getStats() : null;
+    }
+    
+    /**
+     * Get the breaker guarding gateway calls
+     */
+    public PaymentCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+    
     /**
      * Get current system status
      */
@@ -370,11 +878,26 @@ public class PaymentProcessor {
     }
     
     /**
-     * Utility method for consistent logging
+     * Inner class for a pay-later token: the car has left, the fee is still owed
      */
-    private void logEvent(String message) {
-        System.out.println("[" + LocalDateTime.now().format(TIME_FORMAT) + 
-                          "] [PAYMENT] " + message);
+    public static class DeferredPayment {
+        private final String tokenId;
+        private final Car car;
+        private final long issuedNanos;
+        private final AtomicInteger attempts = new AtomicInteger(0);
+        private final CompletableFuture<Boolean> settlement = new CompletableFuture<>();
+        
+        DeferredPayment(String tokenId, Car car, long issuedNanos) {
+            this.tokenId = tokenId;
+            this.car = car;
+            this.issuedNanos = issuedNanos;
+        }
+        
+        // Getters
+        public String getTokenId() { return tokenId; }
+        public Car getCar() { return car; }
+        public long getIssuedNanos() { return issuedNanos; }
+        public int getAttempts() { return attempts.get(); }
     }
     
     /**
@@ -409,10 +932,21 @@ public class PaymentProcessor {
         private final long avgProcessingTime;
         private final int availableProcessors;
         private final PaymentSystemStatus systemStatus;
+        private final PaymentCircuitBreaker.State circuitState;
+        private final int paymentsDeferred;
+        private final int deferredSettled;
+        private final int deferredOutstanding;
         private final boolean isOperating;
         
         public PaymentStats(int total, int success, int fail, double revenue, long avgTime,
                           int available, PaymentSystemStatus status, boolean operating) {
+            this(total, success, fail, revenue, avgTime, available, status, PaymentCircuitBreaker.State.CLOSED,
+                    0, 0, 0, operating);
+        }
+        
+        public PaymentStats(int total, int success, int fail, double revenue, long avgTime,
+                          int available, PaymentSystemStatus status, PaymentCircuitBreaker.State circuit,
+                          int deferred, int settled, int outstanding, boolean operating) {
             this.totalProcessed = total;
             this.successful = success;
             this.failed = fail;
@@ -420,6 +954,10 @@ public class PaymentProcessor {
             this.avgProcessingTime = avgTime;
             this.availableProcessors = available;
             this.systemStatus = status;
+            this.circuitState = circuit;
+            this.paymentsDeferred = deferred;
+            this.deferredSettled = settled;
+            this.deferredOutstanding = outstanding;
             this.isOperating = operating;
         }
         
@@ -431,6 +969,10 @@ public class PaymentProcessor {
         public long getAvgProcessingTime() { return avgProcessingTime; }
         public int getAvailableProcessors() { return availableProcessors; }
         public PaymentSystemStatus getSystemStatus() { return systemStatus; }
+        public PaymentCircuitBreaker.State getCircuitState() { return circuitState; }
+        public int getPaymentsDeferred() { return paymentsDeferred; }
+        public int getDeferredSettled() { return deferredSettled; }
+        public int getDeferredOutstanding() { return deferredOutstanding; }
         public boolean isOperating() { return isOperating; }
         
         public double getSuccessRate() {
@@ -439,8 +981,9 @@ public class PaymentProcessor {
         
         @Override
         public String toString() {
-            return String.format("Payment Stats - Total: %d, Success: %d (%.1f%%), Failed: %d, Revenue: $%.2f, Avg Time: %dms, Available: %d, Status: %s, Operating: %s",
-                    totalProcessed, successful, getSuccessRate(), failed, totalRevenue, avgProcessingTime, availableProcessors, systemStatus, isOperating);
+            return String.format("Payment Stats - Total: %d, Success: %d (%.1f%%), Failed: %d, Revenue: $%.2f, Avg Time: %dms, Available: %d, Status: %s, Circuit: %s, Pay-later: %d (settled %d, pending %d), Operating: %s",
+                    totalProcessed, successful, getSuccessRate(), failed, totalRevenue, avgProcessingTime, availableProcessors,
+                    systemStatus, circuitState, paymentsDeferred, deferredSettled, deferredOutstanding, isOperating);
         }
     }
 }
@@ -0,0 +1,96 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.util.Random;
+
+/**
+ * PhasedArrivals - The original three-phase congestion pattern
+ * A fixed number of vehicles: the first 20% arrive quickly (initial rush),
+ * the middle 60% at regular intervals, and the last 20% in three bursts
+ * separated by pauses. Gaps scale with simulation time / vehicles, so the
+ * default 150 vehicles over 5 minutes reproduce the original 1-3s rush,
+ * steady flow and 0.5-2s bursts separated by 10-20s pauses
+ */
+public class PhasedArrivals implements ArrivalSource {
+    
+    // Constants
+    private static final int RUSH_SHARE_DIVISOR = 5;    // Initial and final rush are 1/5 of traffic each
+    private static final int FINAL_RUSH_BURSTS = 3;
+    private static final double NANOS_PER_MS = 1000000.0;
+    
+    // Arrival pattern
+    private final long totalVehicles;
+    private final long initialRushCount;
+    private final long steadyFlowCount;
+    private final long finalBurstSize;
+    private final double meanArrivalGapMs;              // Simulation time / vehicles
+    private final double steadyGapMs;                   // 60% of simulation time / steady vehicles
+    private final int simulationDurationMinutes;
+    
+    /**
+     * Constructor
+     * @param totalVehicles number of vehicles to generate
+     * @param simulationDurationMinutes simulation time the pattern is spread over
+     */
+    public PhasedArrivals(long totalVehicles, int simulationDurationMinutes) {
+        if (totalVehicles <= 0 || totalVehicles == UNBOUNDED) {
+            throw new IllegalArgumentException("Phased arrivals need a positive vehicle count: " + totalVehicles);
+        }
+        this.totalVehicles = totalVehicles;
+        this.initialRushCount = totalVehicles / RUSH_SHARE_DIVISOR;
+        long finalRushCount = totalVehicles / RUSH_SHARE_DIVISOR;
+        this.steadyFlowCount = totalVehicles - initialRushCount - finalRushCount;
+        this.finalBurstSize = Math.max(1, (finalRushCount + FINAL_RUSH_BURSTS - 1) / FINAL_RUSH_BURSTS);
+        this.meanArrivalGapMs = simulationDurationMinutes * 60 * 1000.0 / totalVehicles;
+        this.steadyGapMs = simulationDurationMinutes * 60 * 1000.0 * 60 / 100 / steadyFlowCount;
+        this.simulationDurationMinutes = simulationDurationMinutes;
+    }
+    
+    @Override
+    public long getTotalArrivals() {
+        return totalVehicles;
+    }
+    
+    @Override
+    public long nextGapNanos(long index, Random random) {
+        if (index < initialRushCount) {
+            // Short intervals for congestion
+            return (long) (meanArrivalGapMs * (0.5 + random.nextDouble()) * NANOS_PER_MS);
+        }
+        
+        long steadyIndex = index - initialRushCount;
+        if (steadyIndex < steadyFlowCount) {
+            // Regular intervals with some randomness (60% of time)
+            return (long) (steadyGapMs * (0.5 + random.nextDouble()) * NANOS_PER_MS);
+        }
+        
+        // Very short intervals for rush effect, pausing between bursts
+        long burstIndex = steadyIndex - steadyFlowCount;
+        double gapMs = meanArrivalGapMs * (0.25 + 0.75 * random.nextDouble());
+        boolean endOfBurst = (burstIndex + 1) % finalBurstSize == 0;
+        boolean lastBurst = burstIndex / finalBurstSize >= FINAL_RUSH_BURSTS - 1;
+        if (endOfBurst && !lastBurst) {
+            gapMs += meanArrivalGapMs * (5.0 + 5.0 * random.nextDouble());
+        }
+        return (long) (gapMs * NANOS_PER_MS);
+    }
+    
+    @Override
+    public ParkingDurations getParkingDurations() {
+        return null;
+    }
+    
+    @Override
+    public String describe() {
+        return String.format("phased (%d vehicles over %d min: rush %d, steady %d, %d final bursts)",
+                totalVehicles, simulationDurationMinutes, initialRushCount, steadyFlowCount, FINAL_RUSH_BURSTS);
+    }
+}
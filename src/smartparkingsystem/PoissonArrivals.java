@@ -0,0 +1,69 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.util.Random;
+
+/**
+ * PoissonArrivals - Steady random arrivals at a constant rate
+ * Gaps are exponentially distributed with mean 1 / rate. The stream is
+ * unbounded unless a count is given, so a run is limited by its horizon.
+ */
+public class PoissonArrivals implements ArrivalSource {
+    
+    // Configuration
+    private final double ratePerMinute;
+    private final double meanGapNanos;
+    private final long totalArrivals;
+    
+    /**
+     * Constructor for an unbounded stream
+     * @param ratePerMinute mean arrivals per simulated minute
+     */
+    public PoissonArrivals(double ratePerMinute) {
+        this(ratePerMinute, UNBOUNDED);
+    }
+    
+    /**
+     * Constructor
+     * @param ratePerMinute mean arrivals per simulated minute
+     * @param totalArrivals number of arrivals, or UNBOUNDED
+     */
+    public PoissonArrivals(double ratePerMinute, long totalArrivals) {
+        if (!(ratePerMinute > 0) || totalArrivals <= 0) {
+            throw new IllegalArgumentException("Arrival rate and count must be positive");
+        }
+        this.ratePerMinute = ratePerMinute;
+        this.meanGapNanos = 60e9 / ratePerMinute;
+        this.totalArrivals = totalArrivals;
+    }
+    
+    @Override
+    public long getTotalArrivals() {
+        return totalArrivals;
+    }
+    
+    @Override
+    public long nextGapNanos(long index, Random random) {
+        // Inverse CDF; 1 - u keeps the log argument in (0, 1]
+        return (long) (-Math.log(1.0 - random.nextDouble()) * meanGapNanos);
+    }
+    
+    @Override
+    public ParkingDurations getParkingDurations() {
+        return null;
+    }
+    
+    @Override
+    public String describe() {
+        return String.format("poisson (%.1f/min, %s)", ratePerMinute,
+                totalArrivals == UNBOUNDED ? "unbounded" : totalArrivals + " vehicles");
+    }
+}
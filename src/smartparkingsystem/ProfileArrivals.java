@@ -0,0 +1,109 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.util.Random;
+
+/**
+ * ProfileArrivals - Non-homogeneous Poisson arrivals following a TrafficProfile
+ * Arrivals are drawn by thinning (Lewis-Shedler): candidates come from a
+ * homogeneous process at the segment's peak rate and each is kept with
+ * probability rate(t) / peak. Using the peak of the current segment rather
+ * than of the whole day keeps almost every candidate at night, and a
+ * candidate that would cross into the next segment restarts there, which
+ * the memoryless exponential allows.
+ *
+ * The source tracks its own position in the day, so one instance serves one
+ * stream and must be used from one thread.
+ */
+public class ProfileArrivals implements ArrivalSource {
+    
+    // Constants
+    private static final double NANOS_PER_MINUTE = 60e9;
+    
+    // Configuration
+    private final TrafficProfile profile;
+    private final long totalArrivals;
+    private final double startMinute;
+    
+    // Stream position, minutes since midnight of the current day
+    private double minuteOfDay;
+    
+    /**
+     * Constructor
+     * @param profile rate curve and stay lengths
+     * @param startMinute time of day the simulation starts, minutes since midnight
+     * @param totalArrivals number of arrivals, or UNBOUNDED
+     */
+    public ProfileArrivals(TrafficProfile profile, double startMinute, long totalArrivals) {
+        if (startMinute < 0 || startMinute >= TrafficProfile.MINUTES_PER_DAY || totalArrivals <= 0) {
+            throw new IllegalArgumentException("Start must be within one day and the count positive");
+        }
+        this.profile = profile;
+        this.startMinute = startMinute;
+        this.totalArrivals = totalArrivals;
+        this.minuteOfDay = startMinute;
+    }
+    
+    @Override
+    public long getTotalArrivals() {
+        return totalArrivals;
+    }
+    
+    @Override
+    public long nextGapNanos(long index, Random random) {
+        double elapsed = 0;
+        
+        while (true) {
+            int segment = profile.segmentAt(minuteOfDay);
+            double peak = profile.segmentMaxRate(segment);
+            double untilEnd = profile.minutesToSegmentEnd(segment, minuteOfDay);
+            
+            double step = peak > 0 ? -Math.log(1.0 - random.nextDouble()) / peak : Double.POSITIVE_INFINITY;
+            if (step >= untilEnd) {
+                // No candidate left in this segment: carry on from the next one
+                advance(untilEnd);
+                elapsed += untilEnd;
+                continue;
+            }
+            
+            advance(step);
+            elapsed += step;
+            if (random.nextDouble() * peak <= profile.rateAt(minuteOfDay)) {
+                return (long) (elapsed * NANOS_PER_MINUTE);
+            }
+        }
+    }
+    
+    private void advance(double minutes) {
+        minuteOfDay += minutes;
+        if (minuteOfDay >= TrafficProfile.MINUTES_PER_DAY) {
+            minuteOfDay -= TrafficProfile.MINUTES_PER_DAY;
+        }
+    }
+    
+    @Override
+    public ParkingDurations getParkingDurations() {
+        return profile.getParkingDurations();
+    }
+    
+    /**
+     * Get the profile this stream follows
+     */
+    public TrafficProfile getProfile() {
+        return profile;
+    }
+    
+    @Override
+    public String describe() {
+        return String.format("profile %s from %02d:%02d, %s", profile, (int) startMinute / 60, (int) startMinute % 60,
+                totalArrivals == UNBOUNDED ? "unbounded" : totalArrivals + " vehicles");
+    }
+}
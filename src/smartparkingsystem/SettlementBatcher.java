@@ -0,0 +1,287 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SettlementBatcher - Groups payments into micro-batches for the gateway
+ * Exits submit cars and get a future back. A batch is sent when it reaches
+ * the batch size or when its first car has waited the linger time, whichever
+ * comes first; the whole batch is settled with one gateway call and each
+ * car's result completes its own future. Batches are settled on the payment
+ * executor, so a slow gateway call never holds up collecting the next batch.
+ */
+public class SettlementBatcher {
+    
+    // Constants
+    private static final EventLog.Component LOG = EventLog.component("SETTLEMENT_BATCHER");
+    public static final int DEFAULT_BATCH_SIZE = 8;
+    public static final long DEFAULT_LINGER_MS = 200;
+    
+    /**
+     * Settles one batch with a single gateway call
+     */
+    interface BatchGateway {
+        /**
+         * @param cars cars in the batch, in submission order
+         * @return per-car result, same order as cars
+         */
+        boolean[] settle(List<Car> cars) throws InterruptedException;
+    }
+    
+    // Configuration
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    
+    // Dependencies
+    private final BatchGateway gateway;
+    private final Executor executor;
+    
+    // Submissions waiting for the next batch
+    private final BlockingQueue<PendingPayment> pending;
+    private final Thread collectorThread;
+    private volatile boolean isOperating;
+    
+    // Statistics
+    private final LongAdder batchesSent;
+    private final LongAdder paymentsBatched;
+    private final LongAdder fullBatches;
+    
+    /**
+     * Constructor
+     * @param maxBatchSize most cars per gateway call (at least 2)
+     * @param lingerMs longest time the first car of a batch waits for company
+     * @param gateway settles a batch
+     * @param executor runs gateway calls
+     */
+    SettlementBatcher(int maxBatchSize, long lingerMs, BatchGateway gateway, Executor executor) {
+        if (maxBatchSize < 2 || lingerMs < 0) {
+            throw new IllegalArgumentException("Batch size must be at least 2 and linger non-negative");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        this.gateway = gateway;
+        this.executor = executor;
+        this.pending = new LinkedBlockingQueue<>();
+        this.batchesSent = new LongAdder();
+        this.paymentsBatched = new LongAdder();
+        this.fullBatches = new LongAdder();
+        this.isOperating = true;
+        
+        this.collectorThread = new Thread(this::collectBatches, "SettlementBatcher");
+        collectorThread.setDaemon(true);
+        collectorThread.start();
+        
+        LOG.info("Settlement batching enabled - Batch size: {}, Linger: {}ms", maxBatchSize, lingerMs);
+    }
+    
+    /**
+     * Configured batch size: smartparking.payment.batchSize (1 turns batching off)
+     */
+    static int configuredBatchSize() {
+        return Integer.getInteger("smartparking.payment.batchSize", DEFAULT_BATCH_SIZE);
+    }
+    
+    /**
+     * Configured linger time: smartparking.payment.batchLingerMs
+     */
+    static long configuredLingerMs() {
+        return Long.getLong("smartparking.payment.batchLingerMs", DEFAULT_LINGER_MS);
+    }
+    
+    /**
+     * Queue a car for the next batch
+     * @return future completing with the car's payment result
+     */
+    public CompletableFuture<Boolean> submit(Car car) {
+        PendingPayment payment = new PendingPayment(car);
+        if (!isOperating) {
+            payment.result.complete(false);
+            return payment.result;
+        }
+        pending.add(payment);
+        
+        // Lost a race with shutdown(): nobody will collect it
+        if (!isOperating && pending.remove(payment)) {
+            payment.result.complete(false);
+        }
+        return payment.result;
+    }
+    
+    /**
+     * Collector loop: block for a batch's first car, then fill until full or lingered out
+     */
+    private void collectBatches() {
+        while (isOperating) {
+            List<PendingPayment> batch = new ArrayList<>(maxBatchSize);
+            try {
+                batch.add(pending.take());
+                
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    // Take whatever is already queued before waiting on the clock
+                    pending.drainTo(batch, maxBatchSize - batch.size());
+                    if (batch.size() >= maxBatchSize) {
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingPayment next = pending.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                
+                dispatch(batch);
+            
+            } catch (InterruptedException e) {
+                // Shut down while lingering: the cars already taken would otherwise never hear back
+                if (!batch.isEmpty()) {
+                    LOG.warn("WARNING: {} payments still waiting for a batch at shutdown", batch.size());
+                    fail(batch);
+                }
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+    
+    /**
+     * Hand a batch to the executor for its gateway call
+     */
+    private void dispatch(List<PendingPayment> batch) {
+        batchesSent.increment();
+        paymentsBatched.add(batch.size());
+        if (batch.size() >= maxBatchSize) {
+            fullBatches.increment();
+        }
+        
+        try {
+            executor.execute(() -> settle(batch));
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Payment executor shut down - failing batch of {}", batch.size());
+            fail(batch);
+        }
+    }
+    
+    /**
+     * Settle one batch and fan the results back to the waiting exits
+     */
+    private void settle(List<PendingPayment> batch) {
+        List<Car> cars = new ArrayList<>(batch.size());
+        for (PendingPayment payment : batch) {
+            cars.add(payment.car);
+        }
+        
+        try {
+            boolean[] results = gateway.settle(cars);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result.complete(results[i]);
+            }
+        
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(batch);
+        
+        } catch (RuntimeException e) {
+            LOG.error("ERROR: Batch settlement failed - {}", e.getMessage());
+            fail(batch);
+        }
+    }
+    
+    private void fail(List<PendingPayment> batch) {
+        for (PendingPayment payment : batch) {
+            payment.result.complete(false);
+        }
+    }
+    
+    /**
+     * Stop collecting; payments not yet sent fail
+     */
+    public void shutdown() {
+        isOperating = false;
+        collectorThread.interrupt();
+        
+        List<PendingPayment> unsent = new ArrayList<>();
+        pending.drainTo(unsent);
+        if (!unsent.isEmpty()) {
+            LOG.warn("WARNING: {} payments still waiting for a batch at shutdown", unsent.size());
+        }
+        fail(unsent);
+    }
+    
+    /**
+     * Get batching statistics
+     */
+    public BatchStats getStats() {
+        return new BatchStats(maxBatchSize, TimeUnit.NANOSECONDS.toMillis(lingerNanos),
+                batchesSent.sum(), paymentsBatched.sum(), fullBatches.sum());
+    }
+    
+    /**
+     * A car waiting for its batch to be settled
+     */
+    private static class PendingPayment {
+        private final Car car;
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        
+        PendingPayment(Car car) {
+            this.car = car;
+        }
+    }
+    
+    /**
+     * Inner class for batching statistics
+     */
+    public static class BatchStats {
+        private final int maxBatchSize;
+        private final long lingerMs;
+        private final long batchesSent;
+        private final long paymentsBatched;
+        private final long fullBatches;
+        
+        public BatchStats(int maxBatchSize, long lingerMs, long batches, long payments, long full) {
+            this.maxBatchSize = maxBatchSize;
+            this.lingerMs = lingerMs;
+            this.batchesSent = batches;
+            this.paymentsBatched = payments;
+            this.fullBatches = full;
+        }
+        
+        // Getters
+        public int getMaxBatchSize() { return maxBatchSize; }
+        public long getLingerMs() { return lingerMs; }
+        public long getBatchesSent() { return batchesSent; }
+        public long getPaymentsBatched() { return paymentsBatched; }
+        public long getFullBatches() { return fullBatches; }
+        
+        public double getAverageBatchSize() {
+            return batchesSent > 0 ? (double) paymentsBatched / batchesSent : 0.0;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("Settlement Batches - Sent: %d (full: %d), Payments: %d, Avg size: %.2f (max %d, linger %dms)",
+                    batchesSent, fullBatches, paymentsBatched, getAverageBatchSize(), maxBatchSize, lingerMs);
+        }
+    }
+}
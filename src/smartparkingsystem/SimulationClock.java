@@ -0,0 +1,49 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * SimulationClock - Source of time for the simulation
+ * Lets the same lot, gate and payment logic run against wall-clock time or
+ * against a virtual clock driven by the discrete-event engine
+ */
+public interface SimulationClock {
+    
+    /**
+     * Monotonic time in nanoseconds (only differences are meaningful)
+     */
+    long nanoTime();
+    
+    /**
+     * Wall-clock style time in epoch milliseconds
+     */
+    long currentTimeMillis();
+    
+    /**
+     * Current local date-time as seen by this clock
+     */
+    LocalDateTime now();
+    
+    /**
+     * Let the given amount of simulated time pass
+     * @param millis milliseconds to wait
+     */
+    void sleep(long millis) throws InterruptedException;
+    
+    /**
+     * Source of the random draws made on this clock's time line
+     * Real time uses the calling thread's generator; virtual time uses one
+     * seeded generator, so a run can be repeated exactly.
+     */
+    Random random();
+}
@@ -1,5 +1,7 @@
 package smartparkingsystem;
 
+import java.io.PrintStream;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.concurrent.*;
@@ -12,10 +14,19 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class SimulationController {
     
     // Constants
-    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+    private static final EventLog.Component LOG = EventLog.component("SIM_CTRL");
     private static final int SIMULATION_DURATION_MINUTES = 5;
     private static final int NUMBER_OF_ENTRY_GATES = 3;
     private static final int NUMBER_OF_EXIT_GATES = 2;
+    private static final int NUMBER_OF_PARKING_LEVELS = 3;
+    
+    // Configuration
+    private final int parkingCapacity;
+    private final int parkingLevels;
+    private final int entryGateCount;
+    private final int exitGateCount;
+    private final int durationMinutes;
+    private volatile PrintStream finalReportOutput = System.out;   // null: no final report
     
     // System components
     private ParkingLot parkingLot;
@@ -23,6 +34,9 @@ public class SimulationController {
     private PaymentProcessor paymentProcessor;
     private EntryGateManager entryGateManager;
     private ExitGateManager exitGateManager;
+    private GateAutoscaler gateAutoscaler;           // null unless -Dsmartparking.autoscale=true
+    private OccupancyJournal occupancyJournal;       // null unless -Dsmartparking.journal.dir is set
+    private OccupancyFile occupancyFile;             // null unless -Dsmartparking.occupancy.file is set
     private Statistics statistics;
     
     // Control
@@ -33,15 +47,55 @@ public class SimulationController {
     // Simulation timing
     private LocalDateTime simulationStartTime;
     private LocalDateTime simulationEndTime;
+    private volatile String failureReason;             // null unless the run was cut short
     
     /**
-     * Constructor
+     * Constructor with the default 50-space lot
      */
     public SimulationController() {
+        this(ParkingLot.DEFAULT_TOTAL_SPACES);
+    }
+    
+    /**
+     * Constructor with configurable lot capacity
+     * @param parkingCapacity number of parking spaces to simulate
+     */
+    public SimulationController(int parkingCapacity) {
+        this(parkingCapacity, NUMBER_OF_PARKING_LEVELS);
+    }
+    
+    /**
+     * Constructor with configurable lot capacity and level count
+     * @param parkingCapacity number of parking spaces to simulate
+     * @param parkingLevels number of levels/zones the spaces are split across
+     */
+    public SimulationController(int parkingCapacity, int parkingLevels) {
+        this(parkingCapacity, parkingLevels, NUMBER_OF_ENTRY_GATES, NUMBER_OF_EXIT_GATES, SIMULATION_DURATION_MINUTES);
+    }
+    
+    /**
+     * Constructor with a fully configurable layout and run length
+     * @param entryGateCount number of entry gates staffed at start
+     * @param exitGateCount number of exit gates staffed at start
+     * @param durationMinutes wall-clock minutes to generate traffic for
+     */
+    public SimulationController(int parkingCapacity, int parkingLevels, int entryGateCount,
+                                int exitGateCount, int durationMinutes) {
+        if (entryGateCount <= 0 || exitGateCount <= 0) {
+            throw new IllegalArgumentException("At least one entry and one exit gate required");
+        }
+        if (durationMinutes <= 0) {
+            throw new IllegalArgumentException("Simulation duration must be positive: " + durationMinutes);
+        }
+        this.parkingCapacity = parkingCapacity;
+        this.parkingLevels = parkingLevels;
+        this.entryGateCount = entryGateCount;
+        this.exitGateCount = exitGateCount;
+        this.durationMinutes = durationMinutes;
         this.isRunning = new AtomicBoolean(false);
         this.simulationComplete = new CountDownLatch(1);
         
-        logEvent("SimulationController initialized");
+        LOG.info("SimulationController initialized");
     }
     
     /**
@@ -59,29 +113,77 @@ public class SimulationController {
      * Initialize all system components
      */
     private void initializeComponents() {
-        logEvent("Initializing system components...");
+        LOG.info("Initializing system components...");
         
         try {
             // Initialize statistics FIRST
             statistics = new Statistics();
             
             // Core shared resource
-            parkingLot = new ParkingLot();
+            SystemClock clock = SystemClock.fromSystemProperties();
+            if (clock.isZeroLatency()) {
+                LOG.info("Zero-latency mode: simulated gate and payment delays disabled");
+            }
+            Path occupancyPath = OccupancyFile.configuredPath();
+            if (occupancyPath != null) {
+                occupancyFile = OccupancyFile.open(occupancyPath, parkingCapacity, parkingLevels, clock);
+            }
+            parkingLot = new ParkingLot(parkingCapacity, parkingLevels, clock, occupancyFile);
             
             // Vehicle generation - PASS STATISTICS
-            vehicleGenerator = new VehicleGenerator(SIMULATION_DURATION_MINUTES, statistics);
+            AdmissionControl admission = AdmissionControl.fromSystemProperties(statistics, clock);
+            vehicleGenerator = new VehicleGenerator(
+                    VehicleGenerator.configuredArrivals(VehicleGenerator.DEFAULT_TOTAL_VEHICLES, durationMinutes),
+                    statistics, admission, VehicleGenerator.configuredKeepHistory(), clock);
             
             // Payment processing
-            paymentProcessor = new PaymentProcessor();
+            paymentProcessor = new PaymentProcessor(clock);
+            
+            // Keep the generator's vehicle history current as cars park, pay and leave
+            VehicleStore history = vehicleGenerator.getVehicleStore();
+            if (history != null) {
+                parkingLot.addParkingListener(history);
+                paymentProcessor.addPaymentListener(history);
+            }
             
             // Gate management - PASS STATISTICS
-            entryGateManager = new EntryGateManager(NUMBER_OF_ENTRY_GATES, parkingLot, vehicleGenerator, statistics);
-            exitGateManager = new ExitGateManager(NUMBER_OF_EXIT_GATES, parkingLot, paymentProcessor, statistics);
+            GateAutoscaler.Settings autoscale = GateAutoscaler.Settings.fromSystemProperties(
+                    entryGateCount, exitGateCount);
+            entryGateManager = new EntryGateManager(entryGateCount, autoscale.getMaxEntryGates(),
+                    parkingLot, vehicleGenerator, statistics);
+            exitGateManager = new ExitGateManager(exitGateCount, autoscale.getMaxExitGates(),
+                    parkingLot, paymentProcessor, statistics);
+            if (autoscale.isEnabled()) {
+                gateAutoscaler = new GateAutoscaler(autoscale, entryGateManager, exitGateManager);
+            }
             
-            logEvent("All components initialized successfully with statistics integration");
+            // Announce cars the mapped lot came back with once every listener is
+            // registered, so they are scheduled to exit like any other
+            if (occupancyFile != null) {
+                int adopted = parkingLot.publishRecoveredCars().size();
+                if (adopted > 0) {
+                    statistics.recordRecoveredVehicles(adopted);
+                }
+                paymentProcessor.addPaymentListener(occupancyFile);
+            }
             
+            // Rebuild occupancy from the journal the same way
+            OccupancyJournal.Settings journal = OccupancyJournal.Settings.fromSystemProperties();
+            if (journal.isEnabled()) {
+                occupancyJournal = new OccupancyJournal(journal, clock);
+                occupancyJournal.recover(parkingLot, paymentProcessor, statistics);
+                occupancyJournal.start(parkingLot, paymentProcessor);
+            }
+            
+            // New arrivals must not reuse the ids of cars that came back
+            if (occupancyFile != null || occupancyJournal != null) {
+                vehicleGenerator.continueNumberingAfter(parkingLot.getOccupiedSpaces().values());
+            }
+            
+            LOG.info("All components initialized successfully with statistics integration");
+        
         } catch (Exception e) {
-            logEvent("ERROR: Failed to initialize components - " + e.getMessage());
+            LOG.error("ERROR: Failed to initialize components - {}", e.getMessage());
             throw new RuntimeException("System initialization failed", e);
         }
     }
@@ -91,26 +193,26 @@ public class SimulationController {
      */
     public void startSimulation() {
         if (isRunning.get()) {
-            logEvent("Simulation already running");
+            LOG.info("Simulation already running");
             return;
         }
         
         isRunning.set(true);
         simulationStartTime = LocalDateTime.now();
         
-        logEvent(repeatString("=", 80));
-        logEvent("           SMART PARKING SYSTEM SIMULATION STARTING");
-        logEvent(repeatString("=", 80));
-        logEvent("Simulation Duration: " + SIMULATION_DURATION_MINUTES + " minutes");
-        logEvent("Entry Gates: " + NUMBER_OF_ENTRY_GATES);
-        logEvent("Exit Gates: " + NUMBER_OF_EXIT_GATES);
-        logEvent("Parking Spaces: 50");
-        logEvent("Target Vehicles: 150");
-        logEvent("Start Time: " + simulationStartTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-        logEvent(repeatString("=", 80));
+        LOG.info("{}", repeatString("=", 80));
+        LOG.info("           SMART PARKING SYSTEM SIMULATION STARTING");
+        LOG.info("{}", repeatString("=", 80));
+        LOG.info("Simulation Duration: {} minutes", durationMinutes);
+        LOG.info("Entry Gates: {}", entryGateCount);
+        LOG.info("Exit Gates: {}", exitGateCount);
+        LOG.info("Parking Spaces: {} across {} levels", parkingCapacity, parkingLevels);
+        LOG.info("Start Time: {}", simulationStartTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+        LOG.info("{}", repeatString("=", 80));
         
         // Initialize components
         initializeComponents();
+        LOG.info("Arrivals: {}", vehicleGenerator.getArrivals().describe());
         
         // Create main executor for simulation coordination
         mainExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
@@ -129,6 +231,7 @@ public class SimulationController {
                 runSimulation();
             }
         });
+        mainExecutor.shutdown(); // Let the coordinator thread exit once the run is over
     }
     
     /**
@@ -136,13 +239,13 @@ public class SimulationController {
      */
     private void runSimulation() {
         try {
-            logEvent("Starting system components...");
+            LOG.info("Starting system components...");
             
             // Start statistics collection with periodic reporting
             statistics.startPeriodicReporting(1); // Report every minute
             
             // Start payment processor (already running upon creation)
-            logEvent("Payment processor operational");
+            LOG.info("Payment processor operational");
             
             // Start vehicle generation
             vehicleGenerator.startGeneration();
@@ -153,29 +256,36 @@ public class SimulationController {
             // Start exit gates  
             exitGateManager.startOperations();
             
-            logEvent("All components started - simulation running");
+            // Start opening and closing gates with demand
+            if (gateAutoscaler != null) {
+                gateAutoscaler.start();
+            }
+            
+            LOG.info("All components started - simulation running");
             
             // Start monitoring thread
             startSimulationMonitoring();
             
             // Wait for simulation duration
-            Thread.sleep(SIMULATION_DURATION_MINUTES * 60 * 1000L);
+            Thread.sleep(durationMinutes * 60 * 1000L);
             
-            logEvent("Simulation time completed - initiating shutdown sequence");
+            LOG.info("Simulation time completed - initiating shutdown sequence");
             
             // Graceful shutdown
             shutdownSimulation();
-            
+        
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            logEvent("Simulation interrupted");
+            LOG.info("Simulation interrupted");
+            failureReason = "Simulation interrupted";
             forceShutdown();
-            
+        
         } catch (Exception e) {
-            logEvent("ERROR: Simulation execution failed - " + e.getMessage());
+            LOG.error("ERROR: Simulation execution failed - {}", e.getMessage());
             e.printStackTrace();
+            failureReason = "Simulation execution failed: " + e;
             forceShutdown();
-            
+        
         } finally {
             simulationComplete.countDown();
         }
@@ -212,39 +322,41 @@ public class SimulationController {
         
         long elapsedMinutes = java.time.Duration.between(simulationStartTime, LocalDateTime.now()).toMinutes();
         
-        logEvent("=== SYSTEM STATUS REPORT - " + elapsedMinutes + " minutes elapsed ===");
+        LOG.info("=== SYSTEM STATUS REPORT - {} minutes elapsed ===", elapsedMinutes);
         
         // Parking lot status
         ParkingLot.ParkingStatus parkingStatus = parkingLot.getStatus();
-        logEvent("Parking: " + parkingStatus.toString());
+        LOG.info("Parking: {}", parkingStatus.toString());
         
         // Vehicle generation status
         VehicleGenerator.GenerationStats genStats = vehicleGenerator.getStats();
-        logEvent("Vehicle Generation: " + genStats.toString());
+        LOG.info("Vehicle Generation: {}", genStats.toString());
+        if (vehicleGenerator.getVehicleStore() != null) {
+            LOG.info("Vehicle History: {}", vehicleGenerator.getVehicleStore().getStats().toString());
+        }
         
         // Entry gate status
         EntryGateManager.EntryManagerStats entryStats = entryGateManager.getStats();
-        logEvent("Entry Gates: " + entryStats.toString());
+        LOG.info("Entry Gates: {}", entryStats.toString());
         
         // Exit gate status
         ExitGateManager.ExitManagerStats exitStats = exitGateManager.getStats();
-        logEvent("Exit Gates: " + exitStats.toString());
+        LOG.info("Exit Gates: {}", exitStats.toString());
         
         // Payment processor status
         PaymentProcessor.PaymentStats paymentStats = paymentProcessor.getStats();
-        logEvent("Payment System: " + paymentStats.toString());
+        LOG.info("Payment System: {}", paymentStats.toString());
         
         // Current statistics snapshot
         if (statistics != null) {
             Statistics.SystemStatistics currentStats = statistics.getCurrentStats();
-            logEvent("STATISTICS - Generated: " + currentStats.totalGenerated + 
-                    ", Entered: " + currentStats.totalEntered + 
-                    ", Exited: " + currentStats.totalExited);
-            logEvent("Current Revenue: $" + String.format("%.2f", currentStats.totalRevenue));
-            logEvent("Average Wait Time: " + String.format("%.2f", currentStats.averageWaitingTime) + " seconds");
+            LOG.info("STATISTICS - Generated: {}, Entered: {}, Exited: {}",
+                    currentStats.totalGenerated, currentStats.totalEntered, currentStats.totalExited);
+            LOG.info("Current Revenue: ${.2}", currentStats.totalRevenue);
+            LOG.info("Average Wait Time: {.2} seconds", currentStats.averageWaitingTime);
         }
         
-        logEvent("=== END STATUS REPORT ===");
+        LOG.info("=== END STATUS REPORT ===");
     }
     
     /**
@@ -254,40 +366,64 @@ public class SimulationController {
         simulationEndTime = LocalDateTime.now();
         long totalDuration = java.time.Duration.between(simulationStartTime, simulationEndTime).toMinutes();
         
-        logEvent(repeatString("=", 80));
-        logEvent("           SIMULATION SHUTDOWN SEQUENCE INITIATED");
-        logEvent(repeatString("=", 80));
-        logEvent("Total Runtime: " + totalDuration + " minutes");
+        LOG.info("{}", repeatString("=", 80));
+        LOG.info("           SIMULATION SHUTDOWN SEQUENCE INITIATED");
+        LOG.info("{}", repeatString("=", 80));
+        LOG.info("Total Runtime: {} minutes", totalDuration);
         
         try {
             // Stop vehicle generation first
-            logEvent("Stopping vehicle generation...");
+            LOG.info("Stopping vehicle generation...");
             vehicleGenerator.stopGeneration();
             
+            // Freeze gate staffing so shutdown sees a stable set of gates
+            if (gateAutoscaler != null) {
+                gateAutoscaler.stop();
+            }
+            
             // Allow some time for remaining vehicles to be processed
-            logEvent("Allowing time for remaining vehicles to be processed...");
+            LOG.info("Allowing time for remaining vehicles to be processed...");
             Thread.sleep(10000); // 10 seconds
             
-            // Shutdown entry gates
-            logEvent("Shutting down entry gates...");
-            entryGateManager.shutdown();
+            // Shutdown entry gates (a component that had to be forced fails the run)
+            LOG.info("Shutting down entry gates...");
+            StringBuilder forced = new StringBuilder();
+            if (!entryGateManager.shutdown()) {
+                forced.append(", entry gates");
+            }
             
             // Process remaining vehicles in exit queue
-            logEvent("Processing remaining exit queue...");
+            LOG.info("Processing remaining exit queue...");
             Thread.sleep(5000); // 5 seconds
             
             // Shutdown exit gates
-            logEvent("Shutting down exit gates...");
-            exitGateManager.shutdown();
+            LOG.info("Shutting down exit gates...");
+            if (!exitGateManager.shutdown()) {
+                forced.append(", exit gates");
+            }
             
             // Shutdown payment processor
-            logEvent("Shutting down payment processor...");
-            paymentProcessor.shutdown();
+            LOG.info("Shutting down payment processor...");
+            if (!paymentProcessor.shutdown()) {
+                forced.append(", payment processor");
+            }
+            if (forced.length() > 0 && failureReason == null) {
+                failureReason = "Shutdown timed out: " + forced.substring(2);
+            }
+            
+            // Everything journaled is on disk before the final report
+            if (occupancyJournal != null) {
+                occupancyJournal.close();
+            }
+            if (occupancyFile != null) {
+                occupancyFile.close();
+            }
             
             // Final statistics collection
-            logEvent("Generating final statistics...");
-            if (statistics != null) {
-                statistics.printFinalStatistics();
+            LOG.info("Generating final statistics...");
+            PrintStream reportOutput = finalReportOutput;
+            if (statistics != null && reportOutput != null) {
+                statistics.printFinalStatistics(reportOutput);
             }
             
             // Shutdown statistics
@@ -295,17 +431,23 @@ public class SimulationController {
                 statistics.shutdown();
             }
             
-            logEvent(repeatString("=", 80));
-            logEvent("           SIMULATION COMPLETED SUCCESSFULLY");
-            logEvent(repeatString("=", 80));
-            
+            LOG.info("{}", repeatString("=", 80));
+            if (failureReason == null) {
+                LOG.info("           SIMULATION COMPLETED SUCCESSFULLY");
+            } else {
+                LOG.warn("           SIMULATION COMPLETED WITH ERRORS - {}", failureReason);
+            }
+            LOG.info("{}", repeatString("=", 80));
+        
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            logEvent("Shutdown interrupted - forcing immediate shutdown");
+            LOG.info("Shutdown interrupted - forcing immediate shutdown");
+            failureReason = "Shutdown interrupted";
             forceShutdown();
-            
+        
         } catch (Exception e) {
-            logEvent("ERROR during shutdown: " + e.getMessage());
+            LOG.error("ERROR during shutdown: {}", e.getMessage());
+            failureReason = "Shutdown failed: " + e;
             forceShutdown();
         }
         
@@ -316,7 +458,7 @@ public class SimulationController {
      * Force immediate shutdown of all components
      */
     private void forceShutdown() {
-        logEvent("EMERGENCY: Force shutdown initiated");
+        LOG.error("EMERGENCY: Force shutdown initiated");
         
         try {
             if (vehicleGenerator != null) {
@@ -335,16 +477,24 @@ public class SimulationController {
                 paymentProcessor.shutdown();
             }
             
+            if (occupancyJournal != null) {
+                occupancyJournal.close();
+            }
+            
+            if (occupancyFile != null) {
+                occupancyFile.close();
+            }
+            
             if (statistics != null) {
                 statistics.shutdown();
             }
-            
+        
         } catch (Exception e) {
-            logEvent("ERROR during force shutdown: " + e.getMessage());
+            LOG.error("ERROR during force shutdown: {}", e.getMessage());
         }
         
         isRunning.set(false);
-        logEvent("Force shutdown completed");
+        LOG.info("Force shutdown completed");
     }
     
     /**
@@ -352,11 +502,11 @@ public class SimulationController {
      */
     public void stopSimulation() {
         if (!isRunning.get()) {
-            logEvent("Simulation not running");
+            LOG.info("Simulation not running");
             return;
         }
         
-        logEvent("Manual simulation stop requested");
+        LOG.info("Manual simulation stop requested");
         
         // Interrupt main simulation thread
         if (mainExecutor != null) {
@@ -396,6 +546,21 @@ public class SimulationController {
         return isRunning.get();
     }
     
+    /**
+     * Choose where the graceful shutdown prints the full statistics report
+     * @param out report destination, or null for no report (default stdout)
+     */
+    public void setFinalReportOutput(PrintStream out) {
+        this.finalReportOutput = out;
+    }
+    
+    /**
+     * Why the run was cut short, or null if it completed normally
+     */
+    public String getFailureReason() {
+        return failureReason;
+    }
+    
     /**
      * Get simulation start time
      */
@@ -420,14 +585,6 @@ public class SimulationController {
         return null;
     }
     
-    /**
-     * Utility method for consistent logging
-     */
-    private void logEvent(String message) {
-        System.out.println("[" + LocalDateTime.now().format(TIME_FORMAT) + 
-                          "] [SIM_CTRL] " + message);
-    }
-    
     /**
      * Cleanup resources on JVM shutdown
      */
@@ -436,7 +593,7 @@ public class SimulationController {
             @Override
             public void run() {
                 if (isRunning.get()) {
-                    logEvent("JVM shutdown detected - stopping simulation");
+                    LOG.info("JVM shutdown detected - stopping simulation");
                     forceShutdown();
                 }
             }
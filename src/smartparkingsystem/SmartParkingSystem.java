@@ -22,8 +22,15 @@ public class SmartParkingSystem {
     
     /**
      * Main method - Entry point for the Smart Parking System simulation
+     * With scenario files as arguments the run is headless (see BatchRunner);
+     * without arguments it prompts and runs the default interactive demo.
      */
     public static void main(String[] args) {
+        if (args.length > 0) {
+            BatchRunner.main(args);
+            return;
+        }
+        
         // Create simulation controller
         SimulationController controller = new SimulationController();
         
@@ -81,6 +88,7 @@ public class SmartParkingSystem {
             
             // Wait for simulation to complete (with timeout for safety)
             boolean completed = controller.awaitCompletion(8, TimeUnit.MINUTES); // 8 min timeout
+            EventLog.flush();
             
             if (completed) {
                 System.out.println("\nSIMULATION COMPLETED SUCCESSFULLY!");
@@ -183,6 +191,7 @@ public class SmartParkingSystem {
         // Check available processors
         int processors = Runtime.getRuntime().availableProcessors();
         System.out.println("  Available Processors: " + processors);
+        System.out.println("  Gate Threads: " + GateThreads.describe());
         
         boolean meetsRequirements = true;
         
@@ -0,0 +1,54 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+/**
+ * SpaceAllocator - Strategy for claiming and freeing individual parking spaces
+ * The ParkingLot semaphore guarantees a free space exists before allocate() is called
+ */
+public interface SpaceAllocator {
+    
+    /**
+     * Claim a free parking space
+     * @return space number, or -1 if every space is occupied
+     */
+    int allocate();
+    
+    /**
+     * Claim one particular space (used when rebuilding occupancy after a restart)
+     * @param spaceNumber space to claim
+     * @return true if the space was free and is now claimed
+     */
+    boolean claim(int spaceNumber);
+    
+    /**
+     * Free a previously claimed parking space
+     * @param spaceNumber space to free
+     * @return true if the space was occupied and is now free
+     */
+    boolean release(int spaceNumber);
+    
+    /**
+     * Check whether a space is currently claimed
+     */
+    boolean isAllocated(int spaceNumber);
+    
+    /**
+     * Find the next claimed space at or after a position (for iterating occupancy)
+     * @param fromSpace first space to check
+     * @return space number or -1 if no later space is claimed
+     */
+    int nextAllocated(int fromSpace);
+    
+    /**
+     * Get the number of spaces managed by this allocator
+     */
+    int getCapacity();
+}
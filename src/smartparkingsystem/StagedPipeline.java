@@ -0,0 +1,343 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * StagedPipeline - Chain of processing stages joined by bounded queues
+ * Each stage has its own worker threads, so item N+1 can be in an early stage
+ * while item N is still blocked in a later one. A full queue blocks the stage
+ * feeding it, which pushes back all the way to submit().
+ * @param <T> the work item passed from stage to stage
+ */
+public class StagedPipeline<T> {
+    
+    // Constants
+    private static final EventLog.Component LOG = EventLog.component("PIPELINE");
+    private static final long POLL_MS = 200;
+    private static final long STOP_WAIT_MS = 1000;
+    
+    /**
+     * Work done by one stage
+     */
+    public interface StageWork<T> {
+        /**
+         * @return true to pass the item to the next stage, false if it is finished
+         */
+        boolean process(T item) throws Exception;
+    }
+    
+    /**
+     * Callback for items leaving the pipeline
+     */
+    public interface ItemHandler<T> {
+        void handle(T item, Exception failure);
+    }
+    
+    // Configuration
+    private final String name;
+    private final List<Stage> stages;
+    private final ItemHandler<T> onComplete;
+    
+    // Runtime
+    private final AtomicInteger inFlight;
+    private final Object drained;       // Signalled when inFlight reaches 0
+    private ExecutorService workers;
+    private volatile boolean isRunning;
+    private volatile long startNanos;
+    private volatile long stopNanos;
+    
+    /**
+     * Constructor
+     * @param name pipeline name used for worker threads and logging
+     * @param onComplete called once per item when it leaves the pipeline, with
+     *        the exception that stopped it (null if it finished normally)
+     */
+    public StagedPipeline(String name, ItemHandler<T> onComplete) {
+        this.name = name;
+        this.stages = new ArrayList<>();
+        this.onComplete = onComplete;
+        this.inFlight = new AtomicInteger(0);
+        this.drained = new Object();
+    }
+    
+    /**
+     * Append a stage (before start())
+     * @param stageName name for reports
+     * @param workerCount threads working this stage
+     * @param queueCapacity items that may wait in front of this stage
+     * @param work the stage's processing step
+     */
+    public StagedPipeline<T> addStage(String stageName, int workerCount, int queueCapacity, StageWork<T> work) {
+        if (isRunning) {
+            throw new IllegalStateException("Pipeline " + name + " already started");
+        }
+        if (workerCount <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Stage " + stageName + " needs positive workers and capacity");
+        }
+        stages.add(new Stage(stageName, workerCount, queueCapacity, work));
+        return this;
+    }
+    
+    /**
+     * Start every stage's workers
+     */
+    public void start() {
+        if (stages.isEmpty()) {
+            throw new IllegalStateException("Pipeline " + name + " has no stages");
+        }
+        
+        int totalWorkers = 0;
+        for (Stage stage : stages) {
+            totalWorkers += stage.workerCount;
+        }
+        
+        isRunning = true;
+        startNanos = System.nanoTime();
+        workers = GateThreads.newGatePool(name + "-Stage-", totalWorkers);
+        for (int i = 0; i < stages.size(); i++) {
+            Stage stage = stages.get(i);
+            Stage next = i + 1 < stages.size() ? stages.get(i + 1) : null;
+            for (int w = 0; w < stage.workerCount; w++) {
+                workers.submit(() -> stage.work(next));
+            }
+        }
+        
+        LOG.info("{} started - {} stages, {} workers", name, stages.size(), totalWorkers);
+    }
+    
+    /**
+     * Feed an item to the first stage, waiting while its queue is full
+     */
+    public void submit(T item) throws InterruptedException {
+        inFlight.incrementAndGet();
+        try {
+            stages.get(0).queue.put(item);
+        } catch (InterruptedException e) {
+            leave();
+            throw e;
+        }
+    }
+    
+    /**
+     * Wait for every submitted item to leave the pipeline
+     * @return true if the pipeline drained within the timeout
+     */
+    public boolean awaitDrained(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (drained) {
+            while (inFlight.get() > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(drained, remaining);
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Stop all workers and take back the items still waiting in stage queues
+     * Items a worker was processing leave through the completion handler as
+     * usual (with an InterruptedException if the stage was interrupted).
+     * @return the items that never left the pipeline, in stage order; the
+     *         caller decides what becomes of them
+     */
+    public List<T> shutdown() {
+        isRunning = false;
+        stopNanos = System.nanoTime();
+        if (workers != null) {
+            workers.shutdownNow();
+            try {
+                if (!workers.awaitTermination(STOP_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                    LOG.warn("{} - workers still running after {}ms", name, STOP_WAIT_MS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        List<T> leftover = new ArrayList<>();
+        for (Stage stage : stages) {
+            int taken = stage.queue.drainTo(leftover);
+            for (int i = 0; i < taken; i++) {
+                leave();
+            }
+        }
+        return leftover;
+    }
+    
+    /**
+     * Get number of items submitted but not yet finished
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+    
+    /**
+     * Get per-stage throughput and queue depth
+     */
+    public List<StageStats> getStageStats() {
+        long endNanos = isRunning ? System.nanoTime() : stopNanos;
+        double elapsedMinutes = startNanos != 0 ? Math.max(1e-9, (endNanos - startNanos) / 60e9) : 0.0;
+        List<StageStats> result = new ArrayList<>();
+        for (Stage stage : stages) {
+            long processed = stage.processed.sum();
+            result.add(new StageStats(
+                    stage.stageName,
+                    stage.workerCount,
+                    processed,
+                    stage.queue.size(),
+                    processed > 0 ? stage.busyNanos.sum() / 1e6 / processed : 0.0,
+                    elapsedMinutes > 0 ? processed / elapsedMinutes : 0.0
+            ));
+        }
+        return Collections.unmodifiableList(result);
+    }
+    
+    /**
+     * Finish an item: it leaves the pipeline here
+     */
+    private void complete(T item, Exception failure) {
+        try {
+            onComplete.handle(item, failure);
+        } catch (RuntimeException e) {
+            LOG.error("{} - completion handler failed - {}", name, e.getMessage());
+        } finally {
+            leave();
+        }
+    }
+    
+    /**
+     * Count an item out of the pipeline, waking awaitDrained() on the last one
+     */
+    private void leave() {
+        if (inFlight.decrementAndGet() == 0) {
+            synchronized (drained) {
+                drained.notifyAll();
+            }
+        }
+    }
+    
+    /**
+     * Inner class for one stage and its input queue
+     */
+    private class Stage {
+        final String stageName;
+        final int workerCount;
+        final BlockingQueue<T> queue;
+        final StageWork<T> work;
+        final LongAdder processed = new LongAdder();
+        final LongAdder busyNanos = new LongAdder();
+        
+        Stage(String stageName, int workerCount, int queueCapacity, StageWork<T> work) {
+            this.stageName = stageName;
+            this.workerCount = workerCount;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.work = work;
+        }
+        
+        /**
+         * Worker loop: take, process, hand on (blocking while the next queue is full)
+         */
+        void work(Stage next) {
+            while (isRunning && !Thread.currentThread().isInterrupted()) {
+                T item;
+                try {
+                    item = queue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                if (item == null) {
+                    continue;
+                }
+                
+                long begin = System.nanoTime();
+                boolean passOn;
+                try {
+                    passOn = work.process(item);
+                } catch (Exception e) {
+                    recordService(begin);
+                    complete(item, e);
+                    if (e instanceof InterruptedException) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                    continue;
+                }
+                recordService(begin);
+                
+                if (!passOn || next == null) {
+                    complete(item, null);
+                    continue;
+                }
+                try {
+                    next.queue.put(item);
+                } catch (InterruptedException e) {
+                    complete(item, e);
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        
+        private void recordService(long beginNanos) {
+            processed.increment();
+            busyNanos.add(System.nanoTime() - beginNanos);
+        }
+    }
+    
+    /**
+     * Inner class for one stage's statistics
+     */
+    public static class StageStats {
+        private final String stageName;
+        private final int workers;
+        private final long processed;
+        private final int queueDepth;
+        private final double avgServiceMs;
+        private final double throughputPerMinute;
+        
+        public StageStats(String stageName, int workers, long processed, int queueDepth,
+                          double avgServiceMs, double throughputPerMinute) {
+            this.stageName = stageName;
+            this.workers = workers;
+            this.processed = processed;
+            this.queueDepth = queueDepth;
+            this.avgServiceMs = avgServiceMs;
+            this.throughputPerMinute = throughputPerMinute;
+        }
+        
+        // Getters
+        public String getStageName() { return stageName; }
+        public int getWorkers() { return workers; }
+        public long getProcessed() { return processed; }
+        public int getQueueDepth() { return queueDepth; }
+        public double getAvgServiceMs() { return avgServiceMs; }
+        public double getThroughputPerMinute() { return throughputPerMinute; }
+        
+        @Override
+        public String toString() {
+            return String.format("%s x%d - Processed: %d, Queue: %d, Avg Service: %.1fms, Throughput: %.1f/min",
+                    stageName, workers, processed, queueDepth, avgServiceMs, throughputPerMinute);
+        }
+    }
+}
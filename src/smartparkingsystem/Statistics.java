@@ -9,13 +9,14 @@ package smartparkingsystem;
  * @author amiryusof
  */
 
+import java.io.PrintStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Map;
@@ -29,6 +30,7 @@ public class Statistics {
     
     // Constants
     private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+    private static final EventLog.Component LOG = EventLog.component("STATS");
     
     /**
      * Helper method to repeat string (Java 8 compatible)
@@ -41,25 +43,30 @@ public class Statistics {
         return sb.toString();
     }
     
-    // Concurrency controls
-    private final ReadWriteLock statisticsLock;
-    
     // Vehicle statistics
-    private final AtomicInteger totalVehiclesGenerated;
-    private final AtomicInteger totalVehiclesEntered;
-    private final AtomicInteger totalVehiclesExited;
-    private final AtomicInteger currentlyParked;
-    private final AtomicInteger totalPaymentFailures;
+    private final LongAdder totalVehiclesGenerated;
+    private final LongAdder totalVehiclesEntered;
+    private final LongAdder totalVehiclesExited;
+    private final AtomicInteger currentlyParked;        // Exact value needed for peak tracking
+    private final LongAdder totalPaymentFailures;
+    
+    // Admission statistics
+    private final LongAdder vehiclesTurnedAway;
+    private final LongAdder vehiclesDiverted;
+    private final ConcurrentHashMap<String, LongAdder> admissionRejections;    // By reason
     
     // Revenue statistics
-    private final AtomicLong totalRevenue; // in cents
-    private final AtomicInteger paidVehicles;
+    private final LongAdder totalRevenue; // in cents
+    private final LongAdder paidVehicles;
     
     // Timing statistics
-    private final ConcurrentHashMap<String, Long> vehicleWaitTimes; // carId -> wait time in ms
-    private final ConcurrentHashMap<String, Long> vehicleParkingDurations; // carId -> duration in minutes
+    private final LatencyHistogram waitTimeHistogram;          // ms, arrival to parked
+    private final LatencyHistogram parkingDurationHistogram;   // ms, parked to exit
+    private final LatencyHistogram gateProcessingHistogram;    // ms, per vehicle across all gates
+    private final LatencyHistogram paymentLatencyHistogram;    // ms, per payment attempt
+    private final LatencyHistogram arrivalQueueHistogram;      // ms, arrival to start of gate service
     private final AtomicLong totalSystemRunTime;
-    private final LocalDateTime systemStartTime;
+    private final long systemStartNanos;
     
     // Peak usage tracking
     private final AtomicInteger peakOccupancy;
@@ -68,57 +75,73 @@ public class Statistics {
     private volatile LocalDateTime peakWaitingTime;
     
     // Gate statistics
-    private final ConcurrentHashMap<String, AtomicInteger> gateProcessingCounts;
-    private final ConcurrentHashMap<String, AtomicLong> gateProcessingTimes;
+    private final ConcurrentHashMap<String, GateCounters> gateCounters;
     
     // Error tracking
-    private final AtomicInteger systemErrors;
-    private final AtomicInteger paymentSystemMalfunctions;
-    private final AtomicInteger gateBarrierMalfunctions;
+    private final LongAdder systemErrors;
+    private final LongAdder paymentSystemMalfunctions;
+    private final LongAdder gateBarrierMalfunctions;
     private final ConcurrentLinkedQueue<ErrorRecord> errorLog;
     
+    // Time source (system or virtual)
+    private final SimulationClock clock;
+    
     // Periodic statistics
     private final ScheduledExecutorService statisticsReporter;
     private volatile boolean isCollecting;
     
     /**
-     * Constructor
+     * Constructor timed by the system clock
      */
     public Statistics() {
-        // Initialize concurrency controls
-        this.statisticsLock = new ReentrantReadWriteLock(true);
+        this(SystemClock.INSTANCE);
+    }
+    
+    /**
+     * Constructor timed by a specific clock
+     * @param clock time source for runtime, peak and error timestamps
+     */
+    public Statistics(SimulationClock clock) {
+        this.clock = clock;
         
         // Initialize vehicle statistics
-        this.totalVehiclesGenerated = new AtomicInteger(0);
-        this.totalVehiclesEntered = new AtomicInteger(0);
-        this.totalVehiclesExited = new AtomicInteger(0);
+        this.totalVehiclesGenerated = new LongAdder();
+        this.totalVehiclesEntered = new LongAdder();
+        this.totalVehiclesExited = new LongAdder();
         this.currentlyParked = new AtomicInteger(0);
-        this.totalPaymentFailures = new AtomicInteger(0);
+        this.totalPaymentFailures = new LongAdder();
+        
+        // Initialize admission statistics
+        this.vehiclesTurnedAway = new LongAdder();
+        this.vehiclesDiverted = new LongAdder();
+        this.admissionRejections = new ConcurrentHashMap<String, LongAdder>();
         
         // Initialize revenue statistics
-        this.totalRevenue = new AtomicLong(0);
-        this.paidVehicles = new AtomicInteger(0);
+        this.totalRevenue = new LongAdder();
+        this.paidVehicles = new LongAdder();
         
         // Initialize timing statistics
-        this.vehicleWaitTimes = new ConcurrentHashMap<String, Long>();
-        this.vehicleParkingDurations = new ConcurrentHashMap<String, Long>();
+        this.waitTimeHistogram = new LatencyHistogram();
+        this.parkingDurationHistogram = new LatencyHistogram();
+        this.gateProcessingHistogram = new LatencyHistogram();
+        this.paymentLatencyHistogram = new LatencyHistogram();
+        this.arrivalQueueHistogram = new LatencyHistogram();
         this.totalSystemRunTime = new AtomicLong(0);
-        this.systemStartTime = LocalDateTime.now();
+        this.systemStartNanos = clock.nanoTime();
         
         // Initialize peak tracking
         this.peakOccupancy = new AtomicInteger(0);
         this.peakWaitingQueue = new AtomicInteger(0);
-        this.peakOccupancyTime = LocalDateTime.now();
-        this.peakWaitingTime = LocalDateTime.now();
+        this.peakOccupancyTime = clock.now();
+        this.peakWaitingTime = clock.now();
         
         // Initialize gate statistics
-        this.gateProcessingCounts = new ConcurrentHashMap<String, AtomicInteger>();
-        this.gateProcessingTimes = new ConcurrentHashMap<String, AtomicLong>();
+        this.gateCounters = new ConcurrentHashMap<String, GateCounters>();
         
         // Initialize error tracking
-        this.systemErrors = new AtomicInteger(0);
-        this.paymentSystemMalfunctions = new AtomicInteger(0);
-        this.gateBarrierMalfunctions = new AtomicInteger(0);
+        this.systemErrors = new LongAdder();
+        this.paymentSystemMalfunctions = new LongAdder();
+        this.gateBarrierMalfunctions = new LongAdder();
         this.errorLog = new ConcurrentLinkedQueue<ErrorRecord>();
         
         // Initialize reporting
@@ -132,7 +155,7 @@ public class Statistics {
         });
         this.isCollecting = true;
         
-        logEvent("Statistics collection system initialized");
+        LOG.info("Statistics collection system initialized");
     }
     
     /**
@@ -151,80 +174,152 @@ public class Statistics {
                 TimeUnit.MINUTES
         );
         
-        logEvent("Periodic reporting started - interval: " + intervalMinutes + " minutes");
+        LOG.info("Periodic reporting started - interval: {} minutes", intervalMinutes);
     }
     
     /**
      * Record vehicle generation
      */
     public void recordVehicleGenerated() {
-        totalVehiclesGenerated.incrementAndGet();
+        totalVehiclesGenerated.increment();
     }
     
     /**
      * Record vehicle entry
      */
     public void recordVehicleEntry(Car car, long waitTimeMs) {
-        totalVehiclesEntered.incrementAndGet();
+        totalVehiclesEntered.increment();
         int parked = currentlyParked.incrementAndGet();
         
         // Record wait time
         if (waitTimeMs >= 0) {
-            vehicleWaitTimes.put(car.getCarId(), waitTimeMs);
+            waitTimeHistogram.record(waitTimeMs);
         }
         
         // Update peak occupancy
         updatePeakOccupancy(parked);
         
-        logEvent("Vehicle entry recorded: " + car.getCarId() + 
-                " (Wait: " + waitTimeMs + "ms, Current parked: " + parked + ")");
+        LOG.info("Vehicle entry recorded: {} (Wait: {}ms, Current parked: {})", car.getCarId(), waitTimeMs, parked);
+    }
+    
+    /**
+     * Record cars that were already parked when the system restarted
+     * They were never counted as entries on this run, but will be counted as exits.
+     */
+    public void recordRecoveredVehicles(int count) {
+        int parked = currentlyParked.addAndGet(count);
+        updatePeakOccupancy(parked);
+        LOG.info("Recovered vehicles recorded: {} (Current parked: {})", count, parked);
     }
     
     /**
      * Record vehicle exit
      */
     public void recordVehicleExit(Car car) {
-        totalVehiclesExited.incrementAndGet();
+        recordVehicleExit(car, car.isPaid());
+    }
+    
+    /**
+     * Record vehicle exit
+     * @param paid whether the fee was collected at the gate (false for a car
+     *        leaving on a pay-later token; see recordDeferredPaymentSettled)
+     */
+    public void recordVehicleExit(Car car, boolean paid) {
+        totalVehiclesExited.increment();
         currentlyParked.decrementAndGet();
         
         // Record parking duration
         long duration = car.getActualParkingDuration();
-        if (duration > 0) {
-            vehicleParkingDurations.put(car.getCarId(), duration);
+        long durationMs = car.getActualParkingDurationMillis();
+        if (durationMs >= 0) {
+            parkingDurationHistogram.record(durationMs);
         }
         
         // Record payment information
-        if (car.isPaid()) {
-            paidVehicles.incrementAndGet();
+        if (paid) {
+            paidVehicles.increment();
             long revenueInCents = Math.round(car.getPaymentAmount() * 100);
-            totalRevenue.addAndGet(revenueInCents);
+            totalRevenue.add(revenueInCents);
         }
         
-        logEvent("Vehicle exit recorded: " + car.getCarId() + 
-                " (Duration: " + duration + " min, Paid: " + car.isPaid() + ")");
+        LOG.info("Vehicle exit recorded: {} (Duration: {} min, Paid: {})", car.getCarId(), duration, paid);
     }
     
     /**
- * Record gate processing statistics
- */
-public void recordGateProcessing(String gateName, long processingTimeMs) {
+     * Record a pay-later fee collected after the car had already exited
+     */
+    public void recordDeferredPaymentSettled(Car car) {
+        paidVehicles.increment();
+        totalRevenue.add(Math.round(car.getPaymentAmount() * 100));
+        LOG.info("Deferred payment recorded: {} (${.2})", car.getCarId(), car.getPaymentAmount());
+    }
     
-    if (!gateProcessingCounts.containsKey(gateName)) {
-        gateProcessingCounts.put(gateName, new AtomicInteger(0));
+    /**
+     * Register a gate's counters up front so recording never touches the map
+     * @param gateName gate identifier used in reports
+     * @return the gate's counters (the same instance on repeated calls)
+     */
+    public GateCounters registerGate(String gateName) {
+        return gateCounters.computeIfAbsent(gateName, GateCounters::new);
     }
-    gateProcessingCounts.get(gateName).incrementAndGet();
     
-    if (!gateProcessingTimes.containsKey(gateName)) {
-        gateProcessingTimes.put(gateName, new AtomicLong(0));
+    /**
+     * Record gate processing statistics for a registered gate
+     */
+    public void recordGateProcessing(GateCounters gate, long processingTimeMs) {
+        gate.vehicles.increment();
+        gate.processingTimeMs.add(processingTimeMs);
+        gate.window.get().record(processingTimeMs);
+        gateProcessingHistogram.record(processingTimeMs);
+    }
+    
+    /**
+     * Record gate processing statistics by gate name
+     */
+    public void recordGateProcessing(String gateName, long processingTimeMs) {
+        recordGateProcessing(registerGate(gateName), processingTimeMs);
+    }
+    
+    /**
+     * Record how long one payment attempt took end to end
+     */
+    public void recordPaymentLatency(long latencyMs) {
+        paymentLatencyHistogram.record(latencyMs);
+    }
+    
+    /**
+     * Record how long a vehicle queued before a gate began serving it
+     * (arrival buffer plus any per-gate lane)
+     */
+    public void recordArrivalQueueTime(long queueTimeMs) {
+        arrivalQueueHistogram.record(queueTimeMs);
+    }
+    
+    /**
+     * Record a vehicle refused entry by admission control
+     * @param reason why it was refused (e.g. ARRIVAL_BUFFER_FULL, LOT_FULL)
+     */
+    public void recordVehicleTurnedAway(Car car, String reason) {
+        vehiclesTurnedAway.increment();
+        admissionRejections.computeIfAbsent(reason, r -> new LongAdder()).increment();
+        LOG.info("Vehicle turned away: {} ({})", car.getCarId(), reason);
+    }
+    
+    /**
+     * Record a vehicle sent to the overflow lot by admission control
+     * @param reason why it was diverted (e.g. ARRIVAL_BUFFER_FULL, LOT_FULL)
+     */
+    public void recordVehicleDiverted(Car car, String reason) {
+        vehiclesDiverted.increment();
+        admissionRejections.computeIfAbsent(reason, r -> new LongAdder()).increment();
+        LOG.info("Vehicle diverted to overflow: {} ({})", car.getCarId(), reason);
     }
-    gateProcessingTimes.get(gateName).addAndGet(processingTimeMs);
-}
     
     /**
      * Record payment failure
      */
     public void recordPaymentFailure(Car car, String reason) {
-        totalPaymentFailures.incrementAndGet();
+        totalPaymentFailures.increment();
         recordError("PAYMENT_FAILURE", "Payment failed for " + car.getCarId() + ": " + reason);
     }
     
@@ -232,10 +327,10 @@ public void recordGateProcessing(String gateName, long processingTimeMs) {
      * Record system error
      */
     public void recordError(String errorType, String description) {
-        systemErrors.incrementAndGet();
+        systemErrors.increment();
         
         ErrorRecord error = new ErrorRecord(
-                LocalDateTime.now(),
+                clock.now(),
                 errorType,
                 description,
                 Thread.currentThread().getName()
@@ -248,7 +343,7 @@ public void recordGateProcessing(String gateName, long processingTimeMs) {
             errorLog.poll();
         }
         
-        logEvent("ERROR RECORDED: " + errorType + " - " + description);
+        LOG.error("ERROR RECORDED: {} - {}", errorType, description);
     }
     
     /**
@@ -258,7 +353,7 @@ public void recordGateProcessing(String gateName, long processingTimeMs) {
         int currentPeak = peakOccupancy.get();
         if (currentOccupancy > currentPeak) {
             if (peakOccupancy.compareAndSet(currentPeak, currentOccupancy)) {
-                peakOccupancyTime = LocalDateTime.now();
+                peakOccupancyTime = clock.now();
             }
         }
     }
@@ -270,7 +365,7 @@ public void recordGateProcessing(String gateName, long processingTimeMs) {
         int currentPeak = peakWaitingQueue.get();
         if (queueSize > currentPeak) {
             if (peakWaitingQueue.compareAndSet(currentPeak, queueSize)) {
-                peakWaitingTime = LocalDateTime.now();
+                peakWaitingTime = clock.now();
             }
         }
     }
@@ -279,93 +374,106 @@ public void recordGateProcessing(String gateName, long processingTimeMs) {
      * Calculate average waiting time
      */
     public double getAverageWaitingTime() {
-        if (vehicleWaitTimes.isEmpty()) return 0.0;
-        
-        long totalWaitTime = 0;
-        for (Long waitTime : vehicleWaitTimes.values()) {
-            totalWaitTime += waitTime;
-        }
-        
-        return (double) totalWaitTime / vehicleWaitTimes.size() / 1000.0; // Convert to seconds
+        return waitTimeHistogram.getMean() / 1000.0; // Convert to seconds
     }
     
     /**
      * Calculate average parking duration
      */
     public double getAverageParkingDuration() {
-        if (vehicleParkingDurations.isEmpty()) return 0.0;
-        
-        long totalDuration = 0;
-        for (Long duration : vehicleParkingDurations.values()) {
-            totalDuration += duration;
-        }
-        
-        return (double) totalDuration / vehicleParkingDurations.size(); // In minutes
+        return parkingDurationHistogram.getMean() / 60000.0; // In minutes
     }
     
     /**
      * Get total revenue
      */
     public double getTotalRevenue() {
-        return totalRevenue.get() / 100.0; // Convert cents to dollars
+        return totalRevenue.sum() / 100.0; // Convert cents to dollars
     }
     
     /**
      * Generate comprehensive statistics report
      */
     public SystemStatistics generateFinalReport() {
-        statisticsLock.readLock().lock();
-        try {
-            // Calculate system runtime
-            long runtimeMinutes = java.time.Duration.between(systemStartTime, LocalDateTime.now()).toMinutes();
-            
-            // Calculate efficiency metrics
-            double entryEfficiency = totalVehiclesGenerated.get() > 0 ? 
-                    (double) totalVehiclesEntered.get() / totalVehiclesGenerated.get() * 100 : 0.0;
-            
-            double paymentSuccessRate = totalVehiclesExited.get() > 0 ? 
-                    (double) paidVehicles.get() / totalVehiclesExited.get() * 100 : 0.0;
-            
-            // Create comprehensive report
-            return new SystemStatistics(
-                    // Vehicle statistics
-                    totalVehiclesGenerated.get(),
-                    totalVehiclesEntered.get(),
-                    totalVehiclesExited.get(),
-                    currentlyParked.get(),
-                    
-                    // Timing statistics
-                    getAverageWaitingTime(),
-                    getAverageParkingDuration(),
-                    runtimeMinutes,
-                    
-                    // Revenue statistics
-                    getTotalRevenue(),
-                    paidVehicles.get(),
-                    totalPaymentFailures.get(),
-                    paymentSuccessRate,
-                    
-                    // Peak statistics
-                    peakOccupancy.get(),
-                    peakOccupancyTime,
-                    peakWaitingQueue.get(),
-                    peakWaitingTime,
-                    
-                    // Efficiency metrics
-                    entryEfficiency,
-                    
-                    // Error statistics
-                    systemErrors.get(),
-                    new ArrayList<ErrorRecord>(errorLog),
-                    
-                    // Gate statistics
-                    new HashMap<String, AtomicInteger>(gateProcessingCounts),
-                    new HashMap<String, AtomicLong>(gateProcessingTimes)
-            );
-            
-        } finally {
-            statisticsLock.readLock().unlock();
+        // Calculate system runtime
+        long runtimeMinutes = TimeUnit.NANOSECONDS.toMinutes(clock.nanoTime() - systemStartNanos);
+        
+        // Calculate efficiency metrics
+        double entryEfficiency = totalVehiclesGenerated.intValue() > 0 ? 
+                (double) totalVehiclesEntered.intValue() / totalVehiclesGenerated.intValue() * 100 : 0.0;
+        
+        double paymentSuccessRate = totalVehiclesExited.intValue() > 0 ? 
+                (double) paidVehicles.intValue() / totalVehiclesExited.intValue() * 100 : 0.0;
+        
+        // Create comprehensive report
+        return new SystemStatistics(
+                // Vehicle statistics
+                totalVehiclesGenerated.intValue(),
+                totalVehiclesEntered.intValue(),
+                totalVehiclesExited.intValue(),
+                currentlyParked.get(),
+                
+                // Timing statistics
+                getAverageWaitingTime(),
+                getAverageParkingDuration(),
+                runtimeMinutes,
+                waitTimeHistogram.snapshot(),
+                parkingDurationHistogram.snapshot(),
+                gateProcessingHistogram.snapshot(),
+                paymentLatencyHistogram.snapshot(),
+                arrivalQueueHistogram.snapshot(),
+                
+                // Admission statistics
+                vehiclesTurnedAway.intValue(),
+                vehiclesDiverted.intValue(),
+                admissionRejectionSnapshot(),
+                
+                // Revenue statistics
+                getTotalRevenue(),
+                paidVehicles.intValue(),
+                totalPaymentFailures.intValue(),
+                paymentSuccessRate,
+                
+                // Peak statistics
+                peakOccupancy.get(),
+                peakOccupancyTime,
+                peakWaitingQueue.get(),
+                peakWaitingTime,
+                
+                // Efficiency metrics
+                entryEfficiency,
+                
+                // Error statistics
+                systemErrors.intValue(),
+                new ArrayList<ErrorRecord>(errorLog),
+                
+                // Gate statistics
+                gateCountSnapshot(false),
+                gateCountSnapshot(true)
+        );
+    }
+    
+    /**
+     * Copy per-gate totals into a plain map for a report
+     * @param processingTime true for total processing ms, false for vehicle counts
+     */
+    private Map<String, Long> gateCountSnapshot(boolean processingTime) {
+        Map<String, Long> snapshot = new HashMap<String, Long>();
+        for (GateCounters gate : gateCounters.values()) {
+            snapshot.put(gate.gateName, processingTime ? gate.processingTimeMs.sum() : gate.vehicles.sum());
+        }
+        return snapshot;
+    }
+    
+    /**
+     * Copy admission rejection counts by reason into a plain map for a report
+     */
+    private Map<String, Long> admissionRejectionSnapshot() {
+        Map<String, Long> snapshot = new HashMap<String, Long>();
+        for (Map.Entry<String, LongAdder> entry : admissionRejections.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().sum());
         }
+        return snapshot;
     }
     
     /**
@@ -374,123 +482,157 @@ public void recordGateProcessing(String gateName, long processingTimeMs) {
     private void generatePeriodicReport() {
         if (!isCollecting) return;
         
-        logEvent("=== PERIODIC STATISTICS REPORT ===");
+        LOG.info("=== PERIODIC STATISTICS REPORT ===");
         
         SystemStatistics stats = generateFinalReport();
         
-        logEvent("Vehicles: Generated=" + stats.totalGenerated + 
-                ", Entered=" + stats.totalEntered + 
-                ", Exited=" + stats.totalExited + 
-                ", Currently Parked=" + stats.currentlyParked);
+        LOG.info("Vehicles: Generated={}, Entered={}, Exited={}, Currently Parked={}",
+                stats.totalGenerated, stats.totalEntered, stats.totalExited, stats.currentlyParked);
         
-        logEvent("Timing: Avg Wait=" + String.format("%.2f", stats.averageWaitingTime) + "s" +
-                ", Avg Parking=" + String.format("%.2f", stats.averageParkingDuration) + " min");
+        LOG.info("Timing: Avg Wait={.2}s, Avg Parking={.2} min",
+                stats.averageWaitingTime, stats.averageParkingDuration);
+        LOG.info("Wait (ms): {}", stats.waitTimePercentiles);
+        LOG.info("Parking (ms): {}", stats.parkingDurationPercentiles);
+        LOG.info("Gate Processing (ms): {}", stats.gateProcessingPercentiles);
+        LOG.info("Payment Latency (ms): {}", stats.paymentLatencyPercentiles);
+        LOG.info("Arrival Queue (ms): {}", stats.arrivalQueuePercentiles);
+        LOG.info("Admission: Turned Away={}, Diverted={}, By Reason={}",
+                stats.vehiclesTurnedAway, stats.vehiclesDiverted, stats.admissionRejections);
         
-        logEvent("Revenue: Total=$" + String.format("%.2f", stats.totalRevenue) +
-                ", Paid Vehicles=" + stats.paidVehicles +
-                ", Payment Success=" + String.format("%.1f%%", stats.paymentSuccessRate));
+        LOG.info("Revenue: Total=${.2}, Paid Vehicles={}, Payment Success={.1}%",
+                stats.totalRevenue, stats.paidVehicles, stats.paymentSuccessRate);
         
-        logEvent("Peak Usage: Occupancy=" + stats.peakOccupancy + 
-                " at " + stats.peakOccupancyTime.format(TIME_FORMAT) +
-                ", Queue=" + stats.peakWaitingQueue +
-                " at " + stats.peakWaitingTime.format(TIME_FORMAT));
+        LOG.info("Peak Usage: Occupancy={} at {}, Queue={} at {}",
+                stats.peakOccupancy, stats.peakOccupancyTime.format(TIME_FORMAT), stats.peakWaitingQueue, stats.peakWaitingTime.format(TIME_FORMAT));
         
-        logEvent("Errors: Total=" + stats.totalErrors + 
-                ", Payment Failures=" + totalPaymentFailures.get());
+        LOG.info("Errors: Total={}, Payment Failures={}", stats.totalErrors, totalPaymentFailures.intValue());
         
-        logEvent("=== END PERIODIC REPORT ===");
+        LOG.info("=== END PERIODIC REPORT ===");
     }
     
     /**
-     * Print comprehensive final statistics
+     * Print comprehensive final statistics to stdout
      */
     public void printFinalStatistics() {
+        printFinalStatistics(System.out);
+    }
+    
+    /**
+     * Print comprehensive final statistics
+     * @param out where the report goes (batch runs keep it off stdout)
+     */
+    public void printFinalStatistics(PrintStream out) {
         SystemStatistics stats = generateFinalReport();
         
-        System.out.println("\n" + repeatString("=", 80));
-        System.out.println("           SMART PARKING SYSTEM - FINAL STATISTICS REPORT");
-        System.out.println(repeatString("=", 80));
+        // Report is written directly; let pending log events go first
+        EventLog.flush();
+        
+        out.println("\n" + repeatString("=", 80));
+        out.println("           SMART PARKING SYSTEM - FINAL STATISTICS REPORT");
+        out.println(repeatString("=", 80));
         
         // Vehicle Statistics
-        System.out.println("\n🚗 VEHICLE STATISTICS:");
-        System.out.println("  Total Vehicles Generated: " + stats.totalGenerated);
-        System.out.println("  Vehicles Entered System:  " + stats.totalEntered + 
+        out.println("\n🚗 VEHICLE STATISTICS:");
+        out.println("  Total Vehicles Generated: " + stats.totalGenerated);
+        out.println("  Vehicles Entered System:  " + stats.totalEntered + 
                           " (" + String.format("%.1f%%", stats.entryEfficiency) + " entry rate)");
-        System.out.println("  Vehicles Successfully Exited: " + stats.totalExited);
-        System.out.println("  Currently Parked: " + stats.currentlyParked);
+        out.println("  Vehicles Successfully Exited: " + stats.totalExited);
+        out.println("  Currently Parked: " + stats.currentlyParked);
         
         // Timing Statistics
-        System.out.println("\n⏱️  TIMING STATISTICS:");
-        System.out.println("  Average Waiting Time: " + String.format("%.2f", stats.averageWaitingTime) + " seconds");
-        System.out.println("  Average Parking Duration: " + String.format("%.2f", stats.averageParkingDuration) + " minutes");
-        System.out.println("  Total System Runtime: " + stats.systemRuntimeMinutes + " minutes");
+        out.println("\n⏱️  TIMING STATISTICS:");
+        out.println("  Average Waiting Time: " + String.format("%.2f", stats.averageWaitingTime) + " seconds");
+        out.println("  Average Parking Duration: " + String.format("%.2f", stats.averageParkingDuration) + " minutes");
+        out.println("  Total System Runtime: " + stats.systemRuntimeMinutes + " minutes");
+        out.println("  Percentiles (ms)       p50      p90      p99    p99.9      max");
+        printPercentiles(out, "Waiting Time", stats.waitTimePercentiles);
+        printPercentiles(out, "Parking Duration", stats.parkingDurationPercentiles);
+        printPercentiles(out, "Gate Processing", stats.gateProcessingPercentiles);
+        printPercentiles(out, "Payment Latency", stats.paymentLatencyPercentiles);
+        printPercentiles(out, "Arrival Queue", stats.arrivalQueuePercentiles);
+        
+        // Admission Statistics
+        out.println("\n🚧 ADMISSION STATISTICS:");
+        out.println("  Vehicles Turned Away: " + stats.vehiclesTurnedAway);
+        out.println("  Vehicles Diverted to Overflow: " + stats.vehiclesDiverted);
+        for (Map.Entry<String, Long> entry : stats.admissionRejections.entrySet()) {
+            out.println("    " + entry.getKey() + ": " + entry.getValue());
+        }
         
         // Revenue Statistics
-        System.out.println("\n💰 REVENUE STATISTICS:");
-        System.out.println("  Total Revenue Collected: $" + String.format("%.2f", stats.totalRevenue));
-        System.out.println("  Vehicles Paid: " + stats.paidVehicles + " / " + stats.totalExited);
-        System.out.println("  Payment Success Rate: " + String.format("%.1f%%", stats.paymentSuccessRate));
-        System.out.println("  Payment Failures: " + totalPaymentFailures.get());
+        out.println("\n💰 REVENUE STATISTICS:");
+        out.println("  Total Revenue Collected: $" + String.format("%.2f", stats.totalRevenue));
+        out.println("  Vehicles Paid: " + stats.paidVehicles + " / " + stats.totalExited);
+        out.println("  Payment Success Rate: " + String.format("%.1f%%", stats.paymentSuccessRate));
+        out.println("  Payment Failures: " + totalPaymentFailures.intValue());
         
         if (stats.totalExited > 0) {
             double avgRevenuePerVehicle = stats.totalRevenue / stats.totalExited;
-            System.out.println("  Average Revenue per Vehicle: $" + String.format("%.2f", avgRevenuePerVehicle));
+            out.println("  Average Revenue per Vehicle: $" + String.format("%.2f", avgRevenuePerVehicle));
         }
         
         // Peak Usage Statistics
-        System.out.println("\n📊 PEAK USAGE STATISTICS:");
-        System.out.println("  Peak Occupancy: " + stats.peakOccupancy + " vehicles at " + 
+        out.println("\n📊 PEAK USAGE STATISTICS:");
+        out.println("  Peak Occupancy: " + stats.peakOccupancy + " vehicles at " + 
                           stats.peakOccupancyTime.format(DateTimeFormatter.ofPattern("HH:mm:ss")));
-        System.out.println("  Peak Waiting Queue: " + stats.peakWaitingQueue + " vehicles at " + 
+        out.println("  Peak Waiting Queue: " + stats.peakWaitingQueue + " vehicles at " + 
                           stats.peakWaitingTime.format(DateTimeFormatter.ofPattern("HH:mm:ss")));
         
         // Gate Performance
-        System.out.println("\n🚪 GATE PERFORMANCE:");
-        for (Map.Entry<String, AtomicInteger> entry : stats.gateProcessingCounts.entrySet()) {
+        out.println("\n🚪 GATE PERFORMANCE:");
+        for (Map.Entry<String, Long> entry : stats.gateProcessingCounts.entrySet()) {
             String gateName = entry.getKey();
-            int count = entry.getValue().get();
-            AtomicLong totalTimeAtomic = stats.gateProcessingTimes.get(gateName);
-            long totalTime = totalTimeAtomic != null ? totalTimeAtomic.get() : 0;
+            long count = entry.getValue();
+            Long totalTimeBoxed = stats.gateProcessingTimes.get(gateName);
+            long totalTime = totalTimeBoxed != null ? totalTimeBoxed : 0;
             double avgTime = count > 0 ? (double) totalTime / count : 0;
             
-            System.out.println("  " + gateName + ": " + count + " vehicles processed" +
+            out.println("  " + gateName + ": " + count + " vehicles processed" +
                               " (avg: " + String.format("%.2f", avgTime) + "ms)");
         }
         
         // Error Statistics
-        System.out.println("\n⚠️  ERROR STATISTICS:");
-        System.out.println("  Total System Errors: " + stats.totalErrors);
-        System.out.println("  Payment Failures: " + totalPaymentFailures.get());
+        out.println("\n⚠️  ERROR STATISTICS:");
+        out.println("  Total System Errors: " + stats.totalErrors);
+        out.println("  Payment Failures: " + totalPaymentFailures.intValue());
         
         if (!stats.errorLog.isEmpty()) {
-            System.out.println("\n  Recent Errors:");
+            out.println("\n  Recent Errors:");
             List<ErrorRecord> errorList = new ArrayList<ErrorRecord>(stats.errorLog);
             int startIndex = Math.max(0, errorList.size() - 5);
             for (int i = startIndex; i < errorList.size(); i++) {
-                System.out.println("    " + errorList.get(i).toString());
+                out.println("    " + errorList.get(i).toString());
             }
         }
         
         // System Efficiency Summary
-        System.out.println("\n📈 EFFICIENCY SUMMARY:");
-        System.out.println("  Entry Success Rate: " + String.format("%.1f%%", stats.entryEfficiency));
-        System.out.println("  Payment Success Rate: " + String.format("%.1f%%", stats.paymentSuccessRate));
+        out.println("\n📈 EFFICIENCY SUMMARY:");
+        out.println("  Entry Success Rate: " + String.format("%.1f%%", stats.entryEfficiency));
+        out.println("  Payment Success Rate: " + String.format("%.1f%%", stats.paymentSuccessRate));
         
         if (stats.systemRuntimeMinutes > 0) {
             double vehiclesPerHour = (double) stats.totalEntered / (stats.systemRuntimeMinutes / 60.0);
-            System.out.println("  Throughput: " + String.format("%.1f", vehiclesPerHour) + " vehicles/hour");
+            out.println("  Throughput: " + String.format("%.1f", vehiclesPerHour) + " vehicles/hour");
         }
         
-        System.out.println("\n" + repeatString("=", 80));
-        System.out.println("                    END OF STATISTICS REPORT");
-        System.out.println(repeatString("=", 80) + "\n");
+        out.println("\n" + repeatString("=", 80));
+        out.println("                    END OF STATISTICS REPORT");
+        out.println(repeatString("=", 80) + "\n");
+    }
+    
+    /**
+     * Print one row of the percentile table
+     */
+    private void printPercentiles(PrintStream out, String label, LatencyHistogram.Snapshot snapshot) {
+        out.println(String.format("  %-18s %8d %8d %8d %8d %8d",
+                label, snapshot.p50, snapshot.p90, snapshot.p99, snapshot.p999, snapshot.max));
     }
     
     /**
      * Stop statistics collection and reporting
      */
     public void shutdown() {
-        logEvent("Shutting down statistics collection");
+        LOG.info("Shutting down statistics collection");
         isCollecting = false;
         
         statisticsReporter.shutdown();
@@ -503,7 +645,7 @@ public void recordGateProcessing(String gateName, long processingTimeMs) {
             Thread.currentThread().interrupt();
         }
         
-        logEvent("Statistics collection shutdown complete");
+        LOG.info("Statistics collection shutdown complete");
     }
     
     /**
@@ -514,11 +656,31 @@ public void recordGateProcessing(String gateName, long processingTimeMs) {
     }
     
     /**
-     * Utility method for consistent logging
+     * Inner class holding one gate's striped counters
      */
-    private void logEvent(String message) {
-        System.out.println("[" + LocalDateTime.now().format(TIME_FORMAT) + 
-                          "] [STATS] " + message);
+    public static class GateCounters {
+        private final String gateName;
+        private final LongAdder vehicles;
+        private final LongAdder processingTimeMs;
+        private final AtomicReference<LatencyHistogram> window;  // Since the last takeWindow()
+        
+        private GateCounters(String gateName) {
+            this.gateName = gateName;
+            this.vehicles = new LongAdder();
+            this.processingTimeMs = new LongAdder();
+            this.window = new AtomicReference<LatencyHistogram>(new LatencyHistogram());
+        }
+        
+        /**
+         * Take the processing times recorded since the previous call and start a new window
+         */
+        public LatencyHistogram takeWindow() {
+            return window.getAndSet(new LatencyHistogram());
+        }
+        
+        public String getGateName() { return gateName; }
+        public long getVehicles() { return vehicles.sum(); }
+        public long getProcessingTimeMs() { return processingTimeMs.sum(); }
     }
     
     /**
@@ -564,6 +726,16 @@ public void recordGateProcessing(String gateName, long processingTimeMs) {
         public final double averageWaitingTime;
         public final double averageParkingDuration;
         public final long systemRuntimeMinutes;
+        public final LatencyHistogram.Snapshot waitTimePercentiles;
+        public final LatencyHistogram.Snapshot parkingDurationPercentiles;
+        public final LatencyHistogram.Snapshot gateProcessingPercentiles;
+        public final LatencyHistogram.Snapshot paymentLatencyPercentiles;
+        public final LatencyHistogram.Snapshot arrivalQueuePercentiles;
+        
+        // Admission statistics
+        public final int vehiclesTurnedAway;
+        public final int vehiclesDiverted;
+        public final Map<String, Long> admissionRejections;
         
         // Revenue statistics
         public final double totalRevenue;
@@ -585,15 +757,19 @@ public void recordGateProcessing(String gateName, long processingTimeMs) {
         public final List<ErrorRecord> errorLog;
         
         // Gate statistics
-        public final Map<String, AtomicInteger> gateProcessingCounts;
-        public final Map<String, AtomicLong> gateProcessingTimes;
+        public final Map<String, Long> gateProcessingCounts;
+        public final Map<String, Long> gateProcessingTimes;
         
         public SystemStatistics(int totalGenerated, int totalEntered, int totalExited, int currentlyParked,
                               double averageWaitingTime, double averageParkingDuration, long systemRuntimeMinutes,
+                              LatencyHistogram.Snapshot waitTimePercentiles, LatencyHistogram.Snapshot parkingDurationPercentiles,
+                              LatencyHistogram.Snapshot gateProcessingPercentiles, LatencyHistogram.Snapshot paymentLatencyPercentiles,
+                              LatencyHistogram.Snapshot arrivalQueuePercentiles,
+                              int vehiclesTurnedAway, int vehiclesDiverted, Map<String, Long> admissionRejections,
                               double totalRevenue, int paidVehicles, int paymentFailures, double paymentSuccessRate,
                               int peakOccupancy, LocalDateTime peakOccupancyTime, int peakWaitingQueue, LocalDateTime peakWaitingTime,
                               double entryEfficiency, int totalErrors, List<ErrorRecord> errorLog,
-                              Map<String, AtomicInteger> gateProcessingCounts, Map<String, AtomicLong> gateProcessingTimes) {
+                              Map<String, Long> gateProcessingCounts, Map<String, Long> gateProcessingTimes) {
             
             this.totalGenerated = totalGenerated;
             this.totalEntered = totalEntered;
@@ -602,6 +778,14 @@ public void recordGateProcessing(String gateName, long processingTimeMs) {
             this.averageWaitingTime = averageWaitingTime;
             this.averageParkingDuration = averageParkingDuration;
             this.systemRuntimeMinutes = systemRuntimeMinutes;
+            this.waitTimePercentiles = waitTimePercentiles;
+            this.parkingDurationPercentiles = parkingDurationPercentiles;
+            this.gateProcessingPercentiles = gateProcessingPercentiles;
+            this.paymentLatencyPercentiles = paymentLatencyPercentiles;
+            this.arrivalQueuePercentiles = arrivalQueuePercentiles;
+            this.vehiclesTurnedAway = vehiclesTurnedAway;
+            this.vehiclesDiverted = vehiclesDiverted;
+            this.admissionRejections = admissionRejections;
             this.totalRevenue = totalRevenue;
             this.paidVehicles = paidVehicles;
             this.paymentFailures = paymentFailures;
@@ -0,0 +1,79 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * SystemClock - SimulationClock backed by the real system time
+ * Used by the threaded simulation; sleeping blocks the calling thread.
+ * The zero-latency variant keeps real time but skips every simulated delay
+ * (gate, payment and recovery sleeps), so benchmarks measure only the
+ * coordination code.
+ */
+public final class SystemClock implements SimulationClock {
+    
+    // Shared instances (the clock is stateless)
+    public static final SystemClock INSTANCE = new SystemClock(true);
+    public static final SystemClock ZERO_LATENCY = new SystemClock(false);
+    
+    // Whether sleep() actually waits
+    private final boolean simulateDelays;
+    
+    private SystemClock(boolean simulateDelays) {
+        this.simulateDelays = simulateDelays;
+    }
+    
+    /**
+     * Get the clock selected by the smartparking.zeroLatency system property
+     */
+    public static SystemClock fromSystemProperties() {
+        return Boolean.getBoolean("smartparking.zeroLatency") ? ZERO_LATENCY : INSTANCE;
+    }
+    
+    /**
+     * Check whether simulated delays are skipped
+     */
+    public boolean isZeroLatency() {
+        return !simulateDelays;
+    }
+    
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+    
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+    
+    @Override
+    public LocalDateTime now() {
+        return LocalDateTime.now();
+    }
+    
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        if (simulateDelays) {
+            Thread.sleep(millis);
+        } else if (Thread.interrupted()) {
+            // Still honour interruption so shutdown paths behave the same
+            throw new InterruptedException();
+        }
+    }
+    
+    @Override
+    public Random random() {
+        return ThreadLocalRandom.current();
+    }
+}
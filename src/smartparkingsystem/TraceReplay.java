@@ -0,0 +1,181 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TraceReplay - Arrival stream read from a recorded gate log
+ * Each visit in the GateTrace becomes one vehicle with the recorded plate,
+ * arriving after the recorded gap and staying exactly the recorded time.
+ * Traces carry no vehicle type, so it is derived from the plate; a replay
+ * is the same every time.
+ * A speed factor replays in real time (1), accelerated (N: gaps and stays
+ * divided by N) or as fast as possible (no gaps, no stays - a pure gate
+ * throughput run). Replaying through the DiscreteEventSimulation at speed 1
+ * keeps the recorded timing while still finishing in wall-clock seconds.
+ *
+ * The replay reads the trace one record ahead of the vehicles it has
+ * created, so one instance serves one stream from one thread.
+ */
+public class TraceReplay implements ArrivalSource {
+    
+    // Constants
+    private static final EventLog.Component LOG = EventLog.component("TRACE_REPLAY");
+    public static final double AS_FAST_AS_POSSIBLE = Double.POSITIVE_INFINITY;
+    private static final String UNKNOWN_OWNER = "Unknown (ANPR)";
+    private static final long OPEN_STAY_NANOS = TimeUnit.DAYS.toNanos(365);  // Still parked when the log ends
+    private static final CarType[] CAR_TYPES = CarType.values();
+    
+    // Configuration
+    private final GateTrace trace;
+    private final double speed;
+    private final long totalRecords;
+    
+    // Replay position
+    private boolean recordPending;                      // Trace holds a record not yet turned into a car
+    private long lastEntryMillis;
+    private long outOfOrderRecords;
+    
+    /**
+     * Constructor
+     * @param path CSV or binary trace, ordered by entry time
+     * @param speed 1 for real time, N for N times faster, AS_FAST_AS_POSSIBLE for no waiting
+     */
+    public TraceReplay(Path path, double speed) throws IOException {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("Replay speed must be positive: " + speed);
+        }
+        this.speed = speed;
+        this.totalRecords = GateTrace.countRecords(path);
+        this.trace = GateTrace.open(path);
+        this.recordPending = trace.next();
+        this.lastEntryMillis = trace.getEntryMillis();
+        
+        LOG.info("Replaying {} visits from {} at {}", totalRecords, path.getFileName(), describeSpeed(speed));
+    }
+    
+    /**
+     * Parse a speed: "realtime", "max" (as fast as possible), "x60" or "60"
+     */
+    public static double parseSpeed(String text) {
+        String value = text.trim();
+        if (value.equalsIgnoreCase("realtime")) {
+            return 1.0;
+        }
+        if (value.equalsIgnoreCase("max")) {
+            return AS_FAST_AS_POSSIBLE;
+        }
+        if (value.startsWith("x") || value.startsWith("X")) {
+            value = value.substring(1);
+        }
+        return Double.parseDouble(value);
+    }
+    
+    private static String describeSpeed(double speed) {
+        if (speed == AS_FAST_AS_POSSIBLE) {
+            return "full speed";
+        }
+        return speed == 1.0 ? "real time" : String.format("x%.1f", speed);
+    }
+    
+    /**
+     * Recorded duration at replay speed
+     */
+    private long scale(long millis) {
+        return (long) (TimeUnit.MILLISECONDS.toNanos(millis) / speed);
+    }
+    
+    @Override
+    public long getTotalArrivals() {
+        return totalRecords;
+    }
+    
+    @Override
+    public long nextGapNanos(long index, Random random) {
+        try {
+            recordPending = trace.next();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed reading gate trace " + trace.getPath(), e);
+        }
+        if (!recordPending) {
+            return 0;
+        }
+        
+        long gapMillis = trace.getEntryMillis() - lastEntryMillis;
+        lastEntryMillis = trace.getEntryMillis();
+        if (gapMillis < 0) {
+            outOfOrderRecords++;                        // Arrives with the previous car instead
+            return 0;
+        }
+        return scale(gapMillis);
+    }
+    
+    /**
+     * Turn the current record into a car
+     * @param carId id to give the car (traces carry plates, not ids)
+     */
+    Car createVehicle(String carId, SimulationClock clock) {
+        if (!recordPending) {
+            throw new IllegalStateException("Gate trace " + trace.getPath().getFileName() + " is exhausted");
+        }
+        recordPending = false;
+        
+        long stayNanos = trace.hasExit()
+                ? scale(Math.max(0, trace.getExitMillis() - trace.getEntryMillis()))
+                : (long) (OPEN_STAY_NANOS / speed);
+        int plannedMinutes = (int) Math.max(1, Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toMinutes(stayNanos)));
+        CarType type = CAR_TYPES[Math.floorMod(trace.getPlate().hashCode(), CAR_TYPES.length)];  // Same plate, same type
+        
+        Car car = new Car(carId, trace.getPlate(), UNKNOWN_OWNER, type, plannedMinutes, clock);
+        car.setRecordedStayNanos(stayNanos);
+        return car;
+    }
+    
+    @Override
+    public ParkingDurations getParkingDurations() {
+        return null;                                    // Stays come from the trace itself
+    }
+    
+    /**
+     * Get records that went back in time and were replayed with no gap
+     */
+    public long getOutOfOrderRecords() {
+        return outOfOrderRecords;
+    }
+    
+    /**
+     * Get lines of a CSV trace that could not be parsed
+     */
+    public long getMalformedLines() {
+        return trace.getMalformedLines();
+    }
+    
+    /**
+     * Release the mapped trace
+     */
+    public void close() {
+        try {
+            trace.close();
+        } catch (IOException e) {
+            LOG.warn("WARNING: Failed to close gate trace - {}", e.getMessage());
+        }
+    }
+    
+    @Override
+    public String describe() {
+        return String.format("trace %s (%d visits, %s)", trace.getPath().getFileName(), totalRecords,
+                describeSpeed(speed));
+    }
+}
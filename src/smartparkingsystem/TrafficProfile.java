@@ -0,0 +1,252 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * TrafficProfile - Arrival rate over the day plus the matching stay lengths
+ * The rate is given at a few times of day and interpolated linearly in
+ * between, wrapping from the last point back to the first at midnight.
+ *
+ * CSV format (one entry per line, '#' starts a comment):
+ *   07:30,12.5                  arrivals per minute at 07:30
+ *   duration,SEDAN,420,0.4      median stay (minutes) and sigma for a type
+ */
+public class TrafficProfile {
+    
+    // Constants
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    
+    // Rate curve, sorted by time of day
+    private final String name;
+    private final double[] minuteOfDay;
+    private final double[] ratePerMinute;
+    private final ParkingDurations durations;
+    
+    /**
+     * Constructor
+     * @param name label for logs
+     * @param minuteOfDay times of the rate points, ascending, within [0, 1440)
+     * @param ratePerMinute arrivals per minute at each point
+     * @param durations stay lengths for cars arriving under this profile
+     */
+    public TrafficProfile(String name, double[] minuteOfDay, double[] ratePerMinute, ParkingDurations durations) {
+        if (minuteOfDay.length == 0 || minuteOfDay.length != ratePerMinute.length) {
+            throw new IllegalArgumentException("Profile " + name + " needs matching, non-empty times and rates");
+        }
+        boolean anyTraffic = false;
+        for (int i = 0; i < minuteOfDay.length; i++) {
+            if (minuteOfDay[i] < 0 || minuteOfDay[i] >= MINUTES_PER_DAY
+                    || (i > 0 && minuteOfDay[i] <= minuteOfDay[i - 1])) {
+                throw new IllegalArgumentException("Profile " + name + " times must ascend within one day");
+            }
+            if (ratePerMinute[i] < 0) {
+                throw new IllegalArgumentException("Profile " + name + " has a negative rate");
+            }
+            anyTraffic |= ratePerMinute[i] > 0;
+        }
+        if (!anyTraffic) {
+            throw new IllegalArgumentException("Profile " + name + " has no traffic");
+        }
+        this.name = name;
+        this.minuteOfDay = minuteOfDay.clone();
+        this.ratePerMinute = ratePerMinute.clone();
+        this.durations = durations;
+    }
+    
+    /**
+     * Weekday commuter lot: quiet night, sharp 08:00-09:00 peak, lunch bump,
+     * light afternoon trickle
+     */
+    public static TrafficProfile weekdayCommuter() {
+        return new TrafficProfile("weekday-commuter",
+                new double[] {0, 300, 390, 450, 510, 570, 660, 720, 810, 960, 1050, 1140, 1260, 1380},
+                new double[] {0.2, 0.3, 3.0, 12.0, 15.0, 6.0, 3.0, 4.0, 3.0, 2.5, 2.0, 1.0, 0.5, 0.2},
+                ParkingDurations.commuter());
+    }
+    
+    /**
+     * Event night: background traffic, then the crowd in the hour before a 19:30 start
+     */
+    public static TrafficProfile eventNight() {
+        return new TrafficProfile("event-night",
+                new double[] {0, 960, 1050, 1110, 1155, 1185, 1230, 1380},
+                new double[] {0.1, 0.5, 4.0, 25.0, 30.0, 8.0, 1.0, 0.2},
+                ParkingDurations.eventNight());
+    }
+    
+    /**
+     * Load a rate table from CSV (see class comment); types without a
+     * duration line use the commuter durations
+     */
+    public static TrafficProfile fromCsv(Path path) throws IOException {
+        List<double[]> points = new ArrayList<double[]>();
+        ParkingDurations durations = ParkingDurations.commuter();
+        
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                int comment = line.indexOf('#');
+                String entry = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                if (entry.isEmpty()) {
+                    continue;
+                }
+                
+                String[] fields = entry.split("\\s*,\\s*");
+                try {
+                    if (fields[0].equalsIgnoreCase("duration") && fields.length == 4) {
+                        durations.set(CarType.valueOf(fields[1].toUpperCase(Locale.ROOT)),
+                                Double.parseDouble(fields[2]), Double.parseDouble(fields[3]));
+                    } else if (fields.length == 2) {
+                        points.add(new double[] {parseMinuteOfDay(fields[0]), Double.parseDouble(fields[1])});
+                    } else {
+                        throw new IllegalArgumentException("expected 'HH:MM,rate' or 'duration,TYPE,median,sigma'");
+                    }
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(path + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        
+        points.sort((a, b) -> Double.compare(a[0], b[0]));
+        double[] minutes = new double[points.size()];
+        double[] rates = new double[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            minutes[i] = points.get(i)[0];
+            rates[i] = points.get(i)[1];
+        }
+        return new TrafficProfile(path.getFileName().toString(), minutes, rates, durations);
+    }
+    
+    /**
+     * Resolve a profile name: "commuter", "event-night" or a CSV path
+     */
+    public static TrafficProfile named(String nameOrPath) throws IOException {
+        switch (nameOrPath) {
+            case "commuter":
+            case "weekday-commuter":
+                return weekdayCommuter();
+            case "event-night":
+                return eventNight();
+            default:
+                return fromCsv(Path.of(nameOrPath));
+        }
+    }
+    
+    /**
+     * Parse "HH:MM" or a plain minute of the day
+     */
+    static double parseMinuteOfDay(String text) {
+        int colon = text.indexOf(':');
+        if (colon < 0) {
+            return Double.parseDouble(text);
+        }
+        return Integer.parseInt(text.substring(0, colon)) * 60 + Integer.parseInt(text.substring(colon + 1));
+    }
+    
+    /**
+     * Same curve with every rate multiplied (e.g. to test at twice the real peak)
+     */
+    public TrafficProfile scaled(double factor) {
+        if (!(factor > 0)) {
+            throw new IllegalArgumentException("Rate scale must be positive: " + factor);
+        }
+        double[] rates = new double[ratePerMinute.length];
+        for (int i = 0; i < rates.length; i++) {
+            rates[i] = ratePerMinute[i] * factor;
+        }
+        return new TrafficProfile(factor == 1.0 ? name : name + " x" + factor, minuteOfDay, rates, durations);
+    }
+    
+    /**
+     * Index of the rate point at or before a time of day (wrapping before the first point)
+     */
+    int segmentAt(double minute) {
+        int index = minuteOfDay.length - 1;
+        while (index >= 0 && minuteOfDay[index] > minute) {
+            index--;
+        }
+        return index < 0 ? minuteOfDay.length - 1 : index;
+    }
+    
+    /**
+     * Minutes from a time of day until the segment containing it ends
+     */
+    double minutesToSegmentEnd(int segment, double minute) {
+        double end = segment + 1 < minuteOfDay.length ? minuteOfDay[segment + 1] : minuteOfDay[0] + MINUTES_PER_DAY;
+        if (minute < minuteOfDay[segment]) {
+            end -= MINUTES_PER_DAY;                     // Wrapped segment, time is past midnight
+        }
+        return end - minute;
+    }
+    
+    /**
+     * Highest rate inside a segment (its thinning majorant)
+     */
+    double segmentMaxRate(int segment) {
+        return Math.max(ratePerMinute[segment], ratePerMinute[(segment + 1) % ratePerMinute.length]);
+    }
+    
+    /**
+     * Interpolated arrival rate at a time of day
+     * @param minute minutes since midnight, [0, 1440)
+     * @return arrivals per minute
+     */
+    public double rateAt(double minute) {
+        int segment = segmentAt(minute);
+        int next = (segment + 1) % minuteOfDay.length;
+        double start = minuteOfDay[segment];
+        double length = (next > segment ? minuteOfDay[next] : minuteOfDay[next] + MINUTES_PER_DAY) - start;
+        double into = minute >= start ? minute - start : minute + MINUTES_PER_DAY - start;
+        return ratePerMinute[segment] + (ratePerMinute[next] - ratePerMinute[segment]) * (into / length);
+    }
+    
+    /**
+     * Expected arrivals over a whole day (integral of the curve)
+     */
+    public double getDailyArrivals() {
+        double total = 0;
+        for (int i = 0; i < minuteOfDay.length; i++) {
+            double length = minutesToSegmentEnd(i, minuteOfDay[i]);
+            total += (ratePerMinute[i] + ratePerMinute[(i + 1) % ratePerMinute.length]) / 2 * length;
+        }
+        return total;
+    }
+    
+    /**
+     * Get the peak rate of the curve
+     */
+    public double getPeakRate() {
+        double peak = 0;
+        for (double rate : ratePerMinute) {
+            peak = Math.max(peak, rate);
+        }
+        return peak;
+    }
+    
+    // Getters
+    public String getName() { return name; }
+    public ParkingDurations getParkingDurations() { return durations; }
+    
+    @Override
+    public String toString() {
+        return String.format("%s (peak %.1f/min, ~%.0f arrivals/day)", name, getPeakRate(), getDailyArrivals());
+    }
+}
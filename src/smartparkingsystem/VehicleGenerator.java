@@ -9,53 +9,192 @@ package smartparkingsystem;
  * @author amiryusof
  */
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Random;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.List;
-import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * VehicleGenerator - Creates and manages the arrival of 150 vehicles
- * Simulates realistic vehicle arrival patterns with congestion scenarios
+ * VehicleGenerator - Creates vehicles and feeds them to the entry gates
+ * When vehicles arrive is decided by a pluggable ArrivalSource (by default
+ * the 150-vehicle three-phase congestion pattern). Vehicles are created one
+ * at a time as the stream is consumed, so a multi-million or unbounded
+ * stream runs in constant memory when history is switched off. Cars are
+ * stamped and gaps are waited out on the lot's clock, so a zero-latency
+ * clock releases the stream as fast as the gates take it.
  */
 public class VehicleGenerator {
     
     // Constants
-    private static final int TOTAL_VEHICLES = 150;
-    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+    public static final int DEFAULT_TOTAL_VEHICLES = 150;
+    public static final double DEFAULT_ARRIVALS_PER_MINUTE = 30.0;
+    private static final EventLog.Component LOG = EventLog.component("VEHICLE_GEN");
+    
+    // Identity formatting tables, shared by every vehicle
+    private static final String[] PLATE_STATES = {"WVA", "KL", "JHR", "PNG", "SBH", "SWK"};
+    private static final String[] FIRST_NAMES = {"Ahmad", "Siti", "Raj", "Mei", "Kumar", "Fatimah",
+                                                 "Chen", "Aisha", "David", "Priya", "Hassan", "Lisa"};
+    private static final String[] LAST_NAMES = {"Abdullah", "Wong", "Singh", "Tan", "Ali", "Lim",
+                                                "Rahman", "Chong", "Kumar", "Lee", "Ismail", "Ng"};
+    private static final String[] OWNER_NAMES = buildOwnerNames();
+    private static final CarType[] CAR_TYPES = CarType.values();
+    private static final long NANOS_PER_MS = 1000000L;
     
     // Vehicle management
     private final BlockingQueue<Car> vehicleQueue;
-    private final List<Car> allVehicles;
-    private final AtomicInteger vehicleCounter;
-    private final AtomicInteger generatedCount;
+    private final VehicleStore vehicleStore;             // Columnar history, null when not kept
+    private final AtomicLong vehicleCounter;
+    private final AtomicLong generatedCount;
+    
+    // Arrival pattern
+    private final ArrivalSource arrivals;
+    private final ParkingDurations durations;           // Null: cars draw their own 1-5 minute stay
+    private final TraceReplay traceReplay;              // Set when replaying a gate log
+    private final long totalVehicles;
     
     // Timing control
-    private final int simulationDurationMinutes;
     private volatile boolean isGenerating;
     private ExecutorService generatorExecutor;
     
     // Statistics integration
     private final Statistics statistics;
     
+    // Time source for arrival stamps and pacing (the lot's clock)
+    private final SimulationClock clock;
+    
+    // What happens when the arrival buffer is full
+    private final AdmissionControl admission;
+    
     /**
      * Constructor
      * @param simulationDurationMinutes How long the simulation should run
      * @param statistics Statistics collector for recording vehicle generation
      */
     public VehicleGenerator(int simulationDurationMinutes, Statistics statistics) {
-        this.simulationDurationMinutes = simulationDurationMinutes;
+        this(DEFAULT_TOTAL_VEHICLES, simulationDurationMinutes, statistics);
+    }
+    
+    /**
+     * Constructor with configurable traffic volume
+     * @param totalVehicles number of vehicles to generate
+     * @param simulationDurationMinutes How long the simulation should run
+     * @param statistics Statistics collector for recording vehicle generation
+     */
+    public VehicleGenerator(int totalVehicles, int simulationDurationMinutes, Statistics statistics) {
+        this(totalVehicles, simulationDurationMinutes, statistics, new AdmissionControl(statistics));
+    }
+    
+    /**
+     * Constructor with configurable traffic volume and admission control
+     * @param admission policy and arrival buffer size for vehicles the gates cannot take yet
+     */
+    public VehicleGenerator(int totalVehicles, int simulationDurationMinutes, Statistics statistics,
+                            AdmissionControl admission) {
+        this(new PhasedArrivals(totalVehicles, simulationDurationMinutes), statistics, admission,
+                configuredKeepHistory());
+    }
+    
+    /**
+     * Constructor with a pluggable arrival stream on the system clock
+     * @param arrivals when vehicles arrive and how many (a TraceReplay also supplies plates and stays)
+     * @param statistics Statistics collector for recording vehicle generation
+     * @param admission policy and arrival buffer size for vehicles the gates cannot take yet
+     * @param keepHistory record every vehicle in a VehicleStore (memory grows with the stream)
+     */
+    public VehicleGenerator(ArrivalSource arrivals, Statistics statistics, AdmissionControl admission,
+                            boolean keepHistory) {
+        this(arrivals, statistics, admission, keepHistory, SystemClock.INSTANCE);
+    }
+    
+    /**
+     * Constructor with a pluggable arrival stream and time source
+     * @param clock clock the lot runs on; stamps arrivals and paces the stream
+     */
+    public VehicleGenerator(ArrivalSource arrivals, Statistics statistics, AdmissionControl admission,
+                            boolean keepHistory, SimulationClock clock) {
+        this.arrivals = arrivals;
+        this.clock = clock;
+        this.totalVehicles = arrivals.getTotalArrivals();
+        this.durations = arrivals.getParkingDurations();
+        this.traceReplay = arrivals instanceof TraceReplay ? (TraceReplay) arrivals : null;
         this.statistics = statistics;
-        this.vehicleQueue = new LinkedBlockingQueue<>();
-        this.allVehicles = new CopyOnWriteArrayList<>();
-        this.vehicleCounter = new AtomicInteger(1);
-        this.generatedCount = new AtomicInteger(0);
+        this.admission = admission;
+        this.vehicleQueue = new LinkedBlockingQueue<>(admission.getArrivalCapacity());
+        this.vehicleStore = keepHistory ? new VehicleStore() : null;
+        this.vehicleCounter = new AtomicLong(1);
+        this.generatedCount = new AtomicLong(0);
         this.isGenerating = false;
         
-        logEvent("VehicleGenerator initialized for " + TOTAL_VEHICLES + " vehicles over " 
-                + simulationDurationMinutes + " minutes");
+        LOG.info("VehicleGenerator initialized - Arrivals: {}, History: {}",
+                arrivals.describe(), keepHistory ? "kept" : "off");
+    }
+    
+    /**
+     * Configured arrival stream: smartparking.arrivals.pattern is "phased"
+     * (default), "poisson" or "profile"; smartparking.arrivals.count sets the
+     * number of vehicles (a poisson or profile stream is unbounded unless it
+     * is set to a positive count) and
+     * smartparking.arrivals.ratePerMinute the poisson rate. A profile stream
+     * follows smartparking.arrivals.profile ("commuter", "event-night" or a
+     * CSV rate table) from smartparking.arrivals.startTime (HH:MM), with
+     * rates multiplied by smartparking.arrivals.rateScale. A "trace" stream
+     * replays the gate log at smartparking.replay.trace at
+     * smartparking.replay.speed ("realtime", "x60", "max")
+     * @param defaultVehicles phased vehicle count when none is configured
+     * @param simulationDurationMinutes simulation time for the phased pattern
+     */
+    public static ArrivalSource configuredArrivals(int defaultVehicles, int simulationDurationMinutes) {
+        String pattern = System.getProperty("smartparking.arrivals.pattern", "phased");
+        long count = Long.getLong("smartparking.arrivals.count", pattern.equals("phased") ? defaultVehicles : 0);
+        switch (pattern) {
+            case "phased":
+                return new PhasedArrivals(count, simulationDurationMinutes);
+            case "poisson":
+                double rate = Double.parseDouble(System.getProperty("smartparking.arrivals.ratePerMinute",
+                        String.valueOf(DEFAULT_ARRIVALS_PER_MINUTE)));
+                return new PoissonArrivals(rate, count > 0 ? count : ArrivalSource.UNBOUNDED);
+            case "profile":
+                return new ProfileArrivals(configuredProfile(),
+                        TrafficProfile.parseMinuteOfDay(System.getProperty("smartparking.arrivals.startTime", "00:00")),
+                        count > 0 ? count : ArrivalSource.UNBOUNDED);
+            case "trace":
+                String trace = System.getProperty("smartparking.replay.trace");
+                if (trace == null) {
+                    throw new IllegalArgumentException("smartparking.replay.trace must name the gate log to replay");
+                }
+                try {
+                    return new TraceReplay(Path.of(trace),
+                            TraceReplay.parseSpeed(System.getProperty("smartparking.replay.speed", "realtime")));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot open gate trace " + trace, e);
+                }
+            default:
+                throw new IllegalArgumentException("Unknown arrival pattern: " + pattern);
+        }
+    }
+    
+    /**
+     * Configured traffic profile, scaled by smartparking.arrivals.rateScale
+     */
+    private static TrafficProfile configuredProfile() {
+        String name = System.getProperty("smartparking.arrivals.profile", "commuter");
+        double scale = Double.parseDouble(System.getProperty("smartparking.arrivals.rateScale", "1.0"));
+        try {
+            return TrafficProfile.named(name).scaled(scale);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read traffic profile " + name, e);
+        }
+    }
+    
+    /**
+     * Configured history retention: smartparking.generator.history (default false,
+     * since the store grows with every vehicle of the stream)
+     */
+    static boolean configuredKeepHistory() {
+        return Boolean.parseBoolean(System.getProperty("smartparking.generator.history", "false"));
     }
     
     /**
@@ -63,7 +202,7 @@ public class VehicleGenerator {
      */
     public void startGeneration() {
         if (isGenerating) {
-            logEvent("Vehicle generation already running");
+            LOG.info("Vehicle generation already running");
             return;
         }
         
@@ -75,30 +214,33 @@ public class VehicleGenerator {
         });
         
         generatorExecutor.submit(this::generateVehicles);
-        logEvent("Vehicle generation started");
+        LOG.info("Vehicle generation started");
     }
     
     /**
-     * Main vehicle generation logic
+     * Main vehicle generation logic: one vehicle, then the source's gap, until the stream ends
      */
     private void generateVehicles() {
         try {
-            // Calculate arrival intervals
-            long totalSimulationMs = simulationDurationMinutes * 60 * 1000L;
-            
-            // Create different arrival patterns for congestion simulation
-            generateInitialRush();      // First 30 vehicles quickly (congestion)
-            generateSteadyFlow();       // Next 90 vehicles at regular intervals
-            generateFinalRush();        // Last 30 vehicles in bursts
-            
-            logEvent("All " + TOTAL_VEHICLES + " vehicles generated successfully");
+            long carryNanos = 0;
+            for (long index = 0; index < totalVehicles && isGenerating; index++) {
+                Car car = createVehicle();
+                addVehicleToQueue(car);
+                
+                // clock.sleep() takes whole milliseconds; carry the rest so sub-millisecond gaps keep their rate
+                long gapNanos = arrivals.nextGapNanos(index, clock.random()) + carryNanos;
+                clock.sleep(gapNanos / NANOS_PER_MS);
+                carryNanos = gapNanos % NANOS_PER_MS;
+            }
             
+            LOG.info("All {} vehicles generated successfully", generatedCount.get());
+        
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            logEvent("Vehicle generation interrupted");
+            LOG.info("Vehicle generation interrupted");
             statistics.recordError("GENERATION_INTERRUPTED", "Vehicle generation was interrupted");
         } catch (Exception e) {
-            logEvent("ERROR: Exception during vehicle generation - " + e.getMessage());
+            LOG.error("ERROR: Exception during vehicle generation - {}", e.getMessage());
             statistics.recordError("GENERATION_ERROR", "Exception during vehicle generation: " + e.getMessage());
         } finally {
             isGenerating = false;
@@ -106,131 +248,148 @@ public class VehicleGenerator {
     }
     
     /**
-     * Generate initial rush of vehicles to create congestion
+     * Draw the gap between vehicle {@code index} and the next arrival
+     * @param index zero-based position of the vehicle in the arrival sequence
+     * @param random generator to draw from (the simulation clock's)
+     * @return gap in nanoseconds
      */
-    private void generateInitialRush() throws InterruptedException {
-        logEvent("Starting initial rush - generating 30 vehicles quickly");
-        
-        for (int i = 0; i < 30 && isGenerating; i++) {
-            Car car = createVehicle();
-            addVehicleToQueue(car);
-            
-            // Short intervals for congestion (1-3 seconds)
-            Thread.sleep(ThreadLocalRandom.current().nextLong(1000, 3001));
-        }
-        
-        logEvent("Initial rush completed - " + generatedCount.get() + " vehicles generated");
+    public long sampleArrivalGapNanos(long index, Random random) {
+        return arrivals.nextGapNanos(index, random);
     }
     
     /**
-     * Generate steady flow of vehicles
+     * Create a new vehicle with realistic data, stamped by the generator's clock
+     * Also used by the discrete-event engine, which bypasses the generator queue
      */
-    private void generateSteadyFlow() throws InterruptedException {
-        logEvent("Starting steady flow - generating 90 vehicles at regular intervals");
+    Car createVehicle() {
+        long carNumber = vehicleCounter.getAndIncrement();
+        String carId = formatCarId(carNumber);
+        String licensePlate = formatLicensePlate(carNumber);
+        String ownerName = OWNER_NAMES[ownerIndex(carNumber)];
         
-        // Calculate interval for steady flow (remaining time / remaining vehicles)
-        long remainingTimeMs = (simulationDurationMinutes * 60 * 1000L) * 60 / 100; // 60% of time
-        long baseInterval = remainingTimeMs / 90;
-        
-        for (int i = 0; i < 90 && isGenerating; i++) {
-            Car car = createVehicle();
-            addVehicleToQueue(car);
-            
-            // Regular intervals with some randomness
-            long interval = (long) (baseInterval * (0.5 + ThreadLocalRandom.current().nextDouble()));
-            Thread.sleep(interval);
+        Car car;
+        if (traceReplay != null) {
+            car = traceReplay.createVehicle(carId, clock);
+        } else if (durations != null) {
+            CarType type = CAR_TYPES[clock.random().nextInt(CAR_TYPES.length)];
+            car = new Car(carId, licensePlate, ownerName, type, durations.sampleMinutes(type, clock.random()), clock);
+        } else {
+            car = new Car(carId, licensePlate, ownerName, clock);
         }
-        
-        logEvent("Steady flow completed - " + generatedCount.get() + " vehicles generated");
+        if (vehicleStore != null) {
+            vehicleStore.add(car, carNumber);
+        }
+        return car;
     }
     
     /**
-     * Generate final rush of vehicles
+     * Add vehicle to queue and tracking lists
+     * A full arrival buffer is handed to admission control: the vehicle is
+     * turned away or diverted, or generation blocks until the gates catch up
      */
-    private void generateFinalRush() throws InterruptedException {
-        logEvent("Starting final rush - generating 30 vehicles in bursts");
-        
-        // Generate in 3 bursts of 10 vehicles each
-        for (int burst = 0; burst < 3 && isGenerating; burst++) {
-            logEvent("Final rush burst " + (burst + 1) + " starting");
-            
-            // Generate 10 vehicles quickly
-            for (int i = 0; i < 10 && isGenerating; i++) {
-                Car car = createVehicle();
-                addVehicleToQueue(car);
-                
-                // Very short intervals for rush effect
-                Thread.sleep(ThreadLocalRandom.current().nextLong(500, 2001));
+    private void addVehicleToQueue(Car car) {
+        try {
+            boolean queued = vehicleQueue.offer(car);
+            if (!queued && admission.onArrivalBufferFull(car)) {
+                vehicleQueue.put(car);
+                queued = true;
             }
+            long count = generatedCount.incrementAndGet();
+            
+            // Record statistics for vehicle generation
+            statistics.recordVehicleGenerated();
+            statistics.updatePeakWaitingQueue(vehicleQueue.size());
             
-            // Pause between bursts
-            if (burst < 2) {
-                Thread.sleep(ThreadLocalRandom.current().nextLong(10000, 20001)); // 10-20 seconds
+            if (queued) {
+                LOG.info("Vehicle {} [{}] generated ({}/{})", car.getCarId(), car.getLicensePlate(), count, totalVehicles);
+            } else {
+                LOG.info("Vehicle {} [{}] generated but not admitted - arrival buffer full ({}/{})",
+                        car.getCarId(), car.getLicensePlate(), count, totalVehicles);
             }
-        }
         
-        logEvent("Final rush completed - " + generatedCount.get() + " vehicles generated");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.info("Failed to add vehicle {} to queue", car.getCarId());
+            statistics.recordError("QUEUE_ADD_FAILED", "Failed to add vehicle " + car.getCarId() + " to queue");
+        }
     }
     
     /**
-     * Create a new vehicle with realistic data
+     * Format "CAR-001" style ids without String.format
      */
-    private Car createVehicle() {
-        int carNumber = vehicleCounter.getAndIncrement();
-        String carId = String.format("CAR-%03d", carNumber);
-        String licensePlate = generateLicensePlate(carNumber);
-        String ownerName = generateOwnerName(carNumber);
-        
-        return new Car(carId, licensePlate, ownerName);
+    static String formatCarId(long carNumber) {
+        StringBuilder sb = new StringBuilder(12).append("CAR-");
+        if (carNumber < 100) sb.append('0');
+        if (carNumber < 10) sb.append('0');
+        return sb.append(carNumber).toString();
     }
     
     /**
-     * Add vehicle to queue and tracking lists
+     * Numeric part of a "CAR-001" style id
+     * @return the number, or 0 if the id is not in that form
      */
-    private void addVehicleToQueue(Car car) {
+    static long parseCarNumber(String carId) {
+        if (carId == null || !carId.startsWith("CAR-")) {
+            return 0;
+        }
         try {
-            vehicleQueue.put(car);
-            allVehicles.add(car);
-            int count = generatedCount.incrementAndGet();
-            
-            // Record statistics for vehicle generation
-            statistics.recordVehicleGenerated();
-            
-            logEvent("Vehicle " + car.getCarId() + " [" + car.getLicensePlate() + 
-                    "] generated (" + count + "/" + TOTAL_VEHICLES + ")");
-            
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            logEvent("Failed to add vehicle " + car.getCarId() + " to queue");
-            statistics.recordError("QUEUE_ADD_FAILED", "Failed to add vehicle " + car.getCarId() + " to queue");
+            return Long.parseLong(carId.substring(4));
+        } catch (NumberFormatException e) {
+            return 0;
         }
     }
     
     /**
-     * Generate realistic license plate
+     * Continue numbering after the highest id among cars already in the lot
+     * Cars recovered from a journal or an occupancy file keep their ids, and
+     * journal state and pay-later tokens are keyed by id, so new arrivals
+     * must not reuse them. Call before startGeneration().
+     * @param recovered cars the lot came back with
      */
-    private String generateLicensePlate(int carNumber) {
-        String[] states = {"WVA", "KL", "JHR", "PNG", "SBH", "SWK"};
-        String state = states[carNumber % states.length];
-        int number = 1000 + (carNumber % 9000);
-        char letter = (char) ('A' + (carNumber % 26));
-        
-        return String.format("%s%d%c", state, number, letter);
+    public void continueNumberingAfter(Collection<Car> recovered) {
+        long highest = 0;
+        for (Car car : recovered) {
+            highest = Math.max(highest, parseCarNumber(car.getCarId()));
+        }
+        long next = highest + 1;
+        vehicleCounter.accumulateAndGet(next, Math::max);
+        if (highest > 0) {
+            LOG.info("Car numbering continues from {} after recovered vehicles", next);
+        }
     }
     
     /**
-     * Generate random owner name
+     * Generate realistic license plate: state prefix, 4-digit number, letter
      */
-    private String generateOwnerName(int carNumber) {
-        String[] firstNames = {"Ahmad", "Siti", "Raj", "Mei", "Kumar", "Fatimah", 
-                               "Chen", "Aisha", "David", "Priya", "Hassan", "Lisa"};
-        String[] lastNames = {"Abdullah", "Wong", "Singh", "Tan", "Ali", "Lim", 
-                              "Rahman", "Chong", "Kumar", "Lee", "Ismail", "Ng"};
-        
-        String firstName = firstNames[carNumber % firstNames.length];
-        String lastName = lastNames[(carNumber * 7) % lastNames.length];
-        
-        return firstName + " " + lastName;
+    static String formatLicensePlate(long carNumber) {
+        return new StringBuilder(9)
+                .append(PLATE_STATES[(int) Math.floorMod(carNumber, (long) PLATE_STATES.length)])
+                .append(1000 + Math.floorMod(carNumber, 9000L))
+                .append((char) ('A' + Math.floorMod(carNumber, 26L)))
+                .toString();
+    }
+    
+    /**
+     * Owner name slot for a car: first name by number, last name by 7 x number
+     * The number is reduced before multiplying so long streams cannot overflow
+     */
+    private static int ownerIndex(long carNumber) {
+        int first = (int) Math.floorMod(carNumber, (long) FIRST_NAMES.length);
+        int last = (int) Math.floorMod(Math.floorMod(carNumber, (long) LAST_NAMES.length) * 7, (long) LAST_NAMES.length);
+        return first * LAST_NAMES.length + last;
+    }
+    
+    /**
+     * Every first/last name pairing, built once so owners are shared strings
+     */
+    private static String[] buildOwnerNames() {
+        String[] names = new String[FIRST_NAMES.length * LAST_NAMES.length];
+        for (int first = 0; first < FIRST_NAMES.length; first++) {
+            for (int last = 0; last < LAST_NAMES.length; last++) {
+                names[first * LAST_NAMES.length + last] = FIRST_NAMES[first] + " " + LAST_NAMES[last];
+            }
+        }
+        return names;
     }
     
     /**
@@ -277,7 +436,10 @@ public class VehicleGenerator {
                 Thread.currentThread().interrupt();
             }
         }
-        logEvent("Vehicle generation stopped");
+        if (traceReplay != null) {
+            traceReplay.close();
+        }
+        LOG.info("Vehicle generation stopped");
     }
     
     /**
@@ -285,19 +447,43 @@ public class VehicleGenerator {
      */
     public GenerationStats getStats() {
         return new GenerationStats(
-                TOTAL_VEHICLES,
+                totalVehicles,
                 generatedCount.get(),
                 vehicleQueue.size(),
-                allVehicles.size(),
+                vehicleStore != null ? vehicleStore.size() : 0,
                 isGenerating
         );
     }
     
     /**
-     * Get all generated vehicles (defensive copy)
+     * Get number of vehicles this generator produces
+     * @return vehicle count, or ArrivalSource.UNBOUNDED
+     */
+    public long getTotalVehicles() {
+        return totalVehicles;
+    }
+    
+    /**
+     * Get the arrival stream this generator follows
+     */
+    public ArrivalSource getArrivals() {
+        return arrivals;
+    }
+    
+    /**
+     * Get the columnar history of all generated vehicles
+     * Register it with the lot and payment processor to keep it current.
+     * @return the store, or null when history is switched off
+     */
+    public VehicleStore getVehicleStore() {
+        return vehicleStore;
+    }
+    
+    /**
+     * Get the admission control applied to this generator's arrivals
      */
-    public List<Car> getAllVehicles() {
-        return new ArrayList<>(allVehicles);
+    public AdmissionControl getAdmissionControl() {
+        return admission;
     }
     
     /**
@@ -318,28 +504,20 @@ public class VehicleGenerator {
      * Check if generation is complete
      */
     public boolean isGenerationComplete() {
-        return generatedCount.get() >= TOTAL_VEHICLES && !isGenerating;
-    }
-    
-    /**
-     * Utility method for consistent logging
-     */
-    private void logEvent(String message) {
-        System.out.println("[" + LocalDateTime.now().format(TIME_FORMAT) + 
-                          "] [VEHICLE_GEN] " + message);
+        return generatedCount.get() >= totalVehicles && !isGenerating;
     }
     
     /**
      * Inner class for generation statistics
      */
     public static class GenerationStats {
-        private final int totalVehicles;
-        private final int generatedCount;
+        private final long totalVehicles;
+        private final long generatedCount;
         private final int queueSize;
         private final int trackedVehicles;
         private final boolean isGenerating;
         
-        public GenerationStats(int total, int generated, int queue, int tracked, boolean generating) {
+        public GenerationStats(long total, long generated, int queue, int tracked, boolean generating) {
             this.totalVehicles = total;
             this.generatedCount = generated;
             this.queueSize = queue;
@@ -348,16 +526,16 @@ public class VehicleGenerator {
         }
         
         // Getters
-        public int getTotalVehicles() { return totalVehicles; }
-        public int getGeneratedCount() { return generatedCount; }
+        public long getTotalVehicles() { return totalVehicles; }
+        public long getGeneratedCount() { return generatedCount; }
         public int getQueueSize() { return queueSize; }
         public int getTrackedVehicles() { return trackedVehicles; }
         public boolean isGenerating() { return isGenerating; }
         
         @Override
         public String toString() {
-            return String.format("Generation Stats - Total: %d, Generated: %d, Queue: %d, Tracked: %d, Active: %s",
-                    totalVehicles, generatedCount, queueSize, trackedVehicles, isGenerating);
+            return String.format("Generation Stats - Total: %s, Generated: %d, Queue: %d, Tracked: %d, Active: %s",
+                    totalVehicles == ArrivalSource.UNBOUNDED ? "unbounded" : String.valueOf(totalVehicles), generatedCount, queueSize, trackedVehicles, isGenerating);
         }
     }
 }
\ No newline at end of file
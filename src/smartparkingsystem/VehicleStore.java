@@ -0,0 +1,333 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * VehicleStore - Columnar history of every vehicle the generator has produced
+ * Each attribute lives in its own primitive column (struct of arrays) instead
+ * of one Car object per vehicle: numeric ids, nanoTime stamps, a type byte,
+ * the space number and the fee in cents. Plates and owners repeat heavily,
+ * so they are dictionary-encoded and the columns hold int codes.
+ * Columns grow in fixed-size chunks, so appending never copies the history.
+ *
+ * The generator appends on creation; park, exit and payment updates arrive
+ * through the lot and payment listeners. Live Car objects are only needed
+ * while a vehicle is in the system, and the store keeps the rest.
+ */
+public class VehicleStore implements ParkingListener, PaymentListener {
+    
+    // Constants
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;  // 16384 vehicles per chunk
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int INITIAL_CHUNKS = 4;
+    private static final byte FLAG_PAID = 1;
+    private static final CarType[] CAR_TYPES = CarType.values();
+    
+    // Bytes held per vehicle by the columns below (dictionaries not included)
+    public static final int BYTES_PER_VEHICLE =
+            Integer.BYTES * 5 + Long.BYTES * 4 + Byte.BYTES * 2;
+    
+    // Columns, indexed [chunk][offset]; directories are replaced (not copied into) on growth
+    private long[][] carNumbers;
+    private int[][] plateCodes;
+    private int[][] ownerCodes;
+    private byte[][] carTypes;
+    private int[][] plannedMinutes;
+    private long[][] arrivalNanos;
+    private long[][] parkingNanos;
+    private long[][] exitNanos;
+    private int[][] spaceNumbers;
+    private int[][] paymentCents;
+    private byte[][] flags;
+    
+    // Dictionaries for repeating strings
+    private final StringDictionary plates;
+    private final StringDictionary owners;
+    
+    // Appended rows; written after the row so readers below size see it whole
+    private volatile int size;
+    
+    /**
+     * Constructor
+     */
+    public VehicleStore() {
+        this.plates = new StringDictionary();
+        this.owners = new StringDictionary();
+        allocateDirectories(INITIAL_CHUNKS);
+    }
+    
+    /**
+     * Append a newly generated vehicle and remember its row on the car
+     * @param car the vehicle
+     * @param carNumber numeric part of its id
+     * @return row index (also the handle index)
+     */
+    public synchronized int add(Car car, long carNumber) {
+        int index = size;
+        int chunk = index >>> CHUNK_BITS;
+        if (chunk == carNumbers.length) {
+            allocateDirectories(carNumbers.length * 2);
+        }
+        if (carNumbers[chunk] == null) {
+            allocateChunk(chunk);
+        }
+        
+        int offset = index & CHUNK_MASK;
+        carNumbers[chunk][offset] = carNumber;
+        plateCodes[chunk][offset] = plates.encode(car.getLicensePlate());
+        ownerCodes[chunk][offset] = owners.encode(car.getOwnerName());
+        carTypes[chunk][offset] = (byte) car.getCarType().ordinal();
+        plannedMinutes[chunk][offset] = car.getPlannedParkingDuration();
+        arrivalNanos[chunk][offset] = car.getArrivalNanos();
+        parkingNanos[chunk][offset] = car.getParkingNanos();
+        exitNanos[chunk][offset] = car.getExitNanos();
+        spaceNumbers[chunk][offset] = car.getSpaceNumber();
+        
+        car.setStoreIndex(index);
+        size = index + 1;
+        return index;
+    }
+    
+    /**
+     * Grow every column directory; existing chunks are shared, not copied
+     */
+    private void allocateDirectories(int chunks) {
+        carNumbers = carNumbers == null ? new long[chunks][] : Arrays.copyOf(carNumbers, chunks);
+        plateCodes = plateCodes == null ? new int[chunks][] : Arrays.copyOf(plateCodes, chunks);
+        ownerCodes = ownerCodes == null ? new int[chunks][] : Arrays.copyOf(ownerCodes, chunks);
+        carTypes = carTypes == null ? new byte[chunks][] : Arrays.copyOf(carTypes, chunks);
+        plannedMinutes = plannedMinutes == null ? new int[chunks][] : Arrays.copyOf(plannedMinutes, chunks);
+        arrivalNanos = arrivalNanos == null ? new long[chunks][] : Arrays.copyOf(arrivalNanos, chunks);
+        parkingNanos = parkingNanos == null ? new long[chunks][] : Arrays.copyOf(parkingNanos, chunks);
+        exitNanos = exitNanos == null ? new long[chunks][] : Arrays.copyOf(exitNanos, chunks);
+        spaceNumbers = spaceNumbers == null ? new int[chunks][] : Arrays.copyOf(spaceNumbers, chunks);
+        paymentCents = paymentCents == null ? new int[chunks][] : Arrays.copyOf(paymentCents, chunks);
+        flags = flags == null ? new byte[chunks][] : Arrays.copyOf(flags, chunks);
+    }
+    
+    private void allocateChunk(int chunk) {
+        carNumbers[chunk] = new long[CHUNK_SIZE];
+        plateCodes[chunk] = new int[CHUNK_SIZE];
+        ownerCodes[chunk] = new int[CHUNK_SIZE];
+        carTypes[chunk] = new byte[CHUNK_SIZE];
+        plannedMinutes[chunk] = new int[CHUNK_SIZE];
+        arrivalNanos[chunk] = new long[CHUNK_SIZE];
+        parkingNanos[chunk] = new long[CHUNK_SIZE];
+        exitNanos[chunk] = new long[CHUNK_SIZE];
+        spaceNumbers[chunk] = new int[CHUNK_SIZE];
+        paymentCents[chunk] = new int[CHUNK_SIZE];
+        flags[chunk] = new byte[CHUNK_SIZE];
+    }
+    
+    /**
+     * Row of a car, or -1 if it was not generated through this store
+     */
+    private int rowOf(Car car) {
+        int index = car.getStoreIndex();
+        return (index >= 0 && index < size) ? index : -1;
+    }
+    
+    @Override
+    public void onCarParked(Car car, int spaceNumber) {
+        int index = rowOf(car);
+        if (index == -1) {
+            return;
+        }
+        int chunk = index >>> CHUNK_BITS;
+        int offset = index & CHUNK_MASK;
+        parkingNanos[chunk][offset] = car.getParkingNanos();
+        spaceNumbers[chunk][offset] = spaceNumber;
+    }
+    
+    @Override
+    public void onCarRemoved(Car car, int spaceNumber) {
+        int index = rowOf(car);
+        if (index == -1) {
+            return;
+        }
+        exitNanos[index >>> CHUNK_BITS][index & CHUNK_MASK] = car.getExitNanos();
+    }
+    
+    @Override
+    public void onPaymentSettled(Car car, long amountInCents) {
+        int index = rowOf(car);
+        if (index == -1) {
+            return;
+        }
+        int chunk = index >>> CHUNK_BITS;
+        int offset = index & CHUNK_MASK;
+        paymentCents[chunk][offset] = (int) amountInCents;
+        flags[chunk][offset] |= FLAG_PAID;
+    }
+    
+    /**
+     * Get number of vehicles stored
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Get a handle to one stored vehicle
+     * @param index row index, 0 to size() - 1
+     */
+    public VehicleHandle get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Vehicle " + index + " of " + size);
+        }
+        return new VehicleHandle(this, index);
+    }
+    
+    /**
+     * Get handles to every stored vehicle, in generation order
+     */
+    public List<VehicleHandle> handles() {
+        int count = size;
+        List<VehicleHandle> result = new ArrayList<VehicleHandle>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(new VehicleHandle(this, i));
+        }
+        return result;
+    }
+    
+    /**
+     * Get store size and footprint
+     */
+    public StoreStats getStats() {
+        int count = size;
+        int chunks = count == 0 ? 0 : ((count - 1) >>> CHUNK_BITS) + 1;
+        return new StoreStats(count, plates.size(), owners.size(), (long) chunks * CHUNK_SIZE * BYTES_PER_VEHICLE);
+    }
+    
+    // Column reads for handles
+    long carNumberAt(int i) { return carNumbers[i >>> CHUNK_BITS][i & CHUNK_MASK]; }
+    String plateAt(int i) { return plates.decode(plateCodes[i >>> CHUNK_BITS][i & CHUNK_MASK]); }
+    String ownerAt(int i) { return owners.decode(ownerCodes[i >>> CHUNK_BITS][i & CHUNK_MASK]); }
+    CarType carTypeAt(int i) { return CAR_TYPES[carTypes[i >>> CHUNK_BITS][i & CHUNK_MASK]]; }
+    int plannedMinutesAt(int i) { return plannedMinutes[i >>> CHUNK_BITS][i & CHUNK_MASK]; }
+    long arrivalNanosAt(int i) { return arrivalNanos[i >>> CHUNK_BITS][i & CHUNK_MASK]; }
+    long parkingNanosAt(int i) { return parkingNanos[i >>> CHUNK_BITS][i & CHUNK_MASK]; }
+    long exitNanosAt(int i) { return exitNanos[i >>> CHUNK_BITS][i & CHUNK_MASK]; }
+    int spaceNumberAt(int i) { return spaceNumbers[i >>> CHUNK_BITS][i & CHUNK_MASK]; }
+    int paymentCentsAt(int i) { return paymentCents[i >>> CHUNK_BITS][i & CHUNK_MASK]; }
+    boolean isPaidAt(int i) { return (flags[i >>> CHUNK_BITS][i & CHUNK_MASK] & FLAG_PAID) != 0; }
+    
+    /**
+     * VehicleHandle - Read-only view of one row
+     * Two fields; every getter reads the columns, so a handle always shows
+     * the vehicle's latest recorded state.
+     */
+    public static final class VehicleHandle {
+        private final VehicleStore store;
+        private final int index;
+        
+        VehicleHandle(VehicleStore store, int index) {
+            this.store = store;
+            this.index = index;
+        }
+        
+        // Getters
+        public int getIndex() { return index; }
+        public long getCarNumber() { return store.carNumberAt(index); }
+        public String getCarId() { return VehicleGenerator.formatCarId(store.carNumberAt(index)); }
+        public String getLicensePlate() { return store.plateAt(index); }
+        public String getOwnerName() { return store.ownerAt(index); }
+        public CarType getCarType() { return store.carTypeAt(index); }
+        public int getPlannedParkingDuration() { return store.plannedMinutesAt(index); }
+        public long getArrivalNanos() { return store.arrivalNanosAt(index); }
+        public long getParkingNanos() { return store.parkingNanosAt(index); }
+        public long getExitNanos() { return store.exitNanosAt(index); }
+        public boolean hasExited() { return store.exitNanosAt(index) != Car.NOT_SET; }
+        public int getSpaceNumber() { return store.spaceNumberAt(index); }
+        public boolean isPaid() { return store.isPaidAt(index); }
+        public double getPaymentAmount() { return store.paymentCentsAt(index) / 100.0; }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof VehicleHandle)) return false;
+            VehicleHandle other = (VehicleHandle) obj;
+            return store == other.store && index == other.index;
+        }
+        
+        @Override
+        public int hashCode() {
+            return index;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("Vehicle{id='%s', plate='%s', owner='%s', type=%s, space=%d, paid=%s}",
+                    getCarId(), getLicensePlate(), getOwnerName(), getCarType(), getSpaceNumber(), isPaid());
+        }
+    }
+    
+    /**
+     * Interns strings as dense int codes
+     */
+    private static class StringDictionary {
+        private final Map<String, Integer> codes = new HashMap<String, Integer>();
+        private final List<String> values = new ArrayList<String>();
+        
+        synchronized int encode(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+        
+        synchronized String decode(int code) {
+            return values.get(code);
+        }
+        
+        synchronized int size() {
+            return values.size();
+        }
+    }
+    
+    /**
+     * Inner class for store statistics
+     */
+    public static class StoreStats {
+        private final int vehicles;
+        private final int distinctPlates;
+        private final int distinctOwners;
+        private final long columnBytes;
+        
+        public StoreStats(int vehicles, int plates, int owners, long columnBytes) {
+            this.vehicles = vehicles;
+            this.distinctPlates = plates;
+            this.distinctOwners = owners;
+            this.columnBytes = columnBytes;
+        }
+        
+        // Getters
+        public int getVehicles() { return vehicles; }
+        public int getDistinctPlates() { return distinctPlates; }
+        public int getDistinctOwners() { return distinctOwners; }
+        public long getColumnBytes() { return columnBytes; }
+        
+        @Override
+        public String toString() {
+            return String.format("Vehicle Store - Vehicles: %d, Distinct plates: %d, Distinct owners: %d, Columns: %d KB",
+                    vehicles, distinctPlates, distinctOwners, columnBytes / 1024);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package smartparkingsystem;
+
+/**
+ *
+ * @author amiryusof
+ */
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * VirtualClock - Manually advanced SimulationClock for discrete-event runs
+ * Time only moves when the event loop advances it, so a day of traffic can be
+ * simulated in seconds. Sleeping advances the clock instead of blocking, which
+ * is only meaningful for single-threaded use. Random draws come from one
+ * seeded generator, so a fixed start and seed give the same run every time.
+ */
+public class VirtualClock implements SimulationClock {
+    
+    // Constants
+    public static final long DEFAULT_SEED = 1L;
+    
+    // Time origin
+    private final LocalDateTime startDateTime;
+    private final long startEpochMillis;
+    
+    // Elapsed virtual time
+    private volatile long elapsedNanos;
+    
+    // Random draws for everything on this time line
+    private final Random random;
+    
+    /**
+     * Constructor starting at the current wall-clock time with an unseeded generator
+     */
+    public VirtualClock() {
+        this(LocalDateTime.now(), new Random());
+    }
+    
+    /**
+     * Constructor starting at a fixed date-time with the default seed (reproducible runs)
+     * @param startDateTime virtual time origin
+     */
+    public VirtualClock(LocalDateTime startDateTime) {
+        this(startDateTime, DEFAULT_SEED);
+    }
+    
+    /**
+     * Constructor starting at a fixed date-time with a given seed (reproducible runs)
+     * @param startDateTime virtual time origin
+     * @param seed seed for every random draw made on this clock
+     */
+    public VirtualClock(LocalDateTime startDateTime, long seed) {
+        this(startDateTime, new Random(seed));
+    }
+    
+    private VirtualClock(LocalDateTime startDateTime, Random random) {
+        this.startDateTime = startDateTime;
+        this.startEpochMillis = startDateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        this.elapsedNanos = 0;
+        this.random = random;
+    }
+    
+    /**
+     * Move the clock forward to an absolute virtual time
+     * @param nanos target time as returned by nanoTime()
+     * @throws IllegalArgumentException if the target lies in the past
+     */
+    public void advanceTo(long nanos) {
+        if (nanos < elapsedNanos) {
+            throw new IllegalArgumentException("Virtual time cannot move backwards: " + nanos + " < " + elapsedNanos);
+        }
+        elapsedNanos = nanos;
+    }
+    
+    /**
+     * Move the clock forward by a relative amount
+     */
+    public void advanceBy(long nanos) {
+        advanceTo(elapsedNanos + nanos);
+    }
+    
+    @Override
+    public long nanoTime() {
+        return elapsedNanos;
+    }
+    
+    @Override
+    public long currentTimeMillis() {
+        return startEpochMillis + TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+    
+    @Override
+    public LocalDateTime now() {
+        return startDateTime.plusNanos(elapsedNanos);
+    }
+    
+    @Override
+    public void sleep(long millis) {
+        advanceBy(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+    
+    @Override
+    public Random random() {
+        return random;
+    }
+    
+    /**
+     * Get the virtual time origin
+     */
+    public LocalDateTime getStartDateTime() {
+        return startDateTime;
+    }
+}